@@ -0,0 +1,52 @@
+package de.holisticon.toolbox.generator.benchmark;
+
+/**
+ * Fixture bean for {@link RuntimeBenchmark}. The mutators do not allocate, so all allocation measured besides the bean itself is caused by
+ * the fluent wrapper.
+ * @author Jan Galinski, Holisticon AG
+ */
+public class BenchmarkBean {
+
+    private String name;
+    private int age;
+    private boolean active;
+    private int tagCount;
+    private String lastTag;
+
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    public void setAge(final int age) {
+        this.age = age;
+    }
+
+    public void setActive(final boolean active) {
+        this.active = active;
+    }
+
+    public void addTag(final String tag) {
+        tagCount++;
+        lastTag = tag;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public int getTagCount() {
+        return tagCount;
+    }
+
+    public String getLastTag() {
+        return lastTag;
+    }
+}
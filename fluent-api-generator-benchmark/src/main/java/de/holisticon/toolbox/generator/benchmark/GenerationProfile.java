@@ -0,0 +1,41 @@
+package de.holisticon.toolbox.generator.benchmark;
+
+import de.holisticon.toolbox.generator.benchmark.GeneratorBenchmark.ClassSet;
+import de.holisticon.toolbox.generator.metrics.GenerationReport;
+
+/**
+ * Runs the generation of a {@link ClassSet} of the {@link GeneratorBenchmark} several times with a {@link JfrGenerationListener} and prints the
+ * report of the last run. Start it with <code>-XX:StartFlightRecording</code> to record the events, see README.md.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class GenerationProfile {
+
+    private static final int DEFAULT_RUNS = 10;
+
+    private GenerationProfile() {
+        // main class
+    }
+
+    /**
+     * @param args class set (default VAADIN) and number of runs (default {@value #DEFAULT_RUNS})
+     * @throws Exception if the class set can not be set up
+     */
+    public static void main(final String[] args) throws Exception {
+        final GeneratorBenchmark benchmark = new GeneratorBenchmark();
+        benchmark.classSet = args.length > 0 ? ClassSet.valueOf(args[0]) : ClassSet.VAADIN;
+        benchmark.parallelism = 1;
+        final int runs = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RUNS;
+
+        benchmark.setUp();
+        try {
+            final JfrGenerationListener listener = new JfrGenerationListener();
+            GenerationReport report = null;
+            for (int i = 0; i < runs; i++) {
+                report = benchmark.generate(listener).getReport();
+            }
+            System.out.println(report);
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+}
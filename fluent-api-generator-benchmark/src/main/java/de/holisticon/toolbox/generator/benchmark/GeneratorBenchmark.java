@@ -0,0 +1,192 @@
+package de.holisticon.toolbox.generator.benchmark;
+
+import static com.google.common.base.Preconditions.checkState;
+import static de.holisticon.toolbox.generator.FluentApiGenerator.fluentApiGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.CheckBox;
+import com.vaadin.ui.ComboBox;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.DateField;
+import com.vaadin.ui.FormLayout;
+import com.vaadin.ui.GridLayout;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Link;
+import com.vaadin.ui.ListSelect;
+import com.vaadin.ui.NativeSelect;
+import com.vaadin.ui.OptionGroup;
+import com.vaadin.ui.Panel;
+import com.vaadin.ui.PasswordField;
+import com.vaadin.ui.PopupDateField;
+import com.vaadin.ui.Slider;
+import com.vaadin.ui.TabSheet;
+import com.vaadin.ui.Table;
+import com.vaadin.ui.TextArea;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.Tree;
+import com.vaadin.ui.VerticalLayout;
+import com.vaadin.ui.Window;
+
+import de.holisticon.toolbox.generator.FluentApiGenerator;
+import de.holisticon.toolbox.generator.FluentApiGeneratorBuilder;
+import de.holisticon.toolbox.generator.metrics.GenerationListener;
+import de.holisticon.toolbox.generator.verify.CompilationResult;
+import de.holisticon.toolbox.generator.verify.SourceCompiler;
+
+/**
+ * Throughput of {@link FluentApiGenerator#addClasses(java.util.Collection)} and {@link FluentApiGenerator#generateCode()} for realistic class
+ * sets. Run with <code>-prof gc -prof de.holisticon.toolbox.generator.benchmark.PeakHeapProfiler</code> to get the allocation rate and the
+ * peak heap, see README.md.
+ * @author Jan Galinski, Holisticon AG
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgs = { "-Xms1g", "-Xmx1g" })
+public class GeneratorBenchmark {
+
+    private static final String ROOT_PACKAGE = "de.holisticon.toolbox.generator.benchmark.fluent";
+
+    private static final int SYNTHETIC_BEANS = 1000;
+
+    public enum ClassSet {
+        /**
+         * One bean with a deep hierarchy.
+         */
+        SINGLE,
+        /**
+         * Vaadin components, sharing most of their setters via AbstractComponent and AbstractField.
+         */
+        VAADIN,
+        /**
+         * {@value GeneratorBenchmark#SYNTHETIC_BEANS} generated beans, see {@link SyntheticBeans}.
+         */
+        SYNTHETIC
+    }
+
+    @Param
+    public ClassSet classSet;
+
+    /**
+     * Analysis threads, see {@link FluentApiGeneratorBuilder#parallelism(int)}. Run with <code>-p parallelism=1,2,4</code> to measure the
+     * scaling, it is bounded by the available cores.
+     */
+    @Param("1")
+    public int parallelism;
+
+    private File workDirectory;
+    private File targetDirectory;
+    private List<Class<?>> sourceClasses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workDirectory = Files.createTempDir();
+        targetDirectory = new File(workDirectory, "generated");
+        switch (classSet) {
+        case SINGLE:
+            sourceClasses = ImmutableList.<Class<?>> of(TextField.class);
+            break;
+        case VAADIN:
+            sourceClasses = ImmutableList.<Class<?>> of(TextField.class, TextArea.class, PasswordField.class, CheckBox.class, ComboBox.class,
+                    ListSelect.class, NativeSelect.class, OptionGroup.class, DateField.class, PopupDateField.class, Slider.class, Table.class,
+                    Tree.class, Button.class, Label.class, Link.class, Panel.class, Window.class, TabSheet.class, VerticalLayout.class,
+                    HorizontalLayout.class, FormLayout.class, GridLayout.class, CssLayout.class);
+            break;
+        case SYNTHETIC:
+            sourceClasses = SyntheticBeans.create(workDirectory, SYNTHETIC_BEANS);
+            break;
+        default:
+            throw new IllegalArgumentException(classSet.name());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        deleteRecursively(workDirectory);
+    }
+
+    @Benchmark
+    public FluentApiGenerator generate() {
+        return generate(new GenerationListener[0]);
+    }
+
+    FluentApiGenerator generate(final GenerationListener... listeners) {
+        final FluentApiGeneratorBuilder builder = fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(targetDirectory.getPath())
+                .parallelism(parallelism);
+        if (listeners.length > 0) {
+            builder.addGenerationListeners(listeners);
+        }
+        final FluentApiGenerator generator = builder.build().addClasses(sourceClasses);
+        generator.generateCode();
+        return generator;
+    }
+
+    /**
+     * Compiles the sources of a directory in memory with the {@link SourceCompiler} of the generator.
+     * @param sourceDirectory directory containing the java sources
+     * @return class loader for the compiled classes, child of the benchmark class loader
+     * @throws IOException if a source can not be read
+     */
+    static ClassLoader compile(final File sourceDirectory) throws IOException {
+        final Map<String, String> sources = Maps.newHashMap();
+        collectSources(sourceDirectory, "", sources);
+        final ClassLoader parent = GeneratorBenchmark.class.getClassLoader();
+        final CompilationResult result = SourceCompiler.compile(sources, SourceCompiler.classPath(ImmutableList.<File> of(), parent));
+        checkState(result.isSuccess(), "%s", result);
+        return result.classLoader(parent);
+    }
+
+    private static void collectSources(final File directory, final String packagePrefix, final Map<String, String> sources) throws IOException {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (final File file : files) {
+            if (file.isDirectory()) {
+                collectSources(file, packagePrefix + file.getName() + ".", sources);
+            } else if (file.getName().endsWith(".java")) {
+                final String simpleName = file.getName().substring(0, file.getName().length() - ".java".length());
+                sources.put(packagePrefix + simpleName, Files.toString(file, Charsets.UTF_8));
+            }
+        }
+    }
+
+    static void deleteRecursively(final File file) throws IOException {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("could not delete " + file);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package de.holisticon.toolbox.generator.benchmark;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import de.holisticon.toolbox.generator.metrics.ClassMetrics;
+import de.holisticon.toolbox.generator.metrics.GenerationListener;
+import de.holisticon.toolbox.generator.metrics.GenerationPhase;
+import de.holisticon.toolbox.generator.metrics.GenerationReport;
+
+/**
+ * Emits the generator metrics as JDK Flight Recorder events: one "fluentapi.GeneratedClass" event per class with the time of each
+ * {@link GenerationPhase}, and one "fluentapi.GenerationRun" event per run. Events are only committed while a recording is running. Lives here
+ * because the generator itself targets Java 6; needs a JDK with JFR (8u262 or later).
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class JfrGenerationListener implements GenerationListener {
+
+    @Name("fluentapi.GeneratedClass")
+    @Label("Generated Class")
+    @Category({ "Fluent API Generator" })
+    static final class GeneratedClassEvent extends Event {
+
+        @Label("Source Class")
+        String sourceClass;
+
+        @Label("Load")
+        @Timespan(Timespan.NANOSECONDS)
+        long load;
+
+        @Label("Classify")
+        @Timespan(Timespan.NANOSECONDS)
+        long classify;
+
+        @Label("Build")
+        @Timespan(Timespan.NANOSECONDS)
+        long build;
+
+        @Label("Write")
+        @Timespan(Timespan.NANOSECONDS)
+        long write;
+
+        @Label("Methods Classified")
+        int methodsClassified;
+
+        @Label("Methods Ignored")
+        int methodsIgnored;
+
+        @Label("Methods Emitted")
+        int methodsEmitted;
+    }
+
+    @Name("fluentapi.GenerationRun")
+    @Label("Generation Run")
+    @Category({ "Fluent API Generator" })
+    static final class GenerationRunEvent extends Event {
+
+        @Label("Classes")
+        int classes;
+
+        @Label("Up To Date")
+        int upToDate;
+
+        @Label("Load")
+        @Timespan(Timespan.NANOSECONDS)
+        long load;
+
+        @Label("Classify")
+        @Timespan(Timespan.NANOSECONDS)
+        long classify;
+
+        @Label("Build")
+        @Timespan(Timespan.NANOSECONDS)
+        long build;
+
+        @Label("Write")
+        @Timespan(Timespan.NANOSECONDS)
+        long write;
+
+        @Label("Methods Emitted")
+        long methodsEmitted;
+
+        @Label("Slowest Class")
+        String slowestClass;
+    }
+
+    @Override
+    public void classCompleted(final ClassMetrics metrics) {
+        final GeneratedClassEvent event = new GeneratedClassEvent();
+        if (event.shouldCommit()) {
+            event.sourceClass = metrics.getSourceClassName();
+            event.load = metrics.getNanos(GenerationPhase.LOAD);
+            event.classify = metrics.getNanos(GenerationPhase.CLASSIFY);
+            event.build = metrics.getNanos(GenerationPhase.BUILD);
+            event.write = metrics.getNanos(GenerationPhase.WRITE);
+            event.methodsClassified = metrics.getMethodsClassified();
+            event.methodsIgnored = metrics.getMethodsIgnored();
+            event.methodsEmitted = metrics.getMethodsEmitted();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void generationCompleted(final GenerationReport report) {
+        final GenerationRunEvent event = new GenerationRunEvent();
+        if (event.shouldCommit()) {
+            event.classes = report.getClassCount();
+            event.upToDate = report.getUpToDateCount();
+            event.load = report.getNanos(GenerationPhase.LOAD);
+            event.classify = report.getNanos(GenerationPhase.CLASSIFY);
+            event.build = report.getNanos(GenerationPhase.BUILD);
+            event.write = report.getNanos(GenerationPhase.WRITE);
+            event.methodsEmitted = report.getMethodsEmitted();
+            event.slowestClass = report.getSlowestClasses().isEmpty() ? null : report.getSlowestClasses().get(0).toString();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package de.holisticon.toolbox.generator.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+/**
+ * Reports the peak heap usage per iteration: the sum of the peak usage of all heap memory pools (an upper bound, the pools peak at different
+ * times), reset before each iteration. The gc profiler of JMH only reports allocation and churn, not how much memory a generation run holds at
+ * once.
+ * @author Jan Galinski, Holisticon AG
+ */
+public class PeakHeapProfiler implements InternalProfiler {
+
+    private static final double MEGABYTE = 1024 * 1024;
+
+    @Override
+    public String getDescription() {
+        return "peak heap usage per iteration";
+    }
+
+    @Override
+    public void beforeIteration(final BenchmarkParams benchmarkParams, final IterationParams iterationParams) {
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(final BenchmarkParams benchmarkParams, final IterationParams iterationParams,
+            final IterationResult result) {
+        long peak = 0;
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return Collections.singletonList(new ScalarResult("peak.heap", peak / MEGABYTE, "MB", AggregationPolicy.MAX));
+    }
+}
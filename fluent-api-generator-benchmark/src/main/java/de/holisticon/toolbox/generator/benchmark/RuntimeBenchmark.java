@@ -0,0 +1,196 @@
+package de.holisticon.toolbox.generator.benchmark;
+
+import static de.holisticon.toolbox.generator.FluentApiGenerator.fluentApiGenerator;
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+
+import de.holisticon.toolbox.generator.GenerationMode;
+
+/**
+ * Runtime cost of the generated code: construction, chained setters and varargs adders of a generated fluent class compared to plain setter
+ * calls, and configuring an existing instance with the wrapper created by <code>wrap</code>, a caller-owned wrapper re-targeted by
+ * <code>reset</code> and the thread local wrapper of <code>local</code> ({@link GenerationMode#REUSABLE}). The fluent classes are generated for
+ * {@link BenchmarkBean} and compiled in-process at setup. Run with <code>-prof gc</code>: if escape
+ * analysis removes the wrapper and the varargs array, <code>gc.alloc.rate.norm</code> of the fluent scenarios equals the plain ones (the bean
+ * only). See README.md.
+ * @author Jan Galinski, Holisticon AG
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RuntimeBenchmark {
+
+    private static final String ROOT_PACKAGE = "de.holisticon.toolbox.generator.benchmark.fluent";
+    private static final String REUSABLE_PACKAGE = ROOT_PACKAGE + ".reusable";
+    private static final String SCENARIOS_CLASS = "FluentScenarios";
+
+    /**
+     * Implementation of {@link Scenarios}, compiled together with the generated FluentBenchmarkBean classes.
+     */
+    private static final String SCENARIOS_SOURCE = Joiner.on('\n').join(
+            "package %1$s;",
+            "",
+            "import de.holisticon.toolbox.generator.benchmark.BenchmarkBean;",
+            "import de.holisticon.toolbox.generator.benchmark.Scenarios;",
+            "",
+            "public class %2$s implements Scenarios {",
+            "",
+            "    private final %3$s.FluentBenchmarkBean owned = %3$s.FluentBenchmarkBean.wrap(null);",
+            "",
+            "    public BenchmarkBean plainConstruction() {",
+            "        return new BenchmarkBean();",
+            "    }",
+            "",
+            "    public BenchmarkBean fluentConstruction() {",
+            "        return FluentBenchmarkBean.benchmarkBean().get();",
+            "    }",
+            "",
+            "    public BenchmarkBean plainSetters(final String name, final int age) {",
+            "        final BenchmarkBean bean = new BenchmarkBean();",
+            "        bean.setName(name);",
+            "        bean.setAge(age);",
+            "        bean.setActive(true);",
+            "        return bean;",
+            "    }",
+            "",
+            "    public BenchmarkBean fluentSetters(final String name, final int age) {",
+            "        return FluentBenchmarkBean.benchmarkBean().name(name).age(age).active().get();",
+            "    }",
+            "",
+            "    public BenchmarkBean plainAdders(final String first, final String second, final String third) {",
+            "        final BenchmarkBean bean = new BenchmarkBean();",
+            "        bean.addTag(first);",
+            "        bean.addTag(second);",
+            "        bean.addTag(third);",
+            "        return bean;",
+            "    }",
+            "",
+            "    public BenchmarkBean fluentAdders(final String first, final String second, final String third) {",
+            "        return FluentBenchmarkBean.benchmarkBean().addTags(first, second, third).get();",
+            "    }",
+            "",
+            "    public BenchmarkBean plainExisting(final BenchmarkBean bean, final String name, final int age) {",
+            "        bean.setName(name);",
+            "        bean.setAge(age);",
+            "        bean.setActive(true);",
+            "        return bean;",
+            "    }",
+            "",
+            "    public BenchmarkBean wrapExisting(final BenchmarkBean bean, final String name, final int age) {",
+            "        return %3$s.FluentBenchmarkBean.wrap(bean).name(name).age(age).active().get();",
+            "    }",
+            "",
+            "    public BenchmarkBean resetExisting(final BenchmarkBean bean, final String name, final int age) {",
+            "        return owned.reset(bean).name(name).age(age).active().get();",
+            "    }",
+            "",
+            "    public BenchmarkBean localExisting(final BenchmarkBean bean, final String name, final int age) {",
+            "        return %3$s.FluentBenchmarkBean.local(bean).name(name).age(age).active().get();",
+            "    }",
+            "}",
+            "");
+
+    private File workDirectory;
+    private Scenarios scenarios;
+
+    // not final, so they are not constant folded
+    private String name = "name";
+    private int age = 42;
+    private String first = "first";
+    private String second = "second";
+    private String third = "third";
+    private final BenchmarkBean existing = new BenchmarkBean();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDirectory = Files.createTempDir();
+        final File sourceDirectory = new File(workDirectory, "src");
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(sourceDirectory.getPath()).build().addClass(BenchmarkBean.class)
+                .generateCode();
+        fluentApiGenerator().rootPackage(REUSABLE_PACKAGE).targetDirectory(sourceDirectory.getPath()).mode(GenerationMode.REUSABLE).build()
+                .addClass(BenchmarkBean.class).generateCode();
+        final File scenariosSource = new File(sourceDirectory, format("%s/%s.java", ROOT_PACKAGE.replace('.', '/'), SCENARIOS_CLASS));
+        Files.write(format(SCENARIOS_SOURCE, ROOT_PACKAGE, SCENARIOS_CLASS, REUSABLE_PACKAGE), scenariosSource, Charsets.UTF_8);
+
+        final ClassLoader classLoader = GeneratorBenchmark.compile(sourceDirectory);
+        scenarios = (Scenarios) classLoader.loadClass(ROOT_PACKAGE + "." + SCENARIOS_CLASS).newInstance();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        GeneratorBenchmark.deleteRecursively(workDirectory);
+    }
+
+    @Benchmark
+    public BenchmarkBean plainConstruction() {
+        return scenarios.plainConstruction();
+    }
+
+    @Benchmark
+    public BenchmarkBean fluentConstruction() {
+        return scenarios.fluentConstruction();
+    }
+
+    @Benchmark
+    public BenchmarkBean plainSetters() {
+        return scenarios.plainSetters(name, age);
+    }
+
+    @Benchmark
+    public BenchmarkBean fluentSetters() {
+        return scenarios.fluentSetters(name, age);
+    }
+
+    @Benchmark
+    public BenchmarkBean plainAdders() {
+        return scenarios.plainAdders(first, second, third);
+    }
+
+    @Benchmark
+    public BenchmarkBean fluentAdders() {
+        return scenarios.fluentAdders(first, second, third);
+    }
+
+    @Benchmark
+    public BenchmarkBean plainExisting() {
+        return scenarios.plainExisting(existing, name, age);
+    }
+
+    @Benchmark
+    public BenchmarkBean wrapExisting() {
+        return scenarios.wrapExisting(existing, name, age);
+    }
+
+    @Benchmark
+    public BenchmarkBean resetExisting() {
+        return scenarios.resetExisting(existing, name, age);
+    }
+
+    @Benchmark
+    public BenchmarkBean localExisting() {
+        return scenarios.localExisting(existing, name, age);
+    }
+}
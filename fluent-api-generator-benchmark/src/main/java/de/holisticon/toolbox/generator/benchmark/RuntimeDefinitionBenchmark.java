@@ -0,0 +1,163 @@
+package de.holisticon.toolbox.generator.benchmark;
+
+import static de.holisticon.toolbox.generator.FluentApiGenerator.fluentApiGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.Files;
+
+import de.holisticon.toolbox.generator.FluentApiGenerator;
+import de.holisticon.toolbox.generator.RuntimeFluentClasses;
+
+/**
+ * Fluent classes defined at runtime by {@link RuntimeFluentClasses} compared to the class compiled from the generated source: the cost of the
+ * first {@link RuntimeFluentClasses#fluentFor(Class)} call (generation and in memory compilation), of later, cached calls and of chained
+ * setters of both classes. The caller does not know the runtime class at compile time, so both classes are called through method handles held
+ * in static final fields, which the JIT treats as constants. The plain setter calls are the lower bound. See README.md.
+ * @author Jan Galinski, Holisticon AG
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RuntimeDefinitionBenchmark {
+
+    private static final String ROOT_PACKAGE = "de.holisticon.toolbox.generator.benchmark.fluent";
+
+    /**
+     * Set at setup, before the method handles are initialized.
+     */
+    private static Class<?> sourceGeneratedClass;
+    private static RuntimeFluentClasses runtime;
+
+    /**
+     * Handles of the class compiled from the generated source.
+     */
+    private static final class SourceGenerated {
+
+        static final MethodHandle FACTORY = handle(sourceGeneratedClass, "benchmarkBean");
+        static final MethodHandle NAME = handle(sourceGeneratedClass, "name", String.class);
+        static final MethodHandle AGE = handle(sourceGeneratedClass, "age", int.class);
+        static final MethodHandle ACTIVE = handle(sourceGeneratedClass, "active");
+        static final MethodHandle GET = handle(sourceGeneratedClass, "get");
+    }
+
+    /**
+     * Handles of the class defined by {@link RuntimeFluentClasses}.
+     */
+    private static final class RuntimeDefined {
+
+        static final MethodHandle FACTORY = handle(runtime.fluentFor(BenchmarkBean.class), "benchmarkBean");
+        static final MethodHandle NAME = handle(runtime.fluentFor(BenchmarkBean.class), "name", String.class);
+        static final MethodHandle AGE = handle(runtime.fluentFor(BenchmarkBean.class), "age", int.class);
+        static final MethodHandle ACTIVE = handle(runtime.fluentFor(BenchmarkBean.class), "active");
+        static final MethodHandle GET = handle(runtime.fluentFor(BenchmarkBean.class), "get");
+    }
+
+    /**
+     * A new, empty cache per invocation of {@link RuntimeDefinitionBenchmark#firstCall(FreshRuntime)}.
+     */
+    @State(Scope.Thread)
+    public static class FreshRuntime {
+
+        private RuntimeFluentClasses runtime;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            runtime = FluentApiGenerator.runtime();
+        }
+    }
+
+    private File workDirectory;
+
+    // not final, so they are not constant folded
+    private String name = "name";
+    private int age = 42;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDirectory = Files.createTempDir();
+        final File sourceDirectory = new File(workDirectory, "src");
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(sourceDirectory.getPath()).build().addClass(BenchmarkBean.class)
+                .generateCode();
+        sourceGeneratedClass = GeneratorBenchmark.compile(sourceDirectory).loadClass(ROOT_PACKAGE + ".FluentBenchmarkBean");
+        runtime = fluentApiGenerator().rootPackage(ROOT_PACKAGE).buildRuntime();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        GeneratorBenchmark.deleteRecursively(workDirectory);
+    }
+
+    /**
+     * @return handle with all reference types erased to {@link Object}, so it can be called via <code>invokeExact</code>
+     */
+    private static MethodHandle handle(final Class<?> fluentClass, final String method, final Class<?>... parameterTypes) {
+        try {
+            final MethodHandle handle = MethodHandles.publicLookup().unreflect(fluentClass.getMethod(method, parameterTypes));
+            return handle.asType(handle.type().erase());
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public Class<?> firstCall(final FreshRuntime fresh) {
+        return fresh.runtime.fluentFor(BenchmarkBean.class);
+    }
+
+    @Benchmark
+    public Class<?> cachedCall() {
+        return runtime.fluentFor(BenchmarkBean.class);
+    }
+
+    @Benchmark
+    public BenchmarkBean plainSetters() {
+        final BenchmarkBean bean = new BenchmarkBean();
+        bean.setName(name);
+        bean.setAge(age);
+        bean.setActive(true);
+        return bean;
+    }
+
+    @Benchmark
+    public BenchmarkBean sourceGeneratedSetters() throws Throwable {
+        Object fluent = (Object) SourceGenerated.FACTORY.invokeExact();
+        fluent = (Object) SourceGenerated.NAME.invokeExact(fluent, (Object) name);
+        fluent = (Object) SourceGenerated.AGE.invokeExact(fluent, age);
+        fluent = (Object) SourceGenerated.ACTIVE.invokeExact(fluent);
+        return (BenchmarkBean) (Object) SourceGenerated.GET.invokeExact(fluent);
+    }
+
+    @Benchmark
+    public BenchmarkBean runtimeDefinedSetters() throws Throwable {
+        Object fluent = (Object) RuntimeDefined.FACTORY.invokeExact();
+        fluent = (Object) RuntimeDefined.NAME.invokeExact(fluent, (Object) name);
+        fluent = (Object) RuntimeDefined.AGE.invokeExact(fluent, age);
+        fluent = (Object) RuntimeDefined.ACTIVE.invokeExact(fluent);
+        return (BenchmarkBean) (Object) RuntimeDefined.GET.invokeExact(fluent);
+    }
+}
@@ -0,0 +1,30 @@
+package de.holisticon.toolbox.generator.benchmark;
+
+/**
+ * The client code measured by {@link RuntimeBenchmark}, once with plain setter calls and once via the generated fluent class. Implemented by
+ * source compiled at benchmark setup, because the fluent class does not exist before. There is only one implementation, so the calls are
+ * monomorphic and inlined into the benchmark methods.
+ * @author Jan Galinski, Holisticon AG
+ */
+public interface Scenarios {
+
+    BenchmarkBean plainConstruction();
+
+    BenchmarkBean fluentConstruction();
+
+    BenchmarkBean plainSetters(String name, int age);
+
+    BenchmarkBean fluentSetters(String name, int age);
+
+    BenchmarkBean plainAdders(String first, String second, String third);
+
+    BenchmarkBean fluentAdders(String first, String second, String third);
+
+    BenchmarkBean plainExisting(BenchmarkBean bean, String name, int age);
+
+    BenchmarkBean wrapExisting(BenchmarkBean bean, String name, int age);
+
+    BenchmarkBean resetExisting(BenchmarkBean bean, String name, int age);
+
+    BenchmarkBean localExisting(BenchmarkBean bean, String name, int age);
+}
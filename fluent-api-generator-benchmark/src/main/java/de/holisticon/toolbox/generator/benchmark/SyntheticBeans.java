@@ -0,0 +1,101 @@
+package de.holisticon.toolbox.generator.benchmark;
+
+import static com.google.common.base.Throwables.propagate;
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+/**
+ * Creates a set of bean classes with many setters and adders, sharing an abstract super class. The sources are written and compiled at
+ * benchmark setup, so the set can be large without bloating the benchmark jar.
+ * @author Jan Galinski, Holisticon AG
+ */
+final class SyntheticBeans {
+
+    static final String PACKAGE = "de.holisticon.toolbox.generator.benchmark.synthetic";
+
+    private static final String ABSTRACT_BEAN = "AbstractSyntheticBean";
+
+    /**
+     * Property types of the setters, cycled through per bean.
+     */
+    private static final List<String> SETTER_TYPES = ImmutableList.of("String", "int", "boolean", "long", "double", "java.util.Date",
+            "java.util.List<String>", "java.util.Map<String, Integer>", "String[]", "Integer", "java.math.BigDecimal", "char");
+
+    private static final List<String> ADDER_TYPES = ImmutableList.of("String", "Integer", "java.util.Date", "Runnable");
+
+    private SyntheticBeans() {
+        // utility class
+    }
+
+    /**
+     * @param workDirectory directory for the sources
+     * @param count number of beans
+     * @return the compiled bean classes
+     */
+    static List<Class<?>> create(final File workDirectory, final int count) {
+        final File sourceDirectory = new File(workDirectory, "src");
+        final File packageDirectory = new File(sourceDirectory, PACKAGE.replace('.', '/'));
+        final List<String> names = Lists.newArrayListWithCapacity(count);
+        try {
+            Files.createParentDirs(new File(packageDirectory, "dummy"));
+            Files.write(abstractBean(), new File(packageDirectory, ABSTRACT_BEAN + ".java"), Charsets.UTF_8);
+            for (int i = 0; i < count; i++) {
+                final String name = format("SyntheticBean%04d", i);
+                Files.write(bean(name, i), new File(packageDirectory, name + ".java"), Charsets.UTF_8);
+                names.add(name);
+            }
+            final ClassLoader classLoader = GeneratorBenchmark.compile(sourceDirectory);
+            final List<Class<?>> classes = Lists.newArrayListWithCapacity(count);
+            for (final String name : names) {
+                classes.add(classLoader.loadClass(PACKAGE + "." + name));
+            }
+            return classes;
+        } catch (final IOException e) {
+            throw propagate(e);
+        } catch (final ClassNotFoundException e) {
+            throw propagate(e);
+        }
+    }
+
+    private static String abstractBean() {
+        final StringBuilder source = new StringBuilder();
+        source.append(format("package %s;%n%npublic abstract class %s {%n", PACKAGE, ABSTRACT_BEAN));
+        appendSetter(source, "Id", "long");
+        appendSetter(source, "Name", "String");
+        appendSetter(source, "Enabled", "boolean");
+        appendSetter(source, "Created", "java.util.Date");
+        appendAdder(source, "Label", "String");
+        return source.append(format("}%n")).toString();
+    }
+
+    private static String bean(final String name, final int index) {
+        final StringBuilder source = new StringBuilder();
+        source.append(format("package %s;%n%npublic class %s extends %s {%n", PACKAGE, name, ABSTRACT_BEAN));
+        source.append(format("    public %s() {}%n    public %s(String name) { setName(name); }%n", name, name));
+        for (int i = 0; i < SETTER_TYPES.size(); i++) {
+            appendSetter(source, "Property" + i, SETTER_TYPES.get((index + i) % SETTER_TYPES.size()));
+        }
+        for (int i = 0; i < ADDER_TYPES.size(); i++) {
+            appendAdder(source, "Item" + i, ADDER_TYPES.get((index + i) % ADDER_TYPES.size()));
+        }
+        return source.append(format("}%n")).toString();
+    }
+
+    private static void appendSetter(final StringBuilder source, final String property, final String type) {
+        source.append(format("    private %s field%s;%n    public void set%s(%s value) { this.field%s = value; }%n", type, property, property,
+                type, property));
+    }
+
+    private static void appendAdder(final StringBuilder source, final String property, final String type) {
+        source.append(format("    private final java.util.List<%s> list%s = new java.util.ArrayList<%s>();%n", type, property, type));
+        source.append(format("    public void add%s(%s value) { list%s.add(value); }%n", property, type, property));
+    }
+}
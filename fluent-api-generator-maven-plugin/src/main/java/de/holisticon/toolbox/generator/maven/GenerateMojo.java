@@ -0,0 +1,199 @@
+package de.holisticon.toolbox.generator.maven;
+
+import static de.holisticon.toolbox.generator.FluentApiGenerator.fluentApiGenerator;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import de.holisticon.toolbox.generator.FluentApiGenerator;
+import de.holisticon.toolbox.generator.FluentApiGeneratorBuilder;
+import de.holisticon.toolbox.generator.GenerationMode;
+import de.holisticon.toolbox.generator.classfile.ClassFileRepository;
+import de.holisticon.toolbox.generator.incremental.Fingerprints;
+import de.holisticon.toolbox.generator.incremental.GenerationManifest;
+
+/**
+ * Generates fluent apis for classes of the compile class path. The class files are read without loading the classes, classes missing from the
+ * compile class path are only looked up in the JDK, not in the class path of the plugin. Generation is incremental:
+ * the whole run is skipped if neither the configuration nor the class path entries changed and all generated files exist, otherwise only classes
+ * whose api changed are generated again.
+ * @author Jan Galinski, Holisticon AG
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_SOURCES, requiresDependencyResolution = ResolutionScope.COMPILE,
+        threadSafe = true)
+public class GenerateMojo extends AbstractMojo {
+
+    /**
+     * Directory of the generated sources, added as compile source root.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/generated-sources/fluent-api", required = true)
+    private File outputDirectory;
+
+    /**
+     * Package of the generated classes. If blank, the package of the source class is used.
+     */
+    @Parameter
+    private String rootPackage;
+
+    /**
+     * Pattern of the generated class names, see {@link FluentApiGeneratorBuilder#filenamePatter(String)}.
+     */
+    @Parameter
+    private String filenamePattern;
+
+    /**
+     * Names of methods that are not delegated ("setId").
+     */
+    @Parameter
+    private List<String> ignoredMethodNames = Lists.newArrayList();
+
+    /**
+     * Binary names of the source classes. They are generated even if they are no candidates of a package scan, like abstract classes.
+     */
+    @Parameter
+    private List<String> classes = Lists.newArrayList();
+
+    /**
+     * Packages whose public concrete classes are used as source classes.
+     */
+    @Parameter
+    private List<String> packages = Lists.newArrayList();
+
+    /**
+     * <code>true</code> to include the sub packages of {@link #packages}.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean recursive;
+
+    @Parameter(defaultValue = "WRAPPER")
+    private GenerationMode mode;
+
+    /**
+     * Java version the generated sources are compiled for, see {@link FluentApiGeneratorBuilder#target(String)}. Mode <code>INTERFACE</code>
+     * needs 1.8 or later.
+     */
+    @Parameter(property = "maven.compiler.target", defaultValue = FluentApiGenerator.DEFAULT_TARGET)
+    private String target;
+
+    /**
+     * Byte-identical output for identical input, see {@link FluentApiGeneratorBuilder#reproducible(boolean)}.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean reproducible;
+
+    /**
+     * Number of threads analyzing the source classes.
+     */
+    @Parameter(property = "fluent-api-generator.parallelism", defaultValue = "1")
+    private int parallelism;
+
+    /**
+     * Keeps the analyzed classes of dependency jars between builds, see {@link FluentApiGeneratorBuilder#indexDirectory(File)}. Can be shared by
+     * all projects, like "${settings.localRepository}/../fluent-api-generator/index".
+     */
+    @Parameter(property = "fluent-api-generator.indexDirectory")
+    private File indexDirectory;
+
+    @Parameter(property = "fluent-api-generator.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${mojoExecution.executionId}", readonly = true, required = true)
+    private String executionId;
+
+    @Component
+    private BuildContext buildContext;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("skipping fluent api generation");
+            return;
+        }
+        project.addCompileSourceRoot(outputDirectory.getPath());
+
+        final List<File> classPathEntries = classPathEntries();
+        final String state = InputState.of(settingsFingerprint(), classPathEntries);
+        if (state.equals(InputState.load(outputDirectory, executionId)) && GenerationManifest.isIntact(outputDirectory)) {
+            getLog().info("fluent apis are up to date");
+            return;
+        }
+
+        final FluentApiGeneratorBuilder builder = fluentApiGenerator().targetDirectory(outputDirectory.getPath()).incremental(true).mode(mode)
+                .target(target).reproducible(reproducible).parallelism(parallelism);
+        if (isNotBlank(rootPackage)) {
+            builder.rootPackage(rootPackage);
+        }
+        if (filenamePattern != null) {
+            builder.filenamePatter(filenamePattern);
+        }
+        if (!ignoredMethodNames.isEmpty()) {
+            builder.addIgnoredMethodNames(ignoredMethodNames.toArray(new String[ignoredMethodNames.size()]));
+        }
+        // not the plugin realm, its guava and codemodel would be found instead of the versions of the project
+        final ClassFileRepository repository = new ClassFileRepository(classPathEntries, ClassFileRepository.JDK_CLASSES);
+        builder.classFileRepository(repository);
+        if (indexDirectory != null) {
+            builder.indexDirectory(indexDirectory);
+        }
+
+        final FluentApiGenerator generator = builder.build();
+        try {
+            // classes found by a package scan too are generated once
+            generator.addClassFiles(classes);
+            for (final String packageName : packages) {
+                generator.addPackage(packageName, recursive);
+            }
+            generator.generateCode();
+        } catch (final RuntimeException e) {
+            throw new MojoExecutionException("fluent api generation failed", e);
+        } finally {
+            repository.close();
+        }
+        InputState.store(outputDirectory, executionId, state);
+        buildContext.refresh(outputDirectory);
+    }
+
+    /**
+     * The compile class path without the output directory of the project itself: it is compiled after this goal, so it would make every run
+     * stale.
+     */
+    private List<File> classPathEntries() throws MojoExecutionException {
+        final List<File> entries = Lists.newArrayList();
+        try {
+            for (final String element : project.getCompileClasspathElements()) {
+                if (!element.equals(project.getBuild().getOutputDirectory())) {
+                    entries.add(new File(element));
+                }
+            }
+        } catch (final DependencyResolutionRequiredException e) {
+            throw new MojoExecutionException("compile class path not resolved", e);
+        }
+        return entries;
+    }
+
+    private String settingsFingerprint() {
+        final Set<String> ignored = Sets.newHashSet(ignoredMethodNames);
+        return Fingerprints.ofSettings(String.valueOf(rootPackage), String.valueOf(filenamePattern), ignored, mode.name(), "target=" + target,
+                "reproducible=" + reproducible, "recursive=" + recursive, "classes=" + Sets.newTreeSet(classes),
+                "packages=" + Sets.newTreeSet(packages));
+    }
+}
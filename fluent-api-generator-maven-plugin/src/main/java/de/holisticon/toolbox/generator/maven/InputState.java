@@ -0,0 +1,106 @@
+package de.holisticon.toolbox.generator.maven;
+
+import static com.google.common.base.Throwables.propagate;
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Fingerprint of everything a generator run depends on: the settings and the size and time stamps of the class path entries. Only file metadata
+ * is read, so checking a large class path takes milliseconds. Stored in the output directory after a successful run, one file per execution, so
+ * executions sharing an output directory do not invalidate each other.
+ * @author Jan Galinski, Holisticon AG
+ */
+final class InputState {
+
+    static final String FILENAME = ".fluent-api-generator-maven-plugin-%s.state";
+
+    private static final char SEPARATOR = '\n';
+
+    private InputState() {
+        // utility class
+    }
+
+    /**
+     * @param settingsFingerprint fingerprint of the generator settings
+     * @param classPathEntries directories and jar files
+     * @return hex encoded hash
+     */
+    static String of(final String settingsFingerprint, final List<File> classPathEntries) {
+        final Hasher hasher = Hashing.md5().newHasher();
+        hasher.putString(settingsFingerprint, Charsets.UTF_8).putChar(SEPARATOR);
+        for (final File entry : classPathEntries) {
+            hasher.putString(entry.getAbsolutePath(), Charsets.UTF_8).putChar(SEPARATOR);
+            if (entry.isDirectory()) {
+                putDirectory(hasher, entry);
+            } else if (entry.isFile()) {
+                hasher.putLong(entry.length()).putLong(entry.lastModified());
+            }
+            hasher.putChar(SEPARATOR);
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Time stamps of all files, a changed, added or deleted class changes the hash. Children are sorted, so the order does not depend on the file
+     * system.
+     */
+    private static void putDirectory(final Hasher hasher, final File directory) {
+        final String[] names = directory.list();
+        if (names == null) {
+            return;
+        }
+        Arrays.sort(names);
+        for (final String name : names) {
+            final File child = new File(directory, name);
+            hasher.putString(name, Charsets.UTF_8).putChar(SEPARATOR);
+            if (child.isDirectory()) {
+                putDirectory(hasher, child);
+            } else {
+                hasher.putLong(child.length()).putLong(child.lastModified());
+            }
+        }
+    }
+
+    /**
+     * @param outputDirectory output directory of the last run
+     * @param executionId id of the plugin execution
+     * @return state stored by the last successful run, <code>null</code> if none
+     */
+    static String load(final File outputDirectory, final String executionId) {
+        final File file = file(outputDirectory, executionId);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return Files.toString(file, Charsets.UTF_8).trim();
+        } catch (final IOException e) {
+            throw propagate(e);
+        }
+    }
+
+    /**
+     * @param outputDirectory output directory of the current run
+     * @param executionId id of the plugin execution
+     * @param state state of the current run
+     */
+    static void store(final File outputDirectory, final String executionId, final String state) {
+        try {
+            Files.write(state, file(outputDirectory, executionId), Charsets.UTF_8);
+        } catch (final IOException e) {
+            throw propagate(e);
+        }
+    }
+
+    private static File file(final File outputDirectory, final String executionId) {
+        return new File(outputDirectory, format(FILENAME, executionId));
+    }
+}
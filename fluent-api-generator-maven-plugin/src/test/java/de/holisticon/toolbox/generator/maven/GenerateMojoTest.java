@@ -0,0 +1,127 @@
+package de.holisticon.toolbox.generator.maven;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.Collections;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.project.MavenProject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonatype.plexus.build.incremental.DefaultBuildContext;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+import de.holisticon.toolbox.generator.GenerationMode;
+import de.holisticon.toolbox.generator.maven.fixture.AbstractBean;
+import de.holisticon.toolbox.generator.maven.fixture.Bean;
+
+public class GenerateMojoTest {
+
+    private static final String PACKAGE = Bean.class.getPackage().getName();
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File output;
+
+    @Before
+    public void setUp() {
+        output = new File(folder.getRoot(), "generated-sources");
+    }
+
+    private GenerateMojo mojo() throws Exception {
+        final MavenProject project = new MavenProject();
+        project.getBuild().setOutputDirectory(new File(folder.getRoot(), "classes").getPath());
+        // the fixtures as dependency of the project
+        final DefaultArtifactHandler handler = new DefaultArtifactHandler("jar");
+        handler.setAddedToClasspath(true);
+        final Artifact fixtures = new DefaultArtifact("foo", "fixtures", "1.0", Artifact.SCOPE_COMPILE, "jar", null, handler);
+        fixtures.setFile(new File(Bean.class.getProtectionDomain().getCodeSource().getLocation().toURI()));
+        project.setArtifacts(Collections.singleton(fixtures));
+        final GenerateMojo mojo = new GenerateMojo();
+        set(mojo, "outputDirectory", output);
+        set(mojo, "rootPackage", "foo.bar");
+        set(mojo, "classes", Lists.newArrayList(AbstractBean.class.getName()));
+        set(mojo, "packages", Lists.newArrayList(PACKAGE));
+        set(mojo, "mode", GenerationMode.WRAPPER);
+        set(mojo, "target", "1.6");
+        set(mojo, "parallelism", 1);
+        set(mojo, "project", project);
+        set(mojo, "executionId", "default");
+        set(mojo, "buildContext", new DefaultBuildContext());
+        return mojo;
+    }
+
+    private static void set(final GenerateMojo mojo, final String name, final Object value) throws Exception {
+        final Field field = GenerateMojo.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+
+    private File generatedFile(final String simpleName) {
+        return new File(output, "foo/bar/Fluent" + simpleName + ".java");
+    }
+
+    @Test
+    public void shouldGenerateConfiguredClassesOfScannedPackages() throws Exception {
+        mojo().execute();
+
+        assertTrue(generatedFile("Bean").isFile());
+        // no candidate of the package scan, but configured explicitly
+        assertTrue(generatedFile("AbstractBean").isFile());
+    }
+
+    @Test
+    public void shouldSkipUnchangedInputs() throws Exception {
+        mojo().execute();
+        Files.write("// edited", generatedFile("Bean"), Charsets.UTF_8);
+
+        mojo().execute();
+        assertThat(Files.toString(generatedFile("Bean"), Charsets.UTF_8), is("// edited"));
+    }
+
+    @Test
+    public void shouldRegenerateMissingOutputs() throws Exception {
+        mojo().execute();
+        assertTrue(generatedFile("Bean").delete());
+
+        mojo().execute();
+        assertTrue(generatedFile("Bean").isFile());
+    }
+
+    @Test
+    public void shouldRegenerateWhenSettingsChanged() throws Exception {
+        mojo().execute();
+        Files.write("// edited", generatedFile("Bean"), Charsets.UTF_8);
+
+        final GenerateMojo mojo = mojo();
+        set(mojo, "ignoredMethodNames", Lists.newArrayList("setId"));
+        mojo.execute();
+        assertFalse(Files.toString(generatedFile("Bean"), Charsets.UTF_8).equals("// edited"));
+    }
+
+    @Test
+    public void shouldNotReadClassesOfThePluginClassPath() throws Exception {
+        final GenerateMojo mojo = mojo();
+        set(mojo, "classes", Lists.newArrayList());
+        final MavenProject project = new MavenProject();
+        project.getBuild().setOutputDirectory(new File(folder.getRoot(), "classes").getPath());
+        set(mojo, "project", project);
+        mojo.execute();
+
+        // the fixtures are visible to the plugin, but not part of the compile class path
+        assertFalse(generatedFile("Bean").isFile());
+    }
+}
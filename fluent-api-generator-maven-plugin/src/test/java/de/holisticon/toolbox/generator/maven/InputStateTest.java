@@ -0,0 +1,54 @@
+package de.holisticon.toolbox.generator.maven;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class InputStateTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldChangeWhenClassPathEntryChanged() throws IOException {
+        final File classes = folder.newFolder("classes");
+        final File classFile = new File(classes, "foo/Bar.class");
+        Files.createParentDirs(classFile);
+        Files.write("bar", classFile, Charsets.UTF_8);
+        final File jar = folder.newFile("lib.jar");
+        final List<File> entries = Arrays.asList(classes, jar);
+
+        final String state = InputState.of("settings", entries);
+        assertThat(InputState.of("settings", entries), is(state));
+        assertThat(InputState.of("other settings", entries), not(is(state)));
+
+        assertTrue(classFile.setLastModified(classFile.lastModified() - 10000));
+        final String touched = InputState.of("settings", entries);
+        assertThat(touched, not(is(state)));
+
+        Files.write("added", new File(classes, "foo/Baz.class"), Charsets.UTF_8);
+        assertThat(InputState.of("settings", entries), not(is(touched)));
+    }
+
+    @Test
+    public void shouldStoreState() {
+        final File output = folder.getRoot();
+        assertThat(InputState.load(output, "default"), is((String) null));
+        InputState.store(output, "default", "abc");
+        assertThat(InputState.load(output, "default"), is("abc"));
+        assertThat("per execution", InputState.load(output, "other"), is((String) null));
+    }
+}
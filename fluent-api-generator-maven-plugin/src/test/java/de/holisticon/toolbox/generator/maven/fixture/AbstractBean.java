@@ -0,0 +1,8 @@
+package de.holisticon.toolbox.generator.maven.fixture;
+
+public abstract class AbstractBean {
+
+    public void setId(final long id) {
+        // fixture
+    }
+}
@@ -0,0 +1,8 @@
+package de.holisticon.toolbox.generator.maven.fixture;
+
+public class Bean {
+
+    public void setName(final String name) {
+        // fixture
+    }
+}
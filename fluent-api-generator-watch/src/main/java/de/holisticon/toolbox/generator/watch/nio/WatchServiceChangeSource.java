@@ -0,0 +1,239 @@
+package de.holisticon.toolbox.generator.watch.nio;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Throwables.propagate;
+import static java.lang.String.format;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import de.holisticon.toolbox.generator.watch.ChangeSource;
+import de.holisticon.toolbox.generator.watch.FileChanges;
+import de.holisticon.toolbox.generator.watch.GenerationWatcher;
+
+/**
+ * Reports the changes of a class path as the file system notices them, via the JDK {@link WatchService}. Watches the directories of the class
+ * path with all their sub directories and the directories containing its jar files. A change is dated when its event is received. A deleted
+ * directory or an overflow of the event queue reports the class path directory itself, so the {@link GenerationWatcher} reads it again.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class WatchServiceChangeSource implements ChangeSource {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final List<Path> classPath;
+
+    /**
+     * The watched directories of the class path directories, including their sub directories, keyed by their registration.
+     */
+    private final Map<WatchKey, Path> directories = Maps.newHashMap();
+
+    /**
+     * The class path entries of the jar files, keyed by their absolute path.
+     */
+    private final Map<Path, Path> jarFiles = Maps.newHashMap();
+
+    /**
+     * The watched directories containing jar files, keyed by their registration.
+     */
+    private final Map<WatchKey, Path> jarDirectories = Maps.newHashMap();
+
+    private WatchService watchService;
+
+    /**
+     * @param classPath existing directories and jar files
+     */
+    public WatchServiceChangeSource(final List<File> classPath) {
+        checkArgument(classPath != null && !classPath.isEmpty(), "class path required");
+        final ImmutableList.Builder<Path> paths = ImmutableList.builder();
+        for (final File entry : classPath) {
+            checkArgument(entry.exists(), format("class path entry '%s' does not exist", entry.getAbsolutePath()));
+            paths.add(entry.toPath());
+        }
+        this.classPath = paths.build();
+    }
+
+    @Override
+    public synchronized void start() {
+        checkState(watchService == null, "already started");
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (final Path entry : classPath) {
+                if (Files.isDirectory(entry)) {
+                    registerTree(entry);
+                } else {
+                    final Path jarFile = entry.toAbsolutePath();
+                    jarFiles.put(jarFile, entry);
+                    if (!jarDirectories.containsValue(jarFile.getParent())) {
+                        jarDirectories.put(jarFile.getParent().register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY),
+                                jarFile.getParent());
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            throw propagate(e);
+        }
+    }
+
+    @Override
+    public FileChanges take() throws InterruptedException {
+        checkState(watchService != null, "not started");
+        try {
+            while (true) {
+                final FileChanges changes = changes(watchService.take());
+                if (!changes.isEmpty()) {
+                    return changes;
+                }
+            }
+        } catch (final ClosedWatchServiceException e) {
+            return FileChanges.NONE;
+        }
+    }
+
+    @Override
+    public FileChanges poll(final long timeoutMillis) throws InterruptedException {
+        checkState(watchService != null, "not started");
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            while (true) {
+                final WatchKey key = watchService.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (key == null) {
+                    return FileChanges.NONE;
+                }
+                final FileChanges changes = changes(key);
+                if (!changes.isEmpty()) {
+                    return changes;
+                }
+            }
+        } catch (final ClosedWatchServiceException e) {
+            return FileChanges.NONE;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (final IOException e) {
+                // ignore, nothing to release anymore
+            }
+        }
+    }
+
+    /**
+     * @return the changes of the given key and of the keys signalled meanwhile, dated now
+     */
+    private synchronized FileChanges changes(final WatchKey first) {
+        final long receivedNanos = System.nanoTime();
+        final Set<File> files = Sets.newHashSet();
+        for (WatchKey key = first; key != null; key = watchService.poll()) {
+            final Path directory = directories.get(key);
+            final Path jarDirectory = jarDirectories.get(key);
+            for (final WatchEvent<?> event : key.pollEvents()) {
+                if (directory != null) {
+                    directoryChanged(directory, event, files);
+                }
+                if (jarDirectory != null) {
+                    jarDirectoryChanged(jarDirectory, event, files);
+                }
+            }
+            if (!key.reset()) {
+                if (directory != null) {
+                    // deleted, the names of its class files are unknown
+                    files.add(classPathDirectory(directory).toFile());
+                }
+                directories.remove(key);
+                jarDirectories.remove(key);
+            }
+        }
+        return files.isEmpty() ? FileChanges.NONE : new FileChanges(files, receivedNanos);
+    }
+
+    private void directoryChanged(final Path directory, final WatchEvent<?> event, final Set<File> files) {
+        if (event.kind() == OVERFLOW) {
+            files.add(classPathDirectory(directory).toFile());
+            return;
+        }
+        final Path child = directory.resolve((Path) event.context());
+        if (child.getFileName().toString().endsWith(CLASS_SUFFIX)) {
+            files.add(child.toFile());
+        } else if (event.kind() == ENTRY_CREATE && Files.isDirectory(child)) {
+            // the compiler may have written class files before the directory was registered
+            files.addAll(registerTree(child));
+        } else if (event.kind() == ENTRY_DELETE && directories.containsValue(child)) {
+            // the names of the deleted class files are unknown
+            files.add(classPathDirectory(directory).toFile());
+        }
+    }
+
+    private void jarDirectoryChanged(final Path directory, final WatchEvent<?> event, final Set<File> files) {
+        for (final Map.Entry<Path, Path> jarFile : jarFiles.entrySet()) {
+            if (event.kind() == OVERFLOW ? jarFile.getKey().getParent().equals(directory) : jarFile.getKey().equals(
+                    directory.resolve((Path) event.context()))) {
+                files.add(jarFile.getValue().toFile());
+            }
+        }
+    }
+
+    private Path classPathDirectory(final Path directory) {
+        for (final Path entry : classPath) {
+            if (directory.startsWith(entry)) {
+                return entry;
+            }
+        }
+        throw new IllegalStateException(format("'%s' is not part of the class path", directory));
+    }
+
+    /**
+     * Registers the directory and all its sub directories.
+     * @return the class files found
+     */
+    private Set<File> registerTree(final Path start) {
+        final Set<File> classFiles = Sets.newHashSet();
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                    directories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                    if (file.getFileName().toString().endsWith(CLASS_SUFFIX)) {
+                        classFiles.add(file.toFile());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (final IOException e) {
+            throw propagate(e);
+        }
+        return classFiles;
+    }
+}
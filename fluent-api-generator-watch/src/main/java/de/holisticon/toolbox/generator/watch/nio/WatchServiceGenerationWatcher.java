@@ -0,0 +1,26 @@
+package de.holisticon.toolbox.generator.watch.nio;
+
+import de.holisticon.toolbox.generator.daemon.GenerationSettings;
+import de.holisticon.toolbox.generator.watch.GenerationWatcher;
+
+/**
+ * Runs a {@link GenerationWatcher} notified by a {@link WatchServiceChangeSource}.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class WatchServiceGenerationWatcher {
+
+    private WatchServiceGenerationWatcher() {
+        // main only
+    }
+
+    /**
+     * Watches until the process is stopped. Takes the same arguments as {@link GenerationWatcher#main(String[])}.
+     * @param args key=value pairs
+     */
+    public static void main(final String[] args) {
+        final GenerationSettings settings = GenerationSettings.parse(args, "usage: WatchServiceGenerationWatcher "
+                + "targetDirectory=<directory> classPath=<class path> [classes=<names>] [packages=<names>] [recursive=true] "
+                + "[rootPackage=<package>] [mode=<mode>] [target=<version>] [ignoredMethodNames=<names>]");
+        GenerationWatcher.watch(settings, new WatchServiceChangeSource(settings.classPath()));
+    }
+}
@@ -0,0 +1,108 @@
+package de.holisticon.toolbox.generator.watch.nio;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+
+import de.holisticon.toolbox.generator.watch.FileChanges;
+
+public class WatchServiceChangeSourceTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File classes;
+    private File jar;
+    private WatchServiceChangeSource changeSource;
+
+    @Before
+    public void startWatching() throws Exception {
+        classes = folder.newFolder("classes");
+        assertTrue(new File(classes, "watched").mkdir());
+        Files.write(new byte[] { 1 }, new File(classes, "watched/Bean.class"));
+        jar = folder.newFile("dependency.jar");
+        changeSource = new WatchServiceChangeSource(ImmutableList.of(classes, jar));
+        changeSource.start();
+    }
+
+    @After
+    public void stopWatching() {
+        changeSource.close();
+    }
+
+    /**
+     * @return the changes until the given file is reported
+     */
+    private FileChanges changesUntil(final File file) throws InterruptedException {
+        FileChanges changes = changeSource.take();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!changes.getFiles().contains(file) && System.nanoTime() < deadline) {
+            changes = changes.merge(changeSource.poll(100));
+        }
+        return changes;
+    }
+
+    @Test
+    public void shouldReportChangedClassFile() throws Exception {
+        final File classFile = new File(classes, "watched/Bean.class");
+        final long before = System.nanoTime();
+        Files.write(new byte[] { 2 }, classFile);
+
+        final FileChanges changes = changesUntil(classFile);
+        assertThat(changes.toString(), changes.getFiles().contains(classFile), is(true));
+        assertTrue(changes.getFirstChangeNanos() >= before);
+    }
+
+    @Test
+    public void shouldReportClassFilesOfNewDirectory() throws Exception {
+        final File directory = new File(classes, "watched/sub");
+        assertTrue(directory.mkdir());
+        final File classFile = new File(directory, "Added.class");
+        Files.write(new byte[] { 1 }, classFile);
+
+        final FileChanges changes = changesUntil(classFile);
+        assertThat(changes.toString(), changes.getFiles().contains(classFile), is(true));
+    }
+
+    @Test
+    public void shouldReportChangedJarFile() throws Exception {
+        Files.write(new byte[] { 1 }, folder.newFile("unrelated.jar"));
+        Files.write(new byte[] { 1 }, jar);
+
+        final FileChanges changes = changesUntil(jar);
+        assertThat(changes.toString(), changes.getFiles().contains(jar), is(true));
+        assertFalse(changes.toString(), changes.getFiles().contains(new File(folder.getRoot(), "unrelated.jar")));
+    }
+
+    @Test
+    public void shouldReturnOnClose() throws Exception {
+        final Thread closer = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (final InterruptedException e) {
+                    return;
+                }
+                changeSource.close();
+            }
+        };
+        closer.start();
+        assertThat(changeSource.take().isEmpty(), is(true));
+        closer.join();
+    }
+}
@@ -0,0 +1,69 @@
+package de.holisticon.toolbox.generator;
+
+import java.util.Iterator;
+import java.util.List;
+
+import com.sun.codemodel.JClass;
+import com.sun.codemodel.JFormatter;
+import com.sun.codemodel.JPackage;
+import com.sun.codemodel.JTypeVar;
+
+/**
+ * Return type of the default methods of {@link GenerationMode#INTERFACE} interfaces. The code model (Java 6) has no modifier for default
+ * methods, so it is generated in front of the return type, where the modifiers end: "public default T name(..)".
+ * @author Jan Galinski, Holisticon AG
+ */
+final class DefaultMethodType extends JClass {
+
+    private final JClass type;
+
+    DefaultMethodType(final JClass type) {
+        super(type.owner());
+        this.type = type;
+    }
+
+    @Override
+    public void generate(final JFormatter f) {
+        f.p("default").g(type);
+    }
+
+    @Override
+    public String name() {
+        return type.name();
+    }
+
+    @Override
+    public String fullName() {
+        return type.fullName();
+    }
+
+    @Override
+    public JPackage _package() {
+        return type._package();
+    }
+
+    @Override
+    public JClass _extends() {
+        return type._extends();
+    }
+
+    @Override
+    public Iterator<JClass> _implements() {
+        return type._implements();
+    }
+
+    @Override
+    public boolean isInterface() {
+        return type.isInterface();
+    }
+
+    @Override
+    public boolean isAbstract() {
+        return type.isAbstract();
+    }
+
+    @Override
+    protected JClass substituteParams(final JTypeVar[] variables, final List<JClass> bindings) {
+        return this;
+    }
+}
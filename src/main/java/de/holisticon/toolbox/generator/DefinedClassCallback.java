@@ -0,0 +1,20 @@
+package de.holisticon.toolbox.generator;
+
+import com.sun.codemodel.JDefinedClass;
+
+/**
+ * Customizes generated classes, see {@link FluentApiGeneratorBuilder#addDefinedClassCallbacks(DefinedClassCallback...)}. The streaming
+ * replacement of {@link FluentApiGenerator#getDefinedClass(Class)}: in streaming mode a class is written and released right after the
+ * callbacks were called.
+ * @author Jan Galinski, Holisticon AG
+ */
+public interface DefinedClassCallback {
+
+    /**
+     * Called once per generated class, after the default fluent methods were created and before the class is written. Called by the thread
+     * adding the classes, in the order they are added.
+     * @param sourceClassName binary name of the source class
+     * @param definedClass the generated class, may be modified
+     */
+    void defined(String sourceClassName, JDefinedClass definedClass);
+}
@@ -3,14 +3,14 @@ package de.holisticon.toolbox.generator;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Throwables.propagate;
-import static com.google.common.collect.Collections2.filter;
 import static com.sun.codemodel.JExpr._new;
 import static com.sun.codemodel.JExpr._this;
+import static com.sun.codemodel.JMod.ABSTRACT;
 import static com.sun.codemodel.JMod.FINAL;
 import static com.sun.codemodel.JMod.PRIVATE;
+import static com.sun.codemodel.JMod.PROTECTED;
 import static com.sun.codemodel.JMod.PUBLIC;
 import static com.sun.codemodel.JMod.STATIC;
-import static de.holisticon.toolbox.generator.predicate.MethodPredicates.IS_FLUENT_CANDIDATE;
 import static java.lang.String.format;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.apache.commons.lang3.StringUtils.removeEnd;
@@ -19,13 +19,31 @@ import static org.apache.commons.lang3.StringUtils.uncapitalize;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import javax.annotation.Generated;
 
@@ -33,32 +51,73 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Predicate;
-import com.google.common.base.Predicates;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sun.codemodel.ClassType;
+import com.sun.codemodel.JAnnotationUse;
 import com.sun.codemodel.JBlock;
 import com.sun.codemodel.JClass;
 import com.sun.codemodel.JClassAlreadyExistsException;
 import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JConditional;
 import com.sun.codemodel.JDefinedClass;
 import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JExpression;
 import com.sun.codemodel.JFieldVar;
 import com.sun.codemodel.JForEach;
+import com.sun.codemodel.JForLoop;
 import com.sun.codemodel.JInvocation;
 import com.sun.codemodel.JMethod;
+import com.sun.codemodel.JOp;
 import com.sun.codemodel.JPackage;
+import com.sun.codemodel.JSwitch;
+import com.sun.codemodel.JType;
+import com.sun.codemodel.JTypeVar;
 import com.sun.codemodel.JVar;
 
+import de.holisticon.toolbox.generator.classfile.ClassFileRepository;
+import de.holisticon.toolbox.generator.classfile.ClassFileScan;
+import de.holisticon.toolbox.generator.incremental.Fingerprints;
+import de.holisticon.toolbox.generator.incremental.GenerationManifest;
+import de.holisticon.toolbox.generator.index.SourceTypeIndex;
 import de.holisticon.toolbox.generator.predicate.ConstructorPredicates;
+import de.holisticon.toolbox.generator.predicate.MethodClassification;
+import de.holisticon.toolbox.generator.predicate.MethodClassifier;
+import de.holisticon.toolbox.generator.metrics.ClassMetrics;
+import de.holisticon.toolbox.generator.metrics.GenerationListener;
+import de.holisticon.toolbox.generator.metrics.GenerationPhase;
+import de.holisticon.toolbox.generator.metrics.GenerationReport;
+import de.holisticon.toolbox.generator.model.SourceConstructor;
+import de.holisticon.toolbox.generator.model.SourceMethod;
+import de.holisticon.toolbox.generator.model.SourceMethodCache;
+import de.holisticon.toolbox.generator.model.SourceType;
+import de.holisticon.toolbox.generator.model.TypeRef;
+import de.holisticon.toolbox.generator.output.ContentHashingCodeWriter;
+import de.holisticon.toolbox.generator.output.DirectoryOutputSink;
+import de.holisticon.toolbox.generator.output.InMemoryOutputSink;
+import de.holisticon.toolbox.generator.output.OutputSink;
 import de.holisticon.toolbox.generator.predicate.MethodPredicates;
+import de.holisticon.toolbox.generator.verify.CompilationResult;
+import de.holisticon.toolbox.generator.verify.SourceCompiler;
 
 /**
  * Generator for Fluent api.
  * Uses the following rules:
  * <ul>
  * <li>"public void setFoo(Foo foo)" becomes "foo(Foo foo)"</li>
- * <li>"public void addFoo(Foo foo)" becomes "addFoos(Foo... foos)" and adds all var args</li>
+ * <li>"public void addFoo(Foo foo)" becomes "addFoos(Foo... foos)" and adds all var args, with overloads for up to
+ * {@value #FIXED_ARITY_ADDERS} arguments, and "addAllFoos(Iterable&lt;? extends Foo&gt; foos)". Bulk methods "addFoos(Foo[])" or
+ * "addAllFoos(Collection)" are used if present.</li>
  * <li>all public constructors become static factory methods. "public Bar(Foo foo)" becomes "bar(Foo foo)".</li>
  * </ul>
  * Do not access directly, use {@link FluentApiGeneratorBuilder}.
@@ -74,13 +133,72 @@ public class FluentApiGenerator {
         return new FluentApiGeneratorBuilder();
     }
 
+    /**
+     * Creates fluent classes at runtime with the default settings, see {@link FluentApiGeneratorBuilder#buildRuntime()}.
+     * @return new runtime fluent classes
+     */
+    public static RuntimeFluentClasses runtime() {
+        return fluentApiGenerator().buildRuntime();
+    }
+
+    /**
+     * Maximum number of pending analyses per thread, see {@link #addSourceTypes(Iterator)}.
+     */
+    private static final int PENDING_PER_THREAD = 4;
+
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder().setNameFormat("fluent-api-generator-%d").setDaemon(true).build();
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private static final String SET = "set";
     private static final String GET = "get";
+    private static final String BUILD = "build";
+    private static final String CONSTRUCTOR = "constructor";
+    private static final String CALLS = "calls";
+    private static final String INSTANCE = "instance";
+    private static final String WRAP = "wrap";
+    private static final String RESET = "reset";
+    private static final String LOCAL = "local";
+    private static final String RELEASE = "release";
+    private static final String SELF = "self";
+    private static final String SELF_TYPE = "T";
+    private static final String BASE_SELF_TYPE = "S";
+    private static final String DELEGATE_TYPE = "D";
+    private static final String DELEGATE = "delegate";
+    private static final String SUPER = "super";
+
+    /**
+     * Appended to the name of a shared base class, see {@link GenerationMode#HIERARCHY}.
+     */
+    public static final String BASE_SUFFIX = "Base";
     public static final String DEFAULT_FILENAME_PATTERN = "%s.Fluent%s";
+
+    /**
+     * Format of a fixed {@link Generated} date, UTC.
+     */
+    private static final String ISO_8601 = "yyyy-MM-dd'T'HH:mm:ss'Z'";
     public static final String ADDER_PATTERN = "%ss";
+    public static final String BULK_ADDER_PATTERN = "addAll%s";
+
+    /**
+     * Number of arguments up to which adders get an overload without varargs array.
+     */
+    public static final int FIXED_ARITY_ADDERS = 4;
+
+    /**
+     * Parameter types of bulk methods taking a collection.
+     */
+    private static final Set<String> BULK_COLLECTION_TYPES = ImmutableSet.of(Iterable.class.getName(), Collection.class.getName(),
+            List.class.getName());
+
+    /**
+     * Adder parameter types that may be {@link Iterable} themselves. "addAllFoos(list)" and "addFoos(list)" would both compile, adding the
+     * elements or the list.
+     */
+    private static final Set<String> NO_ITERABLE_ADDER = ImmutableSet.of(Object.class.getName(), Iterable.class.getName(),
+            Collection.class.getName(), List.class.getName(), Set.class.getName(), SortedSet.class.getName(), Queue.class.getName());
     public static final String DEFAULT_TARGET_DIRECTORY = "target/generated-sources/java";
+    public static final String DEFAULT_TARGET = "1.6";
 
     public static final int PRIVATE_FINAL = PRIVATE + FINAL;
     public static final int PUBLIC_FINAL = PUBLIC + FINAL;
@@ -89,104 +207,469 @@ public class FluentApiGenerator {
     private final JCodeModel codeModel = new JCodeModel();
     private final JPackage rootpackage;
 
-    private final Map<Class<?>, JDefinedClass> definedClasses = Maps.newHashMap();
+    private final TypeResolver typeResolver = new TypeResolver(codeModel);
+
+    /**
+     * Defined classes by binary name of the source class.
+     */
+    private final Map<String, JDefinedClass> definedClasses = Maps.newHashMap();
 
-    private final File targetDirectory;
+    /**
+     * Fluent rules compiled with the ignored method names.
+     */
+    private final MethodClassifier methodClassifier;
 
-    private final Predicate<Method> filterApplicableMethods;
+    /**
+     * Classification by method. The source method cache shares the methods of a declaring class between all source types inheriting them, so
+     * inherited methods are classified once. Weak keys, methods dropped from the cache are not kept alive.
+     */
+    private final ConcurrentMap<SourceMethod, MethodClassification> classifications = new MapMaker().weakKeys().makeMap();
 
     private final String filenamePattern;
 
-    FluentApiGenerator(final File targetDirectory, final String rootPackage, final String filenamePattern, final Set<String> ignoredMethods) {
+    private final GenerationMode mode;
+
+    /**
+     * See {@link FluentApiGeneratorBuilder#target(String)}, <code>null</code> for the running java version.
+     */
+    private final String target;
+
+    /**
+     * See {@link FluentApiGeneratorBuilder#streaming(boolean)}.
+     */
+    private final boolean streaming;
+
+    /**
+     * Full names of the classes already written in streaming mode, they are not contained in the code model anymore.
+     */
+    private final Set<String> writtenClasses = Sets.newHashSet();
+
+    /**
+     * Binary names of the source classes added so far, a class added again (like by a package scan and by name) is generated once.
+     */
+    private final Set<String> addedSourceClasses = Sets.newHashSet();
+
+    private final List<DefinedClassCallback> definedClassCallbacks;
+
+    /**
+     * Receives the generated sources, see {@link FluentApiGeneratorBuilder#outputSink(OutputSink)}.
+     */
+    private final OutputSink outputSink;
+
+    /**
+     * See {@link FluentApiGeneratorBuilder#reproducible(boolean)}.
+     */
+    private final boolean reproducible;
+
+    /**
+     * Date of the {@link Generated} annotations, <code>null</code> to omit it.
+     */
+    private final String generatedDate;
+
+    /**
+     * SHA-256 of the written files by generated class name.
+     */
+    private final Map<String, String> contentHashes = Maps.newTreeMap();
+
+    private final List<GenerationListener> generationListeners;
+
+    private final GenerationReport report = new GenerationReport();
+
+    /**
+     * Analyses of the classes in the code model by generated class name, their metrics are complete once they are written.
+     */
+    private final Map<String, ClassAnalysis> unwrittenClasses = Maps.newHashMap();
+
+    /**
+     * Only used in {@link GenerationMode#HIERARCHY} mode: the nearest base class of each super class seen so far, by binary name of the super
+     * class. <code>null</code> if neither the super class nor its super classes get a base class.
+     */
+    private final Map<String, GeneratedClass> baseClasses = Maps.newHashMap();
+
+    /**
+     * Number of methods of the base classes in the code model, by generated class name. They are reported once they are written.
+     */
+    private final Map<String, Integer> unwrittenBaseClasses = Maps.newHashMap();
+
+    private final ContentHashingCodeWriter.Listener writtenListener = new ContentHashingCodeWriter.Listener() {
+
+        @Override
+        public void written(final String className, final String contentHash, final long nanos) {
+            contentHashes.put(className, contentHash);
+            final ClassAnalysis analysis = unwrittenClasses.remove(className);
+            if (analysis != null) {
+                analysis.nanos.put(GenerationPhase.WRITE, nanos);
+                final ClassMetrics metrics = new ClassMetrics(analysis.sourceType.getName(), className, analysis.nanos, analysis.methodsClassified,
+                        analysis.methodsIgnored, analysis.methodsEmitted, analysis.methodsInherited);
+                report.add(metrics);
+                for (final GenerationListener listener : generationListeners) {
+                    listener.classCompleted(metrics);
+                }
+            } else if (unwrittenBaseClasses.containsKey(className)) {
+                report.addBaseClass(unwrittenBaseClasses.remove(className));
+            }
+        }
+    };
+
+    /**
+     * Only set in incremental mode, see {@link FluentApiGeneratorBuilder#incremental(boolean)}.
+     */
+    private final GenerationManifest manifest;
+
+    /**
+     * Number of threads used to analyze source classes in {@link #addClasses(Collection)}.
+     */
+    private final int parallelism;
+
+    /**
+     * Methods of super classes, shared by all source classes of this generator (and by the generators sharing its class file repository).
+     */
+    private final SourceMethodCache sourceMethodCache;
+
+    /**
+     * Reads source classes from class files, see {@link #addClassFile(String)}.
+     */
+    private final ClassFileRepository classFileRepository;
+
+    /**
+     * <code>true</code> if the repository was created for this generator, a shared one stays open for its owner.
+     */
+    private final boolean ownsClassFileRepository;
+
+    /**
+     * Only set if configured via {@link FluentApiGeneratorBuilder#indexDirectory(File)}.
+     */
+    private final SourceTypeIndex index;
+
+    FluentApiGenerator(final File targetDirectory, final String rootPackage, final String filenamePattern, final Set<String> ignoredMethods,
+            final boolean incremental, final int parallelism, final ClassFileRepository classFileRepository,
+            final boolean ownsClassFileRepository, final GenerationMode mode,
+            final String target, final boolean streaming, final List<DefinedClassCallback> definedClassCallbacks, final OutputSink outputSink,
+            final boolean reproducible, final Date generatedDate, final List<GenerationListener> generationListeners, final SourceTypeIndex index) {
         checkArgument(targetDirectory != null);
-        if (!targetDirectory.exists()) {
-            checkArgument(targetDirectory.mkdirs(), format("target directory '%s' could not be created.", targetDirectory.getAbsolutePath()));
-        } else {
-            checkArgument(targetDirectory.isDirectory());
-            checkArgument(targetDirectory.canWrite());
+        // other sinks do not write to the target directory, in memory compilation must not create it
+        if (incremental || outputSink instanceof DirectoryOutputSink) {
+            if (!targetDirectory.exists()) {
+                checkArgument(targetDirectory.mkdirs(), format("target directory '%s' could not be created.", targetDirectory.getAbsolutePath()));
+            } else {
+                checkArgument(targetDirectory.isDirectory());
+                checkArgument(targetDirectory.canWrite());
+            }
         }
         checkArgument(ignoredMethods != null);
+        checkArgument(parallelism > 0, "parallelism must be positive");
+        checkArgument(mode != null);
+        checkArgument(definedClassCallbacks != null);
+        checkArgument(outputSink != null);
+        checkArgument(generationListeners != null);
+        checkArgument(classFileRepository != null);
 
-        this.targetDirectory = targetDirectory;
         this.rootpackage = codeModel._package(rootPackage);
         this.filenamePattern = filenamePattern;
 
-        final Predicate<Method> notIgnored = new Predicate<Method>() {
+        this.methodClassifier = MethodClassifier.compile(ignoredMethods);
+        this.mode = mode;
+        this.target = target;
+        this.streaming = streaming;
+        this.definedClassCallbacks = ImmutableList.copyOf(definedClassCallbacks);
+        this.outputSink = outputSink;
+        this.reproducible = reproducible;
+        this.generationListeners = ImmutableList.copyOf(generationListeners);
+        if (generatedDate != null) {
+            this.generatedDate = isoDate(generatedDate);
+        } else {
+            this.generatedDate = reproducible ? null : DateFormat.getDateTimeInstance().format(new Date());
+        }
+        this.manifest = incremental ? GenerationManifest.load(targetDirectory, Fingerprints.ofSettings(rootPackage, filenamePattern, ignoredMethods,
+                mode.name(), "target=" + target, "reproducible=" + reproducible, "date=" + (generatedDate != null ? this.generatedDate : ""))) : null;
+        this.parallelism = parallelism;
+        this.classFileRepository = classFileRepository;
+        this.ownsClassFileRepository = ownsClassFileRepository;
+        this.sourceMethodCache = classFileRepository.getSourceMethodCache();
+        this.index = index;
+    }
 
-            @Override
-            public boolean apply(final Method method) {
-                final String name = method.getName();
-                final boolean ignored = ignoredMethods.contains(name);
-                if (ignored) {
-                    logger.info("ignoring method {}", method);
-                    return false;
-                }
-                return true;
-            }
-        };
+    private static String isoDate(final Date date) {
+        final DateFormat format = new SimpleDateFormat(ISO_8601, Locale.ENGLISH);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+
+    /**
+     * Orders constructors and methods by signature, so the generated code does not depend on the order reflection or the class file returns them.
+     */
+    private static final Ordering<SourceMethod> METHODS_BY_SIGNATURE = new Ordering<SourceMethod>() {
+
+        @Override
+        public int compare(final SourceMethod left, final SourceMethod right) {
+            return left.getSignature().compareTo(right.getSignature());
+        }
+    };
+
+    private static final Ordering<SourceConstructor> CONSTRUCTORS_BY_SIGNATURE = new Ordering<SourceConstructor>() {
+
+        @Override
+        public int compare(final SourceConstructor left, final SourceConstructor right) {
+            return left.getSignature().compareTo(right.getSignature());
+        }
+    };
+
+    /**
+     * The analyzing part of the generation: the fluent candidates of a source class. Does not touch the code model, so it can be created
+     * concurrently for many source classes.
+     */
+    private static final class ClassAnalysis {
 
-        this.filterApplicableMethods = Predicates.and(IS_FLUENT_CANDIDATE, notIgnored);
+        private final SourceType sourceType;
+        private final String fingerprint;
+        private final boolean upToDate;
+
+        private final List<SourceConstructor> constructors = Lists.newArrayList();
+        private final List<SourceMethod> setters = Lists.newArrayList();
+        private final List<SourceMethod> adders = Lists.newArrayList();
+
+        /**
+         * Bulk methods of the source class ("addTags(String[])", "addAllTags(Collection)") by adder ("addTag(String)").
+         */
+        private final Map<SourceMethod, SourceMethod> bulkAdders = Maps.newHashMap();
+
+        /**
+         * Names of adders declared for more than one parameter type. Their {@link Iterable} overloads would have the same erasure.
+         */
+        private final Set<String> overloadedAdders = Sets.newHashSet();
+
+        /**
+         * Metrics, completed when the generated class is written.
+         */
+        private final Map<GenerationPhase, Long> nanos = Maps.newEnumMap(GenerationPhase.class);
+        private int methodsClassified;
+        private int methodsIgnored;
+        private int methodsEmitted;
+        private int methodsInherited;
+
+        private ClassAnalysis(final SourceType sourceType, final String fingerprint, final boolean upToDate) {
+            this.sourceType = sourceType;
+            this.fingerprint = fingerprint;
+            this.upToDate = upToDate;
+        }
     }
 
     private final class GeneratedClass {
 
-        private final Class<?> sourceClass;
+        private final SourceType sourceType;
         private final JClass sourceClassRef;
         private final String sourceClassName;
         private final String delegateFieldName;
 
+        /**
+         * The delegate, <code>null</code> in {@link GenerationMode#DEFERRED} and {@link GenerationMode#INTERFACE} mode.
+         */
         private final JFieldVar delegateField;
+
+        /**
+         * Target of the setter and adder calls: the delegate, <code>this</code> in {@link GenerationMode#INTERFACE} mode, <code>null</code> in
+         * {@link GenerationMode#DEFERRED} mode.
+         */
+        private final JExpression delegate;
         private final JDefinedClass definedClass;
 
-        public GeneratedClass(final Class<?> sourceClass) {
-            sourceClassRef = codeModel.ref(sourceClass);
+        /**
+         * Return type of the fluent methods: the generated class, or the self type of the {@link GenerationMode#INTERFACE} interface or of the
+         * {@link GenerationMode#HIERARCHY} base class.
+         */
+        private final JClass fluentType;
+
+        /**
+         * Only used in {@link GenerationMode#HIERARCHY} mode: the base class extended by this class, <code>null</code> if there is none.
+         */
+        private final GeneratedClass base;
+
+        /**
+         * <code>true</code> for a {@link GenerationMode#HIERARCHY} base class.
+         */
+        private final boolean abstractBase;
+
+        /**
+         * Signatures of the setters and adders of the source class, including those of the base classes. Only kept for base classes.
+         */
+        private final Set<String> fluentSignatures = Sets.newHashSet();
+
+        /**
+         * Only used in {@link GenerationMode#INTERFACE} mode: the source methods declared by the interface.
+         */
+        private final Set<SourceMethod> declaredMethods = Sets.newHashSet();
+
+        /**
+         * Only used in {@link GenerationMode#DEFERRED} mode: the recorded values by setter, the recorded elements by adder and the number of the
+         * last setter call or first adder call by setter and adder (0 if not called), counted by the "calls" field.
+         */
+        private final Map<SourceMethod, JFieldVar> recordedValues = Maps.newLinkedHashMap();
+        private final Map<SourceMethod, JFieldVar> recordedElements = Maps.newLinkedHashMap();
+        private final Map<SourceMethod, JFieldVar> recordedCalls = Maps.newHashMap();
+        private JFieldVar callCounter;
 
-            this.sourceClass = sourceClass;
-            this.sourceClassName = sourceClass.getSimpleName();
+        /**
+         * @param analysis the source class
+         * @param base base class to extend, only in {@link GenerationMode#HIERARCHY} mode
+         * @param abstractBase <code>true</code> to generate a {@link GenerationMode#HIERARCHY} base class
+         */
+        public GeneratedClass(final ClassAnalysis analysis, final GeneratedClass base, final boolean abstractBase) {
+            this.sourceType = analysis.sourceType;
+            this.base = base;
+            this.abstractBase = abstractBase;
+            sourceClassRef = typeResolver.resolveClass(sourceType.getType());
+
+            this.sourceClassName = sourceType.getSimpleName();
             this.delegateFieldName = uncapitalize(sourceClassName);
 
             try {
                 final String fullyqualifiedName = createFQN();
-                definedClass = codeModel._class(PUBLIC_FINAL, fullyqualifiedName, ClassType.CLASS);
+                checkState(!writtenClasses.contains(fullyqualifiedName), format("class '%s' was already generated", fullyqualifiedName));
+                if (mode == GenerationMode.INTERFACE) {
+                    definedClass = codeModel._class(PUBLIC, fullyqualifiedName, ClassType.INTERFACE);
+                    final JTypeVar selfType = definedClass.generify(SELF_TYPE);
+                    selfType.bound(definedClass.narrow(selfType));
+                    fluentType = new DefaultMethodType(selfType);
+                } else if (abstractBase) {
+                    definedClass = codeModel._class(PUBLIC + ABSTRACT, fullyqualifiedName, ClassType.CLASS);
+                    final JTypeVar selfType = definedClass.generify(BASE_SELF_TYPE);
+                    final JTypeVar delegateType = definedClass.generify(DELEGATE_TYPE);
+                    selfType.bound(definedClass.narrow(selfType, delegateType));
+                    delegateType.bound(sourceClassRef);
+                    fluentType = selfType;
+                    if (base != null) {
+                        definedClass._extends(base.definedClass.narrow(selfType, delegateType));
+                    }
+                } else {
+                    definedClass = codeModel._class(PUBLIC_FINAL, fullyqualifiedName, ClassType.CLASS);
+                    fluentType = definedClass;
+                    if (base != null) {
+                        definedClass._extends(base.definedClass.narrow(definedClass, sourceClassRef));
+                    }
+                }
                 annotateWithGenerated();
 
-                delegateField = createFieldAndGetter();
+                if (mode == GenerationMode.DEFERRED) {
+                    delegateField = null;
+                    delegate = null;
+                    createDeferredConstruction(analysis.constructors);
+                } else if (mode == GenerationMode.INTERFACE) {
+                    delegateField = null;
+                    delegate = _this();
+                    createSelf();
+                } else if (abstractBase) {
+                    delegateField = null;
+                    delegate = createBaseDelegate();
+                } else if (base != null) {
+                    // the delegate is held by the base class
+                    delegateField = null;
+                    delegate = JExpr.refthis(DELEGATE);
 
-                hideDefaultConstructor(definedClass, delegateField);
-                addFactoryMethodForConstructors();
+                    final JMethod constructor = definedClass.constructor(PRIVATE);
+                    constructor.javadoc().add("Hide constructor, use static factory methods.");
+                    passDelegateToBase(constructor, sourceClassRef, delegateFieldName);
+                    addFactoryMethodForConstructors(analysis.constructors);
+                } else {
+                    delegateField = createFieldAndGetter();
+                    delegate = delegateField;
 
-                // _package.javadoc().append("CHECKSTYLE:OFF - generated class");
+                    hideDefaultConstructor(definedClass, delegateField);
+                    addFactoryMethodForConstructors(analysis.constructors);
+                    if (mode == GenerationMode.REUSABLE) {
+                        createReuseMethods();
+                    }
+                }
 
-                final Collection<Method> filterMethods = filterMethods(sourceClass);
-                for (final Method m : filterMethods) {
+                // _package.javadoc().append("CHECKSTYLE:OFF - generated class");
 
-                    if (MethodPredicates.IS_SETTER.apply(m)) {
+                for (final SourceMethod m : analysis.setters) {
+                    if (isInherited(m)) {
+                        analysis.methodsInherited++;
+                    } else {
                         createSettersForSourceClass(m);
-                    } else if (MethodPredicates.IS_ADDER.apply(m)) {
-                        createAdderForSourceClass(m);
                     }
+                }
+                for (final SourceMethod m : analysis.adders) {
+                    if (isInherited(m)) {
+                        analysis.methodsInherited++;
+                    } else {
+                        // deferred adders only record, the bulk method is used when applying
+                        createAddersForSourceClass(m, delegate != null ? analysis.bulkAdders.get(m) : null,
+                                analysis.overloadedAdders.contains(m.getName()));
+                    }
+                }
+                if (abstractBase) {
+                    for (final SourceMethod m : Iterables.concat(analysis.setters, analysis.adders)) {
+                        fluentSignatures.add(m.getSignature());
+                    }
+                }
 
+                if (mode == GenerationMode.DEFERRED) {
+                    createBuildAndGetter(analysis);
                 }
 
             } catch (final JClassAlreadyExistsException e) {
-                throw propagate(e);
+                // source classes with the same simple name, for example nested classes
+                throw new IllegalStateException(format("class '%s' generated for %s already exists", e.getExistingClass().fullName(),
+                        sourceType.getName()), e);
             }
         }
 
         private String createFQN() {
-            final String packageName = isNotBlank(rootpackage.name()) ? rootpackage.name() : sourceClass.getPackage().getName();
-            return format(filenamePattern, packageName, sourceClassName);
+            final String packageName = isNotBlank(rootpackage.name()) ? rootpackage.name() : sourceType.getPackageName();
+            return format(filenamePattern, packageName, sourceClassName) + (abstractBase ? BASE_SUFFIX : "");
         }
 
-        private void addFactoryMethodForConstructors() {
+        /**
+         * {@link GenerationMode#HIERARCHY}: <code>true</code> if the base class already has the fluent method(s) of the given setter or adder.
+         */
+        private boolean isInherited(final SourceMethod method) {
+            return base != null && base.fluentSignatures.contains(method.getSignature());
+        }
+
+        /**
+         * {@link GenerationMode#HIERARCHY} base class: the topmost one holds the delegate, typed by the delegate type parameter, with "get()" and
+         * "self()", the others pass it on.
+         * @return the delegate
+         */
+        private JExpression createBaseDelegate() {
+            final JClass delegateType = definedClass.typeParams()[1];
+            if (base != null) {
+                passDelegateToBase(definedClass.constructor(PROTECTED), delegateType, DELEGATE);
+                return JExpr.refthis(DELEGATE);
+            }
+            final JFieldVar field = definedClass.field(PROTECTED + FINAL, delegateType, DELEGATE);
+            field.javadoc().add("delegate");
+            final JMethod constructor = definedClass.constructor(PROTECTED);
+            constructor.body().assign(_this().ref(field), constructor.param(FINAL, delegateType, DELEGATE));
+
+            final JMethod get = definedClass.method(PUBLIC_FINAL, delegateType, GET);
+            get.body()._return(field);
+            get.javadoc().addReturn().add("the created instance");
+
+            final JMethod self = definedClass.method(PROTECTED + FINAL, fluentType, SELF);
+            self.annotate(SuppressWarnings.class).param("value", "unchecked");
+            self.body()._return(JExpr.cast(fluentType, _this()));
+            self.javadoc().addReturn().add("this as the fluent class extending this base class");
+            return field;
+        }
+
+        /**
+         * {@link GenerationMode#HIERARCHY}: the constructor passes the delegate to the one of the base class.
+         */
+        private void passDelegateToBase(final JMethod constructor, final JType delegateType, final String name) {
+            constructor.body().invoke(SUPER).arg(constructor.param(FINAL, delegateType, name));
+        }
+
+        private void addFactoryMethodForConstructors(final Collection<SourceConstructor> constructors) {
 
-            for (final Constructor<?> c : ConstructorPredicates.IS_CONSTRUCTOR_CANDIDATE.filterConstructors(sourceClass)) {
+            for (final SourceConstructor c : constructors) {
                 final JMethod factoryMethod = definedClass.method(PUBLIC_STATIC, definedClass, delegateFieldName);
                 final JInvocation newDelegate = _new(sourceClassRef);
-                final Class<?>[] parameterTypes = c.getParameterTypes();
+                final List<TypeRef> parameterTypes = c.getParameterTypes();
 
-                for (int i = 0; i < parameterTypes.length; i++) {
-                    final JVar param = factoryMethod.param(parameterTypes[i], "arg" + i);
+                for (int i = 0; i < parameterTypes.size(); i++) {
+                    final JVar param = factoryMethod.param(typeResolver.resolve(parameterTypes.get(i)), "arg" + i);
                     newDelegate.arg(param);
                 }
 
@@ -195,19 +678,69 @@ public class FluentApiGenerator {
         }
 
         private void annotateWithGenerated() {
-            definedClass.annotate(Generated.class).param("value", FluentApiGenerator.class.getCanonicalName())
-                    .param("date", DateFormat.getDateTimeInstance().format(new Date()));
+            final JAnnotationUse generated = definedClass.annotate(Generated.class).param("value", FluentApiGenerator.class.getCanonicalName());
+            if (generatedDate != null) {
+                generated.param("date", generatedDate);
+            }
         }
 
         private JFieldVar createFieldAndGetter() {
-            final JFieldVar field = definedClass.field(PRIVATE_FINAL, sourceClass, delegateFieldName);
+            // reusable wrappers are re-targeted by reset
+            final JFieldVar field = definedClass.field(mode == GenerationMode.REUSABLE ? PRIVATE : PRIVATE_FINAL, sourceClassRef, delegateFieldName);
             field.javadoc().add("delegate");
-            final JMethod method = definedClass.method(PUBLIC_FINAL, sourceClass, GET);
+            final JMethod method = definedClass.method(PUBLIC_FINAL, sourceClassRef, GET);
             method.body()._return(field);
             method.javadoc().addReturn().add("the created instance");
             return field;
         }
 
+        /**
+         * {@link GenerationMode#REUSABLE}: "wrap(delegate)", "reset(delegate)" and "local(delegate)" re-targeting a wrapper owned by the current
+         * thread.
+         */
+        private void createReuseMethods() {
+            final JMethod wrap = definedClass.method(PUBLIC_STATIC, definedClass, WRAP);
+            wrap.body()._return(_new(definedClass).arg(wrap.param(FINAL, sourceClassRef, delegateFieldName)));
+            wrap.javadoc().addReturn().add("a new wrapper of the given instance");
+
+            final JMethod reset = definedClass.method(PUBLIC_FINAL, definedClass, RESET);
+            reset.body().assign(_this().ref(delegateField), reset.param(FINAL, sourceClassRef, delegateFieldName));
+            returnThis(reset.body());
+            reset.javadoc().add("Re-targets this wrapper, so it can be reused without allocation.");
+            reset.javadoc().addReturn().add("this");
+
+            final JClass threadLocalType = codeModel.ref(ThreadLocal.class).narrow(definedClass);
+            final JDefinedClass initializer = codeModel.anonymousClass(threadLocalType);
+            final JMethod initialValue = initializer.method(PROTECTED, definedClass, "initialValue");
+            initialValue.annotate(Override.class);
+            initialValue.body()._return(_new(definedClass).arg(JExpr._null()));
+            final JFieldVar threadLocal = definedClass.field(PRIVATE + STATIC + FINAL, threadLocalType, LOCAL.toUpperCase(Locale.ENGLISH),
+                    _new(initializer));
+            threadLocal.javadoc().add("wrappers owned by the threads calling " + LOCAL);
+
+            final JMethod local = definedClass.method(PUBLIC_STATIC, definedClass, LOCAL);
+            local.body()._return(threadLocal.invoke(GET).invoke(reset).arg(local.param(FINAL, sourceClassRef, delegateFieldName)));
+            local.javadoc().add("Re-targets the wrapper owned by the current thread. It is valid until the next call of this method by the same "
+                    + "thread, do not keep it or nest fluent chains of this class. The wrapper keeps the instance until the next call or "
+                    + "{@link #" + RELEASE + "()}.");
+            local.javadoc().addReturn().add("the wrapper of the current thread");
+
+            final JMethod release = definedClass.method(PUBLIC_STATIC, codeModel.VOID, RELEASE);
+            release.body().invoke(threadLocal, "remove");
+            release.javadoc().add("Removes the wrapper owned by the current thread, so neither the last instance passed to {@link #" + LOCAL
+                    + "} nor this class are kept by the thread, for example on pooled threads of a server that redeploys the application.");
+        }
+
+        /**
+         * {@link GenerationMode#INTERFACE}: "self()" returning this as the self type, called by the default methods.
+         */
+        private void createSelf() {
+            final JMethod self = definedClass.method(PUBLIC, fluentType, SELF);
+            self.annotate(SuppressWarnings.class).param("value", "unchecked");
+            self.body()._return(JExpr.cast(definedClass.typeParams()[0], _this()));
+            self.javadoc().addReturn().add("this");
+        }
+
         private void hideDefaultConstructor(final JDefinedClass definedClass, final JFieldVar delegateField) {
             final JMethod constructor = definedClass.constructor(PRIVATE);
             constructor.javadoc().add("Hide constructor, use static factory methods.");
@@ -215,43 +748,305 @@ public class FluentApiGenerator {
             constructor.body().assign(_this().ref(delegateField), constructor.param(FINAL, delegateField.type(), uncapitalize(delegateField.name())));
         }
 
-        private void createSettersForSourceClass(final Method setter) {
+        private void createSettersForSourceClass(final SourceMethod setter) {
             final String name = uncapitalize(removeStart(setter.getName(), SET));
-            final JMethod method = definedClass.method(PUBLIC, definedClass, name);
+            final JMethod method = definedClass.method(PUBLIC, fluentType, name);
 
-            final Class<?> parameterType = setter.getParameterTypes()[0];
+            final TypeRef parameterType = setter.getParameterTypes().get(0);
             // final Type genericType = setter.getGenericParameterTypes()[0];
 
-            final JVar param = method.param(FINAL, parameterType, name);
+            final JVar param = method.param(FINAL, typeResolver.resolve(parameterType), name);
 
-            method.body().invoke(delegateField, setter.getName()).arg(param);
+            if (delegate != null) {
+                invokeDelegate(method.body(), setter).arg(param);
+            } else {
+                method.body().assign(_this().ref(recordedValue(setter, name, param.type())), param);
+                method.body().assign(_this().ref(recordedCall(setter, name)), nextCall());
+            }
             returnThis(method.body());
 
             // default for boolean setters
-            if (parameterType.getCanonicalName().equals("boolean")) {
-                final JMethod booleanMethod = definedClass.method(PUBLIC, definedClass, name);
+            if (parameterType.isBoolean()) {
+                final JMethod booleanMethod = definedClass.method(PUBLIC, fluentType, name);
                 booleanMethod.body()._return(_this().invoke(method).arg(JExpr.TRUE));
                 booleanMethod.javadoc().addReturn().add("#" + name + "(true)");
             }
 
         }
 
-        private void createAdderForSourceClass(final Method adder) {
-            final JMethod method = definedClass.method(PUBLIC, definedClass, format(ADDER_PATTERN, adder.getName()));
+        /**
+         * Creates "addTags(String... tags)", the fixed arity overloads "addTags(String tag1)" to "addTags(String tag1, .., String tag4)" that do not
+         * allocate an array and "addAllTags(Iterable&lt;? extends String&gt; tags)". The iterable adder has its own name: an element type like
+         * a Vaadin layout is a component and an {@link Iterable} of components, so an overload would make "addComponents(layout)" ambiguous. If
+         * the source class has a bulk method, the varargs and iterable adders delegate to it in one call instead of looping.
+         */
+        private void createAddersForSourceClass(final SourceMethod adder, final SourceMethod bulk, final boolean overloaded) {
+            final String name = format(ADDER_PATTERN, adder.getName());
+            final TypeRef parameterType = adder.getParameterTypes().get(0);
+            final JType elementType = typeResolver.resolve(parameterType);
+            final String paramName = uncapitalize(removeStart(name, MethodPredicates.ADD));
+            final String elementName = removeEnd(paramName, "s");
+            final TypeRef bulkType = bulk != null ? bulk.getParameterTypes().get(0) : null;
+
+            final JMethod varArgs = definedClass.method(PUBLIC, fluentType, name);
+            final JVar array = varArgs.varParam(elementType, paramName);
+            if (bulkType == null) {
+                prepareAdd(varArgs.body(), adder, paramName, elementType);
+                addEach(varArgs.body(), elementType, elementName, array, adder);
+            } else if (bulkType.isArray()) {
+                invokeDelegate(varArgs.body(), bulk).arg(array);
+            } else {
+                invokeDelegate(varArgs.body(), bulk)
+                        .arg(JExpr.cast(typeResolver.resolve(bulkType), codeModel.ref(Arrays.class).staticInvoke("asList").arg(array)));
+            }
+            returnThis(varArgs.body());
+
+            for (int arity = 1; arity <= FIXED_ARITY_ADDERS; arity++) {
+                final JMethod fixedArity = definedClass.method(PUBLIC, fluentType, name);
+                prepareAdd(fixedArity.body(), adder, paramName, elementType);
+                for (int i = 1; i <= arity; i++) {
+                    add(fixedArity.body(), adder, fixedArity.param(FINAL, elementType, elementName + i));
+                }
+                returnThis(fixedArity.body());
+            }
+
+            if (overloaded || parameterType.isArray() || NO_ITERABLE_ADDER.contains(parameterType.toString())) {
+                return;
+            }
+            final JMethod iterable = definedClass.method(PUBLIC, fluentType, format(BULK_ADDER_PATTERN, removeStart(name, MethodPredicates.ADD)));
+            final JVar elements = iterable.param(FINAL, codeModel.ref(Iterable.class).narrow(elementType.boxify().wildcard()), paramName);
+            if (bulkType == null || bulkType.isArray()) {
+                prepareAdd(iterable.body(), adder, paramName, elementType);
+                addEach(iterable.body(), elementType.boxify(), elementName, elements, adder);
+            } else {
+                final JType rawBulkType = typeResolver.resolve(bulkType);
+                final JConditional isBulkType = iterable.body()._if(elements._instanceof(rawBulkType));
+                invokeDelegate(isBulkType._then(), bulk).arg(JExpr.cast(rawBulkType, elements));
+                addEach(isBulkType._else(), elementType.boxify(), elementName, elements, adder);
+            }
+            returnThis(iterable.body());
+        }
+
+        private void addEach(final JBlock block, final JType elementType, final String elementName, final JVar elements, final SourceMethod adder) {
+            final JForEach forEach = block.forEach(elementType, elementName, elements);
+            add(forEach.body(), adder, forEach.var());
+        }
+
+        /**
+         * Adds the element to the delegate, or records it in {@link GenerationMode#DEFERRED} mode.
+         */
+        private void add(final JBlock block, final SourceMethod adder, final JExpression element) {
+            if (delegate != null) {
+                invokeDelegate(block, adder).arg(element);
+            } else {
+                block.invoke(_this().ref(recordedElements.get(adder)), "add").arg(element);
+            }
+        }
+
+        /**
+         * In {@link GenerationMode#DEFERRED} mode, creates the list recording the added elements and numbers the call on first use.
+         */
+        private void prepareAdd(final JBlock block, final SourceMethod adder, final String name, final JType elementType) {
+            if (delegate != null) {
+                return;
+            }
+            JFieldVar elements = recordedElements.get(adder);
+            if (elements == null) {
+                elements = definedClass.field(PRIVATE, codeModel.ref(List.class).narrow(elementType.boxify()), uniqueFieldName(name));
+                recordedElements.put(adder, elements);
+            }
+            final JBlock firstCall = block._if(_this().ref(elements).eq(JExpr._null()))._then();
+            firstCall.assign(_this().ref(elements), _new(codeModel.ref(ArrayList.class).narrow(elementType.boxify())));
+            firstCall.assign(_this().ref(recordedCall(adder, name)), nextCall());
+        }
+
+        private JFieldVar recordedValue(final SourceMethod setter, final String name, final JType type) {
+            JFieldVar value = recordedValues.get(setter);
+            if (value == null) {
+                value = definedClass.field(PRIVATE, type, uniqueFieldName(name));
+                recordedValues.put(setter, value);
+            }
+            return value;
+        }
+
+        private JFieldVar recordedCall(final SourceMethod method, final String name) {
+            JFieldVar call = recordedCalls.get(method);
+            if (call == null) {
+                call = definedClass.field(PRIVATE, codeModel.INT, uniqueFieldName(name + "Call"));
+                recordedCalls.put(method, call);
+            }
+            return call;
+        }
+
+        /**
+         * @return "(this.calls += 1)", the number of the current call
+         */
+        private JExpression nextCall() {
+            if (callCounter == null) {
+                callCounter = definedClass.field(PRIVATE, codeModel.INT, uniqueFieldName(CALLS));
+            }
+            return JExpr.assignPlus(_this().ref(callCounter), JExpr.lit(1));
+        }
+
+        /**
+         * Overloaded setters and adders record in fields with a number appended.
+         */
+        private String uniqueFieldName(final String name) {
+            String unique = name;
+            for (int i = 2; definedClass.fields().containsKey(unique); i++) {
+                unique = name + i;
+            }
+            return unique;
+        }
+
+        /**
+         * {@link GenerationMode#DEFERRED}: the factory methods record the constructor arguments and which constructor to use.
+         */
+        private void createDeferredConstruction(final List<SourceConstructor> constructors) {
+            final JMethod constructor = definedClass.constructor(PRIVATE);
+            constructor.javadoc().add("Hide constructor, use static factory methods.");
+            final JFieldVar constructorIndex = constructors.size() > 1 ? definedClass.field(PRIVATE_FINAL, codeModel.INT, CONSTRUCTOR) : null;
+            if (constructorIndex != null) {
+                constructor.body().assign(_this().ref(constructorIndex), constructor.param(FINAL, codeModel.INT, CONSTRUCTOR));
+            }
+
+            for (int c = 0; c < constructors.size(); c++) {
+                final JMethod factoryMethod = definedClass.method(PUBLIC_STATIC, definedClass, delegateFieldName);
+                final JInvocation newFluent = _new(definedClass);
+                if (constructorIndex != null) {
+                    newFluent.arg(JExpr.lit(c));
+                }
+                final JVar fluent = factoryMethod.body().decl(FINAL, definedClass, "fluent", newFluent);
+                final List<TypeRef> parameterTypes = constructors.get(c).getParameterTypes();
+                for (int i = 0; i < parameterTypes.size(); i++) {
+                    final JType type = typeResolver.resolve(parameterTypes.get(i));
+                    final JVar param = factoryMethod.param(type, "arg" + i);
+                    final JFieldVar field = definedClass.field(PRIVATE, type, constructorArgument(constructorIndex != null, c, i));
+                    factoryMethod.body().assign(fluent.ref(field), param);
+                }
+                factoryMethod.body()._return(fluent);
+            }
+        }
+
+        private String constructorArgument(final boolean severalConstructors, final int constructor, final int argument) {
+            return severalConstructors ? CONSTRUCTOR + constructor + "Arg" + argument : "arg" + argument;
+        }
+
+        /**
+         * {@link GenerationMode#DEFERRED}: "build()" creates the source instance and applies the recorded values in call order: the recorded
+         * setters and adders are numbered as "(call &lt;&lt; 32) | index", sorted and applied in a switch on the index. "get()" builds once.
+         */
+        private void createBuildAndGetter(final ClassAnalysis analysis) {
+            final JMethod build = definedClass.method(PUBLIC_FINAL, sourceClassRef, BUILD);
+            build.javadoc().add("Creates a new instance and applies all recorded properties.");
+            build.javadoc().addReturn().add("the created instance");
+            final JBlock body = build.body();
 
-            final JVar param = method.varParam(adder.getParameterTypes()[0], uncapitalize(removeStart(method.name(), MethodPredicates.ADD)));
+            final List<SourceConstructor> constructors = analysis.constructors;
+            final JVar source = body.decl(FINAL, sourceClassRef, delegateFieldName, null);
+            if (constructors.size() == 1) {
+                body.assign(source, newSource(constructors.get(0), false, 0));
+            } else {
+                final JSwitch constructorSwitch = body._switch(_this().ref(CONSTRUCTOR));
+                for (int c = 0; c < constructors.size(); c++) {
+                    final JBlock caseBody = constructorSwitch._case(JExpr.lit(c)).body();
+                    caseBody.assign(source, newSource(constructors.get(c), true, c));
+                    caseBody._break();
+                }
+                constructorSwitch._default().body()._throw(_new(codeModel.ref(IllegalStateException.class)));
+            }
 
-            final JBlock block = method.body();
-            final String loopVariable = removeEnd(param.name(), "s");
-            // the param.type is array, so elementType must be used
-            final JForEach forEach = block.forEach(param.type().elementType(), loopVariable, param);
-            forEach.body().invoke(delegateField, adder.getName()).arg(forEach.var());
+            if (!recordedCalls.isEmpty()) {
+                applyInCallOrder(analysis, body, source);
+            }
+            body._return(source);
+            createDeferredGetter(build);
+        }
 
-            returnThis(block);
+        private void applyInCallOrder(final ClassAnalysis analysis, final JBlock body, final JVar source) {
+            final List<SourceMethod> methods = Lists.newArrayList(recordedValues.keySet());
+            methods.addAll(recordedElements.keySet());
+            final JVar calls = body.decl(FINAL, codeModel.LONG.array(), localName("order"), JExpr.newArray(codeModel.LONG, methods.size()));
+            final JVar recorded = body.decl(codeModel.INT, localName("recorded"), JExpr.lit(0));
+            for (int i = 0; i < methods.size(); i++) {
+                final JFieldVar call = recordedCalls.get(methods.get(i));
+                body._if(_this().ref(call).ne(JExpr.lit(0)))._then().assign(calls.component(JOp.incr(recorded)),
+                        JOp.bor(JOp.shl(JExpr.cast(codeModel.LONG, _this().ref(call)), JExpr.lit(32)), JExpr.lit(i)));
+            }
+            body.add(codeModel.ref(Arrays.class).staticInvoke("sort").arg(calls).arg(JExpr.lit(0)).arg(recorded));
+
+            final JForLoop forLoop = body._for();
+            final JVar i = forLoop.init(codeModel.INT, localName("i"), JExpr.lit(0));
+            forLoop.test(i.lt(recorded));
+            forLoop.update(JOp.incr(i));
+            final JSwitch methodSwitch = forLoop.body()._switch(JExpr.cast(codeModel.INT, calls.component(i)));
+            for (int m = 0; m < methods.size(); m++) {
+                final SourceMethod method = methods.get(m);
+                final JBlock caseBody = methodSwitch._case(JExpr.lit(m)).body();
+                final JFieldVar value = recordedValues.get(method);
+                if (value != null) {
+                    caseBody.invoke(source, method.getName()).arg(_this().ref(value));
+                } else {
+                    addRecorded(analysis, caseBody, source, method);
+                }
+                caseBody._break();
+            }
+            methodSwitch._default().body()._throw(_new(codeModel.ref(IllegalStateException.class)));
+        }
+
+        private void addRecorded(final ClassAnalysis analysis, final JBlock block, final JVar source, final SourceMethod adder) {
+            final JFieldVar elements = recordedElements.get(adder);
+            final SourceMethod bulk = analysis.bulkAdders.get(adder);
+            if (bulk != null && !bulk.getParameterTypes().get(0).isArray()) {
+                block.invoke(source, bulk.getName()).arg(JExpr.cast(typeResolver.resolve(bulk.getParameterTypes().get(0)), _this().ref(elements)));
+            } else {
+                final JType elementType = typeResolver.resolve(adder.getParameterTypes().get(0));
+                final JForEach forEach = block.forEach(elementType, localName("element"), _this().ref(elements));
+                forEach.body().invoke(source, adder.getName()).arg(forEach.var());
+            }
+        }
+
+        /**
+         * The locals of "build()" are declared next to the created instance, which is named like the source class: "order2" for a class Order.
+         */
+        private String localName(final String name) {
+            return name.equals(delegateFieldName) ? name + 2 : name;
+        }
+
+        private JInvocation newSource(final SourceConstructor constructor, final boolean severalConstructors, final int index) {
+            final JInvocation newSource = _new(sourceClassRef);
+            for (int i = 0; i < constructor.getParameterTypes().size(); i++) {
+                newSource.arg(_this().ref(constructorArgument(severalConstructors, index, i)));
+            }
+            return newSource;
+        }
+
+        private void createDeferredGetter(final JMethod build) {
+            final JFieldVar instance = definedClass.field(PRIVATE, sourceClassRef, uniqueFieldName(INSTANCE));
+            final JMethod method = definedClass.method(PUBLIC_FINAL, sourceClassRef, GET);
+            method.body()._if(_this().ref(instance).eq(JExpr._null()))._then().assign(_this().ref(instance), JExpr.invoke(build));
+            method.body()._return(_this().ref(instance));
+            method.javadoc().add("Builds the instance on the first call, later calls return it without applying later recorded properties.");
+            method.javadoc().addReturn().add("the created instance, see #" + BUILD + "()");
         }
 
         private void returnThis(final JBlock block) {
-            block._return(_this());
+            block._return(mode == GenerationMode.INTERFACE || abstractBase ? _this().invoke(SELF) : _this());
+        }
+
+        /**
+         * Calls the source method on the delegate. In {@link GenerationMode#INTERFACE} mode, the interface declares it on first use, the bean
+         * implementing the interface already has it.
+         */
+        private JInvocation invokeDelegate(final JBlock block, final SourceMethod method) {
+            if (mode == GenerationMode.INTERFACE && declaredMethods.add(method)) {
+                final JMethod declared = definedClass.method(PUBLIC, typeResolver.resolve(method.getReturnType()), method.getName());
+                final List<TypeRef> parameterTypes = method.getParameterTypes();
+                for (int i = 0; i < parameterTypes.size(); i++) {
+                    declared.param(typeResolver.resolve(parameterTypes.get(i)), "arg" + i);
+                }
+            }
+            return block.invoke(delegate, method.getName());
         }
 
         public JDefinedClass getDefinedClass() {
@@ -273,28 +1068,435 @@ public class FluentApiGenerator {
     }
 
     /**
-     * Writes source files for all added defined classes to {@link #targetDirectory}.
+     * Writes source files for all added defined classes to the {@link OutputSink} and closes it. In streaming mode, they have already been
+     * written when they were added. In incremental mode, files generated for source classes that no longer exist are deleted and the manifest is
+     * updated, once the sink has completed all writes: if writing fails, the manifest of the last run stays and the next run generates the
+     * changed classes again.
      */
     public void generateCode() {
         try {
-            codeModel.build(targetDirectory);
+            write();
+            outputSink.close();
+            if (manifest != null) {
+                manifest.write(new Predicate<String>() {
+
+                    @Override
+                    public boolean apply(final String sourceClassName) {
+                        return classFileRepository.contains(sourceClassName);
+                    }
+                });
+            }
+            if (index != null) {
+                index.write();
+                logger.debug("{}", index);
+            }
         } catch (final IOException e) {
             propagate(e);
+        } finally {
+            if (ownsClassFileRepository) {
+                classFileRepository.close();
+            }
+        }
+        logger.debug("{}", sourceMethodCache);
+        logger.info("{}", report);
+        for (final GenerationListener listener : generationListeners) {
+            listener.generationCompleted(report);
         }
     }
 
     /**
-     * Add source class for generation. Adds defined class to codeModel and creates default fluent setters and getters.
+     * Add source class for generation. Adds defined class to codeModel and creates default fluent setters and getters. In incremental mode, the
+     * class is skipped if its api did not change since the last run, it is not available via {@link #getDefinedClass(Class)} then. A class
+     * added again, by any of the add methods, is skipped.
      * @param sourceClass class used as source for generation
      * @return this
      */
     public FluentApiGenerator addClass(final Class<?> sourceClass) {
-        definedClasses.put(sourceClass, new GeneratedClass(sourceClass).getDefinedClass());
-        return this;
+        checkArgument(sourceClass != null);
+        return addClasses(ImmutableList.<Class<?>> of(sourceClass));
+    }
+
+    /**
+     * Add source classes for generation, see {@link #addClass(Class)}. The source classes are analyzed concurrently if configured via
+     * {@link FluentApiGeneratorBuilder#parallelism(int)}, the defined classes are added to the codeModel in iteration order of the given
+     * collection, so the result does not depend on the number of threads.
+     * @param sourceClasses classes used as source for generation
+     * @return this
+     */
+    public FluentApiGenerator addClasses(final Collection<Class<?>> sourceClasses) {
+        checkArgument(sourceClasses != null);
+        final List<Supplier<SourceType>> sourceTypes = Lists.newArrayListWithCapacity(sourceClasses.size());
+        for (final Class<?> sourceClass : sourceClasses) {
+            sourceTypes.add(new Supplier<SourceType>() {
+
+                @Override
+                public SourceType get() {
+                    return sourceType(sourceClass);
+                }
+            });
+        }
+        return addSourceTypes(sourceTypes);
+    }
+
+    /**
+     * Like {@link #addClass(Class)}, but reads the source class from its class file instead of loading it. The class file and the class files of
+     * its super types are searched in the entries configured via {@link FluentApiGeneratorBuilder#addClassPathEntries(File...)}, then as
+     * resource of the context class loader. None of the classes is loaded or initialized. The generated code is the same as for
+     * {@link #addClass(Class)}.
+     * @param className binary name of the source class
+     * @return this
+     */
+    public FluentApiGenerator addClassFile(final String className) {
+        checkArgument(isNotBlank(className));
+        return addClassFiles(ImmutableList.of(className));
+    }
+
+    /**
+     * Add source classes by class file, see {@link #addClassFile(String)} and {@link #addClasses(Collection)}.
+     * @param classNames binary names of the source classes
+     * @return this
+     */
+    public FluentApiGenerator addClassFiles(final Collection<String> classNames) {
+        checkArgument(classNames != null);
+        final List<Supplier<SourceType>> sourceTypes = Lists.newArrayListWithCapacity(classNames.size());
+        for (final String className : classNames) {
+            sourceTypes.add(new Supplier<SourceType>() {
+
+                @Override
+                public SourceType get() {
+                    return sourceType(className);
+                }
+            });
+        }
+        return addSourceTypes(sourceTypes);
+    }
+
+    /**
+     * Loads the source type via reflection, or takes it from the index. Thread safe.
+     */
+    private SourceType sourceType(final Class<?> sourceClass) {
+        return index != null ? index.sourceType(sourceClass, sourceMethodCache) : sourceMethodCache.sourceType(sourceClass);
+    }
+
+    /**
+     * Reads the source type from class files, or takes it from the index. Thread safe.
+     */
+    private SourceType sourceType(final String className) {
+        return index != null ? index.sourceType(className, classFileRepository) : classFileRepository.sourceType(className);
+    }
+
+    /**
+     * Add all bean candidates of the given package for generation, read from class files like {@link #addClassFile(String)}. The package is
+     * searched in the entries configured via {@link FluentApiGeneratorBuilder#addClassPathEntries(File...)} and in the directories and jar files
+     * of the context class loader. Candidates are public, concrete top level or static member classes with a public constructor. Discovery is
+     * lazy and overlaps with the analysis of the classes found so far.
+     * @param packageName package name, "com.vaadin.ui"
+     * @param recursive <code>true</code> to include sub packages
+     * @return this
+     */
+    public FluentApiGenerator addPackage(final String packageName, final boolean recursive) {
+        checkArgument(packageName != null);
+        return addScan(classFileRepository.scanPackage(packageName, recursive));
+    }
+
+    /**
+     * Add all bean candidates of the given directory or jar file for generation, see {@link #addPackage(String, boolean)}. The entry is also
+     * used to resolve super types of later added class files.
+     * @param classPathEntry directory or jar file
+     * @return this
+     */
+    public FluentApiGenerator addClassPathEntry(final File classPathEntry) {
+        checkArgument(classPathEntry != null);
+        return addScan(classFileRepository.scan(classPathEntry));
+    }
+
+    private FluentApiGenerator addScan(final ClassFileScan scan) {
+        try {
+            return addSourceTypes(scan);
+        } finally {
+            scan.close();
+        }
+    }
+
+    private FluentApiGenerator addSourceTypes(final List<Supplier<SourceType>> sourceTypes) {
+        return addSourceTypes(sourceTypes.iterator());
+    }
+
+    /**
+     * Analyzes the source types and adds them to the codeModel in iteration order. Concurrently, at most {@link #PENDING_PER_THREAD} analyses per
+     * thread are pending, so a lazy iterator is consumed while earlier classes are generated, and memory does not grow with its size.
+     */
+    private FluentApiGenerator addSourceTypes(final Iterator<? extends Supplier<SourceType>> sourceTypes) {
+        if (!sourceTypes.hasNext()) {
+            return this;
+        }
+        final Supplier<SourceType> first = sourceTypes.next();
+        if (parallelism == 1 || !sourceTypes.hasNext()) {
+            addAnalyzedClass(analyze(first));
+            while (sourceTypes.hasNext()) {
+                addAnalyzedClass(analyze(sourceTypes.next()));
+            }
+            return this;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, THREAD_FACTORY);
+        final Deque<Future<ClassAnalysis>> pending = new ArrayDeque<Future<ClassAnalysis>>();
+        try {
+            pending.add(executor.submit(analysis(first)));
+            while (sourceTypes.hasNext()) {
+                if (pending.size() == parallelism * PENDING_PER_THREAD) {
+                    addAnalyzedClass(pending.remove().get());
+                }
+                pending.add(executor.submit(analysis(sourceTypes.next())));
+            }
+            while (!pending.isEmpty()) {
+                addAnalyzedClass(pending.remove().get());
+            }
+            return this;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw propagate(e);
+        } catch (final ExecutionException e) {
+            throw propagate(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Callable<ClassAnalysis> analysis(final Supplier<SourceType> sourceType) {
+        return new Callable<ClassAnalysis>() {
+
+            @Override
+            public ClassAnalysis call() {
+                return analyze(sourceType);
+            }
+        };
+    }
+
+    private void addAnalyzedClass(final ClassAnalysis analysis) {
+        final String sourceClassName = analysis.sourceType.getName();
+        if (!addedSourceClasses.add(sourceClassName)) {
+            logger.debug("skipping {}, already added", sourceClassName);
+            return;
+        }
+        if (analysis.upToDate) {
+            logger.debug("skipping {}, generated class is up to date", sourceClassName);
+            report.addUpToDate(analysis.nanos.get(GenerationPhase.LOAD) + analysis.nanos.get(GenerationPhase.CLASSIFY));
+            return;
+        }
+        if (mode == GenerationMode.DEFERRED && (analysis.constructors.isEmpty() || Modifier.isAbstract(analysis.sourceType.getModifiers()))) {
+            logger.warn("ignoring {}, mode {} needs a concrete class with a public constructor", sourceClassName, mode);
+            return;
+        }
+        final long start = System.nanoTime();
+        final GeneratedClass base = mode == GenerationMode.HIERARCHY ? baseClass(analysis.sourceType.getSuperclass()) : null;
+        final JDefinedClass definedClass = new GeneratedClass(analysis, base, false).getDefinedClass();
+        analysis.nanos.put(GenerationPhase.BUILD, System.nanoTime() - start);
+        for (final DefinedClassCallback callback : definedClassCallbacks) {
+            callback.defined(sourceClassName, definedClass);
+        }
+        analysis.methodsEmitted = definedClass.methods().size();
+        unwrittenClasses.put(definedClass.fullName(), analysis);
+        if (manifest != null) {
+            final List<String> baseClassNames = Lists.newArrayList();
+            for (GeneratedClass baseClass = base; baseClass != null; baseClass = baseClass.base) {
+                baseClassNames.add(baseClass.definedClass.fullName());
+            }
+            final Class<?> loadedClass = analysis.sourceType.getType().getType();
+            manifest.put(sourceClassName, analysis.fingerprint, definedClass.fullName(), baseClassNames,
+                    loadedClass != null ? ClassFileRepository.location(loadedClass) : classFileRepository.location(sourceClassName));
+        }
+        if (streaming) {
+            // the code model only contains this class and its new base classes, the ones added before are already written and removed
+            final Set<String> baseClassNames = Sets.newHashSet(unwrittenBaseClasses.keySet());
+            write();
+            try {
+                outputSink.flush();
+            } catch (final IOException e) {
+                propagate(e);
+            }
+            definedClass._package().remove(definedClass);
+            writtenClasses.add(definedClass.fullName());
+            for (final GeneratedClass baseClass : Sets.newHashSet(baseClasses.values())) {
+                if (baseClass != null && baseClassNames.contains(baseClass.definedClass.fullName())) {
+                    baseClass.definedClass._package().remove(baseClass.definedClass);
+                    writtenClasses.add(baseClass.definedClass.fullName());
+                }
+            }
+        } else {
+            definedClasses.put(sourceClassName, definedClass);
+        }
+    }
+
+    /**
+     * {@link GenerationMode#HIERARCHY}: the nearest base class for the given super class. Generates it on first use, after the base classes of
+     * its own super classes. A super class gets a base class if it is public and adds fluent methods to those of its super classes.
+     * @param superclass super class of a source class, may be <code>null</code>
+     * @return <code>null</code> if neither the super class nor its super classes get a base class
+     */
+    private GeneratedClass baseClass(final TypeRef superclass) {
+        if (superclass == null || Object.class.getName().equals(superclass.getName())) {
+            return null;
+        }
+        if (baseClasses.containsKey(superclass.getName())) {
+            return baseClasses.get(superclass.getName());
+        }
+        final SourceType sourceType = superclass.getType() != null ? sourceType(superclass.getType()) : sourceType(superclass.getName());
+        final ClassAnalysis analysis = classify(new ClassAnalysis(sourceType, null, false));
+        final GeneratedClass parent = baseClass(sourceType.getSuperclass());
+
+        GeneratedClass base = parent;
+        if (Modifier.isPublic(sourceType.getModifiers()) && addsFluentMethods(analysis, parent)) {
+            base = new GeneratedClass(analysis, parent, true);
+            unwrittenBaseClasses.put(base.definedClass.fullName(), base.definedClass.methods().size());
+        }
+        baseClasses.put(superclass.getName(), base);
+        return base;
+    }
+
+    private static boolean addsFluentMethods(final ClassAnalysis analysis, final GeneratedClass base) {
+        for (final SourceMethod m : Iterables.concat(analysis.setters, analysis.adders)) {
+            if (base == null || !base.fluentSignatures.contains(m.getSignature())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes all classes of the code model to the {@link #outputSink}.
+     */
+    private void write() {
+        try {
+            codeModel.build(new ContentHashingCodeWriter(outputSink.codeWriter(), writtenListener, reproducible));
+        } catch (final IOException e) {
+            propagate(e);
+        }
     }
 
-    private Collection<Method> filterMethods(final Class<?> sourceClass) {
-        return filter(Sets.newHashSet(sourceClass.getMethods()), filterApplicableMethods);
+    /**
+     * Loads the source type and analyzes it, timed. Thread safe.
+     */
+    private ClassAnalysis analyze(final Supplier<SourceType> sourceType) {
+        final long start = System.nanoTime();
+        final SourceType loaded = sourceType.get();
+        final long analyzing = System.nanoTime();
+        final ClassAnalysis analysis = analyze(loaded);
+        analysis.nanos.put(GenerationPhase.LOAD, analyzing - start);
+        analysis.nanos.put(GenerationPhase.CLASSIFY, System.nanoTime() - analyzing);
+        return analysis;
+    }
+
+    /**
+     * Collects constructors, setters and adders of the given type. Thread safe.
+     */
+    private ClassAnalysis analyze(final SourceType sourceType) {
+        String fingerprint = null;
+        if (manifest != null) {
+            fingerprint = fingerprint(sourceType);
+            if (manifest.isUpToDate(sourceType.getName(), fingerprint)) {
+                return new ClassAnalysis(sourceType, fingerprint, true);
+            }
+        }
+
+        return classify(new ClassAnalysis(sourceType, fingerprint, false));
+    }
+
+    /**
+     * Fingerprint of the given type, in {@link GenerationMode#HIERARCHY} mode including its super classes, see
+     * {@link Fingerprints#ofHierarchy(SourceType, List)}. Thread safe.
+     */
+    private String fingerprint(final SourceType sourceType) {
+        if (mode != GenerationMode.HIERARCHY) {
+            return Fingerprints.ofType(sourceType);
+        }
+        final List<SourceType> superclasses = Lists.newArrayList();
+        TypeRef superclass = sourceType.getSuperclass();
+        while (superclass != null && !Object.class.getName().equals(superclass.getName())) {
+            final SourceType superType = superclass.getType() != null ? sourceType(superclass.getType()) : sourceType(superclass.getName());
+            superclasses.add(superType);
+            superclass = superType.getSuperclass();
+        }
+        return Fingerprints.ofHierarchy(sourceType, superclasses);
+    }
+
+    private MethodClassification classification(final SourceMethod method) {
+        MethodClassification classification = classifications.get(method);
+        if (classification == null) {
+            classification = methodClassifier.classify(method);
+            classifications.putIfAbsent(method, classification);
+        }
+        return classification;
+    }
+
+    /**
+     * Fills the given analysis. Thread safe.
+     */
+    private ClassAnalysis classify(final ClassAnalysis analysis) {
+        final SourceType sourceType = analysis.sourceType;
+        final List<SourceConstructor> constructors = ConstructorPredicates.IS_CONSTRUCTOR_CANDIDATE.filterConstructors(sourceType);
+        analysis.constructors.addAll(CONSTRUCTORS_BY_SIGNATURE.sortedCopy(constructors));
+        for (final SourceMethod m : METHODS_BY_SIGNATURE.sortedCopy(sourceType.getMethods())) {
+            analysis.methodsClassified++;
+            switch (classification(m)) {
+            case SETTER:
+                analysis.setters.add(m);
+                break;
+            case ADDER:
+                analysis.adders.add(m);
+                break;
+            case IGNORED:
+                logger.debug("ignoring method {}", m);
+                analysis.methodsIgnored++;
+                break;
+            default:
+                // no fluent candidate
+            }
+        }
+
+        final ListMultimap<String, SourceMethod> addersByName = ArrayListMultimap.create();
+        for (final SourceMethod adder : analysis.adders) {
+            addersByName.put(adder.getName(), adder);
+        }
+        for (final SourceMethod adder : analysis.adders) {
+            if (addersByName.get(adder.getName()).size() > 1) {
+                analysis.overloadedAdders.add(adder.getName());
+            }
+            final String name = format(ADDER_PATTERN, adder.getName());
+            SourceMethod bulk = bulkAdder(adder, addersByName.get(name));
+            if (bulk == null) {
+                bulk = bulkAdder(adder, addersByName.get(format(BULK_ADDER_PATTERN, removeStart(name, MethodPredicates.ADD))));
+            }
+            if (bulk != null) {
+                analysis.bulkAdders.put(adder, bulk);
+            }
+        }
+        return analysis;
+    }
+
+    /**
+     * @return the candidate taking an array or collection of the adder's parameter type, <code>null</code> if there is none
+     */
+    private static SourceMethod bulkAdder(final SourceMethod adder, final List<SourceMethod> candidates) {
+        final TypeRef elementType = adder.getParameterTypes().get(0);
+        for (final SourceMethod candidate : candidates) {
+            final TypeRef type = candidate.getParameterTypes().get(0);
+            if (type.getName().equals(elementType.getName()) && type.getDimensions() == elementType.getDimensions() + 1) {
+                return candidate;
+            }
+            // collections can not hold primitives
+            if (!elementType.isPrimitive() && !type.isArray() && BULK_COLLECTION_TYPES.contains(type.getName())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the methods of the analyzed source classes and their super classes, with hit and miss count
+     */
+    public SourceMethodCache getSourceMethodCache() {
+        return sourceMethodCache;
     }
 
     /**
@@ -303,8 +1505,70 @@ public class FluentApiGenerator {
      * @return defined class
      */
     public JDefinedClass getDefinedClass(final Class<?> sourceClass) {
-        final JDefinedClass definedClass = definedClasses.get(sourceClass);
-        checkState(definedClass != null, format("class '%s' was not added to codeModel"));
+        checkArgument(sourceClass != null);
+        return getDefinedClass(sourceClass.getName());
+    }
+
+    /**
+     * Compiles all classes of the code model in a single compiler task, from memory, see {@link SourceCompiler}. Covers the classes added in this
+     * run, so call it before or after {@link #generateCode()}, but not in streaming mode, where written classes are removed from the code model.
+     * Classes skipped in incremental mode are not compiled. The class path consists of the configured class path entries and the class path of
+     * the current process. The sources are compiled for the configured {@link FluentApiGeneratorBuilder#target(String) target}.
+     * @return diagnostics per generated class
+     */
+    public CompilationResult verify() {
+        final CompilationResult result = compile(Thread.currentThread().getContextClassLoader());
+        logger.info("{}", result);
+        return result;
+    }
+
+    /**
+     * Compiles all classes of the code model, see {@link #verify()}.
+     * @param classLoader its directories and jar files are the class path, may be <code>null</code>
+     */
+    CompilationResult compile(final ClassLoader classLoader) {
+        checkState(!streaming, "classes are not kept in streaming mode");
+        final InMemoryOutputSink sources = new InMemoryOutputSink();
+        try {
+            codeModel.build(new ContentHashingCodeWriter(sources.codeWriter(), new ContentHashingCodeWriter.Listener() {
+
+                @Override
+                public void written(final String className, final String contentHash, final long nanos) {
+                    // compiled, not written
+                }
+            }, false));
+        } catch (final IOException e) {
+            propagate(e);
+        }
+        return SourceCompiler.compile(sources.getSources(), SourceCompiler.classPath(classFileRepository.getClassPathEntries(), classLoader),
+                target);
+    }
+
+    /**
+     * @return metrics of the classes written so far
+     */
+    public GenerationReport getReport() {
+        return report;
+    }
+
+    /**
+     * Content hashes of the files written so far, by fully qualified name of the generated class. In reproducible mode, equal hashes mean
+     * byte-identical files across runs and platforms.
+     * @return SHA-256 hex encoded, sorted by class name
+     */
+    public Map<String, String> getContentHashes() {
+        return Collections.unmodifiableMap(contentHashes);
+    }
+
+    /**
+     * Like {@link #getDefinedClass(Class)}, for source classes added by name.
+     * @param className binary name of the source class
+     * @return defined class
+     */
+    public JDefinedClass getDefinedClass(final String className) {
+        checkState(!streaming, "defined classes are written and released immediately in streaming mode, use a DefinedClassCallback");
+        final JDefinedClass definedClass = definedClasses.get(className);
+        checkState(definedClass != null, format("class '%s' was not added to codeModel", className));
         return definedClass;
     }
 }
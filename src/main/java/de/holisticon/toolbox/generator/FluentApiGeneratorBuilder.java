@@ -1,25 +1,60 @@
 package de.holisticon.toolbox.generator;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.builder.Builder;
 
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
+import de.holisticon.toolbox.generator.classfile.ClassFileRepository;
+import de.holisticon.toolbox.generator.index.SourceTypeIndex;
+import de.holisticon.toolbox.generator.metrics.GenerationListener;
+import de.holisticon.toolbox.generator.output.DirectoryOutputSink;
+import de.holisticon.toolbox.generator.output.InMemoryOutputSink;
+import de.holisticon.toolbox.generator.output.JarOutputSink;
+import de.holisticon.toolbox.generator.output.OutputSink;
+
 /**
  * Used to create and configure a {@link FluentApiGenerator} instance.
  * @author Jan Galinski, Holisticon AG
  */
 public class FluentApiGeneratorBuilder implements Builder<FluentApiGenerator> {
 
+    /**
+     * "1.6", "1.8", "9", "11".
+     */
+    private static final Pattern TARGET_PATTERN = Pattern.compile("1\\.[1-9]|[1-9][0-9]*");
+
     private String rootPackage = "";
     private String targetDirectory = FluentApiGenerator.DEFAULT_TARGET_DIRECTORY;
     private String filenamePattern = FluentApiGenerator.DEFAULT_FILENAME_PATTERN;
     private final Set<String> ignoredMethodNames = Sets.newHashSet();
+    private boolean incremental = false;
+    private int parallelism = 1;
+    private final List<File> classPathEntries = Lists.newArrayList();
+    private ClassFileRepository classFileRepository;
+    private File indexDirectory;
+    private GenerationMode mode = GenerationMode.WRAPPER;
+    private String target = FluentApiGenerator.DEFAULT_TARGET;
+    private boolean streaming = false;
+    private final List<DefinedClassCallback> definedClassCallbacks = Lists.newArrayList();
+    private OutputSink outputSink;
+    private boolean reproducible = false;
+    private Date generatedDate;
+    private final List<GenerationListener> generationListeners = Lists.newArrayList();
 
     /**
      * Sets the root package for generated classes. If blank, package of source class is used.
@@ -68,8 +103,250 @@ public class FluentApiGeneratorBuilder implements Builder<FluentApiGenerator> {
         return this;
     }
 
+    /**
+     * Enables incremental generation. A manifest in the target directory records a fingerprint of each source class api and the generator
+     * settings. Classes that did not change since the last run are skipped, files generated for source classes that no longer exist are
+     * deleted. Runs with their own classes and settings may share a target directory. Defaults to <code>false</code>.
+     * @param incremental <code>true</code> to enable
+     * @return this
+     */
+    public FluentApiGeneratorBuilder incremental(final boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads used to analyze source classes added via {@link FluentApiGenerator#addClasses(java.util.Collection)}. Use
+     * <code>Runtime.getRuntime().availableProcessors()</code> for large class sets. Defaults to 1.
+     * @param parallelism number of threads, must be positive
+     * @return this
+     */
+    public FluentApiGeneratorBuilder parallelism(final int parallelism) {
+        checkArgument(parallelism > 0, "parallelism must be positive");
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Add directories and jar files containing class files. Used to read source classes added via
+     * {@link FluentApiGenerator#addClassFile(String)} and their super types without loading them. Searched in the given order, before the
+     * context class loader.
+     * @param entries one or more directories or jar files
+     * @return this
+     */
+    public FluentApiGeneratorBuilder addClassPathEntries(final File... entries) {
+        checkArgument(entries != null);
+        checkArgument(entries.length > 0);
+
+        classPathEntries.addAll(Arrays.asList(entries));
+        return this;
+    }
+
+    /**
+     * Shares the class files and declared methods read by other generators, for example by all generators of a long running process that use
+     * the same class path. Replaces {@link #addClassPathEntries(File...)}, the repository already knows its entries. The generators do not close
+     * it, the caller does once it is no longer used.
+     * @param classFileRepository repository, used to read source classes added via {@link FluentApiGenerator#addClassFile(String)}
+     * @return this
+     */
+    public FluentApiGeneratorBuilder classFileRepository(final ClassFileRepository classFileRepository) {
+        checkArgument(classFileRepository != null);
+        this.classFileRepository = classFileRepository;
+        return this;
+    }
+
+    /**
+     * Keeps the analyzed source types of dependency jars in the given directory, so later runs take unchanged jars from the index instead of
+     * analyzing them again, see {@link SourceTypeIndex}. The directory can be shared by all projects of a user, like the local repository.
+     * @param indexDirectory directory of the index files, created on first write
+     * @return this
+     */
+    public FluentApiGeneratorBuilder indexDirectory(final File indexDirectory) {
+        checkArgument(indexDirectory != null);
+        this.indexDirectory = indexDirectory;
+        return this;
+    }
+
+    /**
+     * Sets how the generated classes work. Defaults to {@link GenerationMode#WRAPPER}.
+     * @param mode generation mode
+     * @return this
+     */
+    public FluentApiGeneratorBuilder mode(final GenerationMode mode) {
+        checkArgument(mode != null);
+        this.mode = mode;
+        return this;
+    }
+
+    /**
+     * Sets the Java version the generated sources are compiled for, like the <code>-target</code> option of javac ("1.6", "1.8", "11"). Some
+     * modes need a higher version than the default, see {@link GenerationMode#INTERFACE}. {@link FluentApiGenerator#verify()} compiles for this
+     * version and a change regenerates all classes in incremental mode. Defaults to {@value FluentApiGenerator#DEFAULT_TARGET}.
+     * @param target java version
+     * @return this
+     */
+    public FluentApiGeneratorBuilder target(final String target) {
+        checkArgument(target != null && TARGET_PATTERN.matcher(target).matches(), "invalid target '%s'", target);
+        this.target = target;
+        return this;
+    }
+
+    /**
+     * Enables streaming generation. Each generated class is written as soon as it is complete and removed from the code model afterwards, so
+     * memory does not grow with the number of generated classes. {@link FluentApiGenerator#getDefinedClass(Class)} is not available then, use
+     * {@link #addDefinedClassCallbacks(DefinedClassCallback...)} to customize generated classes. Defaults to <code>false</code>.
+     * @param streaming <code>true</code> to enable
+     * @return this
+     */
+    public FluentApiGeneratorBuilder streaming(final boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
+    /**
+     * Add callbacks called for every generated class before it is written. Called in the given order.
+     * @param callbacks one or more callbacks
+     * @return this
+     */
+    public FluentApiGeneratorBuilder addDefinedClassCallbacks(final DefinedClassCallback... callbacks) {
+        checkArgument(callbacks != null);
+        checkArgument(callbacks.length > 0);
+
+        definedClassCallbacks.addAll(Arrays.asList(callbacks));
+        return this;
+    }
+
+    /**
+     * Sets where the generated sources are written to, for example a {@link JarOutputSink} or an {@link InMemoryOutputSink}. Defaults to a
+     * {@link DirectoryOutputSink} for the target directory. Incremental generation requires the default.
+     * @param outputSink the sink, closed by {@link FluentApiGenerator#generateCode()}
+     * @return this
+     */
+    public FluentApiGeneratorBuilder outputSink(final OutputSink outputSink) {
+        checkArgument(outputSink != null);
+        this.outputSink = outputSink;
+        return this;
+    }
+
+    /**
+     * Enables reproducible output: the same source classes and settings lead to byte-identical files on every platform and in every run, so
+     * build caches can reuse downstream results. Lines are separated by '\n' and the {@link javax.annotation.Generated} annotation has no date,
+     * unless {@link #generatedDate(Date)} is set. Member order and encoding (UTF-8) are stable in any mode. Defaults to <code>false</code>.
+     * @param reproducible <code>true</code> to enable
+     * @return this
+     */
+    public FluentApiGeneratorBuilder reproducible(final boolean reproducible) {
+        this.reproducible = reproducible;
+        return this;
+    }
+
+    /**
+     * Sets a fixed date for the {@link javax.annotation.Generated} annotations, written in ISO 8601 format (UTC). Defaults to the time of the
+     * run, or no date in {@link #reproducible(boolean)} mode.
+     * @param generatedDate the date
+     * @return this
+     */
+    public FluentApiGeneratorBuilder generatedDate(final Date generatedDate) {
+        checkArgument(generatedDate != null);
+        this.generatedDate = new Date(generatedDate.getTime());
+        return this;
+    }
+
+    /**
+     * Add listeners receiving per class timings and method counts and a summary at the end of the run.
+     * @param listeners one or more listeners
+     * @return this
+     */
+    public FluentApiGeneratorBuilder addGenerationListeners(final GenerationListener... listeners) {
+        checkArgument(listeners != null);
+        checkArgument(listeners.length > 0);
+
+        generationListeners.addAll(Arrays.asList(listeners));
+        return this;
+    }
+
+    /**
+     * @return a new builder with the settings of this one, later changes of either builder do not affect the other. The class file repository,
+     *         output sink, callbacks and listeners are shared.
+     */
+    public FluentApiGeneratorBuilder copy() {
+        final FluentApiGeneratorBuilder copy = new FluentApiGeneratorBuilder();
+        copy.rootPackage = rootPackage;
+        copy.targetDirectory = targetDirectory;
+        copy.filenamePattern = filenamePattern;
+        copy.ignoredMethodNames.addAll(ignoredMethodNames);
+        copy.incremental = incremental;
+        copy.parallelism = parallelism;
+        copy.classPathEntries.addAll(classPathEntries);
+        copy.classFileRepository = classFileRepository;
+        copy.indexDirectory = indexDirectory;
+        copy.mode = mode;
+        copy.target = target;
+        copy.streaming = streaming;
+        copy.definedClassCallbacks.addAll(definedClassCallbacks);
+        copy.outputSink = outputSink;
+        copy.reproducible = reproducible;
+        copy.generatedDate = generatedDate;
+        copy.generationListeners.addAll(generationListeners);
+        return copy;
+    }
+
     @Override
     public FluentApiGenerator build() {
-        return new FluentApiGenerator(new File(targetDirectory), rootPackage, filenamePattern, ignoredMethodNames);
+        // the manifest only describes files in the target directory
+        checkState(!incremental || outputSink == null, "incremental generation requires the default output sink");
+        checkState(mode != GenerationMode.INTERFACE || featureVersion(target) >= 8, "mode %s requires target 1.8 or later", mode);
+        checkState(classFileRepository == null || classPathEntries.isEmpty(), "add class path entries to the shared class file repository");
+        final File directory = new File(targetDirectory);
+        final ClassFileRepository repository = classFileRepository != null ? classFileRepository : new ClassFileRepository(classPathEntries,
+                classLoader());
+        return new FluentApiGenerator(directory, rootPackage, filenamePattern, ignoredMethodNames, incremental, parallelism, repository,
+                classFileRepository == null, mode, target, streaming, definedClassCallbacks, outputSink != null ? outputSink
+                        : new DirectoryOutputSink(directory), reproducible, generatedDate, generationListeners,
+                indexDirectory != null ? new SourceTypeIndex(indexDirectory) : null);
+    }
+
+    /**
+     * Creates fluent classes at runtime instead of generating sources, see {@link RuntimeFluentClasses}. Uses the root package, filename pattern,
+     * ignored method names, mode, class path entries or class file repository and defined class callbacks of this builder, later changes do
+     * not affect the result. The target is not used, the classes are compiled for the running java version.
+     * @return runtime fluent classes, caching one class per source class
+     */
+    public RuntimeFluentClasses buildRuntime() {
+        checkState(!incremental && !streaming && outputSink == null && indexDirectory == null, "runtime fluent classes are compiled in memory");
+        checkState(mode != GenerationMode.INTERFACE, "mode %s requires the bean to implement the generated interface", mode);
+        checkState(classFileRepository == null || classPathEntries.isEmpty(), "add class path entries to the shared class file repository");
+        final File directory = new File(targetDirectory);
+        final String rootPackage = this.rootPackage;
+        final String filenamePattern = this.filenamePattern;
+        final Set<String> ignoredMethodNames = ImmutableSet.copyOf(this.ignoredMethodNames);
+        final GenerationMode mode = this.mode;
+        final List<DefinedClassCallback> definedClassCallbacks = ImmutableList.copyOf(this.definedClassCallbacks);
+        final boolean ownsRepository = classFileRepository == null;
+        // shared by all definitions, so super classes are read once
+        final ClassFileRepository repository = classFileRepository != null ? classFileRepository : new ClassFileRepository(classPathEntries,
+                classLoader());
+        return new RuntimeFluentClasses(new Supplier<FluentApiGenerator>() {
+
+            @Override
+            public FluentApiGenerator get() {
+                // compiled for the running java version
+                return new FluentApiGenerator(directory, rootPackage, filenamePattern, ignoredMethodNames, false, 1, repository, ownsRepository,
+                        mode, null, false, definedClassCallbacks, new InMemoryOutputSink(), true, null, ImmutableList.<GenerationListener> of(),
+                        null);
+            }
+        });
+    }
+
+    private static ClassLoader classLoader() {
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        return contextClassLoader != null ? contextClassLoader : FluentApiGenerator.class.getClassLoader();
+    }
+
+    /**
+     * @return 6 for "1.6", 11 for "11"
+     */
+    private static int featureVersion(final String target) {
+        return Integer.parseInt(target.startsWith("1.") ? target.substring(2) : target);
     }
 }
@@ -0,0 +1,51 @@
+package de.holisticon.toolbox.generator;
+
+/**
+ * How the generated fluent class works, see {@link FluentApiGeneratorBuilder#mode(GenerationMode)}.
+ * @author Jan Galinski, Holisticon AG
+ */
+public enum GenerationMode {
+
+    /**
+     * The factory methods create the source instance, every fluent method delegates to it immediately. Default.
+     */
+    WRAPPER,
+
+    /**
+     * The fluent class records constructor arguments, setter values (in typed fields, primitives are not boxed) and added elements. The source
+     * instance is created and all recorded values are applied in one batch when <code>build()</code> is called, so components notify their
+     * listeners once instead of per property. Values are applied in call order, so order dependent setters work like plain setter calls
+     * (<code>value("x").readOnly(true)</code>): each setter once with its last value at the position of its last call, the elements of an
+     * adder at the position of its first call. Every call of <code>build()</code> creates a new instance, <code>get()</code> builds on its first
+     * call and then returns the same instance. Abstract source classes and classes without a public constructor are ignored.
+     */
+    DEFERRED,
+
+    /**
+     * Like {@link #WRAPPER}, but the delegate can be replaced, so a wrapper can be reused to configure many existing instances without
+     * allocating. Adds <code>wrap(delegate)</code> (a new wrapper for an existing instance), <code>reset(delegate)</code> (re-targets this wrapper,
+     * for caller-owned wrappers) and <code>local(delegate)</code> (re-targets a wrapper owned by the current thread). A wrapper returned by
+     * <code>local</code> is only valid until the next <code>local</code> call of the same thread, so do not keep it or nest fluent chains of the
+     * same class. It keeps the last instance until then, <code>release()</code> removes the wrapper from the thread.
+     */
+    REUSABLE,
+
+    /**
+     * Generates a self-typed interface for beans whose source can be changed, without any wrapper. The bean implements it
+     * (<code>class Bean implements FluentBean&lt;Bean&gt;</code>) and gets fluent default methods that call its setters and adders directly
+     * and return the bean itself, so there is no allocation and no indirection. The interface declares the called setters and adders, the bean
+     * already implements them. Default methods need {@link FluentApiGeneratorBuilder#target(String) target} 1.8 or later.
+     */
+    INTERFACE,
+
+    /**
+     * Like {@link #WRAPPER}, but the fluent methods of a public super class are generated once, into an abstract self-typed base class
+     * (<code>FluentAbstractFieldBase&lt;S extends FluentAbstractFieldBase&lt;S, D&gt;, D extends AbstractField&gt;</code>) that the fluent
+     * classes of all its subclasses extend. A fluent class only declares the fluent methods its source class adds to those of its super classes,
+     * so large hierarchies like component libraries emit far fewer methods. Super classes that are not public or add no fluent method get no base
+     * class, their methods go to the base class of their next public subclass. The inherited fluent methods return the concrete fluent class.
+     * In incremental mode, a base class is written again with each generated subclass and recorded in the manifest with it, so it is deleted
+     * when no remaining fluent class extends it. A class is generated again when one of its super classes changes.
+     */
+    HIERARCHY
+}
@@ -0,0 +1,87 @@
+package de.holisticon.toolbox.generator;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import com.sun.codemodel.JClass;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JPackage;
+import com.sun.codemodel.JTypeVar;
+
+import de.holisticon.toolbox.generator.model.TypeRef;
+
+/**
+ * Reference to a class that is known by name only (read from a class file). Behaves like the class references {@link JCodeModel#ref(Class)}
+ * creates for loaded classes, so imports and member type names are generated the same way.
+ * @author Jan Galinski, Holisticon AG
+ */
+final class NamedClass extends JClass {
+
+    private final TypeRef type;
+    private final JClass outer;
+
+    NamedClass(final JCodeModel owner, final TypeRef type, final JClass outer) {
+        super(owner);
+        this.type = type;
+        this.outer = outer;
+    }
+
+    @Override
+    public String name() {
+        return type.getSimpleName().replace('$', '.');
+    }
+
+    @Override
+    public String fullName() {
+        return type.getName().replace('$', '.');
+    }
+
+    @Override
+    public String binaryName() {
+        return type.getName();
+    }
+
+    @Override
+    public JClass outer() {
+        return outer;
+    }
+
+    @Override
+    public JPackage _package() {
+        final String name = fullName();
+        final int index = name.lastIndexOf('.');
+        return owner()._package(index < 0 ? "" : name.substring(0, index));
+    }
+
+    @Override
+    public JClass _extends() {
+        return owner().ref(Object.class);
+    }
+
+    @Override
+    public Iterator<JClass> _implements() {
+        return Collections.<JClass> emptyList().iterator();
+    }
+
+    /**
+     * Not known without reading the class file, not needed for generation.
+     */
+    @Override
+    public boolean isInterface() {
+        return false;
+    }
+
+    /**
+     * Not known without reading the class file, not needed for generation.
+     */
+    @Override
+    public boolean isAbstract() {
+        return false;
+    }
+
+    @Override
+    protected JClass substituteParams(final JTypeVar[] variables, final List<JClass> bindings) {
+        return this;
+    }
+}
@@ -0,0 +1,136 @@
+package de.holisticon.toolbox.generator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Throwables.propagate;
+import static java.lang.String.format;
+
+import java.net.URL;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.ToolProvider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Supplier;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import de.holisticon.toolbox.generator.verify.CompilationResult;
+
+/**
+ * Fluent classes for source classes only known at runtime, without a source generation step. The fluent class of a source class is generated
+ * with the same rules as {@link FluentApiGenerator#generateCode()}, compiled in memory (see
+ * {@link de.holisticon.toolbox.generator.verify.SourceCompiler}) and defined by its own class loader, a child of the class loader of the source
+ * class. The compiled class is the same as the one compiled from the generated source, so once defined it is as fast.
+ * <p>
+ * Classes are defined once per source class and cached: the first call of {@link #fluentFor(Class)} pays the compilation, later calls are a
+ * concurrent map lookup. Concurrent calls for the same source class wait for a single definition. The cache holds the fluent classes (and so
+ * their source classes) as long as this instance is referenced. The source classes and their super types must be available as class files, in
+ * the directories and jar files of their class loaders or of the class path. Needs a JDK. Thread safe.
+ * </p>
+ * <p>
+ * Limits: the classes are compiled by the system java compiler, so creating an instance fails on a JRE. The compiler reads class files from
+ * directories and jar files of the file system only, so source classes of nested jars (like the libraries and classes of a Spring Boot fat jar)
+ * or of class loaders without files are rejected by {@link #fluentFor(Class)}. Generate the sources at build time for these environments.
+ * </p>
+ * Do not create directly, use {@link FluentApiGeneratorBuilder#buildRuntime()} or {@link FluentApiGenerator#runtime()}.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class RuntimeFluentClasses {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Creates a new generator per definition, the code model of a generator only grows.
+     */
+    private final Supplier<FluentApiGenerator> generators;
+
+    /**
+     * Defined fluent classes by source class. Hits are a plain map lookup, the cache below is only used for misses.
+     */
+    private final ConcurrentMap<Class<?>, Class<?>> definedClasses = Maps.newConcurrentMap();
+
+    /**
+     * Makes concurrent callers wait for a single definition per source class.
+     */
+    private final LoadingCache<Class<?>, Class<?>> fluentClasses = CacheBuilder.newBuilder().build(new CacheLoader<Class<?>, Class<?>>() {
+
+        @Override
+        public Class<?> load(final Class<?> sourceClass) throws ClassNotFoundException {
+            return define(sourceClass);
+        }
+    });
+
+    /**
+     * @throws IllegalStateException if there is no system java compiler
+     */
+    RuntimeFluentClasses(final Supplier<FluentApiGenerator> generators) {
+        checkState(ToolProvider.getSystemJavaCompiler() != null, "runtime fluent classes are compiled in memory and need a JDK, '%s' is a JRE",
+                System.getProperty("java.home"));
+        this.generators = generators;
+    }
+
+    /**
+     * @param sourceClass class used as source for generation
+     * @return the fluent class, defined on first use. Use its static factory methods like those of the generated source.
+     * @throws IllegalStateException if the class file of the source class can not be read by the compiler, see limits above
+     */
+    public Class<?> fluentFor(final Class<?> sourceClass) {
+        checkArgument(sourceClass != null);
+        final Class<?> definedClass = definedClasses.get(sourceClass);
+        if (definedClass != null) {
+            return definedClass;
+        }
+        try {
+            final Class<?> fluentClass = fluentClasses.getUnchecked(sourceClass);
+            definedClasses.put(sourceClass, fluentClass);
+            return fluentClass;
+        } catch (final UncheckedExecutionException e) {
+            throw propagate(e.getCause());
+        }
+    }
+
+    /**
+     * @return number of fluent classes defined so far
+     */
+    public int size() {
+        return definedClasses.size();
+    }
+
+    private Class<?> define(final Class<?> sourceClass) throws ClassNotFoundException {
+        checkCompilable(sourceClass);
+        final long start = System.nanoTime();
+        final FluentApiGenerator generator = generators.get().addClass(sourceClass);
+        final String className = generator.getDefinedClass(sourceClass).fullName();
+        final CompilationResult result = generator.compile(sourceClass.getClassLoader());
+        checkState(result.isSuccess(), format("fluent class of '%s' does not compile: %s", sourceClass.getName(), result));
+
+        final Class<?> fluentClass = result.classLoader(sourceClass.getClassLoader()).loadClass(className);
+        logger.debug("defined {} in {} ms", className, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return fluentClass;
+    }
+
+    /**
+     * Fails unless the class file is a file or an entry of a jar file, at the root of the class path entry.
+     */
+    static void checkCompilable(final Class<?> sourceClass) {
+        final ClassLoader classLoader = sourceClass.getClassLoader();
+        if (classLoader == null) {
+            // platform class, known to the compiler
+            return;
+        }
+        final String path = sourceClass.getName().replace('.', '/') + ".class";
+        final URL resource = classLoader.getResource(path);
+        final String location = resource != null ? resource.toString() : null;
+        checkState(location != null && (location.startsWith("file:") || location.startsWith("jar:file:")
+                && location.indexOf("!/") == location.length() - path.length() - 2), format(
+                "'%s' is loaded from %s, the compiler only reads class files of directories and jar files, not of nested jars", sourceClass.getName(),
+                location));
+    }
+}
@@ -0,0 +1,54 @@
+package de.holisticon.toolbox.generator;
+
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+import com.sun.codemodel.JClass;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JType;
+
+import de.holisticon.toolbox.generator.model.TypeRef;
+
+/**
+ * Resolves {@link TypeRef}s to code model types. Loaded classes are referenced via {@link JCodeModel#_ref(Class)}, classes read from class files
+ * via {@link NamedClass}, one instance per name, so the code model can detect import collisions. Not thread safe, like the code model itself.
+ * @author Jan Galinski, Holisticon AG
+ */
+final class TypeResolver {
+
+    private final JCodeModel codeModel;
+    private final Map<String, JClass> namedClasses = Maps.newHashMap();
+
+    TypeResolver(final JCodeModel codeModel) {
+        this.codeModel = codeModel;
+    }
+
+    JType resolve(final TypeRef typeRef) {
+        JType type;
+        if (typeRef.getType() != null) {
+            type = codeModel._ref(typeRef.getType());
+        } else if (typeRef.isPrimitive()) {
+            type = JType.parse(codeModel, typeRef.getName());
+        } else {
+            type = named(typeRef);
+        }
+        for (int i = 0; i < typeRef.getDimensions(); i++) {
+            type = type.array();
+        }
+        return type;
+    }
+
+    JClass resolveClass(final TypeRef typeRef) {
+        return (JClass) resolve(typeRef);
+    }
+
+    private JClass named(final TypeRef typeRef) {
+        JClass namedClass = namedClasses.get(typeRef.getName());
+        if (namedClass == null) {
+            final JClass outer = typeRef.getOuter() == null ? null : named(typeRef.getOuter());
+            namedClass = new NamedClass(codeModel, typeRef, outer);
+            namedClasses.put(typeRef.getName(), namedClass);
+        }
+        return namedClass;
+    }
+}
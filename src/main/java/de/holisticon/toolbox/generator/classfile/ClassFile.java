@@ -0,0 +1,94 @@
+package de.holisticon.toolbox.generator.classfile;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parts of a parsed class file needed to create a {@link de.holisticon.toolbox.generator.model.SourceType}. All names are binary names
+ * ("java.util.Map$Entry").
+ * @author Jan Galinski, Holisticon AG
+ */
+final class ClassFile {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_BRIDGE = 0x0040;
+    static final int ACC_INTERFACE = 0x0200;
+    static final int ACC_ABSTRACT = 0x0400;
+    static final int ACC_SYNTHETIC = 0x1000;
+    static final int ACC_ANNOTATION = 0x2000;
+    static final int ACC_ENUM = 0x4000;
+
+    /**
+     * A method or constructor ("&lt;init&gt;").
+     */
+    static final class MethodInfo {
+
+        final int access;
+        final String name;
+        final String descriptor;
+        final boolean deprecated;
+
+        MethodInfo(final int access, final String name, final String descriptor, final boolean deprecated) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.deprecated = deprecated;
+        }
+
+        boolean is(final int flag) {
+            return (access & flag) != 0;
+        }
+    }
+
+    /**
+     * Entry of the InnerClasses attribute, the declaring class and simple name of a member type.
+     */
+    static final class InnerClassInfo {
+
+        final String outerName;
+        final String simpleName;
+        final int access;
+
+        InnerClassInfo(final String outerName, final String simpleName, final int access) {
+            this.outerName = outerName;
+            this.simpleName = simpleName;
+            this.access = access;
+        }
+    }
+
+    final int access;
+    final String name;
+    final String superName;
+    final List<String> interfaces;
+    final List<MethodInfo> methods;
+    final Map<String, InnerClassInfo> innerClasses;
+
+    /**
+     * Local or anonymous class.
+     */
+    final boolean local;
+
+    ClassFile(final int access, final String name, final String superName, final List<String> interfaces, final List<MethodInfo> methods,
+            final Map<String, InnerClassInfo> innerClasses, final boolean local) {
+        this.access = access;
+        this.name = name;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.methods = methods;
+        this.innerClasses = innerClasses;
+        this.local = local;
+    }
+
+    boolean isInterface() {
+        return (access & ACC_INTERFACE) != 0;
+    }
+
+    /**
+     * @return access flags of the InnerClasses entry for member types, access flags of the class file otherwise
+     */
+    int typeAccess() {
+        final InnerClassInfo inner = innerClasses.get(name);
+        return inner != null ? inner.access : access;
+    }
+}
@@ -0,0 +1,322 @@
+package de.holisticon.toolbox.generator.classfile;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.holisticon.toolbox.generator.classfile.ClassFile.InnerClassInfo;
+import de.holisticon.toolbox.generator.classfile.ClassFile.MethodInfo;
+
+/**
+ * Minimal class file parser (JVMS chapter 4). Reads access flags, super types, methods and the InnerClasses attribute, everything else is
+ * skipped. Utf8 constants are only decoded when used, so scanning many class files stays cheap.
+ * @author Jan Galinski, Holisticon AG
+ */
+final class ClassFileReader {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+    private static final String INNER_CLASSES = "InnerClasses";
+    private static final String DEPRECATED_DESCRIPTOR = "Ljava/lang/Deprecated;";
+
+    private final byte[] bytes;
+    private int position;
+
+    /**
+     * Offsets of utf8 constants by index, decoded lazily into {@link #utf8}.
+     */
+    private int[] utf8Offset;
+    private String[] utf8;
+
+    /**
+     * Name index of class constants by index.
+     */
+    private int[] classNameIndex;
+
+    private ClassFileReader(final byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @param bytes content of a class file
+     * @return parsed class file
+     */
+    static ClassFile read(final byte[] bytes) {
+        try {
+            return new ClassFileReader(bytes).read();
+        } catch (final ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated class file", e);
+        }
+    }
+
+    private ClassFile read() {
+        checkArgument(readInt() == MAGIC, "not a class file");
+        // minor and major version
+        skip(4);
+
+        readConstantPool();
+
+        final int access = readUnsignedShort();
+        final String name = className(readUnsignedShort());
+        final int superIndex = readUnsignedShort();
+        final String superName = superIndex == 0 ? null : className(superIndex);
+
+        final int interfacesCount = readUnsignedShort();
+        final List<String> interfaces = Lists.newArrayListWithCapacity(interfacesCount);
+        for (int i = 0; i < interfacesCount; i++) {
+            interfaces.add(className(readUnsignedShort()));
+        }
+
+        final int fieldsCount = readUnsignedShort();
+        for (int i = 0; i < fieldsCount; i++) {
+            // access, name and descriptor
+            skip(6);
+            skipAttributes();
+        }
+
+        final int methodsCount = readUnsignedShort();
+        final List<MethodInfo> methods = Lists.newArrayListWithCapacity(methodsCount);
+        for (int i = 0; i < methodsCount; i++) {
+            methods.add(readMethod());
+        }
+
+        final Map<String, InnerClassInfo> innerClasses = Maps.newHashMap();
+        boolean local = false;
+        final int attributesCount = readUnsignedShort();
+        for (int i = 0; i < attributesCount; i++) {
+            final String attributeName = utf8(readUnsignedShort());
+            final int length = readInt();
+            if (INNER_CLASSES.equals(attributeName)) {
+                local |= readInnerClasses(name, innerClasses);
+            } else {
+                skip(length);
+            }
+        }
+
+        return new ClassFile(access, name, superName, ImmutableList.copyOf(interfaces), ImmutableList.copyOf(methods), innerClasses, local);
+    }
+
+    private void readConstantPool() {
+        final int count = readUnsignedShort();
+        utf8Offset = new int[count];
+        utf8 = new String[count];
+        classNameIndex = new int[count];
+        for (int i = 1; i < count; i++) {
+            final int tag = readUnsignedByte();
+            switch (tag) {
+            case CONSTANT_UTF8:
+                utf8Offset[i] = position;
+                skip(readUnsignedShort());
+                break;
+            case CONSTANT_CLASS:
+                classNameIndex[i] = readUnsignedShort();
+                break;
+            case CONSTANT_STRING:
+            case CONSTANT_METHOD_TYPE:
+            case CONSTANT_MODULE:
+            case CONSTANT_PACKAGE:
+                skip(2);
+                break;
+            case CONSTANT_METHOD_HANDLE:
+                skip(3);
+                break;
+            case CONSTANT_INTEGER:
+            case CONSTANT_FLOAT:
+            case CONSTANT_FIELDREF:
+            case CONSTANT_METHODREF:
+            case CONSTANT_INTERFACE_METHODREF:
+            case CONSTANT_NAME_AND_TYPE:
+            case CONSTANT_DYNAMIC:
+            case CONSTANT_INVOKE_DYNAMIC:
+                skip(4);
+                break;
+            case CONSTANT_LONG:
+            case CONSTANT_DOUBLE:
+                skip(8);
+                // takes two entries
+                i++;
+                break;
+            default:
+                throw new IllegalArgumentException(format("unknown constant pool tag %s at index %s", tag, i));
+            }
+        }
+    }
+
+    private MethodInfo readMethod() {
+        final int access = readUnsignedShort();
+        final String name = utf8(readUnsignedShort());
+        final String descriptor = utf8(readUnsignedShort());
+        boolean deprecated = false;
+
+        final int attributesCount = readUnsignedShort();
+        for (int i = 0; i < attributesCount; i++) {
+            final String attributeName = utf8(readUnsignedShort());
+            final int length = readInt();
+            if (RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+                deprecated |= readAnnotations();
+            } else {
+                skip(length);
+            }
+        }
+        return new MethodInfo(access, name, descriptor, deprecated);
+    }
+
+    /**
+     * @return <code>true</code> if {@link Deprecated} is present
+     */
+    private boolean readAnnotations() {
+        boolean deprecated = false;
+        final int count = readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            deprecated |= DEPRECATED_DESCRIPTOR.equals(utf8(readUnsignedShort()));
+            skipElementValuePairs();
+        }
+        return deprecated;
+    }
+
+    private void skipElementValuePairs() {
+        final int pairs = readUnsignedShort();
+        for (int i = 0; i < pairs; i++) {
+            // element name
+            skip(2);
+            skipElementValue();
+        }
+    }
+
+    private void skipElementValue() {
+        final int tag = readUnsignedByte();
+        switch (tag) {
+        case 'e':
+            // type name and constant name
+            skip(4);
+            break;
+        case '@':
+            // type
+            skip(2);
+            skipElementValuePairs();
+            break;
+        case '[':
+            final int values = readUnsignedShort();
+            for (int i = 0; i < values; i++) {
+                skipElementValue();
+            }
+            break;
+        default:
+            // const value or class info index
+            skip(2);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the class itself is a local or anonymous class
+     */
+    private boolean readInnerClasses(final String name, final Map<String, InnerClassInfo> innerClasses) {
+        boolean local = false;
+        final int count = readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            final int innerIndex = readUnsignedShort();
+            final int outerIndex = readUnsignedShort();
+            final int simpleNameIndex = readUnsignedShort();
+            final int access = readUnsignedShort();
+            // local and anonymous classes have no outer class
+            if (outerIndex != 0 && simpleNameIndex != 0) {
+                innerClasses.put(className(innerIndex), new InnerClassInfo(className(outerIndex), utf8(simpleNameIndex), access));
+            } else if (name.equals(className(innerIndex))) {
+                local = true;
+            }
+        }
+        return local;
+    }
+
+    private void skipAttributes() {
+        final int count = readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            skip(2);
+            skip(readInt());
+        }
+    }
+
+    private String className(final int index) {
+        return utf8(classNameIndex[index]).replace('/', '.');
+    }
+
+    private String utf8(final int index) {
+        String value = utf8[index];
+        if (value == null) {
+            value = decode(utf8Offset[index]);
+            utf8[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Decodes the modified UTF-8 constant at the given offset, with a fast path for ASCII only constants (almost all of them).
+     */
+    private String decode(final int offset) {
+        final int length = ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+        final int start = offset + 2;
+        for (int i = start; i < start + length; i++) {
+            if (bytes[i] <= 0) {
+                try {
+                    return new DataInputStream(new ByteArrayInputStream(bytes, offset, length + 2)).readUTF();
+                } catch (final IOException e) {
+                    throw new IllegalArgumentException("illegal utf8 constant", e);
+                }
+            }
+        }
+        return new String(bytes, start, length, Charsets.US_ASCII);
+    }
+
+    private int readUnsignedByte() {
+        return bytes[position++] & 0xFF;
+    }
+
+    private int readUnsignedShort() {
+        final int value = ((bytes[position] & 0xFF) << 8) | (bytes[position + 1] & 0xFF);
+        position += 2;
+        return value;
+    }
+
+    private int readInt() {
+        final int value = ((bytes[position] & 0xFF) << 24) | ((bytes[position + 1] & 0xFF) << 16) | ((bytes[position + 2] & 0xFF) << 8)
+                | (bytes[position + 3] & 0xFF);
+        position += 4;
+        return value;
+    }
+
+    private void skip(final int count) {
+        position += count;
+        if (position > bytes.length) {
+            throw new IllegalArgumentException("truncated class file");
+        }
+    }
+}
@@ -0,0 +1,659 @@
+package de.holisticon.toolbox.generator.classfile;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Throwables.propagate;
+import static java.lang.String.format;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+import de.holisticon.toolbox.generator.classfile.ClassFile.InnerClassInfo;
+import de.holisticon.toolbox.generator.classfile.ClassFile.MethodInfo;
+import de.holisticon.toolbox.generator.model.SourceConstructor;
+import de.holisticon.toolbox.generator.model.SourceMethod;
+import de.holisticon.toolbox.generator.model.SourceMethodCache;
+import de.holisticon.toolbox.generator.model.SourceType;
+import de.holisticon.toolbox.generator.model.TypeRef;
+import de.holisticon.toolbox.generator.predicate.ConstructorPredicates;
+
+/**
+ * Creates {@link SourceType}s from class files in directories and jars without loading (and initializing) the classes. Types not found in the
+ * configured class path entries (like the JDK classes) are read as resources from a fallback class loader, which does not load them either.
+ * Thread safe.
+ * @author Jan Galinski, Holisticon AG
+ */
+public class ClassFileRepository implements Closeable {
+
+    /**
+     * Fallback class loader reading the JDK class files, but not the classes of the application, for class paths that are complete except for
+     * the JDK.
+     */
+    public static final ClassLoader JDK_CLASSES = ClassLoader.getSystemClassLoader().getParent();
+
+    private static final String CONSTRUCTOR = "<init>";
+    private static final String CLASS_SUFFIX = ".class";
+
+    private static final int CLASS_MODIFIERS = Modifier.PUBLIC | Modifier.PROTECTED | Modifier.PRIVATE | Modifier.STATIC | Modifier.FINAL
+            | Modifier.INTERFACE | Modifier.ABSTRACT;
+
+    private static final int NO_CANDIDATE = ClassFile.ACC_INTERFACE | ClassFile.ACC_ABSTRACT | ClassFile.ACC_ANNOTATION | ClassFile.ACC_ENUM
+            | ClassFile.ACC_SYNTHETIC;
+
+    private final List<Root> roots = new CopyOnWriteArrayList<Root>();
+    private final List<File> classPathEntries = new CopyOnWriteArrayList<File>();
+    private final ClassLoader fallback;
+
+    /**
+     * Class files read by name: source classes added by name and the super types of all source classes. Scanned candidates are not kept.
+     */
+    private final ConcurrentMap<String, ClassFile> classFiles = Maps.newConcurrentMap();
+
+    private final SourceMethodCache sourceMethodCache;
+
+    /**
+     * A directory or jar file containing class files.
+     */
+    private abstract static class Root {
+
+        /**
+         * @return content or <code>null</code> if not found
+         */
+        abstract byte[] read(String path) throws IOException;
+
+        /**
+         * @return <code>true</code> if the class file exists, without reading it
+         */
+        abstract boolean contains(String path) throws IOException;
+
+        abstract File file();
+
+        void close() {
+            // nothing to close by default
+        }
+    }
+
+    private static final class DirectoryRoot extends Root {
+
+        private final File directory;
+
+        DirectoryRoot(final File directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        byte[] read(final String path) throws IOException {
+            final File file = new File(directory, path);
+            return file.isFile() ? Files.toByteArray(file) : null;
+        }
+
+        @Override
+        boolean contains(final String path) {
+            return new File(directory, path).isFile();
+        }
+
+        @Override
+        File file() {
+            return directory;
+        }
+    }
+
+    private static final class JarRoot extends Root {
+
+        private final File file;
+        private JarFile jar;
+
+        JarRoot(final File file) {
+            this.file = file;
+        }
+
+        @Override
+        synchronized byte[] read(final String path) throws IOException {
+            final JarEntry entry = jar().getJarEntry(path);
+            if (entry == null) {
+                return null;
+            }
+            final InputStream in = jar.getInputStream(entry);
+            try {
+                return ByteStreams.toByteArray(in);
+            } finally {
+                Closeables.close(in, true);
+            }
+        }
+
+        @Override
+        synchronized boolean contains(final String path) throws IOException {
+            return jar().getJarEntry(path) != null;
+        }
+
+        private JarFile jar() throws IOException {
+            if (jar == null) {
+                jar = new JarFile(file);
+            }
+            return jar;
+        }
+
+        @Override
+        File file() {
+            return file;
+        }
+
+        @Override
+        synchronized void close() {
+            if (jar != null) {
+                try {
+                    jar.close();
+                } catch (final IOException e) {
+                    // ignore, read only
+                }
+                jar = null;
+            }
+        }
+    }
+
+    /**
+     * @param classPathEntries directories and jar files, searched in the given order
+     * @param fallback used to read class files not contained in the entries, may be <code>null</code>
+     */
+    public ClassFileRepository(final List<File> classPathEntries, final ClassLoader fallback) {
+        this(classPathEntries, fallback, new SourceMethodCache());
+    }
+
+    /**
+     * @param classPathEntries directories and jar files, searched in the given order
+     * @param fallback used to read class files not contained in the entries, may be <code>null</code>
+     * @param sourceMethodCache shares the methods of super classes between source types
+     */
+    public ClassFileRepository(final List<File> classPathEntries, final ClassLoader fallback, final SourceMethodCache sourceMethodCache) {
+        checkArgument(classPathEntries != null);
+        checkArgument(sourceMethodCache != null);
+        for (final File entry : classPathEntries) {
+            addClassPathEntry(entry);
+        }
+        this.fallback = fallback;
+        this.sourceMethodCache = sourceMethodCache;
+    }
+
+    /**
+     * Adds a directory or jar file, searched after the entries added before.
+     * @param entry directory or jar file
+     */
+    public void addClassPathEntry(final File entry) {
+        checkArgument(entry != null);
+        checkArgument(entry.exists(), format("class path entry '%s' does not exist", entry.getAbsolutePath()));
+        if (!classPathEntries.contains(entry)) {
+            classPathEntries.add(entry);
+            roots.add(entry.isDirectory() ? new DirectoryRoot(entry) : new JarRoot(entry));
+        }
+    }
+
+    /**
+     * Scans all classes of the given directory or jar file for bean candidates, see {@link #isCandidate(ClassFile)}.
+     * @param entry directory or jar file, also added via {@link #addClassPathEntry(File)} to resolve super types
+     * @return lazy scan
+     */
+    public ClassFileScan scan(final File entry) {
+        addClassPathEntry(entry);
+        return new ClassFileScan(this, ImmutableList.of(new ClassFileScan.Location(entry, "", true)));
+    }
+
+    /**
+     * Scans the given package for bean candidates, see {@link #isCandidate(ClassFile)}. Searches all class path entries and the directories and
+     * jar files the fallback class loader returns for the package. Jar files without directory entries are only found if they were added as
+     * class path entry.
+     * @param packageName package name, "com.vaadin.ui"
+     * @param recursive <code>true</code> to include sub packages
+     * @return lazy scan
+     */
+    public ClassFileScan scanPackage(final String packageName, final boolean recursive) {
+        checkArgument(packageName != null);
+        final String packagePath = packageName.length() == 0 ? "" : packageName.replace('.', '/') + "/";
+
+        final Set<File> files = Sets.newLinkedHashSet(classPathEntries);
+        if (fallback != null) {
+            try {
+                final Enumeration<URL> resources = fallback.getResources(packagePath);
+                while (resources.hasMoreElements()) {
+                    final File file = classPathEntry(resources.nextElement(), packagePath);
+                    if (file != null) {
+                        files.add(file);
+                    }
+                }
+            } catch (final IOException e) {
+                throw propagate(e);
+            }
+        }
+
+        final List<ClassFileScan.Location> locations = Lists.newArrayList();
+        for (final File file : files) {
+            locations.add(new ClassFileScan.Location(file, packagePath, recursive));
+        }
+        return new ClassFileScan(this, locations);
+    }
+
+    /**
+     * @return the directory or jar file containing the given package resource, <code>null</code> for other protocols
+     */
+    private static File classPathEntry(final URL resource, final String packagePath) {
+        try {
+            if ("file".equals(resource.getProtocol())) {
+                final String path = new File(resource.toURI()).getPath();
+                return new File(path.substring(0, path.length() - packagePath.length()));
+            }
+            if ("jar".equals(resource.getProtocol())) {
+                final String file = resource.getFile();
+                return new File(new URL(file.substring(0, file.indexOf("!/"))).toURI());
+            }
+            return null;
+        } catch (final URISyntaxException e) {
+            throw propagate(e);
+        } catch (final MalformedURLException e) {
+            throw propagate(e);
+        }
+    }
+
+    /**
+     * Bean candidates are public, not abstract, top level or static member classes with at least one constructor matching
+     * {@link ConstructorPredicates#IS_CONSTRUCTOR_CANDIDATE}. Interfaces, enums, annotations, local and anonymous classes are no candidates.
+     * @param classFile parsed class file
+     * @return <code>true</code> for candidates
+     */
+    boolean isCandidate(final ClassFile classFile) {
+        final int access = classFile.typeAccess();
+        if ((access & ClassFile.ACC_PUBLIC) == 0 || (access & NO_CANDIDATE) != 0 || classFile.local) {
+            return false;
+        }
+        if (classFile.innerClasses.containsKey(classFile.name) && (access & ClassFile.ACC_STATIC) == 0) {
+            return false;
+        }
+        for (final SourceConstructor constructor : constructors(classFile)) {
+            if (ConstructorPredicates.IS_CONSTRUCTOR_CANDIDATE.matches(constructor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param className binary class name
+     * @return <code>true</code> if a class file exists for the given name and it is a bean candidate, see {@link #isCandidate(ClassFile)}
+     */
+    public boolean isCandidate(final String className) {
+        final ClassFile classFile = findClassFile(className);
+        return classFile != null && isCandidate(classFile);
+    }
+
+    /**
+     * @param className binary class name
+     * @return <code>true</code> if a class file exists for the given name, checked without reading it
+     */
+    public boolean contains(final String className) {
+        if (classFiles.containsKey(className)) {
+            return true;
+        }
+        final String path = className.replace('.', '/') + CLASS_SUFFIX;
+        try {
+            for (final Root root : roots) {
+                if (root.contains(path)) {
+                    return true;
+                }
+            }
+        } catch (final IOException e) {
+            throw propagate(e);
+        }
+        return fallback != null && fallback.getResource(path) != null;
+    }
+
+    /**
+     * @param classPathEntry directory or jar file
+     * @param className binary class name
+     * @return <code>true</code> if the entry exists and contains a class file for the given name, checked without reading it
+     */
+    public static boolean contains(final File classPathEntry, final String className) {
+        if (!classPathEntry.exists()) {
+            return false;
+        }
+        final Root root = classPathEntry.isDirectory() ? new DirectoryRoot(classPathEntry) : new JarRoot(classPathEntry);
+        try {
+            return root.contains(className.replace('.', '/') + CLASS_SUFFIX);
+        } catch (final IOException e) {
+            throw propagate(e);
+        } finally {
+            root.close();
+        }
+    }
+
+    /**
+     * @param loadedClass class loaded by any class loader
+     * @return the directory or jar file its class loader read it from, <code>null</code> for classes of the boot class loader or read via
+     *         another protocol
+     */
+    public static File location(final Class<?> loadedClass) {
+        final String path = loadedClass.getName().replace('.', '/') + CLASS_SUFFIX;
+        final URL resource = loadedClass.getClassLoader() != null ? loadedClass.getClassLoader().getResource(path) : null;
+        return resource != null ? classPathEntry(resource, path) : null;
+    }
+
+    /**
+     * @param className binary class name
+     * @return the class path entry containing the class file, the directory or jar file of the fallback class loader, <code>null</code> if not
+     *         found or read via another protocol
+     */
+    public File location(final String className) {
+        final String path = className.replace('.', '/') + CLASS_SUFFIX;
+        try {
+            for (final Root root : roots) {
+                if (root.contains(path)) {
+                    return root.file();
+                }
+            }
+        } catch (final IOException e) {
+            throw propagate(e);
+        }
+        final URL resource = fallback != null ? fallback.getResource(path) : null;
+        return resource != null ? classPathEntry(resource, path) : null;
+    }
+
+    /**
+     * @param className binary class name
+     * @return binary names of all super classes and implemented interfaces
+     */
+    public Set<String> superTypeNames(final String className) {
+        final Set<String> names = Sets.newLinkedHashSet();
+        collectSuperTypeNames(classFile(className), names);
+        return names;
+    }
+
+    private void collectSuperTypeNames(final ClassFile classFile, final Set<String> names) {
+        final List<String> direct = Lists.newArrayList(classFile.interfaces);
+        if (classFile.superName != null) {
+            direct.add(classFile.superName);
+        }
+        for (final String name : direct) {
+            if (names.add(name)) {
+                collectSuperTypeNames(classFile(name), names);
+            }
+        }
+    }
+
+    /**
+     * Reads the source type from its class file and the class files of all its super types.
+     * @param className binary class name
+     * @return source type with all public methods, including inherited ones
+     */
+    public SourceType sourceType(final String className) {
+        return sourceType(classFile(className));
+    }
+
+    /**
+     * Like {@link #sourceType(ClassFile)} for a candidate of a {@link ClassFileScan}. Its declared methods are not kept in the
+     * {@link SourceMethodCache}, unless it is a super type of a class read before, so the cache grows with the super types of the scanned
+     * classes, not with their number.
+     */
+    SourceType scannedSourceType(final ClassFile classFile) {
+        final SourceType sourceType = sourceType(classFile);
+        if (!classFiles.containsKey(classFile.name)) {
+            // read again if it turns out to be a super type of a class scanned later
+            sourceMethodCache.invalidate(classFile.name);
+        }
+        return sourceType;
+    }
+
+    SourceType sourceType(final ClassFile classFile) {
+        // keyed by name and descriptor, the most specific declaration wins
+        final Map<String, SourceMethod> methods = Maps.newLinkedHashMap();
+        collectMethods(classFile, methods, Sets.<String> newHashSet(), false);
+
+        // interfaces have java.lang.Object as super class in their class file
+        final TypeRef superclass = classFile.superName != null && !classFile.isInterface() ? typeRef(classFile.superName, 0, classFile) : null;
+        return new SourceType(typeRef(classFile.name, 0, classFile), classFile.typeAccess() & CLASS_MODIFIERS, superclass, constructors(classFile),
+                Lists.newArrayList(methods.values()), null);
+    }
+
+    private List<SourceConstructor> constructors(final ClassFile classFile) {
+        final List<SourceConstructor> constructors = Lists.newArrayList();
+        for (final MethodInfo method : classFile.methods) {
+            if (CONSTRUCTOR.equals(method.name) && method.is(ClassFile.ACC_PUBLIC)) {
+                constructors.add(new SourceConstructor(method.access, parameterTypes(method.descriptor, classFile),
+                        method.is(ClassFile.ACC_SYNTHETIC)));
+            }
+        }
+        return constructors;
+    }
+
+    /**
+     * Emulates {@link Class#getMethods()}: all public methods of the class, its super classes and its super interfaces. Static interface methods
+     * are not inherited.
+     */
+    private void collectMethods(final ClassFile classFile, final Map<String, SourceMethod> methods, final Set<String> visited,
+            final boolean inherited) {
+        if (!visited.add(classFile.name)) {
+            return;
+        }
+        final boolean fromInterface = classFile.isInterface();
+        for (final Map.Entry<String, SourceMethod> method : declaredMethods(classFile).entrySet()) {
+            if (fromInterface && inherited && Modifier.isStatic(method.getValue().getModifiers())) {
+                continue;
+            }
+            if (!methods.containsKey(method.getKey())) {
+                methods.put(method.getKey(), method.getValue());
+            }
+        }
+        // interfaces do not inherit the methods of java.lang.Object
+        if (classFile.superName != null && !fromInterface) {
+            collectMethods(classFile(classFile.superName), methods, visited, true);
+        }
+        for (final String interfaceName : classFile.interfaces) {
+            collectMethods(classFile(interfaceName), methods, visited, true);
+        }
+    }
+
+    /**
+     * @return the public methods (without constructors and initializers) declared by the given class, keyed by name and descriptor
+     */
+    private Map<String, SourceMethod> declaredMethods(final ClassFile classFile) {
+        return sourceMethodCache.declaredMethods(classFile.name, new Supplier<Map<String, SourceMethod>>() {
+
+            @Override
+            public Map<String, SourceMethod> get() {
+                final ImmutableMap.Builder<String, SourceMethod> methods = ImmutableMap.builder();
+                for (final MethodInfo method : classFile.methods) {
+                    if (method.is(ClassFile.ACC_PUBLIC) && !method.name.startsWith("<")) {
+                        methods.put(method.name + method.descriptor, new SourceMethod(method.name, method.access, returnType(method.descriptor,
+                                classFile), parameterTypes(method.descriptor, classFile), method.deprecated, method.is(ClassFile.ACC_SYNTHETIC),
+                                method.is(ClassFile.ACC_BRIDGE)));
+                    }
+                }
+                return methods.build();
+            }
+        });
+    }
+
+    private List<TypeRef> parameterTypes(final String descriptor, final ClassFile context) {
+        final List<TypeRef> types = Lists.newArrayList();
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            i = parseType(descriptor, i, types, context);
+        }
+        return types;
+    }
+
+    private TypeRef returnType(final String descriptor, final ClassFile context) {
+        final List<TypeRef> types = Lists.newArrayListWithCapacity(1);
+        parseType(descriptor, descriptor.indexOf(')') + 1, types, context);
+        return types.get(0);
+    }
+
+    /**
+     * Parses the field descriptor starting at the given index.
+     * @return index after the parsed type
+     */
+    private int parseType(final String descriptor, final int start, final List<TypeRef> types, final ClassFile context) {
+        int i = start;
+        int dimensions = 0;
+        while (descriptor.charAt(i) == '[') {
+            dimensions++;
+            i++;
+        }
+        final char c = descriptor.charAt(i);
+        if (c == 'L') {
+            final int end = descriptor.indexOf(';', i);
+            types.add(typeRef(descriptor.substring(i + 1, end).replace('/', '.'), dimensions, context));
+            return end + 1;
+        }
+        types.add(TypeRef.named(primitive(c), primitive(c), null, dimensions));
+        return i + 1;
+    }
+
+    private static String primitive(final char descriptor) {
+        switch (descriptor) {
+        case 'B':
+            return "byte";
+        case 'C':
+            return "char";
+        case 'D':
+            return "double";
+        case 'F':
+            return "float";
+        case 'I':
+            return "int";
+        case 'J':
+            return "long";
+        case 'S':
+            return "short";
+        case 'Z':
+            return TypeRef.BOOLEAN;
+        case 'V':
+            return TypeRef.VOID;
+        default:
+            throw new IllegalArgumentException(format("illegal descriptor '%s'", descriptor));
+        }
+    }
+
+    /**
+     * Member types are resolved via the InnerClasses attribute of the referencing class file, or of the class file of the type itself.
+     */
+    private TypeRef typeRef(final String className, final int dimensions, final ClassFile context) {
+        InnerClassInfo inner = context.innerClasses.get(className);
+        ClassFile outerContext = context;
+        if (inner == null && className.indexOf('$') >= 0) {
+            final ClassFile own = findClassFile(className);
+            if (own != null) {
+                inner = own.innerClasses.get(className);
+                outerContext = own;
+            }
+        }
+        if (inner == null) {
+            return TypeRef.named(className, className.substring(className.lastIndexOf('.') + 1), null, dimensions);
+        }
+        return TypeRef.named(className, inner.simpleName, typeRef(inner.outerName, 0, outerContext), dimensions);
+    }
+
+    private ClassFile classFile(final String className) {
+        final ClassFile classFile = findClassFile(className);
+        checkState(classFile != null, format("no class file found for '%s'", className));
+        return classFile;
+    }
+
+    private ClassFile findClassFile(final String className) {
+        ClassFile classFile = classFiles.get(className);
+        if (classFile == null) {
+            final byte[] bytes = read(className.replace('.', '/') + CLASS_SUFFIX);
+            if (bytes == null) {
+                return null;
+            }
+            classFile = ClassFileReader.read(bytes);
+            final ClassFile existing = classFiles.putIfAbsent(className, classFile);
+            if (existing != null) {
+                classFile = existing;
+            }
+        }
+        return classFile;
+    }
+
+    private byte[] read(final String path) {
+        try {
+            for (final Root root : roots) {
+                final byte[] bytes = root.read(path);
+                if (bytes != null) {
+                    return bytes;
+                }
+            }
+            if (fallback != null) {
+                final InputStream in = fallback.getResourceAsStream(path);
+                if (in != null) {
+                    try {
+                        return ByteStreams.toByteArray(in);
+                    } finally {
+                        Closeables.close(in, true);
+                    }
+                }
+            }
+            return null;
+        } catch (final IOException e) {
+            throw propagate(e);
+        }
+    }
+
+    /**
+     * Drops the cached class files and declared methods of changed classes of a directory, they are read again on the next request. Jar files are
+     * read once per repository, use a new repository if one of them changes.
+     * @param classNames binary names of changed, added or deleted classes
+     */
+    public void invalidate(final Collection<String> classNames) {
+        checkArgument(classNames != null);
+        for (final String className : classNames) {
+            classFiles.remove(className);
+            sourceMethodCache.invalidate(className);
+        }
+    }
+
+    /**
+     * @return the directories and jar files added so far, in search order
+     */
+    public List<File> getClassPathEntries() {
+        return ImmutableList.copyOf(classPathEntries);
+    }
+
+    /**
+     * @return the cache of the methods declared by the read classes
+     */
+    public SourceMethodCache getSourceMethodCache() {
+        return sourceMethodCache;
+    }
+
+    /**
+     * Closes all opened jar files. They are reopened if the repository is used again.
+     */
+    @Override
+    public void close() {
+        for (final Root root : roots) {
+            root.close();
+        }
+    }
+}
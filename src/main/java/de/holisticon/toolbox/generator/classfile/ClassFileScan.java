@@ -0,0 +1,214 @@
+package de.holisticon.toolbox.generator.classfile;
+
+import static com.google.common.base.Throwables.propagate;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+import de.holisticon.toolbox.generator.model.SourceType;
+
+/**
+ * Lazily iterates the bean candidates found in directories and jar files. Only one jar is open at a time and class files are read one by one
+ * while iterating. The returned candidates create the {@link SourceType} (resolving super types) when called, so this can happen concurrently to
+ * the scan. The repository keeps the class files and declared methods of the super types, but not those of the candidates, so its memory grows
+ * with the class hierarchy, not with the number of scanned classes. Close the scan if it is not iterated to the end.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class ClassFileScan extends AbstractIterator<ClassFileScan.Candidate> implements Closeable {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    /**
+     * A bean candidate found by the scan. Its name is known without creating the source type.
+     */
+    public static final class Candidate implements Supplier<SourceType> {
+
+        private final ClassFileRepository repository;
+        private final ClassFile classFile;
+
+        Candidate(final ClassFileRepository repository, final ClassFile classFile) {
+            this.repository = repository;
+            this.classFile = classFile;
+        }
+
+        /**
+         * @return binary class name
+         */
+        public String getName() {
+            return classFile.name;
+        }
+
+        @Override
+        public SourceType get() {
+            return repository.scannedSourceType(classFile);
+        }
+    }
+
+    /**
+     * A directory or jar file, restricted to a package.
+     */
+    static final class Location {
+
+        private final File file;
+        private final String packagePath;
+        private final boolean recursive;
+
+        /**
+         * @param file directory or jar file
+         * @param packagePath "com/vaadin/ui/", empty for all packages
+         * @param recursive <code>true</code> to include sub packages
+         */
+        Location(final File file, final String packagePath, final boolean recursive) {
+            this.file = file;
+            this.packagePath = packagePath;
+            this.recursive = recursive;
+        }
+
+        boolean includes(final String path) {
+            return path.endsWith(CLASS_SUFFIX) && path.startsWith(packagePath) && (recursive || path.indexOf('/', packagePath.length()) < 0);
+        }
+    }
+
+    private final ClassFileRepository repository;
+    private final Iterator<Location> locations;
+
+    /**
+     * Names of the candidates found so far, a class contained in several locations is only returned once.
+     */
+    private final Set<String> found = Sets.newHashSet();
+
+    private Location location;
+    private JarFile jar;
+    private Enumeration<JarEntry> jarEntries;
+    private final Deque<File> files = new ArrayDeque<File>();
+
+    ClassFileScan(final ClassFileRepository repository, final Iterable<Location> locations) {
+        this.repository = repository;
+        this.locations = locations.iterator();
+    }
+
+    @Override
+    protected Candidate computeNext() {
+        try {
+            while (true) {
+                final byte[] bytes = nextClassFile();
+                if (bytes == null) {
+                    close();
+                    return endOfData();
+                }
+                final ClassFile classFile = ClassFileReader.read(bytes);
+                if (repository.isCandidate(classFile) && found.add(classFile.name)) {
+                    return new Candidate(repository, classFile);
+                }
+            }
+        } catch (final IOException e) {
+            close();
+            throw propagate(e);
+        }
+    }
+
+    /**
+     * @return content of the next class file or <code>null</code> if all locations are scanned
+     */
+    private byte[] nextClassFile() throws IOException {
+        while (true) {
+            if (jarEntries != null) {
+                while (jarEntries.hasMoreElements()) {
+                    final JarEntry entry = jarEntries.nextElement();
+                    if (!entry.isDirectory() && location.includes(entry.getName())) {
+                        return read(entry);
+                    }
+                }
+                closeJar();
+            }
+            while (!files.isEmpty()) {
+                final File file = files.pop();
+                if (file.isDirectory()) {
+                    push(file);
+                } else if (location.includes(relativePath(file))) {
+                    return Files.toByteArray(file);
+                }
+            }
+            if (!locations.hasNext()) {
+                return null;
+            }
+            open(locations.next());
+        }
+    }
+
+    private void open(final Location next) throws IOException {
+        location = next;
+        if (next.file.isDirectory()) {
+            final File start = new File(next.file, next.packagePath);
+            if (start.isDirectory()) {
+                push(start);
+            }
+        } else if (next.file.isFile()) {
+            jar = new JarFile(next.file);
+            jarEntries = jar.entries();
+        }
+    }
+
+    /**
+     * Pushes the children in reverse order, so they are scanned in name order.
+     */
+    private void push(final File directory) {
+        final File[] children = directory.listFiles();
+        if (children != null) {
+            Arrays.sort(children);
+            for (int i = children.length - 1; i >= 0; i--) {
+                if (location.recursive || !children[i].isDirectory()) {
+                    files.push(children[i]);
+                }
+            }
+        }
+    }
+
+    private String relativePath(final File file) {
+        return file.getPath().substring(location.file.getPath().length() + 1).replace(File.separatorChar, '/');
+    }
+
+    private byte[] read(final JarEntry entry) throws IOException {
+        final InputStream in = jar.getInputStream(entry);
+        try {
+            return ByteStreams.toByteArray(in);
+        } finally {
+            Closeables.close(in, true);
+        }
+    }
+
+    private void closeJar() {
+        if (jar != null) {
+            try {
+                jar.close();
+            } catch (final IOException e) {
+                // ignore, read only
+            }
+        }
+        jar = null;
+        jarEntries = null;
+    }
+
+    @Override
+    public void close() {
+        closeJar();
+        files.clear();
+    }
+}
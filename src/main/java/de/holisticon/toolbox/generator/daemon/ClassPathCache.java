@@ -0,0 +1,123 @@
+package de.holisticon.toolbox.generator.daemon;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import de.holisticon.toolbox.generator.classfile.ClassFileRepository;
+
+/**
+ * The {@link ClassFileRepository} of the most recently used class paths, so the class files and declared methods read for one request are reused
+ * by the following requests with the same class path. A repository is replaced when a jar or class file of its class path was added, removed or
+ * modified (length or modification time). Dropped and replaced repositories are closed. Thread safe.
+ * @author Jan Galinski, Holisticon AG
+ */
+final class ClassPathCache implements Closeable {
+
+    private static final class Entry {
+
+        private final long stamp;
+        private final ClassFileRepository repository;
+
+        Entry(final long stamp, final ClassFileRepository repository) {
+            this.stamp = stamp;
+            this.repository = repository;
+        }
+    }
+
+    private final Map<List<File>, Entry> entries;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxSize number of class paths to keep, the least recently used is dropped first
+     */
+    ClassPathCache(final int maxSize) {
+        entries = new LinkedHashMap<List<File>, Entry>(maxSize, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<List<File>, Entry> eldest) {
+                if (size() > maxSize) {
+                    eldest.getValue().repository.close();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param classPath directories and jar files
+     * @return the cached repository, or a new one if the class path is not cached or changed
+     */
+    synchronized ClassFileRepository repository(final List<File> classPath) {
+        final List<File> key = ImmutableList.copyOf(classPath);
+        final long stamp = stamp(key);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.stamp == stamp) {
+            hits++;
+            return entry.repository;
+        }
+        misses++;
+        if (entry != null) {
+            entry.repository.close();
+        }
+        entry = new Entry(stamp, new ClassFileRepository(key, ClassFileRepository.JDK_CLASSES));
+        entries.put(key, entry);
+        return entry.repository;
+    }
+
+    /**
+     * Closes the jar files of all cached repositories.
+     */
+    @Override
+    public synchronized void close() {
+        for (final Entry entry : entries.values()) {
+            entry.repository.close();
+        }
+    }
+
+    synchronized long getHitCount() {
+        return hits;
+    }
+
+    synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return hash of the paths, lengths and modification times of all files of the class path
+     */
+    static long stamp(final List<File> classPath) {
+        final Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (final File entry : classPath) {
+            stamp(hasher, entry);
+        }
+        return hasher.hash().asLong();
+    }
+
+    private static void stamp(final Hasher hasher, final File file) {
+        hasher.putString(file.getPath(), Charsets.UTF_8);
+        if (file.isDirectory()) {
+            final File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (final File child : children) {
+                    stamp(hasher, child);
+                }
+            }
+        } else {
+            hasher.putLong(file.length()).putLong(file.lastModified());
+        }
+    }
+}
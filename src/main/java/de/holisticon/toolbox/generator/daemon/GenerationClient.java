@@ -0,0 +1,150 @@
+package de.holisticon.toolbox.generator.daemon;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+/**
+ * Sends requests to the {@link GenerationDaemon} of a state file and starts the daemon in a background process (with the class path of the
+ * client) if it does not run yet. From the command line:
+ *
+ * <pre>
+ * java -cp ... de.holisticon.toolbox.generator.daemon.GenerationClient ~/.fluent-api-generator/daemon \
+ *     targetDirectory=target/generated-sources/fluent-api classPath=target/classes packages=com.example.beans
+ * </pre>
+ *
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class GenerationClient {
+
+    private static final long START_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(20);
+    private static final long POLL_MILLIS = 50;
+
+    private GenerationClient() {
+        // static only
+    }
+
+    /**
+     * @param stateFile state file of the daemon
+     * @param request request properties, see {@link GenerationDaemon}, the token is added
+     * @return response properties, {@link GenerationDaemon#STATUS} is {@link GenerationDaemon#OK} or {@link GenerationDaemon#ERROR}
+     * @throws IOException if the daemon can not be started or the connection fails
+     */
+    public static Properties send(final File stateFile, final Properties request) throws IOException {
+        checkArgument(stateFile != null);
+        checkArgument(request != null);
+        Properties state = state(stateFile);
+        Socket socket = state != null ? connect(state) : null;
+        if (socket == null) {
+            if (GenerationDaemon.STOP.equals(request.getProperty(GenerationDaemon.COMMAND))) {
+                final Properties response = new Properties();
+                response.setProperty(GenerationDaemon.STATUS, GenerationDaemon.OK);
+                return response;
+            }
+            startDaemon(stateFile);
+            final long deadline = System.currentTimeMillis() + START_TIMEOUT_MILLIS;
+            while (socket == null) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IOException(format("daemon did not start, see %s.log", stateFile.getPath()));
+                }
+                sleep();
+                state = state(stateFile);
+                socket = state != null ? connect(state) : null;
+            }
+        }
+
+        try {
+            final Properties withToken = new Properties();
+            withToken.putAll(request);
+            withToken.setProperty(GenerationDaemon.TOKEN, state.getProperty(GenerationDaemon.TOKEN));
+            withToken.store(socket.getOutputStream(), null);
+            socket.shutdownOutput();
+
+            final Properties response = new Properties();
+            response.load(socket.getInputStream());
+            return response;
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * @return the state, <code>null</code> if the daemon does not run
+     */
+    static Properties state(final File stateFile) throws IOException {
+        if (!stateFile.isFile()) {
+            return null;
+        }
+        final Properties state = new Properties();
+        final InputStream in = Files.newInputStreamSupplier(stateFile).getInput();
+        try {
+            state.load(in);
+        } finally {
+            Closeables.close(in, true);
+        }
+        return state;
+    }
+
+    /**
+     * @return connected socket, <code>null</code> if the daemon is gone (killed without removing its state file)
+     */
+    private static Socket connect(final Properties state) throws IOException {
+        try {
+            return new Socket(InetAddress.getByName(null), Integer.parseInt(state.getProperty(GenerationDaemon.PORT)));
+        } catch (final ConnectException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Starts a daemon process. The state file is kept: if another client started a daemon meanwhile, it holds the lock and the new process
+     * exits, otherwise the new daemon replaces the stale state.
+     */
+    private static void startDaemon(final File stateFile) throws IOException {
+        final String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        final Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), GenerationDaemon.class.getName(),
+                stateFile.getPath()).start();
+        // the daemon writes to its log file, nothing is read or written via the process streams
+        Closeables.close(process.getOutputStream(), true);
+        Closeables.close(process.getInputStream(), true);
+        Closeables.close(process.getErrorStream(), true);
+    }
+
+    private static void sleep() throws IOException {
+        try {
+            Thread.sleep(POLL_MILLIS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the daemon");
+        }
+    }
+
+    /**
+     * Sends one request and prints the response. Exits with 1 if the request failed.
+     * @param args state file, request properties as key=value
+     * @throws IOException if the connection fails
+     */
+    public static void main(final String[] args) throws IOException {
+        checkArgument(args.length > 0, "usage: GenerationClient <state file> [key=value ...]");
+        final Properties request = new Properties();
+        for (int i = 1; i < args.length; i++) {
+            final int separator = args[i].indexOf('=');
+            checkArgument(separator > 0, format("'%s' is no key=value pair", args[i]));
+            request.setProperty(args[i].substring(0, separator), args[i].substring(separator + 1));
+        }
+        final Properties response = send(new File(args[0]), request);
+        response.list(System.out);
+        System.exit(GenerationDaemon.OK.equals(response.getProperty(GenerationDaemon.STATUS)) ? 0 : 1);
+    }
+}
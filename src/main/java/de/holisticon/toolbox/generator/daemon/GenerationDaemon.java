@@ -0,0 +1,323 @@
+package de.holisticon.toolbox.generator.daemon;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Throwables.propagate;
+import static java.lang.String.format;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Closeables;
+
+import de.holisticon.toolbox.generator.FluentApiGenerator;
+import de.holisticon.toolbox.generator.FluentApiGeneratorBuilder;
+import de.holisticon.toolbox.generator.metrics.GenerationReport;
+
+/**
+ * Keeps a warm generator resident, so repeated builds do not pay JVM startup, class loading and JIT warm-up. Listens on a loopback port and
+ * handles one request per connection, one at a time: the client writes the request as properties and shuts down its output, the daemon answers
+ * with properties, see {@link GenerationClient}. Port and a random token are written to a state file only the owner can read, requests without
+ * the token are rejected. One daemon per state file: a daemon holds a lock on "&lt;state file&gt;.lock" while it runs, a second one started
+ * concurrently fails before writing any state.
+ * <p>
+ * Source classes are read from the class files of the request class path, nothing of the build is loaded into the daemon, so requests are isolated
+ * from each other and from the daemon's own libraries without class loaders. The class files and declared methods are cached per class path until
+ * one of its files changes. Use incremental requests (the default) to skip unchanged classes as well. The daemon stops on a
+ * {@value #STOP} command or when it was idle for a while.
+ * </p>
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class GenerationDaemon implements Closeable {
+
+    public static final String PORT = "port";
+    public static final String TOKEN = "token";
+
+    /**
+     * Request key of the command, the generator settings are requested with the keys of {@link GenerationSettings}.
+     */
+    public static final String COMMAND = "command";
+
+    /**
+     * Commands, generation is the default.
+     */
+    public static final String GENERATE = "generate";
+    public static final String STOP = "stop";
+
+    /**
+     * Response keys.
+     */
+    public static final String STATUS = "status";
+    public static final String MESSAGE = "message";
+    public static final String GENERATED = "generated";
+    public static final String UP_TO_DATE = "upToDate";
+    public static final String CACHED = "cached";
+    public static final String MILLIS = "millis";
+
+    public static final String OK = "ok";
+    public static final String ERROR = "error";
+
+    public static final long DEFAULT_IDLE_MILLIS = TimeUnit.HOURS.toMillis(3);
+    private static final int READ_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(30);
+    private static final int MAX_CLASS_PATHS = 8;
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final File stateFile;
+    /**
+     * Must stay reachable while the daemon runs: the JVM only remembers locks held by this process as long as their lock objects live, a
+     * collected lock would let a second daemon of this process lock the state file.
+     */
+    private final FileLock lock;
+    private final ServerSocket serverSocket;
+    private final String token;
+    private final ClassPathCache classPathCache = new ClassPathCache(MAX_CLASS_PATHS);
+    private volatile boolean stopped;
+
+    private GenerationDaemon(final File stateFile, final FileLock lock, final ServerSocket serverSocket, final String token) {
+        this.stateFile = stateFile;
+        this.lock = lock;
+        this.serverSocket = serverSocket;
+        this.token = token;
+    }
+
+    /**
+     * Locks the state file, binds a free loopback port and writes the state file. Call {@link #serve()} to handle requests.
+     * @param stateFile receives port and token, deleted when the daemon stops
+     * @param idleMillis the daemon stops if there was no request for this time
+     * @return the started daemon
+     * @throws IOException if another daemon runs for the state file, the port can not be bound or the state file not written
+     */
+    public static GenerationDaemon start(final File stateFile, final long idleMillis) throws IOException {
+        checkArgument(stateFile != null);
+        checkArgument(idleMillis > 0 && idleMillis <= Integer.MAX_VALUE, "idle time must be positive");
+        final File directory = stateFile.getAbsoluteFile().getParentFile();
+        checkState(directory.isDirectory() || directory.mkdirs(), format("directory '%s' could not be created", directory));
+        final FileLock lock = lock(stateFile);
+        boolean started = false;
+        try {
+            final ServerSocket serverSocket = new ServerSocket(0, 0, InetAddress.getByName(null));
+            serverSocket.setSoTimeout((int) idleMillis);
+            final GenerationDaemon daemon = new GenerationDaemon(stateFile, lock, serverSocket,
+                    new BigInteger(130, new SecureRandom()).toString(32));
+            daemon.writeState();
+            started = true;
+            return daemon;
+        } finally {
+            if (!started) {
+                release(lock);
+            }
+        }
+    }
+
+    /**
+     * @return lock of the lock file, held until it is released. The lock is released by the operating system if the process dies.
+     * @throws IOException if the lock is held by another daemon
+     */
+    private static FileLock lock(final File stateFile) throws IOException {
+        final FileChannel channel = new RandomAccessFile(stateFile.getPath() + LOCK_SUFFIX, "rw").getChannel();
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (final OverlappingFileLockException e) {
+            // held by a daemon of this process
+            lock = null;
+        }
+        if (lock == null) {
+            Closeables.close(channel, true);
+            throw new IOException(format("another daemon runs for '%s'", stateFile.getPath()));
+        }
+        return lock;
+    }
+
+    /**
+     * Releases the lock and closes its channel.
+     */
+    private static void release(final FileLock lock) throws IOException {
+        try {
+            lock.release();
+        } finally {
+            lock.channel().close();
+        }
+    }
+
+    /**
+     * Written to a temporary file first, so clients never read a partial state.
+     */
+    private void writeState() throws IOException {
+        final Properties state = new Properties();
+        state.setProperty(PORT, String.valueOf(serverSocket.getLocalPort()));
+        state.setProperty(TOKEN, token);
+
+        final File directory = stateFile.getAbsoluteFile().getParentFile();
+        final File temporary = new File(directory, stateFile.getName() + ".tmp");
+        checkState(temporary.createNewFile() || temporary.isFile(), format("'%s' could not be created", temporary));
+        // owner only, before the token is written
+        temporary.setReadable(false, false);
+        temporary.setReadable(true, true);
+        final OutputStream out = new FileOutputStream(temporary);
+        try {
+            state.store(out, "fluent api generator daemon");
+        } finally {
+            Closeables.close(out, false);
+        }
+        stateFile.delete();
+        checkState(temporary.renameTo(stateFile), format("'%s' could not be renamed", temporary));
+    }
+
+    /**
+     * Handles requests until a {@value #STOP} command is received, the daemon was idle for too long or it is closed.
+     */
+    public void serve() {
+        logger.info("listening on port {}", serverSocket.getLocalPort());
+        try {
+            while (!stopped) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (final SocketTimeoutException e) {
+                    logger.info("idle, stopping");
+                    break;
+                }
+                handle(socket);
+            }
+        } catch (final IOException e) {
+            if (!stopped) {
+                throw propagate(e);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void handle(final Socket socket) {
+        try {
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            final Properties request = new Properties();
+            request.load(socket.getInputStream());
+            respond(request).store(socket.getOutputStream(), null);
+        } catch (final IOException e) {
+            logger.warn("request failed", e);
+        } finally {
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                // ignore, the response was written or can not be written
+            }
+        }
+    }
+
+    Properties respond(final Properties request) {
+        final Properties response = new Properties();
+        try {
+            checkArgument(isValidToken(request.getProperty(TOKEN)), "invalid token");
+            final String command = request.getProperty(COMMAND, GENERATE);
+            if (STOP.equals(command)) {
+                stopped = true;
+            } else {
+                checkArgument(GENERATE.equals(command), format("unknown command '%s'", command));
+                generate(request, response);
+            }
+            response.setProperty(STATUS, OK);
+        } catch (final RuntimeException e) {
+            logger.warn("generation failed", e);
+            response.setProperty(STATUS, ERROR);
+            response.setProperty(MESSAGE, String.valueOf(e.getMessage()));
+        }
+        return response;
+    }
+
+    /**
+     * Compares in constant time, the time of a rejected request does not tell how much of the token was right.
+     */
+    private boolean isValidToken(final String requestToken) {
+        return requestToken != null && MessageDigest.isEqual(token.getBytes(Charsets.UTF_8), requestToken.getBytes(Charsets.UTF_8));
+    }
+
+    private void generate(final Properties request, final Properties response) {
+        final long start = System.nanoTime();
+        final GenerationSettings settings = new GenerationSettings(request);
+        final FluentApiGeneratorBuilder builder = settings.builder();
+        final long hits = classPathCache.getHitCount();
+        builder.classFileRepository(classPathCache.repository(settings.classPath()))
+                .incremental(settings.flag(GenerationSettings.INCREMENTAL, true))
+                .reproducible(settings.flag(GenerationSettings.REPRODUCIBLE, false));
+
+        final FluentApiGenerator generator = builder.build().addClassFiles(settings.list(GenerationSettings.CLASSES));
+        for (final String packageName : settings.list(GenerationSettings.PACKAGES)) {
+            generator.addPackage(packageName, settings.flag(GenerationSettings.RECURSIVE, false));
+        }
+        generator.generateCode();
+
+        final GenerationReport report = generator.getReport();
+        response.setProperty(GENERATED, String.valueOf(report.getClassCount()));
+        response.setProperty(UP_TO_DATE, String.valueOf(report.getUpToDateCount()));
+        response.setProperty(CACHED, String.valueOf(classPathCache.getHitCount() > hits));
+        response.setProperty(MILLIS, String.valueOf(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    /**
+     * Stops serving, closes the cached class paths, deletes the state file if it is still the one written by this daemon and releases the lock.
+     */
+    @Override
+    public void close() {
+        stopped = true;
+        try {
+            serverSocket.close();
+        } catch (final IOException e) {
+            // ignore, stopping anyway
+        }
+        try {
+            // a daemon started after this one was considered gone must keep its state
+            final Properties state = GenerationClient.state(stateFile);
+            if (state != null && token.equals(state.getProperty(TOKEN))) {
+                stateFile.delete();
+            }
+        } catch (final IOException e) {
+            logger.warn("state file could not be read", e);
+        }
+        classPathCache.close();
+        try {
+            release(lock);
+        } catch (final IOException e) {
+            // ignore, released when the process ends
+        }
+    }
+
+    /**
+     * Runs the daemon until it is stopped. Output is appended to "&lt;state file&gt;.log".
+     * @param args state file, optional idle time in minutes
+     * @throws IOException if the daemon can not be started
+     */
+    public static void main(final String[] args) throws IOException {
+        checkArgument(args.length == 1 || args.length == 2, "usage: GenerationDaemon <state file> [idle minutes]");
+        final File stateFile = new File(args[0]);
+        final PrintStream log = new PrintStream(new FileOutputStream(new File(stateFile.getPath() + ".log"), true), true);
+        System.setOut(log);
+        System.setErr(log);
+        final long idleMillis = args.length == 2 ? TimeUnit.MINUTES.toMillis(Long.parseLong(args[1])) : DEFAULT_IDLE_MILLIS;
+        start(stateFile, idleMillis).serve();
+    }
+}
@@ -0,0 +1,115 @@
+package de.holisticon.toolbox.generator.daemon;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static de.holisticon.toolbox.generator.FluentApiGenerator.fluentApiGenerator;
+import static java.lang.String.format;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+import java.io.File;
+import java.util.List;
+import java.util.Properties;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+import de.holisticon.toolbox.generator.FluentApiGenerator;
+import de.holisticon.toolbox.generator.FluentApiGeneratorBuilder;
+import de.holisticon.toolbox.generator.GenerationMode;
+
+/**
+ * Generator settings as key value pairs, the request of a {@link GenerationDaemon} and the arguments of the
+ * {@link de.holisticon.toolbox.generator.watch.GenerationWatcher}. Only {@link #TARGET_DIRECTORY} is required. Lists are separated by ',', the
+ * class path by {@link File#pathSeparator}.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class GenerationSettings {
+
+    public static final String TARGET_DIRECTORY = "targetDirectory";
+    public static final String ROOT_PACKAGE = "rootPackage";
+    public static final String IGNORED_METHOD_NAMES = "ignoredMethodNames";
+    public static final String MODE = "mode";
+    public static final String TARGET = "target";
+    public static final String REPRODUCIBLE = "reproducible";
+    public static final String INCREMENTAL = "incremental";
+    public static final String CLASS_PATH = "classPath";
+    public static final String CLASSES = "classes";
+    public static final String PACKAGES = "packages";
+    public static final String RECURSIVE = "recursive";
+
+    private static final Splitter LIST = Splitter.on(',').trimResults().omitEmptyStrings();
+    private static final Splitter PATH = Splitter.on(File.pathSeparator).omitEmptyStrings();
+
+    private final Properties properties;
+
+    /**
+     * @param properties the settings by key
+     */
+    public GenerationSettings(final Properties properties) {
+        checkArgument(properties != null);
+        this.properties = properties;
+    }
+
+    /**
+     * @param args key=value pairs
+     * @param usage message if an argument is no key=value pair
+     * @return the settings
+     */
+    public static GenerationSettings parse(final String[] args, final String usage) {
+        final Properties properties = new Properties();
+        for (final String arg : args) {
+            final int separator = arg.indexOf('=');
+            checkArgument(separator > 0, usage);
+            properties.setProperty(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return new GenerationSettings(properties);
+    }
+
+    /**
+     * @return builder with target directory, root package, ignored method names, mode and target version, the other settings are up to the
+     *         caller
+     */
+    public FluentApiGeneratorBuilder builder() {
+        final String targetDirectory = properties.getProperty(TARGET_DIRECTORY);
+        checkArgument(isNotBlank(targetDirectory), format("%s is required", TARGET_DIRECTORY));
+        final FluentApiGeneratorBuilder builder = fluentApiGenerator().targetDirectory(targetDirectory)
+                .mode(GenerationMode.valueOf(properties.getProperty(MODE, GenerationMode.WRAPPER.name())))
+                .target(properties.getProperty(TARGET, FluentApiGenerator.DEFAULT_TARGET));
+        if (isNotBlank(properties.getProperty(ROOT_PACKAGE))) {
+            builder.rootPackage(properties.getProperty(ROOT_PACKAGE));
+        }
+        final List<String> ignoredMethodNames = list(IGNORED_METHOD_NAMES);
+        if (!ignoredMethodNames.isEmpty()) {
+            builder.addIgnoredMethodNames(Iterables.toArray(ignoredMethodNames, String.class));
+        }
+        return builder;
+    }
+
+    /**
+     * @return entries of {@link #CLASS_PATH}
+     */
+    public List<File> classPath() {
+        final List<File> classPath = Lists.newArrayList();
+        for (final String entry : PATH.split(properties.getProperty(CLASS_PATH, ""))) {
+            classPath.add(new File(entry));
+        }
+        return classPath;
+    }
+
+    /**
+     * @param key key of a list
+     * @return the elements, empty if not set
+     */
+    public List<String> list(final String key) {
+        return Lists.newArrayList(LIST.split(properties.getProperty(key, "")));
+    }
+
+    /**
+     * @param key key of a flag
+     * @param defaultValue if not set
+     * @return the flag
+     */
+    public boolean flag(final String key, final boolean defaultValue) {
+        return Boolean.parseBoolean(properties.getProperty(key, String.valueOf(defaultValue)));
+    }
+}
@@ -0,0 +1,117 @@
+package de.holisticon.toolbox.generator.incremental;
+
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import de.holisticon.toolbox.generator.model.SourceConstructor;
+import de.holisticon.toolbox.generator.model.SourceMethod;
+import de.holisticon.toolbox.generator.model.SourceType;
+
+/**
+ * Calculates the fingerprints stored in the {@link GenerationManifest}.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class Fingerprints {
+
+    /**
+     * Increase whenever the generated output changes for identical input, so existing manifests are invalidated.
+     */
+    static final int FORMAT_VERSION = 5;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.md5();
+
+    private static final char SEPARATOR = '\n';
+
+    private Fingerprints() {
+        // utility class
+    }
+
+    /**
+     * Fingerprint of the public api shape of the given class: its name, modifiers and all public methods and constructors (including inherited
+     * ones). Two classes with equal fingerprints lead to identical generated code.
+     * @param sourceClass class to fingerprint
+     * @return hex encoded hash
+     */
+    public static String ofClass(final Class<?> sourceClass) {
+        return ofType(SourceType.of(sourceClass));
+    }
+
+    /**
+     * Fingerprint of the public api shape of the given type, see {@link #ofClass(Class)}. Types read from an index carry the fingerprint of the
+     * complete type they were reduced from, it is returned as is.
+     * @param sourceType type to fingerprint
+     * @return hex encoded hash
+     */
+    public static String ofType(final SourceType sourceType) {
+        if (sourceType.getFingerprint() != null) {
+            return sourceType.getFingerprint();
+        }
+        final Set<String> signatures = Sets.newTreeSet();
+        for (final SourceMethod method : sourceType.getMethods()) {
+            signatures.add(Modifier.toString(method.getModifiers()) + " " + method + (method.isDeprecated() ? " @Deprecated" : "")
+                    + (method.isSynthetic() ? " synthetic" : ""));
+        }
+        for (final SourceConstructor constructor : sourceType.getConstructors()) {
+            signatures.add(Modifier.toString(constructor.getModifiers()) + " " + constructor + (constructor.isSynthetic() ? " synthetic" : ""));
+        }
+
+        final Hasher hasher = HASH_FUNCTION.newHasher();
+        put(hasher, Modifier.toString(sourceType.getModifiers()));
+        put(hasher, sourceType.getName());
+        for (final String signature : signatures) {
+            put(hasher, signature);
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Fingerprint of a type together with its super classes, for {@link de.holisticon.toolbox.generator.GenerationMode#HIERARCHY}: the
+     * generated class and its base classes depend on the class declaring each method, which {@link #ofType(SourceType)} does not cover. Moving a
+     * method to a super class or inserting a super class changes this fingerprint.
+     * @param sourceType type to fingerprint
+     * @param superclasses super classes of the type, nearest first, without {@link Object}
+     * @return hex encoded hash
+     */
+    public static String ofHierarchy(final SourceType sourceType, final List<SourceType> superclasses) {
+        final Hasher hasher = HASH_FUNCTION.newHasher();
+        put(hasher, ofType(sourceType));
+        for (final SourceType superclass : superclasses) {
+            put(hasher, ofType(superclass));
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Fingerprint of the generator settings. If any of these changes, all classes have to be generated again.
+     * @param rootPackage root package of generated classes
+     * @param filenamePattern pattern for generated class names
+     * @param ignoredMethodNames names of ignored methods
+     * @param options further settings changing the generated code, like the generation mode
+     * @return hex encoded hash
+     */
+    public static String ofSettings(final String rootPackage, final String filenamePattern, final Set<String> ignoredMethodNames,
+            final String... options) {
+        final Hasher hasher = HASH_FUNCTION.newHasher();
+        put(hasher, String.valueOf(FORMAT_VERSION));
+        put(hasher, rootPackage);
+        put(hasher, filenamePattern);
+        for (final String ignored : Sets.newTreeSet(ignoredMethodNames)) {
+            put(hasher, ignored);
+        }
+        for (final String option : options) {
+            put(hasher, option);
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void put(final Hasher hasher, final String value) {
+        hasher.putString(value, Charsets.UTF_8).putChar(SEPARATOR);
+    }
+}
@@ -0,0 +1,312 @@
+package de.holisticon.toolbox.generator.incremental;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.propagate;
+import static java.lang.String.format;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+import de.holisticon.toolbox.generator.classfile.ClassFileRepository;
+
+/**
+ * Remembers which source class lead to which generated file and the fingerprints of the source class api and of the generator settings at that
+ * time. Stored as properties file in the target directory, so following runs can skip classes that did not change and remove files of source
+ * classes that are gone. Entries also list the base classes a generated class extends
+ * ({@link de.holisticon.toolbox.generator.GenerationMode#HIERARCHY}), they are kept as long as a generated class needs them. A run does not need
+ * to add all classes of the last run: the entries of classes it did not add are kept as long as their
+ * source classes exist, so several runs (or plugin executions) with their own classes and settings can share a target directory. Entries record
+ * the directory or jar file their source class was read from, so classes added from another class loader are found again. Thread safe.
+ * @author Jan Galinski, Holisticon AG
+ */
+public class GenerationManifest {
+
+    public static final String FILENAME = ".fluent-api-generator.manifest";
+
+    /**
+     * Key of the settings fingerprint of the last run. Contains a '-', so it can never clash with a class name.
+     */
+    private static final String SETTINGS_KEY = "fluent-api-generator.settings";
+    private static final String VALUE_SEPARATOR = " ";
+    private static final String LIST_SEPARATOR = ",";
+    private static final String EMPTY_LIST = "-";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final File targetDirectory;
+    private final File file;
+    private final String settingsFingerprint;
+
+    /**
+     * Entries of the last run.
+     */
+    private final Map<String, Entry> previous = Maps.newHashMap();
+
+    /**
+     * Entries of the current run.
+     */
+    private final Map<String, Entry> current = Maps.newTreeMap();
+
+    /**
+     * A single manifest entry.
+     */
+    static final class Entry {
+
+        private final String fingerprint;
+        private final String generatedClassName;
+        private final String settingsFingerprint;
+
+        /**
+         * Generated base classes extended by the generated class, the nearest first.
+         */
+        private final List<String> baseClassNames;
+
+        /**
+         * Directory or jar file containing the source class, <code>null</code> if unknown.
+         */
+        private final File origin;
+
+        Entry(final String fingerprint, final String generatedClassName, final String settingsFingerprint, final List<String> baseClassNames,
+                final File origin) {
+            this.fingerprint = fingerprint;
+            this.generatedClassName = generatedClassName;
+            this.settingsFingerprint = settingsFingerprint;
+            this.baseClassNames = ImmutableList.copyOf(baseClassNames);
+            this.origin = origin;
+        }
+
+        /**
+         * @param value the entry
+         * @param settingsFingerprint settings of the last run, for entries written without settings
+         */
+        static Entry parse(final String value, final String settingsFingerprint) {
+            // the origin is last, its path may contain the separator
+            final String[] parts = value.split(VALUE_SEPARATOR, 5);
+            checkArgument(parts.length >= 2, format("illegal manifest entry '%s'", value));
+            return new Entry(parts[0], parts[1], parts.length >= 3 ? parts[2] : settingsFingerprint,
+                    parts.length >= 4 && !EMPTY_LIST.equals(parts[3]) ? Arrays.asList(parts[3].split(LIST_SEPARATOR)) : ImmutableList.<String> of(),
+                    parts.length == 5 ? new File(parts[4]) : null);
+        }
+
+        String asString() {
+            final String value = fingerprint + VALUE_SEPARATOR + generatedClassName + VALUE_SEPARATOR + settingsFingerprint + VALUE_SEPARATOR
+                    + (baseClassNames.isEmpty() ? EMPTY_LIST : Joiner.on(LIST_SEPARATOR).join(baseClassNames));
+            return origin != null ? value + VALUE_SEPARATOR + origin.getPath() : value;
+        }
+
+        /**
+         * @return the generated class and its base classes
+         */
+        List<String> generatedClassNames() {
+            return ImmutableList.<String> builder().add(generatedClassName).addAll(baseClassNames).build();
+        }
+    }
+
+    /**
+     * Reads the manifest of the last run from the target directory, if any.
+     * @param targetDirectory the directory containing generated sources and the manifest
+     * @param settingsFingerprint fingerprint of the current generator settings, see {@link Fingerprints#ofSettings(String, String, Set, String...)}
+     * @return manifest
+     */
+    public static GenerationManifest load(final File targetDirectory, final String settingsFingerprint) {
+        return new GenerationManifest(targetDirectory, settingsFingerprint);
+    }
+
+    /**
+     * Checks the outputs of the last run without knowing its settings, used by build tools to skip generation entirely.
+     * @param targetDirectory the directory containing generated sources and the manifest
+     * @return <code>true</code> if the manifest exists and all files recorded in it still exist
+     */
+    public static boolean isIntact(final File targetDirectory) {
+        final File file = new File(targetDirectory, FILENAME);
+        if (!file.isFile()) {
+            return false;
+        }
+        final Properties properties = read(file);
+        for (final String key : properties.stringPropertyNames()) {
+            if (SETTINGS_KEY.equals(key)) {
+                continue;
+            }
+            for (final String generatedClassName : Entry.parse(properties.getProperty(key), null).generatedClassNames()) {
+                if (!sourceFile(targetDirectory, generatedClassName).isFile()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private GenerationManifest(final File targetDirectory, final String settingsFingerprint) {
+        this.targetDirectory = targetDirectory;
+        this.file = new File(targetDirectory, FILENAME);
+        this.settingsFingerprint = settingsFingerprint;
+
+        final Properties properties = read(file);
+        final String previousSettings = properties.getProperty(SETTINGS_KEY);
+        for (final String key : properties.stringPropertyNames()) {
+            if (!SETTINGS_KEY.equals(key)) {
+                previous.put(key, Entry.parse(properties.getProperty(key), previousSettings));
+            }
+        }
+        if (!previous.isEmpty() && !settingsFingerprint.equals(previousSettings)) {
+            logger.info("generator settings differ from the last run, regenerating classes generated with other settings");
+        }
+    }
+
+    /**
+     * Checks if the files generated for the given source class in the last run, including its base classes, are still valid. If so, the class
+     * is kept in the manifest.
+     * @param sourceClassName fqn of source class
+     * @param fingerprint current fingerprint of source class
+     * @return <code>true</code> if generation can be skipped
+     */
+    public synchronized boolean isUpToDate(final String sourceClassName, final String fingerprint) {
+        final Entry entry = previous.get(sourceClassName);
+        if (entry == null || !entry.settingsFingerprint.equals(settingsFingerprint) || !entry.fingerprint.equals(fingerprint)) {
+            return false;
+        }
+        for (final String generatedClassName : entry.generatedClassNames()) {
+            if (!sourceFile(generatedClassName).isFile()) {
+                return false;
+            }
+        }
+        current.put(sourceClassName, entry);
+        return true;
+    }
+
+    /**
+     * Records a class generated in the current run.
+     * @param sourceClassName fqn of source class
+     * @param fingerprint current fingerprint of source class, including the inherited api
+     * @param generatedClassName fqn of generated class
+     * @param baseClassNames fqns of the generated base classes extended by the generated class, the nearest first
+     * @param origin directory or jar file containing the source class, <code>null</code> if unknown
+     */
+    public synchronized void put(final String sourceClassName, final String fingerprint, final String generatedClassName,
+            final List<String> baseClassNames, final File origin) {
+        current.put(sourceClassName, new Entry(fingerprint, generatedClassName, settingsFingerprint, baseClassNames, origin));
+    }
+
+    /**
+     * Stores the manifest of the current run. Entries of the last run whose source classes were not part of the current run are kept if their
+     * source classes still exist in the recorded origin or according to the given predicate, otherwise their generated files are deleted. Files
+     * generated for a source class under another name (like after a root package change) and base classes no generated class extends anymore
+     * are deleted too.
+     * @param sourceClassExists <code>true</code> for the binary names of existing source classes
+     */
+    public synchronized void write(final Predicate<String> sourceClassExists) {
+        checkArgument(sourceClassExists != null);
+        for (final Map.Entry<String, Entry> entry : previous.entrySet()) {
+            if (!current.containsKey(entry.getKey()) && exists(entry.getKey(), entry.getValue().origin, sourceClassExists)) {
+                current.put(entry.getKey(), entry.getValue());
+            }
+        }
+        final Set<String> generated = Sets.newHashSet();
+        for (final Entry entry : current.values()) {
+            generated.addAll(entry.generatedClassNames());
+        }
+        for (final Map.Entry<String, Entry> entry : previous.entrySet()) {
+            final String generatedClassName = entry.getValue().generatedClassName;
+            if (!generated.contains(generatedClassName)) {
+                final Entry renamed = current.get(entry.getKey());
+                delete(generatedClassName, renamed != null ? format("source class %s is generated as %s now", entry.getKey(),
+                        renamed.generatedClassName) : format("source class %s is gone", entry.getKey()));
+            }
+            for (final String baseClassName : entry.getValue().baseClassNames) {
+                if (!generated.contains(baseClassName)) {
+                    delete(baseClassName, "no generated class extends it anymore");
+                }
+            }
+        }
+
+        final Properties properties = new Properties();
+        properties.setProperty(SETTINGS_KEY, settingsFingerprint);
+        for (final Map.Entry<String, Entry> entry : current.entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().asString());
+        }
+        store(properties, file);
+
+        previous.clear();
+        previous.putAll(current);
+    }
+
+    private static boolean exists(final String sourceClassName, final File origin, final Predicate<String> sourceClassExists) {
+        return origin != null && ClassFileRepository.contains(origin, sourceClassName) || sourceClassExists.apply(sourceClassName);
+    }
+
+    private void delete(final String generatedClassName, final String reason) {
+        final File stale = sourceFile(generatedClassName);
+        if (stale.isFile()) {
+            logger.info("deleting {}, {}", stale, reason);
+            if (!stale.delete()) {
+                logger.warn("could not delete {}", stale);
+            }
+        }
+    }
+
+    private File sourceFile(final String generatedClassName) {
+        return sourceFile(targetDirectory, generatedClassName);
+    }
+
+    private static File sourceFile(final File targetDirectory, final String generatedClassName) {
+        return new File(targetDirectory, generatedClassName.replace('.', File.separatorChar) + ".java");
+    }
+
+    private static Properties read(final File file) {
+        final Properties properties = new Properties();
+        if (file.isFile()) {
+            InputStream in = null;
+            try {
+                in = Files.newInputStreamSupplier(file).getInput();
+                properties.load(in);
+            } catch (final IOException e) {
+                throw propagate(e);
+            } finally {
+                close(in, true);
+            }
+        }
+        return properties;
+    }
+
+    private static void store(final Properties properties, final File file) {
+        OutputStream out = null;
+        try {
+            out = Files.newOutputStreamSupplier(file).getOutput();
+            properties.store(out, "generated by fluent-api-generator, do not edit");
+        } catch (final IOException e) {
+            throw propagate(e);
+        } finally {
+            close(out, false);
+        }
+    }
+
+    /**
+     * @param swallowIOException <code>true</code> to log a failure, <code>false</code> to propagate it
+     */
+    private static void close(final Closeable closeable, final boolean swallowIOException) {
+        try {
+            Closeables.close(closeable, swallowIOException);
+        } catch (final IOException e) {
+            throw propagate(e);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package de.holisticon.toolbox.generator.index;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+import de.holisticon.toolbox.generator.model.SourceConstructor;
+import de.holisticon.toolbox.generator.model.SourceMethod;
+import de.holisticon.toolbox.generator.model.SourceType;
+import de.holisticon.toolbox.generator.model.TypeRef;
+
+/**
+ * The binary index file of a single jar, read via a read only memory mapping. Layout (big endian):
+ *
+ * <pre>
+ * header     magic, version, class count, string count (int each)
+ * directory  name string, record offset (int each) per class, sorted by name
+ * strings    offset (int) per string
+ * records    one per class, see {@link #write(File, Map)}
+ * pool       length (int) and UTF-8 bytes per string
+ * </pre>
+ *
+ * Names, signatures and fingerprints are stored once in the string pool and referenced by index. Lookups binary search the directory and decode
+ * the record of the requested class only. Immutable and thread safe.
+ * @author Jan Galinski, Holisticon AG
+ */
+final class IndexFile {
+
+    private static final int MAGIC = 0x46414958;
+
+    /**
+     * Increase whenever the layout or the rules selecting the stored constructors and methods change, so existing index files are ignored.
+     */
+    static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int NONE = -1;
+
+    private static final int DEPRECATED = 1;
+    private static final int SYNTHETIC = 2;
+    private static final int BRIDGE = 4;
+
+    /**
+     * A stored source type and the jars its super types were read from.
+     */
+    static final class Entry {
+
+        final SourceType sourceType;
+
+        /**
+         * Path and checksum of each jar containing a super type, except the indexed jar and the JDK.
+         */
+        final Map<String, String> dependencies;
+
+        Entry(final SourceType sourceType, final Map<String, String> dependencies) {
+            this.sourceType = sourceType;
+            this.dependencies = ImmutableMap.copyOf(dependencies);
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final int classCount;
+    private final int stringCount;
+    private final AtomicReferenceArray<String> strings;
+
+    private IndexFile(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.classCount = buffer.getInt(8);
+        this.stringCount = buffer.getInt(12);
+        this.strings = new AtomicReferenceArray<String>(stringCount);
+    }
+
+    /**
+     * @param file index file
+     * @return the mapped index, <code>null</code> if the file does not exist or was written by another version
+     * @throws IOException if the file can not be read
+     */
+    static IndexFile open(final File file) throws IOException {
+        if (!file.isFile() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+        final RandomAccessFile in = new RandomAccessFile(file, "r");
+        final ByteBuffer buffer;
+        try {
+            // the mapping stays valid after the channel is closed
+            buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+        } finally {
+            Closeables.close(in, false);
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            return null;
+        }
+        return new IndexFile(buffer);
+    }
+
+    int size() {
+        return classCount;
+    }
+
+    /**
+     * @param className binary class name
+     * @return the stored entry, <code>null</code> if the class is not contained
+     */
+    Entry get(final String className) {
+        int low = 0;
+        int high = classCount - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = string(buffer.getInt(HEADER_SIZE + middle * 8)).compareTo(className);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return entry(middle);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return all stored entries by class name
+     */
+    Map<String, Entry> entries() {
+        final Map<String, Entry> entries = Maps.newTreeMap();
+        for (int i = 0; i < classCount; i++) {
+            entries.put(string(buffer.getInt(HEADER_SIZE + i * 8)), entry(i));
+        }
+        return entries;
+    }
+
+    private Entry entry(final int index) {
+        // relative reads on a private view, the shared buffer is only read via absolute positions
+        final ByteBuffer record = buffer.duplicate();
+        record.position(buffer.getInt(HEADER_SIZE + index * 8 + 4));
+
+        final String fingerprint = string(record.getInt());
+        final Map<String, String> dependencies = Maps.newLinkedHashMap();
+        for (int i = record.getShort(); i > 0; i--) {
+            dependencies.put(string(record.getInt()), string(record.getInt()));
+        }
+        final TypeRef type = typeRef(record);
+        final int modifiers = record.getInt();
+        final TypeRef superclass = typeRef(record);
+
+        final ImmutableList.Builder<SourceConstructor> constructors = ImmutableList.builder();
+        for (int i = record.getShort(); i > 0; i--) {
+            final int constructorModifiers = record.getInt();
+            final boolean synthetic = record.get() != 0;
+            constructors.add(new SourceConstructor(constructorModifiers, typeRefs(record), synthetic));
+        }
+        final ImmutableList.Builder<SourceMethod> methods = ImmutableList.builder();
+        for (int i = record.getShort(); i > 0; i--) {
+            final String name = string(record.getInt());
+            final int methodModifiers = record.getInt();
+            final TypeRef returnType = typeRef(record);
+            final List<TypeRef> parameterTypes = typeRefs(record);
+            final byte flags = record.get();
+            methods.add(new SourceMethod(name, methodModifiers, returnType, parameterTypes, (flags & DEPRECATED) != 0, (flags & SYNTHETIC) != 0,
+                    (flags & BRIDGE) != 0));
+        }
+        return new Entry(new SourceType(type, modifiers, superclass, constructors.build(), methods.build(), fingerprint), dependencies);
+    }
+
+    private List<TypeRef> typeRefs(final ByteBuffer record) {
+        final ImmutableList.Builder<TypeRef> types = ImmutableList.builder();
+        for (int i = record.getShort(); i > 0; i--) {
+            types.add(typeRef(record));
+        }
+        return types.build();
+    }
+
+    private TypeRef typeRef(final ByteBuffer record) {
+        final int name = record.getInt();
+        if (name == NONE) {
+            return null;
+        }
+        final String simpleName = string(record.getInt());
+        final int dimensions = record.get() & 0xff;
+        return TypeRef.named(string(name), simpleName, typeRef(record), dimensions);
+    }
+
+    /**
+     * Decoded once, strings are shared by all records.
+     */
+    private String string(final int index) {
+        String string = strings.get(index);
+        if (string == null) {
+            final int offset = buffer.getInt(HEADER_SIZE + classCount * 8 + index * 4);
+            final byte[] bytes = new byte[buffer.getInt(offset)];
+            final ByteBuffer view = buffer.duplicate();
+            view.position(offset + 4);
+            view.get(bytes);
+            string = new String(bytes, Charsets.UTF_8);
+            strings.compareAndSet(index, null, string);
+        }
+        return string;
+    }
+
+    /**
+     * Writes the given entries. A record consists of the fingerprint, the dependencies (count, path and checksum each), the type, the modifiers,
+     * the super class, the constructors (count, modifiers, synthetic flag and parameter types each) and the methods (count, name, modifiers,
+     * return type, parameter types and flags each). A type is stored as name, simple name, dimensions and outer type, recursively.
+     * @param file written, replaced if it exists
+     * @param entries entries by class name
+     * @throws IOException if the file can not be written
+     */
+    static void write(final File file, final Map<String, Entry> entries) throws IOException {
+        final Map<String, Entry> sorted = Maps.newTreeMap();
+        sorted.putAll(entries);
+        final Pool pool = new Pool();
+        final int[] names = new int[sorted.size()];
+        int i = 0;
+        for (final String className : sorted.keySet()) {
+            names[i++] = pool.index(className);
+        }
+
+        final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        final DataOutputStream records = new DataOutputStream(recordBytes);
+        final int[] offsets = new int[sorted.size()];
+        i = 0;
+        for (final Entry entry : sorted.values()) {
+            offsets[i++] = records.size();
+            writeEntry(records, entry, pool);
+        }
+
+        final int recordsStart = HEADER_SIZE + sorted.size() * 8 + pool.strings.size() * 4;
+        final int poolStart = recordsStart + records.size();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(poolStart + pool.bytes.size());
+        final DataOutputStream index = new DataOutputStream(out);
+        index.writeInt(MAGIC);
+        index.writeInt(VERSION);
+        index.writeInt(sorted.size());
+        index.writeInt(pool.strings.size());
+        for (i = 0; i < names.length; i++) {
+            index.writeInt(names[i]);
+            index.writeInt(recordsStart + offsets[i]);
+        }
+        for (final int offset : pool.offsets) {
+            index.writeInt(poolStart + offset);
+        }
+        recordBytes.writeTo(index);
+        pool.bytes.writeTo(index);
+        index.flush();
+        Files.write(out.toByteArray(), file);
+    }
+
+    private static void writeEntry(final DataOutputStream out, final Entry entry, final Pool pool) throws IOException {
+        final SourceType sourceType = entry.sourceType;
+        checkArgument(sourceType.getFingerprint() != null, format("no fingerprint for '%s'", sourceType.getName()));
+        out.writeInt(pool.index(sourceType.getFingerprint()));
+        out.writeShort(entry.dependencies.size());
+        for (final Map.Entry<String, String> dependency : entry.dependencies.entrySet()) {
+            out.writeInt(pool.index(dependency.getKey()));
+            out.writeInt(pool.index(dependency.getValue()));
+        }
+        writeTypeRef(out, sourceType.getType(), pool);
+        out.writeInt(sourceType.getModifiers());
+        writeTypeRef(out, sourceType.getSuperclass(), pool);
+
+        out.writeShort(sourceType.getConstructors().size());
+        for (final SourceConstructor constructor : sourceType.getConstructors()) {
+            out.writeInt(constructor.getModifiers());
+            out.writeByte(constructor.isSynthetic() ? 1 : 0);
+            writeTypeRefs(out, constructor.getParameterTypes(), pool);
+        }
+        out.writeShort(sourceType.getMethods().size());
+        for (final SourceMethod method : sourceType.getMethods()) {
+            out.writeInt(pool.index(method.getName()));
+            out.writeInt(method.getModifiers());
+            writeTypeRef(out, method.getReturnType(), pool);
+            writeTypeRefs(out, method.getParameterTypes(), pool);
+            out.writeByte((method.isDeprecated() ? DEPRECATED : 0) | (method.isSynthetic() ? SYNTHETIC : 0) | (method.isBridge() ? BRIDGE : 0));
+        }
+    }
+
+    private static void writeTypeRefs(final DataOutputStream out, final List<TypeRef> types, final Pool pool) throws IOException {
+        out.writeShort(types.size());
+        for (final TypeRef type : types) {
+            writeTypeRef(out, type, pool);
+        }
+    }
+
+    private static void writeTypeRef(final DataOutputStream out, final TypeRef type, final Pool pool) throws IOException {
+        if (type == null) {
+            out.writeInt(NONE);
+            return;
+        }
+        out.writeInt(pool.index(type.getName()));
+        out.writeInt(pool.index(type.getSimpleName()));
+        out.writeByte(type.getDimensions());
+        writeTypeRef(out, type.getOuter(), pool);
+    }
+
+    /**
+     * Collects the distinct strings while the records are written.
+     */
+    private static final class Pool {
+
+        private final Map<String, Integer> strings = Maps.newHashMap();
+        private final List<Integer> offsets = Lists.newArrayList();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        int index(final String string) throws IOException {
+            Integer index = strings.get(string);
+            if (index == null) {
+                index = strings.size();
+                strings.put(string, index);
+                offsets.add(out.size());
+                final byte[] encoded = string.getBytes(Charsets.UTF_8);
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package de.holisticon.toolbox.generator.index;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.propagate;
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import de.holisticon.toolbox.generator.classfile.ClassFileRepository;
+import de.holisticon.toolbox.generator.incremental.Fingerprints;
+import de.holisticon.toolbox.generator.model.SourceMethod;
+import de.holisticon.toolbox.generator.model.SourceMethodCache;
+import de.holisticon.toolbox.generator.model.SourceType;
+import de.holisticon.toolbox.generator.predicate.ConstructorPredicates;
+import de.holisticon.toolbox.generator.predicate.MethodClassifier;
+
+/**
+ * Persists the analyzed source types of dependency jars, so later runs skip reflection and class file parsing for jars that did not change. There
+ * is one binary index file per jar, named by the checksum of the jar's content and a version and read via memory mapping, see {@link IndexFile}.
+ * A changed index is written as the next version instead of replacing the file, which may still be mapped by this or another process (and can not
+ * be replaced while mapped on Windows). Older versions are deleted once they are no longer mapped. A stored type
+ * is reduced to the constructor candidates and the fluent candidates of {@link MethodClassifier#DEFAULT} (ignored method names are applied when
+ * generating) and keeps the fingerprint of the complete type, so incremental manifests stay valid.
+ * <p>
+ * Only classes whose super types all come from jars (or the JDK) are indexed. The checksums of the jars containing super types are stored with
+ * each type, it is analyzed again if one of them changed. New types are written by {@link #write()}. Thread safe.
+ * </p>
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class SourceTypeIndex {
+
+    private static final String SUFFIX = ".idx";
+    private static final long NO_VERSION = -1;
+    private static final String JAR_SUFFIX = ".jar";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final File directory;
+    private final String javaHome;
+
+    /**
+     * Content checksums of the jars used in this run, calculated once.
+     */
+    private final ConcurrentMap<File, String> checksums = Maps.newConcurrentMap();
+    private final Map<File, Jar> jars = Maps.newHashMap();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Latest version of the index file by jar checksum, listed once.
+     */
+    private Map<String, Long> versions;
+
+    /**
+     * The index file of a single jar and the types added in this run.
+     */
+    private static final class Jar {
+
+        private final String checksum;
+
+        /**
+         * Version of the mapped index file, {@link #NO_VERSION} if there is none.
+         */
+        private long version;
+        private volatile IndexFile index;
+        private final ConcurrentMap<String, IndexFile.Entry> added = Maps.newConcurrentMap();
+
+        Jar(final String checksum, final long version, final IndexFile index) {
+            this.checksum = checksum;
+            this.version = version;
+            this.index = index;
+        }
+    }
+
+    /**
+     * @param directory contains the index files, created on first write
+     */
+    public SourceTypeIndex(final File directory) {
+        checkArgument(directory != null);
+        checkArgument(!directory.isFile(), format("index directory '%s' is a file", directory.getAbsolutePath()));
+        this.directory = directory;
+        this.javaHome = new File(System.getProperty("java.home")).getAbsolutePath() + File.separator;
+    }
+
+    /**
+     * Like {@link SourceMethodCache#sourceType(Class)}, taken from the index if the class is contained in an indexed, unchanged jar.
+     * @param sourceClass loaded class
+     * @param sourceMethodCache used to analyze classes not indexed yet
+     * @return the source type, reduced if the class is indexed
+     */
+    public SourceType sourceType(final Class<?> sourceClass, final SourceMethodCache sourceMethodCache) {
+        checkArgument(sourceClass != null);
+        final File jarFile = jarFile(sourceClass);
+        if (jarFile == null) {
+            return sourceMethodCache.sourceType(sourceClass);
+        }
+        final SourceType indexed = get(jarFile, sourceClass.getName());
+        if (indexed != null) {
+            return indexed;
+        }
+        final SourceType sourceType = sourceMethodCache.sourceType(sourceClass);
+        final Set<File> dependencies = Sets.newHashSet();
+        for (final Class<?> superType : superTypes(sourceClass, Sets.<Class<?>> newLinkedHashSet())) {
+            // the JDK classes have no code source
+            if (superType.getProtectionDomain().getCodeSource() != null) {
+                final File dependency = jarFile(superType);
+                if (dependency == null) {
+                    return sourceType;
+                }
+                dependencies.add(dependency);
+            }
+        }
+        return put(jarFile, sourceType, dependencies);
+    }
+
+    /**
+     * Like {@link ClassFileRepository#sourceType(String)}, taken from the index if the class file is contained in an indexed, unchanged jar.
+     * @param className binary class name
+     * @param classFileRepository used to analyze classes not indexed yet
+     * @return the source type, reduced if the class is indexed
+     */
+    public SourceType sourceType(final String className, final ClassFileRepository classFileRepository) {
+        checkArgument(className != null);
+        final File jarFile = jarFile(classFileRepository.location(className));
+        if (jarFile == null || isJdk(jarFile)) {
+            return classFileRepository.sourceType(className);
+        }
+        final SourceType indexed = get(jarFile, className);
+        if (indexed != null) {
+            return indexed;
+        }
+        final SourceType sourceType = classFileRepository.sourceType(className);
+        final Set<File> dependencies = Sets.newHashSet();
+        for (final String superTypeName : classFileRepository.superTypeNames(className)) {
+            final File location = classFileRepository.location(superTypeName);
+            // not found locally, like the JDK classes of a modular runtime
+            if (location != null && !isJdk(location)) {
+                final File dependency = jarFile(location);
+                if (dependency == null) {
+                    return sourceType;
+                }
+                dependencies.add(dependency);
+            }
+        }
+        return put(jarFile, sourceType, dependencies);
+    }
+
+    /**
+     * @param jarFile the jar containing the class
+     * @param className binary class name
+     * @return the indexed type, <code>null</code> if it is not indexed or one of the jars of its super types changed
+     */
+    public SourceType get(final File jarFile, final String className) {
+        final Jar jar = jar(jarFile);
+        IndexFile.Entry entry = jar.added.get(className);
+        if (entry == null && jar.index != null) {
+            entry = jar.index.get(className);
+        }
+        if (entry == null || !isCurrent(entry)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.sourceType;
+    }
+
+    /**
+     * Adds the reduced source type to the index of the given jar, written by {@link #write()}.
+     * @param jarFile the jar containing the class
+     * @param sourceType complete source type, as analyzed via reflection or from class files
+     * @param dependencies the jars containing super types of the class, without the jar itself and the JDK
+     * @return the reduced source type, leads to the same generated code and fingerprint as the given one
+     */
+    public SourceType put(final File jarFile, final SourceType sourceType, final Collection<File> dependencies) {
+        final SourceType reduced = reduce(sourceType);
+        final Map<String, String> checksums = Maps.newTreeMap();
+        for (final File dependency : dependencies) {
+            if (!dependency.equals(jarFile)) {
+                checksums.put(dependency.getPath(), checksum(dependency));
+            }
+        }
+        jar(jarFile).added.put(sourceType.getName(), new IndexFile.Entry(reduced, checksums));
+        return reduced;
+    }
+
+    /**
+     * @return the type with the constructor candidates and the fluent candidates only, carrying the fingerprint of the given type
+     */
+    static SourceType reduce(final SourceType sourceType) {
+        final List<SourceMethod> methods = Lists.newArrayList();
+        for (final SourceMethod method : sourceType.getMethods()) {
+            if (MethodClassifier.DEFAULT.classify(method).isFluent()) {
+                methods.add(method);
+            }
+        }
+        return new SourceType(sourceType.getType(), sourceType.getModifiers(), sourceType.getSuperclass(),
+                ConstructorPredicates.IS_CONSTRUCTOR_CANDIDATE.filterConstructors(sourceType), methods, Fingerprints.ofType(sourceType));
+    }
+
+    private boolean isCurrent(final IndexFile.Entry entry) {
+        for (final Map.Entry<String, String> dependency : entry.dependencies.entrySet()) {
+            final File file = new File(dependency.getKey());
+            if (!file.isFile() || !checksum(file).equals(dependency.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized Jar jar(final File jarFile) {
+        Jar jar = jars.get(jarFile);
+        if (jar == null) {
+            final String checksum = checksum(jarFile);
+            final Long version = versions().get(checksum);
+            IndexFile index = null;
+            if (version != null) {
+                final File file = indexFile(checksum, version);
+                try {
+                    index = IndexFile.open(file);
+                } catch (final IOException e) {
+                    logger.warn(format("could not read index '%s', analyzing '%s'", file, jarFile), e);
+                }
+            }
+            jar = new Jar(checksum, version != null ? version : NO_VERSION, index);
+            jars.put(jarFile, jar);
+        }
+        return jar;
+    }
+
+    private Map<String, Long> versions() {
+        if (versions == null) {
+            versions = Maps.newHashMap();
+            final File[] files = directory.listFiles();
+            for (final File file : files != null ? files : new File[0]) {
+                final String checksum = checksumOf(file);
+                if (checksum != null) {
+                    final Long version = versions.get(checksum);
+                    versions.put(checksum, Math.max(version != null ? version : NO_VERSION, versionOf(file)));
+                }
+            }
+        }
+        return versions;
+    }
+
+    private File indexFile(final String checksum, final long version) {
+        return new File(directory, checksum + "." + version + SUFFIX);
+    }
+
+    /**
+     * @return the checksum of the jar of an index file named "&lt;checksum&gt;.&lt;version&gt;.idx", <code>null</code> for other files
+     */
+    private static String checksumOf(final File file) {
+        return versionOf(file) != NO_VERSION ? file.getName().substring(0, file.getName().indexOf('.')) : null;
+    }
+
+    /**
+     * @return the version of an index file, {@link #NO_VERSION} for other files
+     */
+    private static long versionOf(final File file) {
+        final String name = file.getName();
+        final int dot = name.indexOf('.');
+        final int end = name.length() - SUFFIX.length();
+        if (!name.endsWith(SUFFIX) || dot <= 0 || dot + 1 >= end) {
+            return NO_VERSION;
+        }
+        try {
+            return Long.parseLong(name.substring(dot + 1, end));
+        } catch (final NumberFormatException e) {
+            return NO_VERSION;
+        }
+    }
+
+    private String checksum(final File file) {
+        String checksum = checksums.get(file);
+        if (checksum == null) {
+            try {
+                checksum = Files.hash(file, Hashing.murmur3_128()).toString();
+            } catch (final IOException e) {
+                throw propagate(e);
+            }
+            checksums.put(file, checksum);
+        }
+        return checksum;
+    }
+
+    /**
+     * Writes the next version of the index files of all jars with types added in this run, merged with the types indexed before, and maps it
+     * instead of the previous version.
+     * @throws IllegalStateException if an index file can not be written
+     */
+    public synchronized void write() {
+        for (final Jar jar : jars.values()) {
+            if (jar.added.isEmpty()) {
+                continue;
+            }
+            final Map<String, IndexFile.Entry> entries = Maps.newHashMap();
+            if (jar.index != null) {
+                entries.putAll(jar.index.entries());
+            }
+            entries.putAll(jar.added);
+            try {
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException(format("directory '%s' could not be created", directory));
+                }
+                // other processes never read a partial index
+                final File temporary = File.createTempFile(jar.checksum, ".tmp", directory);
+                IndexFile.write(temporary, entries);
+                long version = jar.version + 1;
+                // skips a version written by another process in the meantime, its types are merged by the next run adding types
+                while (indexFile(jar.checksum, version).exists()) {
+                    version++;
+                }
+                final File file = indexFile(jar.checksum, version);
+                if (!temporary.renameTo(file)) {
+                    temporary.delete();
+                    throw new IOException(format("'%s' could not be renamed to '%s'", temporary, file));
+                }
+                jar.index = IndexFile.open(file);
+                jar.version = version;
+                jar.added.clear();
+                deleteOlderVersions(jar.checksum, version);
+            } catch (final IOException e) {
+                throw new IllegalStateException(format("could not write index of '%s'", jar.checksum), e);
+            }
+        }
+    }
+
+    /**
+     * A version still mapped (on Windows) is kept, it is deleted by a later write.
+     */
+    private void deleteOlderVersions(final String checksum, final long version) {
+        final File[] files = directory.listFiles();
+        for (final File file : files != null ? files : new File[0]) {
+            if (checksum.equals(checksumOf(file)) && versionOf(file) < version && !file.delete()) {
+                logger.debug("could not delete index '{}', it is still mapped", file);
+            }
+        }
+    }
+
+    /**
+     * @return number of types taken from the index
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of types analyzed because they were not indexed or changed
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private boolean isJdk(final File file) {
+        return file.getAbsolutePath().startsWith(javaHome);
+    }
+
+    /**
+     * @return the super classes and all implemented interfaces
+     */
+    private static Set<Class<?>> superTypes(final Class<?> type, final Set<Class<?>> superTypes) {
+        final List<Class<?>> direct = Lists.<Class<?>> newArrayList(type.getInterfaces());
+        if (type.getSuperclass() != null) {
+            direct.add(type.getSuperclass());
+        }
+        for (final Class<?> superType : direct) {
+            if (superTypes.add(superType)) {
+                superTypes(superType, superTypes);
+            }
+        }
+        return superTypes;
+    }
+
+    /**
+     * @return the jar the class was loaded from, <code>null</code> for directories, the JDK and other locations
+     */
+    private static File jarFile(final Class<?> type) {
+        final CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+        final URL location = codeSource != null ? codeSource.getLocation() : null;
+        if (location == null || !"file".equals(location.getProtocol())) {
+            return null;
+        }
+        try {
+            return jarFile(new File(location.toURI()));
+        } catch (final URISyntaxException e) {
+            throw propagate(e);
+        }
+    }
+
+    private static File jarFile(final File location) {
+        return location != null && location.isFile() && location.getName().endsWith(JAR_SUFFIX) ? location : null;
+    }
+
+    @Override
+    public String toString() {
+        return "SourceTypeIndex [directory=" + directory + ", hits=" + hits + ", misses=" + misses + "]";
+    }
+}
@@ -0,0 +1,106 @@
+package de.holisticon.toolbox.generator.metrics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Timings and method counts of the generation of a single class. Immutable.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class ClassMetrics {
+
+    private final String sourceClassName;
+    private final String generatedClassName;
+    private final Map<GenerationPhase, Long> nanos;
+    private final int methodsClassified;
+    private final int methodsIgnored;
+    private final int methodsEmitted;
+    private final int methodsInherited;
+
+    /**
+     * @param sourceClassName binary name of the source class
+     * @param generatedClassName fully qualified name of the generated class
+     * @param nanos time spent per phase, all phases required
+     * @param methodsClassified number of public methods of the source class (including inherited ones)
+     * @param methodsIgnored number of fluent candidates skipped because their name is ignored
+     * @param methodsEmitted number of methods of the generated class
+     */
+    public ClassMetrics(final String sourceClassName, final String generatedClassName, final Map<GenerationPhase, Long> nanos,
+            final int methodsClassified, final int methodsIgnored, final int methodsEmitted) {
+        this(sourceClassName, generatedClassName, nanos, methodsClassified, methodsIgnored, methodsEmitted, 0);
+    }
+
+    /**
+     * @param sourceClassName binary name of the source class
+     * @param generatedClassName fully qualified name of the generated class
+     * @param nanos time spent per phase, all phases required
+     * @param methodsClassified number of public methods of the source class (including inherited ones)
+     * @param methodsIgnored number of fluent candidates skipped because their name is ignored
+     * @param methodsEmitted number of methods of the generated class
+     * @param methodsInherited number of setters and adders of the source class whose fluent methods are inherited from a shared base class,
+     *            see {@link de.holisticon.toolbox.generator.GenerationMode#HIERARCHY}
+     */
+    public ClassMetrics(final String sourceClassName, final String generatedClassName, final Map<GenerationPhase, Long> nanos,
+            final int methodsClassified, final int methodsIgnored, final int methodsEmitted, final int methodsInherited) {
+        checkArgument(nanos.size() == GenerationPhase.values().length, "time of all phases required");
+        this.sourceClassName = sourceClassName;
+        this.generatedClassName = generatedClassName;
+        this.nanos = Maps.newEnumMap(nanos);
+        this.methodsClassified = methodsClassified;
+        this.methodsIgnored = methodsIgnored;
+        this.methodsEmitted = methodsEmitted;
+        this.methodsInherited = methodsInherited;
+    }
+
+    public String getSourceClassName() {
+        return sourceClassName;
+    }
+
+    public String getGeneratedClassName() {
+        return generatedClassName;
+    }
+
+    /**
+     * @param phase the phase
+     * @return time spent in the given phase
+     */
+    public long getNanos(final GenerationPhase phase) {
+        return nanos.get(phase);
+    }
+
+    /**
+     * @return time spent in all phases
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (final long phaseNanos : nanos.values()) {
+            total += phaseNanos;
+        }
+        return total;
+    }
+
+    public int getMethodsClassified() {
+        return methodsClassified;
+    }
+
+    public int getMethodsIgnored() {
+        return methodsIgnored;
+    }
+
+    public int getMethodsEmitted() {
+        return methodsEmitted;
+    }
+
+    public int getMethodsInherited() {
+        return methodsInherited;
+    }
+
+    @Override
+    public String toString() {
+        return format("%s %s (%s)", sourceClassName, GenerationReport.millis(getTotalNanos()), GenerationReport.phases(nanos));
+    }
+}
@@ -0,0 +1,23 @@
+package de.holisticon.toolbox.generator.metrics;
+
+/**
+ * Receives the metrics of a generator run, see
+ * {@link de.holisticon.toolbox.generator.FluentApiGeneratorBuilder#addGenerationListeners(GenerationListener...)}. Called by the thread adding
+ * classes or calling {@link de.holisticon.toolbox.generator.FluentApiGenerator#generateCode()}, never concurrently.
+ * @author Jan Galinski, Holisticon AG
+ */
+public interface GenerationListener {
+
+    /**
+     * Called once a generated class is written: immediately in streaming mode, otherwise during
+     * {@link de.holisticon.toolbox.generator.FluentApiGenerator#generateCode()}.
+     * @param metrics timings and method counts of the class
+     */
+    void classCompleted(ClassMetrics metrics);
+
+    /**
+     * Called at the end of {@link de.holisticon.toolbox.generator.FluentApiGenerator#generateCode()}.
+     * @param report summary of the run
+     */
+    void generationCompleted(GenerationReport report);
+}
@@ -0,0 +1,28 @@
+package de.holisticon.toolbox.generator.metrics;
+
+/**
+ * The timed phases of the generation of a single class.
+ * @author Jan Galinski, Holisticon AG
+ */
+public enum GenerationPhase {
+
+    /**
+     * Loading the source class via reflection or reading its class file, including super types not seen before.
+     */
+    LOAD,
+
+    /**
+     * Classifying the methods of the source class as setters, adders or no fluent candidates.
+     */
+    CLASSIFY,
+
+    /**
+     * Building the code model of the generated class.
+     */
+    BUILD,
+
+    /**
+     * Formatting the generated class and writing it to the output sink.
+     */
+    WRITE
+}
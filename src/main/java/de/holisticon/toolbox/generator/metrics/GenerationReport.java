@@ -0,0 +1,184 @@
+package de.holisticon.toolbox.generator.metrics;
+
+import static java.lang.String.format;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.primitives.Longs;
+
+/**
+ * Summary of a generator run: totals per phase, method counts and the slowest classes. Only the {@link #SLOWEST} classes are kept, so memory does
+ * not grow with the number of generated classes. Not thread safe.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class GenerationReport {
+
+    /**
+     * Number of slowest classes kept.
+     */
+    public static final int SLOWEST = 10;
+
+    private static final Ordering<ClassMetrics> BY_TOTAL_NANOS = new Ordering<ClassMetrics>() {
+
+        @Override
+        public int compare(final ClassMetrics left, final ClassMetrics right) {
+            return Longs.compare(left.getTotalNanos(), right.getTotalNanos());
+        }
+    };
+
+    private final Map<GenerationPhase, Long> nanos = Maps.newEnumMap(GenerationPhase.class);
+    private int classCount;
+    private int upToDateCount;
+    private long methodsClassified;
+    private long methodsIgnored;
+    private long methodsEmitted;
+    private long methodsInherited;
+    private int baseClassCount;
+    private long baseMethodsEmitted;
+
+    /**
+     * The slowest classes so far, the fastest of them first.
+     */
+    private final PriorityQueue<ClassMetrics> slowest = new PriorityQueue<ClassMetrics>(SLOWEST + 1, BY_TOTAL_NANOS);
+
+    public GenerationReport() {
+        for (final GenerationPhase phase : GenerationPhase.values()) {
+            nanos.put(phase, 0L);
+        }
+    }
+
+    /**
+     * Used by the generator to record a generated class.
+     * @param metrics metrics of the class
+     */
+    public void add(final ClassMetrics metrics) {
+        classCount++;
+        for (final GenerationPhase phase : GenerationPhase.values()) {
+            nanos.put(phase, nanos.get(phase) + metrics.getNanos(phase));
+        }
+        methodsClassified += metrics.getMethodsClassified();
+        methodsIgnored += metrics.getMethodsIgnored();
+        methodsEmitted += metrics.getMethodsEmitted();
+        methodsInherited += metrics.getMethodsInherited();
+        slowest.add(metrics);
+        if (slowest.size() > SLOWEST) {
+            slowest.remove();
+        }
+    }
+
+    /**
+     * Used by the generator to record a class skipped in incremental mode.
+     * @param loadNanos time spent to load the class and compare its fingerprint
+     */
+    public void addUpToDate(final long loadNanos) {
+        upToDateCount++;
+        nanos.put(GenerationPhase.LOAD, nanos.get(GenerationPhase.LOAD) + loadNanos);
+    }
+
+    /**
+     * Used by the generator to record a shared base class, see {@link de.holisticon.toolbox.generator.GenerationMode#HIERARCHY}.
+     * @param methods number of methods of the base class
+     */
+    public void addBaseClass(final int methods) {
+        baseClassCount++;
+        baseMethodsEmitted += methods;
+    }
+
+    /**
+     * @return number of generated classes
+     */
+    public int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * @return number of classes skipped because they were up to date
+     */
+    public int getUpToDateCount() {
+        return upToDateCount;
+    }
+
+    /**
+     * @param phase the phase
+     * @return time spent in the given phase, summed over all classes (analysis threads run in parallel, so this may exceed the run time)
+     */
+    public long getNanos(final GenerationPhase phase) {
+        return nanos.get(phase);
+    }
+
+    public long getMethodsClassified() {
+        return methodsClassified;
+    }
+
+    public long getMethodsIgnored() {
+        return methodsIgnored;
+    }
+
+    public long getMethodsEmitted() {
+        return methodsEmitted;
+    }
+
+    /**
+     * @return number of setters and adders whose fluent methods are inherited from shared base classes instead of being emitted per class
+     */
+    public long getMethodsInherited() {
+        return methodsInherited;
+    }
+
+    /**
+     * @return number of generated shared base classes
+     */
+    public int getBaseClassCount() {
+        return baseClassCount;
+    }
+
+    /**
+     * @return number of methods of the shared base classes, not included in {@link #getMethodsEmitted()}
+     */
+    public long getBaseMethodsEmitted() {
+        return baseMethodsEmitted;
+    }
+
+    /**
+     * @return the {@link #SLOWEST} slowest classes, the slowest first
+     */
+    public List<ClassMetrics> getSlowestClasses() {
+        return Collections.unmodifiableList(BY_TOTAL_NANOS.reverse().sortedCopy(slowest));
+    }
+
+    @Override
+    public String toString() {
+        final List<String> lines = Lists.newArrayList();
+        lines.add(format("generated %s classes (%s up to date): %s", classCount, upToDateCount, phases(nanos)));
+        lines.add(format("methods: %s classified, %s ignored, %s emitted", methodsClassified, methodsIgnored, methodsEmitted));
+        if (baseClassCount > 0) {
+            lines.add(format("base classes: %s with %s methods, %s setters and adders inherited", baseClassCount, baseMethodsEmitted,
+                    methodsInherited));
+        }
+        lines.add("slowest classes:");
+        for (final ClassMetrics metrics : getSlowestClasses()) {
+            lines.add("  " + metrics);
+        }
+        return Joiner.on('\n').join(lines);
+    }
+
+    static String phases(final Map<GenerationPhase, Long> nanos) {
+        final List<String> phases = Lists.newArrayList();
+        for (final GenerationPhase phase : GenerationPhase.values()) {
+            phases.add(phase.name().toLowerCase(Locale.ENGLISH) + " " + millis(nanos.get(phase)));
+        }
+        return Joiner.on(", ").join(phases);
+    }
+
+    static String millis(final long nanos) {
+        return format(Locale.ENGLISH, "%.1f ms", nanos / 1e6);
+    }
+}
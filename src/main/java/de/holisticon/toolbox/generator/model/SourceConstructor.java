@@ -0,0 +1,63 @@
+package de.holisticon.toolbox.generator.model;
+
+import java.lang.reflect.Constructor;
+import java.util.List;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A public constructor of a {@link SourceType}, read via reflection or from a class file.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class SourceConstructor {
+
+    private final int modifiers;
+    private final List<TypeRef> parameterTypes;
+    private final boolean synthetic;
+
+    public SourceConstructor(final int modifiers, final List<TypeRef> parameterTypes, final boolean synthetic) {
+        this.modifiers = modifiers;
+        this.parameterTypes = ImmutableList.copyOf(parameterTypes);
+        this.synthetic = synthetic;
+    }
+
+    /**
+     * @param constructor reflected constructor
+     * @return source constructor backed by the loaded parameter types
+     */
+    public static SourceConstructor of(final Constructor<?> constructor) {
+        final ImmutableList.Builder<TypeRef> parameterTypes = ImmutableList.builder();
+        for (final Class<?> parameterType : constructor.getParameterTypes()) {
+            parameterTypes.add(TypeRef.of(parameterType));
+        }
+        return new SourceConstructor(constructor.getModifiers(), parameterTypes.build(), constructor.isSynthetic());
+    }
+
+    /**
+     * @return modifiers as defined by {@link java.lang.reflect.Modifier}
+     */
+    public int getModifiers() {
+        return modifiers;
+    }
+
+    public List<TypeRef> getParameterTypes() {
+        return parameterTypes;
+    }
+
+    public boolean isSynthetic() {
+        return synthetic;
+    }
+
+    /**
+     * @return erased parameter types, "(java.lang.String,int)"
+     */
+    public String getSignature() {
+        return "(" + Joiner.on(',').join(parameterTypes) + ")";
+    }
+
+    @Override
+    public String toString() {
+        return getSignature();
+    }
+}
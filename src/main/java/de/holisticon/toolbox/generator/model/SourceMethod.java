@@ -0,0 +1,101 @@
+package de.holisticon.toolbox.generator.model;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A public method of a {@link SourceType}, read via reflection or from a class file.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class SourceMethod {
+
+    private final String name;
+    private final int modifiers;
+    private final TypeRef returnType;
+    private final List<TypeRef> parameterTypes;
+    private final boolean deprecated;
+    private final boolean synthetic;
+    private final boolean bridge;
+
+    /**
+     * Created on first access, instances are shared by all subclasses via {@link SourceMethodCache}.
+     */
+    private String signature;
+
+    public SourceMethod(final String name, final int modifiers, final TypeRef returnType, final List<TypeRef> parameterTypes,
+            final boolean deprecated, final boolean synthetic, final boolean bridge) {
+        this.name = name;
+        this.modifiers = modifiers;
+        this.returnType = returnType;
+        this.parameterTypes = ImmutableList.copyOf(parameterTypes);
+        this.deprecated = deprecated;
+        this.synthetic = synthetic;
+        this.bridge = bridge;
+    }
+
+    /**
+     * @param method reflected method
+     * @return source method backed by the loaded parameter types
+     */
+    public static SourceMethod of(final Method method) {
+        final ImmutableList.Builder<TypeRef> parameterTypes = ImmutableList.builder();
+        for (final Class<?> parameterType : method.getParameterTypes()) {
+            parameterTypes.add(TypeRef.of(parameterType));
+        }
+        return new SourceMethod(method.getName(), method.getModifiers(), TypeRef.of(method.getReturnType()), parameterTypes.build(),
+                method.isAnnotationPresent(Deprecated.class), method.isSynthetic(), method.isBridge());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return modifiers as defined by {@link java.lang.reflect.Modifier}
+     */
+    public int getModifiers() {
+        return modifiers;
+    }
+
+    public TypeRef getReturnType() {
+        return returnType;
+    }
+
+    public List<TypeRef> getParameterTypes() {
+        return parameterTypes;
+    }
+
+    public int getParameterCount() {
+        return parameterTypes.size();
+    }
+
+    public boolean isDeprecated() {
+        return deprecated;
+    }
+
+    public boolean isSynthetic() {
+        return synthetic;
+    }
+
+    public boolean isBridge() {
+        return bridge;
+    }
+
+    /**
+     * @return name and erased parameter types, "setFoo(java.lang.String)"
+     */
+    public String getSignature() {
+        if (signature == null) {
+            signature = name + "(" + Joiner.on(',').join(parameterTypes) + ")";
+        }
+        return signature;
+    }
+
+    @Override
+    public String toString() {
+        return returnType + " " + getSignature();
+    }
+}
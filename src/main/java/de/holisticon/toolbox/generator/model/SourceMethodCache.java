@@ -0,0 +1,191 @@
+package de.holisticon.toolbox.generator.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Supplier;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Memoizes the {@link SourceMethod}s declared by a class, so the methods of a super class are created once and shared by all source types
+ * inheriting them (like the methods of AbstractField and AbstractComponent for all Vaadin fields). A source type is assembled from the cached
+ * methods of its class, super classes and interfaces, each declaring class is looked up once per source type and counted as a hit or a miss.
+ * Thread safe.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class SourceMethodCache {
+
+    /**
+     * Declared methods by declaring {@link Class}, for reflection. The keys are weak, so the cache does not keep classes and their class loaders
+     * (like the ones of {@link de.holisticon.toolbox.generator.RuntimeFluentClasses} or a daemon) alive. The values are soft: their parameter
+     * and return types are often classes of the same class loader, which would keep a weak key reachable.
+     */
+    private final ConcurrentMap<Object, Map<?, SourceMethod>> methodsByClass = CacheBuilder.newBuilder().weakKeys().softValues()
+            .<Object, Map<?, SourceMethod>> build().asMap();
+
+    /**
+     * Declared methods by binary name of the declaring class, for class files.
+     */
+    private final ConcurrentMap<Object, Map<?, SourceMethod>> methodsByName = Maps.newConcurrentMap();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Like {@link SourceType#of(Class)}, with the methods taken from the cache. The public methods are collected like
+     * {@link Class#getMethods()} does, without copying the methods of the super classes again.
+     * @param sourceClass loaded class
+     * @return source type created via reflection
+     */
+    public SourceType sourceType(final Class<?> sourceClass) {
+        checkArgument(sourceClass != null);
+        final ImmutableList.Builder<SourceConstructor> constructors = ImmutableList.builder();
+        for (final Constructor<?> constructor : sourceClass.getConstructors()) {
+            constructors.add(SourceConstructor.of(constructor));
+        }
+        final Map<String, SourceMethod> methods = Maps.newLinkedHashMap();
+        collectMethods(sourceClass, methods, Sets.<Class<?>> newHashSet(), false);
+        return new SourceType(TypeRef.of(sourceClass), sourceClass.getModifiers(), SourceType.superclass(sourceClass), constructors.build(),
+                ImmutableList.copyOf(methods.values()), null);
+    }
+
+    /**
+     * Adds the public methods of the given class and its super types that are not overridden, keyed by name and descriptor. Static methods of
+     * interfaces are not inherited.
+     */
+    private void collectMethods(final Class<?> type, final Map<String, SourceMethod> methods, final Set<Class<?>> visited,
+            final boolean inherited) {
+        if (!visited.add(type)) {
+            return;
+        }
+        for (final Map.Entry<String, SourceMethod> method : declaredMethods(type).entrySet()) {
+            if (type.isInterface() && inherited && Modifier.isStatic(method.getValue().getModifiers())) {
+                continue;
+            }
+            if (!methods.containsKey(method.getKey())) {
+                methods.put(method.getKey(), method.getValue());
+            }
+        }
+        if (type.getSuperclass() != null) {
+            collectMethods(type.getSuperclass(), methods, visited, true);
+        }
+        for (final Class<?> interfaceType : type.getInterfaces()) {
+            collectMethods(interfaceType, methods, visited, true);
+        }
+    }
+
+    private Map<String, SourceMethod> declaredMethods(final Class<?> declaringClass) {
+        return declaredMethods(declaringClass, new Supplier<Map<String, SourceMethod>>() {
+
+            @Override
+            public Map<String, SourceMethod> get() {
+                final ImmutableMap.Builder<String, SourceMethod> methods = ImmutableMap.builder();
+                for (final Method method : publicDeclaredMethods(declaringClass)) {
+                    methods.put(key(method), SourceMethod.of(method));
+                }
+                return methods.build();
+            }
+        });
+    }
+
+    /**
+     * The declared methods, or if the types of a non public method can not be resolved, the public methods filtered by declaring class.
+     */
+    private static List<Method> publicDeclaredMethods(final Class<?> declaringClass) {
+        final List<Method> methods = Lists.newArrayList();
+        try {
+            for (final Method method : declaringClass.getDeclaredMethods()) {
+                if (Modifier.isPublic(method.getModifiers())) {
+                    methods.add(method);
+                }
+            }
+        } catch (final LinkageError e) {
+            methods.clear();
+            for (final Method method : declaringClass.getMethods()) {
+                if (method.getDeclaringClass() == declaringClass) {
+                    methods.add(method);
+                }
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * @return name, parameter types and return type, distinguishes covariant bridge methods from the methods they bridge
+     */
+    private static String key(final Method method) {
+        final StringBuilder key = new StringBuilder(method.getName()).append('(');
+        for (final Class<?> parameterType : method.getParameterTypes()) {
+            key.append(parameterType.getName()).append(';');
+        }
+        return key.append(')').append(method.getReturnType().getName()).toString();
+    }
+
+    /**
+     * @param declaringClass key of the declaring class, {@link Class} (weakly referenced) or binary name, the same key must always be used with
+     *            the same method key type
+     * @param loader creates the declared methods on a miss
+     * @return the cached declared methods
+     */
+    @SuppressWarnings("unchecked")
+    public <K> Map<K, SourceMethod> declaredMethods(final Object declaringClass, final Supplier<Map<K, SourceMethod>> loader) {
+        final ConcurrentMap<Object, Map<?, SourceMethod>> declaredMethods = cacheOf(declaringClass);
+        Map<?, SourceMethod> methods = declaredMethods.get(declaringClass);
+        if (methods != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            methods = loader.get();
+            final Map<?, SourceMethod> existing = declaredMethods.putIfAbsent(declaringClass, methods);
+            if (existing != null) {
+                methods = existing;
+            }
+        }
+        return (Map<K, SourceMethod>) methods;
+    }
+
+    /**
+     * Drops the declared methods of a changed class, they are created again on the next request.
+     * @param declaringClass key of the declaring class
+     */
+    public void invalidate(final Object declaringClass) {
+        cacheOf(declaringClass).remove(declaringClass);
+    }
+
+    private ConcurrentMap<Object, Map<?, SourceMethod>> cacheOf(final Object declaringClass) {
+        checkArgument(declaringClass != null);
+        return declaringClass instanceof Class ? methodsByClass : methodsByName;
+    }
+
+    /**
+     * @return number of declaring classes taken from the cache, counted once per declaring class of each source type
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of declaring classes analyzed
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "SourceMethodCache [classes=" + (methodsByClass.size() + methodsByName.size()) + ", hits=" + hits + ", misses=" + misses + "]";
+    }
+}
@@ -0,0 +1,130 @@
+package de.holisticon.toolbox.generator.model;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The api of a source class as far as it is relevant for generation: its public constructors and all public methods including inherited ones
+ * (as {@link Class#getMethods()}). Created via reflection ({@link #of(Class)}) or from class files
+ * ({@link de.holisticon.toolbox.generator.classfile.ClassFileRepository}).
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class SourceType {
+
+    private final TypeRef type;
+    private final int modifiers;
+
+    /**
+     * Direct super class, <code>null</code> for {@link Object}, interfaces and primitives.
+     */
+    private final TypeRef superclass;
+    private final List<SourceConstructor> constructors;
+    private final List<SourceMethod> methods;
+
+    /**
+     * Fingerprint of the complete api, only known in advance for types read from a
+     * {@link de.holisticon.toolbox.generator.index.SourceTypeIndex}, which stores the fluent candidates only.
+     */
+    private final String fingerprint;
+
+    public SourceType(final TypeRef type, final int modifiers, final List<SourceConstructor> constructors, final List<SourceMethod> methods) {
+        this(type, modifiers, null, constructors, methods, null);
+    }
+
+    /**
+     * @param superclass direct super class, <code>null</code> for {@link Object} and interfaces
+     * @param fingerprint fingerprint of the complete api, see {@link de.holisticon.toolbox.generator.incremental.Fingerprints#ofType(SourceType)},
+     *            <code>null</code> to calculate it from the given constructors and methods
+     */
+    public SourceType(final TypeRef type, final int modifiers, final TypeRef superclass, final List<SourceConstructor> constructors,
+            final List<SourceMethod> methods, final String fingerprint) {
+        this.type = type;
+        this.modifiers = modifiers;
+        this.superclass = superclass;
+        this.constructors = ImmutableList.copyOf(constructors);
+        this.methods = ImmutableList.copyOf(methods);
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * @param sourceClass loaded class
+     * @return source type created via reflection
+     */
+    public static SourceType of(final Class<?> sourceClass) {
+        final ImmutableList.Builder<SourceConstructor> constructors = ImmutableList.builder();
+        for (final Constructor<?> constructor : sourceClass.getConstructors()) {
+            constructors.add(SourceConstructor.of(constructor));
+        }
+        final ImmutableList.Builder<SourceMethod> methods = ImmutableList.builder();
+        for (final Method method : sourceClass.getMethods()) {
+            methods.add(SourceMethod.of(method));
+        }
+        return new SourceType(TypeRef.of(sourceClass), sourceClass.getModifiers(), superclass(sourceClass), constructors.build(), methods.build(),
+                null);
+    }
+
+    /**
+     * @param sourceClass loaded class
+     * @return reference to its super class, <code>null</code> if it has none
+     */
+    public static TypeRef superclass(final Class<?> sourceClass) {
+        return sourceClass.getSuperclass() != null ? TypeRef.of(sourceClass.getSuperclass()) : null;
+    }
+
+    public TypeRef getType() {
+        return type;
+    }
+
+    /**
+     * @return binary name, "com.vaadin.ui.TextField"
+     */
+    public String getName() {
+        return type.getName();
+    }
+
+    public String getSimpleName() {
+        return type.getSimpleName();
+    }
+
+    public String getPackageName() {
+        final int index = type.getName().lastIndexOf('.');
+        return index < 0 ? "" : type.getName().substring(0, index);
+    }
+
+    /**
+     * @return modifiers as defined by {@link java.lang.reflect.Modifier}
+     */
+    public int getModifiers() {
+        return modifiers;
+    }
+
+    /**
+     * @return direct super class, <code>null</code> for {@link Object} and interfaces or if unknown
+     */
+    public TypeRef getSuperclass() {
+        return superclass;
+    }
+
+    public List<SourceConstructor> getConstructors() {
+        return constructors;
+    }
+
+    public List<SourceMethod> getMethods() {
+        return methods;
+    }
+
+    /**
+     * @return the fingerprint of the complete api if known in advance, <code>null</code> otherwise
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public String toString() {
+        return type.toString();
+    }
+}
@@ -0,0 +1,140 @@
+package de.holisticon.toolbox.generator.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Set;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Reference to a (possibly array) type used in a method signature. Either backed by a loaded {@link Class} (reflection) or by the names read from
+ * a class file, so the type does not have to be loaded.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class TypeRef {
+
+    public static final String VOID = "void";
+    public static final String BOOLEAN = "boolean";
+
+    private static final Set<String> PRIMITIVES = ImmutableSet.of(VOID, BOOLEAN, "byte", "char", "short", "int", "long", "float", "double");
+
+    /**
+     * Binary name of the element type ("int", "java.lang.String", "java.util.Map$Entry").
+     */
+    private final String name;
+    private final String simpleName;
+
+    /**
+     * Declaring class of a member type, <code>null</code> for top level and primitive types.
+     */
+    private final TypeRef outer;
+    private final int dimensions;
+
+    /**
+     * The loaded element type, <code>null</code> if read from class file.
+     */
+    private final Class<?> type;
+
+    private TypeRef(final String name, final String simpleName, final TypeRef outer, final int dimensions, final Class<?> type) {
+        this.name = name;
+        this.simpleName = simpleName;
+        this.outer = outer;
+        this.dimensions = dimensions;
+        this.type = type;
+    }
+
+    /**
+     * @param type loaded class, may be an array
+     * @return reference backed by the given class
+     */
+    public static TypeRef of(final Class<?> type) {
+        checkArgument(type != null);
+        Class<?> elementType = type;
+        int dimensions = 0;
+        while (elementType.isArray()) {
+            elementType = elementType.getComponentType();
+            dimensions++;
+        }
+        final Class<?> declaringClass = elementType.getDeclaringClass();
+        return new TypeRef(elementType.getName(), elementType.getSimpleName(), declaringClass == null ? null : of(declaringClass), dimensions,
+                elementType);
+    }
+
+    /**
+     * @param name binary name of the element type
+     * @param simpleName simple name of the element type
+     * @param outer declaring class of a member type, <code>null</code> otherwise
+     * @param dimensions array dimensions, 0 for non array types
+     * @return reference that does not need a loaded class
+     */
+    public static TypeRef named(final String name, final String simpleName, final TypeRef outer, final int dimensions) {
+        checkArgument(name != null && simpleName != null);
+        checkArgument(dimensions >= 0);
+        return new TypeRef(name, simpleName, outer, dimensions, null);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSimpleName() {
+        return simpleName;
+    }
+
+    public TypeRef getOuter() {
+        return outer;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @return the loaded element type or <code>null</code> if this reference was read from a class file
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    public boolean isArray() {
+        return dimensions > 0;
+    }
+
+    public boolean isPrimitive() {
+        return dimensions == 0 && PRIMITIVES.contains(name);
+    }
+
+    public boolean isVoid() {
+        return dimensions == 0 && VOID.equals(name);
+    }
+
+    public boolean isBoolean() {
+        return dimensions == 0 && BOOLEAN.equals(name);
+    }
+
+    /**
+     * @return binary name followed by array brackets, "java.lang.String[]".
+     */
+    @Override
+    public String toString() {
+        return name + Strings.repeat("[]", dimensions);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof TypeRef)) {
+            return false;
+        }
+        final TypeRef other = (TypeRef) obj;
+        return dimensions == other.dimensions && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + dimensions;
+    }
+}
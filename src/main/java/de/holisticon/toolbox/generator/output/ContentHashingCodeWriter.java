@@ -0,0 +1,123 @@
+package de.holisticon.toolbox.generator.output;
+
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.sun.codemodel.CodeWriter;
+import com.sun.codemodel.JPackage;
+
+/**
+ * Wraps the writer of an {@link OutputSink}. Sources are encoded as UTF-8, the SHA-256 hash and the time needed to format and write every file
+ * are reported to a {@link Listener}. Optionally writes '\n' as line separator instead of the platform one, so the bytes do not depend on
+ * the platform.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class ContentHashingCodeWriter extends CodeWriter {
+
+    private static final String JAVA_SUFFIX = ".java";
+
+    /**
+     * Receives the written files.
+     */
+    public interface Listener {
+
+        /**
+         * @param className fully qualified name of the generated class
+         * @param contentHash SHA-256 of the written bytes, hex encoded
+         * @param nanos time from opening to closing the file
+         */
+        void written(String className, String contentHash, long nanos);
+    }
+
+    private final CodeWriter core;
+    private final Listener listener;
+    private final boolean unixLineSeparators;
+
+    /**
+     * @param core writer of the sink
+     * @param listener receives hash and time of each file
+     * @param unixLineSeparators <code>true</code> to drop the '\r' of platform line separators
+     */
+    public ContentHashingCodeWriter(final CodeWriter core, final Listener listener, final boolean unixLineSeparators) {
+        this.core = core;
+        this.listener = listener;
+        this.unixLineSeparators = unixLineSeparators;
+        this.encoding = Charsets.UTF_8.name();
+    }
+
+    /**
+     * Encodes via {@link #openBinary(JPackage, String)} instead of delegating to the sink, so the hash covers the written bytes.
+     */
+    @Override
+    public Writer openSource(final JPackage pkg, final String fileName) throws IOException {
+        final Writer writer = super.openSource(pkg, fileName);
+        if (!unixLineSeparators) {
+            return writer;
+        }
+        return new FilterWriter(writer) {
+
+            @Override
+            public void write(final int c) throws IOException {
+                if (c != '\r') {
+                    out.write(c);
+                }
+            }
+
+            @Override
+            public void write(final char[] cbuf, final int off, final int len) throws IOException {
+                for (int i = off; i < off + len; i++) {
+                    write(cbuf[i]);
+                }
+            }
+
+            @Override
+            public void write(final String str, final int off, final int len) throws IOException {
+                for (int i = off; i < off + len; i++) {
+                    write(str.charAt(i));
+                }
+            }
+        };
+    }
+
+    @Override
+    public OutputStream openBinary(final JPackage pkg, final String fileName) throws IOException {
+        final long start = System.nanoTime();
+        final Hasher hasher = Hashing.sha256().newHasher();
+        return new FilterOutputStream(core.openBinary(pkg, fileName)) {
+
+            @Override
+            public void write(final int b) throws IOException {
+                hasher.putByte((byte) b);
+                out.write(b);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                hasher.putBytes(b, off, len);
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                listener.written(className(pkg, fileName), hasher.hash().toString(), System.nanoTime() - start);
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        core.close();
+    }
+
+    private static String className(final JPackage pkg, final String fileName) {
+        final String simpleName = fileName.endsWith(JAVA_SUFFIX) ? fileName.substring(0, fileName.length() - JAVA_SUFFIX.length()) : fileName;
+        return pkg.isUnnamed() ? simpleName : pkg.name() + '.' + simpleName;
+    }
+}
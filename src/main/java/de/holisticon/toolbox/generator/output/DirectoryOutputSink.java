@@ -0,0 +1,246 @@
+package de.holisticon.toolbox.generator.output;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.propagate;
+import static java.lang.String.format;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.codemodel.CodeWriter;
+import com.sun.codemodel.JPackage;
+
+/**
+ * Writes one file per generated class into a directory, in package sub directories. The default sink.
+ * <p>
+ * Each source is rendered to memory first and compared with the existing file. Identical files are not touched, so their modification time
+ * stays and compilers and IDEs do not process them again. This needs
+ * {@link de.holisticon.toolbox.generator.FluentApiGeneratorBuilder#reproducible(boolean) reproducible} output or a fixed generated date. Changed
+ * files are written concurrently, each to a temporary file in the same directory that is renamed to the source file, so readers never see a
+ * partially written source. On platforms where renaming does not replace an existing file, the file is deleted before the rename, so it is
+ * missing for a moment and the replace is not atomic.
+ * </p>
+ * <p>
+ * Files are complete after {@link #flush()} or {@link #close()}, in
+ * {@link de.holisticon.toolbox.generator.FluentApiGeneratorBuilder#streaming(boolean) streaming} mode each class is flushed once it is
+ * complete. At most {@value #QUEUED_PER_THREAD} rendered sources per thread wait for a writer. If the disk is slower than generation, the
+ * generating thread writes the next file itself, so memory stays bounded.
+ * </p>
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class DirectoryOutputSink implements OutputSink {
+
+    /**
+     * Number of threads comparing and writing files, if not configured.
+     */
+    public static final int DEFAULT_THREADS = 4;
+
+    /**
+     * Rendered sources per thread waiting to be written.
+     */
+    static final int QUEUED_PER_THREAD = 4;
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder().setNameFormat("fluent-api-writer-%d").setDaemon(true).build();
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final File directory;
+    private final int threads;
+
+    /**
+     * Started on the first file, stopped on {@link #close()}.
+     */
+    private ExecutorService executor;
+    private final List<Future<Boolean>> pending = Lists.newArrayList();
+
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
+
+    /**
+     * Counts of the files completed by the last {@link #close()}.
+     */
+    private volatile int writtenCount;
+    private volatile int unchangedCount;
+
+    /**
+     * @param directory existing target directory
+     */
+    public DirectoryOutputSink(final File directory) {
+        this(directory, DEFAULT_THREADS);
+    }
+
+    /**
+     * @param directory existing target directory
+     * @param threads number of threads comparing and writing files
+     */
+    public DirectoryOutputSink(final File directory, final int threads) {
+        checkArgument(directory != null);
+        checkArgument(threads > 0, "threads must be positive");
+        this.directory = directory;
+        this.threads = threads;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public CodeWriter codeWriter() {
+        return new CodeWriter() {
+
+            @Override
+            public OutputStream openBinary(final JPackage pkg, final String fileName) {
+                final File file = new File(directory, JarOutputSink.path(pkg, fileName));
+                return new ByteArrayOutputStream() {
+
+                    private boolean closed;
+
+                    @Override
+                    public void close() {
+                        if (!closed) {
+                            closed = true;
+                            submit(file, toByteArray());
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public void close() {
+                // files are submitted when their stream is closed, the sink waits for them
+            }
+        };
+    }
+
+    private synchronized void submit(final File file, final byte[] content) {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(threads
+                    * QUEUED_PER_THREAD), THREAD_FACTORY, new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        pending.add(executor.submit(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() throws IOException {
+                final boolean changed = write(file, content);
+                (changed ? written : unchanged).incrementAndGet();
+                return changed;
+            }
+        }));
+    }
+
+    /**
+     * @return <code>true</code> if the file was written, <code>false</code> if it already had the given content
+     */
+    private static boolean write(final File file, final byte[] content) throws IOException {
+        if (file.isFile() && file.length() == content.length && Arrays.equals(Files.toByteArray(file), content)) {
+            return false;
+        }
+        final File parent = file.getParentFile();
+        // created concurrently by the writers of other files of the package
+        if (!parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException(format("directory '%s' could not be created", parent));
+        }
+        final File temporary = File.createTempFile(file.getName(), TEMPORARY_SUFFIX, parent);
+        try {
+            final FileChannel channel = new FileOutputStream(temporary).getChannel();
+            try {
+                final ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } finally {
+                channel.close();
+            }
+            // replacing an existing file fails on some platforms, the file is missing between delete and rename there
+            if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+                throw new IOException(format("'%s' could not be renamed to '%s'", temporary, file));
+            }
+        } finally {
+            temporary.delete();
+        }
+        return true;
+    }
+
+    /**
+     * Waits until the submitted files are written, the writer threads keep running.
+     * @throws IOException if a file could not be written
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        try {
+            for (final Future<Boolean> future : pending) {
+                future.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw propagate(e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw propagate(e.getCause());
+        } finally {
+            pending.clear();
+        }
+    }
+
+    /**
+     * Waits until all files are written and resets the counts for the next use of this sink.
+     * @throws IOException if a file could not be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (executor == null) {
+            writtenCount = 0;
+            unchangedCount = 0;
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            executor.shutdownNow();
+            executor = null;
+            writtenCount = written.getAndSet(0);
+            unchangedCount = unchanged.getAndSet(0);
+        }
+        logger.info("{} files written, {} unchanged in {}", new Object[] { writtenCount, unchangedCount, directory });
+    }
+
+    /**
+     * @return number of files written because they were new or changed, until the last {@link #close()}
+     */
+    public int getWrittenCount() {
+        return writtenCount;
+    }
+
+    /**
+     * @return number of files skipped because they already had the generated content, until the last {@link #close()}
+     */
+    public int getUnchangedCount() {
+        return unchangedCount;
+    }
+}
@@ -0,0 +1,108 @@
+package de.holisticon.toolbox.generator.output;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.sun.codemodel.CodeWriter;
+import com.sun.codemodel.JPackage;
+
+/**
+ * Keeps the generated sources in memory, nothing is written to disk. Use {@link #getJavaFileObjects()} to pass them to a
+ * {@link javax.tools.JavaCompiler} directly.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class InMemoryOutputSink implements OutputSink {
+
+    private static final String JAVA_SUFFIX = JavaFileObject.Kind.SOURCE.extension;
+
+    /**
+     * Sources by path ("foo/bar/FluentButton.java").
+     */
+    private final Map<String, String> sources = Maps.newTreeMap();
+
+    /**
+     * A generated source file.
+     */
+    private static final class SourceFile extends SimpleJavaFileObject {
+
+        private final String source;
+
+        SourceFile(final String path, final String source) {
+            super(URI.create("string:///" + path), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    @Override
+    public CodeWriter codeWriter() {
+        return new CodeWriter() {
+
+            @Override
+            public OutputStream openBinary(final JPackage pkg, final String fileName) {
+                return new ByteArrayOutputStream() {
+
+                    @Override
+                    public void close() throws IOException {
+                        sources.put(JarOutputSink.path(pkg, fileName), new String(buf, 0, count, Charsets.UTF_8));
+                    }
+                };
+            }
+
+            @Override
+            public void close() {
+                // sources are complete when their stream is closed
+            }
+        };
+    }
+
+    /**
+     * @return generated sources by fully qualified name of the generated class
+     */
+    public Map<String, String> getSources() {
+        final Map<String, String> byClassName = Maps.newTreeMap();
+        for (final Map.Entry<String, String> entry : sources.entrySet()) {
+            if (entry.getKey().endsWith(JAVA_SUFFIX)) {
+                final String path = entry.getKey();
+                byClassName.put(path.substring(0, path.length() - JAVA_SUFFIX.length()).replace('/', '.'), entry.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(byClassName);
+    }
+
+    /**
+     * @return generated sources as compilation units for {@link javax.tools.JavaCompiler#getTask}
+     */
+    public List<JavaFileObject> getJavaFileObjects() {
+        final List<JavaFileObject> fileObjects = Lists.newArrayList();
+        for (final Map.Entry<String, String> entry : sources.entrySet()) {
+            fileObjects.add(new SourceFile(entry.getKey(), entry.getValue()));
+        }
+        return fileObjects;
+    }
+
+    @Override
+    public void flush() {
+        // stored when their stream is closed
+    }
+
+    @Override
+    public void close() {
+        // sources stay available
+    }
+}
@@ -0,0 +1,119 @@
+package de.holisticon.toolbox.generator.output;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Calendar;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.sun.codemodel.CodeWriter;
+import com.sun.codemodel.JPackage;
+
+/**
+ * Writes all generated classes into a single sources jar (or zip) file, in one sequential write instead of creating a file per class. All
+ * entries have the same time stamp. The file is replaced when the first class is written and complete once the sink is closed.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class JarOutputSink implements OutputSink {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Time stamp of all entries, so the jar only depends on its content. Zip entries store local time, so it is calculated in the default time
+     * zone to get the same bytes everywhere.
+     */
+    private static final long ENTRY_TIME = entryTime();
+
+    private final File file;
+    private ZipOutputStream zip;
+    private boolean closed;
+
+    /**
+     * @param file the jar file, parent directories are created if missing
+     */
+    public JarOutputSink(final File file) {
+        checkArgument(file != null);
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public CodeWriter codeWriter() throws IOException {
+        open();
+        return new CodeWriter() {
+
+            @Override
+            public OutputStream openBinary(final JPackage pkg, final String fileName) throws IOException {
+                final ZipEntry entry = new ZipEntry(path(pkg, fileName));
+                entry.setTime(ENTRY_TIME);
+                zip.putNextEntry(entry);
+                return new FilterOutputStream(zip) {
+
+                    @Override
+                    public void write(final byte[] b, final int off, final int len) throws IOException {
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        // the entry ends, the jar stays open for the following classes
+                        zip.closeEntry();
+                    }
+                };
+            }
+
+            @Override
+            public void close() {
+                // the jar is closed by the sink
+            }
+        };
+    }
+
+    private void open() throws IOException {
+        checkState(!closed, format("jar '%s' is already closed", file));
+        if (zip == null) {
+            final File parent = file.getAbsoluteFile().getParentFile();
+            checkState(parent.isDirectory() || parent.mkdirs(), format("directory '%s' could not be created.", parent));
+            zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        }
+    }
+
+    private static long entryTime() {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(1980, Calendar.FEBRUARY, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    static String path(final JPackage pkg, final String fileName) {
+        return pkg.isUnnamed() ? fileName : pkg.name().replace('.', '/') + '/' + fileName;
+    }
+
+    @Override
+    public void flush() {
+        // the entries can only be read once the jar is complete
+    }
+
+    /**
+     * Completes the jar. Writes an empty jar if no class was generated.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            open();
+            closed = true;
+            zip.close();
+        }
+    }
+}
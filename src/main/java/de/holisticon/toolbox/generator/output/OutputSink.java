@@ -0,0 +1,34 @@
+package de.holisticon.toolbox.generator.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import com.sun.codemodel.CodeWriter;
+
+/**
+ * Receives the generated source files, see {@link de.holisticon.toolbox.generator.FluentApiGeneratorBuilder#outputSink(OutputSink)}.
+ * @author Jan Galinski, Holisticon AG
+ */
+public interface OutputSink extends Closeable {
+
+    /**
+     * @return writer for one build of the code model. Sources are passed as UTF-8 encoded bytes via
+     *         {@link CodeWriter#openBinary(com.sun.codemodel.JPackage, String)}. Closed (possibly more than once) at the end of the build,
+     *         while the sink stays open. Called once per generated class in streaming mode.
+     * @throws IOException if the sink can not be opened
+     */
+    CodeWriter codeWriter() throws IOException;
+
+    /**
+     * Waits until the sources of the writers obtained so far are stored. Called after each generated class in streaming mode, so it is
+     * available as soon as it is complete.
+     * @throws IOException if a source could not be stored
+     */
+    void flush() throws IOException;
+
+    /**
+     * Called once all classes are written, at the end of {@link de.holisticon.toolbox.generator.FluentApiGenerator#generateCode()}.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -1,26 +1,42 @@
 package de.holisticon.toolbox.generator.predicate;
 
-import static com.google.common.base.Predicates.and;
-import static com.google.common.base.Predicates.not;
 import static com.google.common.collect.Collections2.filter;
 import static com.google.common.collect.Lists.newArrayList;
+import static java.lang.String.format;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
 import java.util.Collection;
+import java.util.List;
 
 import com.google.common.base.Predicate;
 
+import de.holisticon.toolbox.generator.model.SourceConstructor;
+import de.holisticon.toolbox.generator.model.SourceType;
+
+/**
+ * Rules for constructors. Like {@link MethodPredicates}, the rules are implemented on {@link SourceConstructor} and on reflected constructors.
+ */
 public enum ConstructorPredicates implements Predicate<Constructor<?>> {
     IS_CONSTRUCTOR_CANDIDATE {
 
+        @Override
+        public boolean matches(final SourceConstructor constructor) {
+            return !IS_SYTHETIC.matches(constructor) && IS_PUBLIC.matches(constructor);
+        }
+
         @Override
         public boolean apply(final Constructor<?> constructor) {
-            return and(not(IS_SYTHETIC), IS_PUBLIC).apply(constructor);
+            return !IS_SYTHETIC.apply(constructor) && IS_PUBLIC.apply(constructor);
         }
     },
     IS_SYTHETIC {
 
+        @Override
+        public boolean matches(final SourceConstructor constructor) {
+            return constructor.isSynthetic();
+        }
+
         @Override
         public boolean apply(final Constructor<?> constructor) {
             return constructor.isSynthetic();
@@ -32,9 +48,23 @@ public enum ConstructorPredicates implements Predicate<Constructor<?>> {
         public boolean apply(final Constructor<?> constructor) {
             return constructor.isAccessible();
         }
+
+        /**
+         * Accessibility is a runtime flag of reflection objects, constructors read from class files do not have it.
+         * @throws UnsupportedOperationException always, use {@link #apply(Constructor)}
+         */
+        @Override
+        public boolean matches(final SourceConstructor constructor) {
+            throw new UnsupportedOperationException(format("%s only applies to reflected constructors", this));
+        }
     },
     IS_PUBLIC {
 
+        @Override
+        public boolean matches(final SourceConstructor constructor) {
+            return Modifier.isPublic(constructor.getModifiers());
+        }
+
         @Override
         public boolean apply(final Constructor<?> constructor) {
             return Modifier.isPublic(constructor.getModifiers());
@@ -42,10 +72,34 @@ public enum ConstructorPredicates implements Predicate<Constructor<?>> {
     },
     ;
 
+    /**
+     * @param constructor constructor read via reflection or from class file
+     * @return <code>true</code> if the rule applies
+     */
+    public abstract boolean matches(SourceConstructor constructor);
+
+    /**
+     * Same rule on the reflected constructor, without creating a {@link SourceConstructor}.
+     * @param constructor reflected constructor
+     * @return <code>true</code> if the rule applies
+     */
+    @Override
+    public abstract boolean apply(Constructor<?> constructor);
+
     public Collection<Constructor<?>> filterConstructors(final Class<?> type) {
         final Collection<Constructor<?>> allConstructors = newArrayList(type.getConstructors());
 
         return filter(allConstructors, this);
 
     }
+
+    public List<SourceConstructor> filterConstructors(final SourceType type) {
+        final List<SourceConstructor> constructors = newArrayList();
+        for (final SourceConstructor constructor : type.getConstructors()) {
+            if (matches(constructor)) {
+                constructors.add(constructor);
+            }
+        }
+        return constructors;
+    }
 }
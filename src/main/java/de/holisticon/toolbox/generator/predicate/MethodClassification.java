@@ -0,0 +1,42 @@
+package de.holisticon.toolbox.generator.predicate;
+
+/**
+ * Result of {@link MethodClassifier#classify(de.holisticon.toolbox.generator.model.SourceMethod)}: either the kind of fluent method to generate
+ * or the reason why the method is skipped. Skip reasons refer to the {@link MethodPredicates} rule that did not match.
+ * @author Jan Galinski, Holisticon AG
+ */
+public enum MethodClassification {
+
+    SETTER(null),
+    ADDER(null),
+    NOT_PUBLIC(MethodPredicates.IS_PUBLIC),
+    NO_PREFIX(MethodPredicates.HAS_FLUENT_PREFIX),
+    NOT_VOID(MethodPredicates.IS_VOID),
+    NOT_ONE_PARAM(MethodPredicates.HAS_ONE_PARAM),
+    DEPRECATED(MethodPredicates.NOT_DEPRECATED),
+    SYNTHETIC(MethodPredicates.NOT_SYNTHETIC),
+    /**
+     * Method name configured via {@link de.holisticon.toolbox.generator.FluentApiGeneratorBuilder#addIgnoredMethodNames(String...)}.
+     */
+    IGNORED(null);
+
+    private final MethodPredicates rule;
+
+    private MethodClassification(final MethodPredicates rule) {
+        this.rule = rule;
+    }
+
+    /**
+     * @return <code>true</code> for {@link #SETTER} and {@link #ADDER}
+     */
+    public boolean isFluent() {
+        return this == SETTER || this == ADDER;
+    }
+
+    /**
+     * @return the rule the method did not match, <code>null</code> for fluent and ignored methods
+     */
+    public MethodPredicates getRule() {
+        return rule;
+    }
+}
@@ -0,0 +1,100 @@
+package de.holisticon.toolbox.generator.predicate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static de.holisticon.toolbox.generator.predicate.MethodPredicates.ADD;
+import static de.holisticon.toolbox.generator.predicate.MethodPredicates.SET;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+import de.holisticon.toolbox.generator.model.SourceMethod;
+
+/**
+ * The {@link MethodPredicates} fluent rules and the ignored method names compiled into a single pass. Classifying a method evaluates each rule
+ * at most once, cheapest first, and allocates nothing. Immutable and thread safe.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class MethodClassifier {
+
+    /**
+     * Classifier without ignored method names.
+     */
+    public static final MethodClassifier DEFAULT = new MethodClassifier(ImmutableSet.<String> of());
+
+    private final Set<String> ignoredMethodNames;
+
+    private MethodClassifier(final Set<String> ignoredMethodNames) {
+        this.ignoredMethodNames = ignoredMethodNames;
+    }
+
+    /**
+     * @param ignoredMethodNames names of methods that are never fluent
+     * @return classifier
+     */
+    public static MethodClassifier compile(final Collection<String> ignoredMethodNames) {
+        checkArgument(ignoredMethodNames != null);
+        return ignoredMethodNames.isEmpty() ? DEFAULT : new MethodClassifier(ImmutableSet.copyOf(ignoredMethodNames));
+    }
+
+    /**
+     * @param method method read via reflection or from class file
+     * @return {@link MethodClassification#SETTER}, {@link MethodClassification#ADDER} or the skip reason
+     */
+    public MethodClassification classify(final SourceMethod method) {
+        final MethodClassification signature = classifySignature(method.getName(), method.getModifiers(), method.getReturnType().isVoid());
+        if (signature != null) {
+            return signature;
+        }
+        return classify(method.getName(), method.getParameterCount(), method.isDeprecated(), method.isSynthetic());
+    }
+
+    /**
+     * Like {@link #classify(SourceMethod)}, without creating a {@link SourceMethod} first. The parameter types (cloned by the reflection api)
+     * are only accessed for public void methods with a fluent prefix.
+     * @param method reflected method
+     * @return {@link MethodClassification#SETTER}, {@link MethodClassification#ADDER} or the skip reason
+     */
+    public MethodClassification classify(final Method method) {
+        final MethodClassification signature = classifySignature(method.getName(), method.getModifiers(), method.getReturnType() == void.class);
+        if (signature != null) {
+            return signature;
+        }
+        return classify(method.getName(), method.getParameterTypes().length, method.isAnnotationPresent(Deprecated.class), method.isSynthetic());
+    }
+
+    /**
+     * @return skip reason or <code>null</code> if the remaining rules have to be checked
+     */
+    private static MethodClassification classifySignature(final String name, final int modifiers, final boolean isVoid) {
+        if (!Modifier.isPublic(modifiers)) {
+            return MethodClassification.NOT_PUBLIC;
+        }
+        if (!name.startsWith(SET) && !name.startsWith(ADD)) {
+            return MethodClassification.NO_PREFIX;
+        }
+        if (!isVoid) {
+            return MethodClassification.NOT_VOID;
+        }
+        return null;
+    }
+
+    private MethodClassification classify(final String name, final int parameterCount, final boolean deprecated, final boolean synthetic) {
+        if (parameterCount != 1) {
+            return MethodClassification.NOT_ONE_PARAM;
+        }
+        if (deprecated) {
+            return MethodClassification.DEPRECATED;
+        }
+        if (synthetic) {
+            return MethodClassification.SYNTHETIC;
+        }
+        if (ignoredMethodNames.contains(name)) {
+            return MethodClassification.IGNORED;
+        }
+        return name.startsWith(SET) ? MethodClassification.SETTER : MethodClassification.ADDER;
+    }
+}
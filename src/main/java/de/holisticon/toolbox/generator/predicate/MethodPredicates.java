@@ -1,22 +1,31 @@
 package de.holisticon.toolbox.generator.predicate;
 
-import static com.google.common.base.Predicates.and;
-import static com.google.common.base.Predicates.or;
-import static com.google.common.base.Predicates.not;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
 import com.google.common.base.Predicate;
-import com.google.common.base.Predicates;
 
+import de.holisticon.toolbox.generator.model.SourceMethod;
+
+/**
+ * Rules for methods. The rules are implemented on {@link SourceMethod}, so they apply to methods read from class files, and on {@link Method}, so
+ * filtering reflected methods does not create a source method per call.
+ */
 public enum MethodPredicates implements Predicate<Method> {
 
+    /**
+     * Public, not deprecated, not synthetic void methods with one parameter and "add" or "set" prefix, see {@link MethodClassifier}.
+     */
     IS_FLUENT_CANDIDATE {
 
         @Override
-        @SuppressWarnings("unchecked")
+        public boolean matches(final SourceMethod method) {
+            return MethodClassifier.DEFAULT.classify(method).isFluent();
+        }
+
+        @Override
         public boolean apply(final Method method) {
-            return and(IS_PUBLIC, or(PREFIX_IS_ADD, PREFIX_IS_SET), IS_VOID, HAS_ONE_PARAM, NOT_DEPRECATED, not(IS_SYNTHETIC)).apply(method);
+            return MethodClassifier.DEFAULT.classify(method).isFluent();
         }
     },
     /**
@@ -31,28 +40,46 @@ public enum MethodPredicates implements Predicate<Method> {
     IS_SETTER {
 
         @Override
-        @SuppressWarnings("unchecked")
+        public boolean matches(final SourceMethod method) {
+            return IS_PUBLIC.matches(method) && IS_VOID.matches(method) && HAS_ONE_PARAM.matches(method) && method.getName().startsWith(SET);
+        }
+
+        @Override
         public boolean apply(final Method method) {
-            return Predicates.and(IS_PUBLIC, IS_VOID, HAS_ONE_PARAM).apply(method) && method.getName().startsWith(SET);
+            return IS_PUBLIC.apply(method) && IS_VOID.apply(method) && HAS_ONE_PARAM.apply(method) && method.getName().startsWith(SET);
         }
     },
     IS_ADDER {
 
         @Override
-        @SuppressWarnings("unchecked")
+        public boolean matches(final SourceMethod method) {
+            return IS_PUBLIC.matches(method) && IS_VOID.matches(method) && HAS_ONE_PARAM.matches(method) && method.getName().startsWith(ADD);
+        }
+
+        @Override
         public boolean apply(final Method method) {
-            return Predicates.and(IS_PUBLIC, IS_VOID, HAS_ONE_PARAM).apply(method) && method.getName().startsWith(ADD);
+            return IS_PUBLIC.apply(method) && IS_VOID.apply(method) && HAS_ONE_PARAM.apply(method) && method.getName().startsWith(ADD);
         }
     },
     IS_VOID {
 
+        @Override
+        public boolean matches(final SourceMethod method) {
+            return method.getReturnType().isVoid();
+        }
+
         @Override
         public boolean apply(final Method method) {
-            return method.getReturnType().equals(Void.TYPE);
+            return method.getReturnType() == void.class;
         }
     },
     HAS_ONE_PARAM {
 
+        @Override
+        public boolean matches(final SourceMethod method) {
+            return method.getParameterCount() == 1;
+        }
+
         @Override
         public boolean apply(final Method method) {
             return method.getParameterTypes().length == 1;
@@ -60,6 +87,11 @@ public enum MethodPredicates implements Predicate<Method> {
     },
     IS_DEPRECATED {
 
+        @Override
+        public boolean matches(final SourceMethod method) {
+            return method.isDeprecated();
+        }
+
         @Override
         public boolean apply(final Method method) {
             return method.isAnnotationPresent(Deprecated.class);
@@ -67,6 +99,11 @@ public enum MethodPredicates implements Predicate<Method> {
     },
     NOT_DEPRECATED {
 
+        @Override
+        public boolean matches(final SourceMethod method) {
+            return !IS_DEPRECATED.matches(method);
+        }
+
         @Override
         public boolean apply(final Method method) {
             return !IS_DEPRECATED.apply(method);
@@ -74,6 +111,11 @@ public enum MethodPredicates implements Predicate<Method> {
     },
     IS_PUBLIC {
 
+        @Override
+        public boolean matches(final SourceMethod method) {
+            return Modifier.isPublic(method.getModifiers());
+        }
+
         @Override
         public boolean apply(final Method method) {
             return Modifier.isPublic(method.getModifiers());
@@ -81,6 +123,11 @@ public enum MethodPredicates implements Predicate<Method> {
     },
     PREFIX_IS_ADD {
 
+        @Override
+        public boolean matches(final SourceMethod method) {
+            return method.getName().startsWith(ADD);
+        }
+
         @Override
         public boolean apply(final Method method) {
             return method.getName().startsWith(ADD);
@@ -89,21 +136,63 @@ public enum MethodPredicates implements Predicate<Method> {
     },
     PREFIX_IS_SET {
 
+        @Override
+        public boolean matches(final SourceMethod method) {
+            return method.getName().startsWith(SET);
+        }
+
         @Override
         public boolean apply(final Method method) {
             return method.getName().startsWith(SET);
         }
 
     },
+    /**
+     * Name starts with "set" or "add".
+     */
+    HAS_FLUENT_PREFIX {
+
+        @Override
+        public boolean matches(final SourceMethod method) {
+            return PREFIX_IS_SET.matches(method) || PREFIX_IS_ADD.matches(method);
+        }
+
+        @Override
+        public boolean apply(final Method method) {
+            return PREFIX_IS_SET.apply(method) || PREFIX_IS_ADD.apply(method);
+        }
+    },
     IS_SYNTHETIC {
 
+        @Override
+        public boolean matches(final SourceMethod method) {
+            return method.isSynthetic();
+        }
+
         @Override
         public boolean apply(final Method method) {
             return method.isSynthetic();
         }
     },
+    NOT_SYNTHETIC {
+
+        @Override
+        public boolean matches(final SourceMethod method) {
+            return !IS_SYNTHETIC.matches(method);
+        }
+
+        @Override
+        public boolean apply(final Method method) {
+            return !IS_SYNTHETIC.apply(method);
+        }
+    },
     IS_BRIDGED {
 
+        @Override
+        public boolean matches(final SourceMethod method) {
+            return method.isBridge();
+        }
+
         @Override
         public boolean apply(final Method method) {
             return method.isBridge();
@@ -114,4 +203,17 @@ public enum MethodPredicates implements Predicate<Method> {
     public static final String ADD = "add";
     public static final String SET = "set";
 
+    /**
+     * @param method method read via reflection or from class file
+     * @return <code>true</code> if the rule applies
+     */
+    public abstract boolean matches(SourceMethod method);
+
+    /**
+     * Same rule on the reflected method, without creating a {@link SourceMethod} and resolving its parameter types.
+     * @param method reflected method
+     * @return <code>true</code> if the rule applies
+     */
+    @Override
+    public abstract boolean apply(Method method);
 }
@@ -0,0 +1,135 @@
+package de.holisticon.toolbox.generator.verify;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Sets;
+
+/**
+ * Outcome of compiling generated sources with {@link SourceCompiler}: the diagnostics reported for each compiled class and the class files,
+ * kept in memory. Immutable.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class CompilationResult {
+
+    private final boolean success;
+
+    /**
+     * Diagnostics by class name, an empty list for classes that compiled without any.
+     */
+    private final Map<String, List<Diagnostic<? extends JavaFileObject>>> diagnostics;
+
+    /**
+     * Diagnostics not related to a compiled source, like notes about unchecked operations.
+     */
+    private final List<Diagnostic<? extends JavaFileObject>> otherDiagnostics;
+
+    /**
+     * Class files by binary name, including nested and anonymous classes.
+     */
+    private final Map<String, byte[]> classFiles;
+
+    CompilationResult(final boolean success, final Map<String, List<Diagnostic<? extends JavaFileObject>>> diagnostics,
+            final List<Diagnostic<? extends JavaFileObject>> otherDiagnostics, final Map<String, byte[]> classFiles) {
+        this.success = success;
+        final ImmutableSortedMap.Builder<String, List<Diagnostic<? extends JavaFileObject>>> copy = ImmutableSortedMap.naturalOrder();
+        for (final Map.Entry<String, List<Diagnostic<? extends JavaFileObject>>> entry : diagnostics.entrySet()) {
+            copy.put(entry.getKey(), ImmutableList.copyOf(entry.getValue()));
+        }
+        this.diagnostics = copy.build();
+        this.otherDiagnostics = ImmutableList.copyOf(otherDiagnostics);
+        this.classFiles = ImmutableMap.copyOf(classFiles);
+    }
+
+    /**
+     * @return <code>true</code> if all sources compiled without errors
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * @return fully qualified names of all compiled classes, sorted
+     */
+    public Set<String> getClassNames() {
+        return diagnostics.keySet();
+    }
+
+    /**
+     * @param className fully qualified name of a compiled class
+     * @return errors, warnings and notes reported for its source
+     */
+    public List<Diagnostic<? extends JavaFileObject>> getDiagnostics(final String className) {
+        checkArgument(diagnostics.containsKey(className), format("'%s' was not compiled", className));
+        return diagnostics.get(className);
+    }
+
+    /**
+     * @return diagnostics not reported for a single source
+     */
+    public List<Diagnostic<? extends JavaFileObject>> getOtherDiagnostics() {
+        return otherDiagnostics;
+    }
+
+    /**
+     * @return names of the classes with at least one error, sorted
+     */
+    public Set<String> getFailedClassNames() {
+        final Set<String> failed = Sets.newTreeSet();
+        for (final Map.Entry<String, List<Diagnostic<? extends JavaFileObject>>> entry : diagnostics.entrySet()) {
+            for (final Diagnostic<? extends JavaFileObject> diagnostic : entry.getValue()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    failed.add(entry.getKey());
+                }
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Loads the compiled classes, for example to test generated code without writing class files.
+     * @param parent loads the classes the generated classes depend on
+     * @return class loader defining the compiled classes
+     */
+    public ClassLoader classLoader(final ClassLoader parent) {
+        return new ClassLoader(parent) {
+
+            @Override
+            protected Class<?> findClass(final String name) throws ClassNotFoundException {
+                final byte[] classFile = classFiles.get(name);
+                if (classFile == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                return defineClass(name, classFile, 0, classFile.length);
+            }
+        };
+    }
+
+    /**
+     * @return number of compiled classes and all errors, one per line: "foo.bar.FluentButton:12: cannot find symbol"
+     */
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder().append("compiled ").append(diagnostics.size()).append(" classes, ")
+                .append(getFailedClassNames().size()).append(" with errors");
+        for (final Map.Entry<String, List<Diagnostic<? extends JavaFileObject>>> entry : diagnostics.entrySet()) {
+            for (final Diagnostic<? extends JavaFileObject> diagnostic : entry.getValue()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    result.append('\n').append(entry.getKey()).append(':').append(diagnostic.getLineNumber()).append(": ")
+                            .append(diagnostic.getMessage(null));
+                }
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,214 @@
+package de.holisticon.toolbox.generator.verify;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Throwables.propagate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.SourceVersion;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Compiles generated sources with the system java compiler in a single task: sources are read from memory and class files are kept in memory,
+ * nothing is written to disk. The compiler is initialized once for all sources, so verifying thousands of generated classes costs one warm-up.
+ * Needs a JDK. Thread safe.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class SourceCompiler {
+
+    private SourceCompiler() {
+        // static only
+    }
+
+    /**
+     * A source held in memory.
+     */
+    private static final class SourceFile extends SimpleJavaFileObject {
+
+        private final String source;
+
+        SourceFile(final String className, final String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    /**
+     * Keeps the class files written by the compiler.
+     */
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private final Map<String, byte[]> classFiles = Maps.newConcurrentMap();
+
+        MemoryFileManager(final StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(final JavaFileManager.Location location, final String className, final JavaFileObject.Kind kind,
+                final FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("memory:///" + className.replace('.', '/') + kind.extension), kind) {
+
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+
+                        @Override
+                        public void close() {
+                            classFiles.put(className, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * Compiles for the default version of the system java compiler, see {@link #compile(Map, List, String)}.
+     * @param sources source code by fully qualified class name, see
+     *            {@link de.holisticon.toolbox.generator.output.InMemoryOutputSink#getSources()}
+     * @param classPath directories and jar files the sources depend on, see {@link #classPath(Collection, ClassLoader)}
+     * @return diagnostics per class and the class files
+     */
+    public static CompilationResult compile(final Map<String, String> sources, final List<File> classPath) {
+        return compile(sources, classPath, null);
+    }
+
+    /**
+     * @param sources source code by fully qualified class name, see
+     *            {@link de.holisticon.toolbox.generator.output.InMemoryOutputSink#getSources()}
+     * @param classPath directories and jar files the sources depend on, see {@link #classPath(Collection, ClassLoader)}
+     * @param target java version passed as <code>-source</code> and <code>-target</code> ("1.6", "11"), <code>null</code> for the default of the
+     *            compiler
+     * @return diagnostics per class and the class files
+     * @throws IllegalStateException if there is no system java compiler or it does not support the target
+     */
+    public static CompilationResult compile(final Map<String, String> sources, final List<File> classPath, final String target) {
+        checkArgument(sources != null);
+        checkArgument(classPath != null);
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        checkState(compiler != null, "no system java compiler, a JDK is required");
+        final List<String> options = Lists.newArrayList("-classpath", Joiner.on(File.pathSeparator).join(classPath), "-proc:none");
+        if (target != null) {
+            checkState(compiler.getSourceVersions().contains(sourceVersion(target)), "the system java compiler does not support target %s",
+                    target);
+            // no warning about the missing boot class path of the target version
+            options.addAll(ImmutableList.of("-source", target, "-target", target, "-Xlint:-options"));
+        }
+
+        final Map<JavaFileObject, String> classNames = Maps.newIdentityHashMap();
+        final Map<String, List<Diagnostic<? extends JavaFileObject>>> diagnostics = Maps.newHashMap();
+        for (final Map.Entry<String, String> source : sources.entrySet()) {
+            classNames.put(new SourceFile(source.getKey(), source.getValue()), source.getKey());
+            diagnostics.put(source.getKey(), Lists.<Diagnostic<? extends JavaFileObject>> newArrayList());
+        }
+        if (sources.isEmpty()) {
+            return new CompilationResult(true, diagnostics, ImmutableList.<Diagnostic<? extends JavaFileObject>> of(),
+                    ImmutableMap.<String, byte[]> of());
+        }
+
+        final DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<JavaFileObject>();
+        final MemoryFileManager fileManager = new MemoryFileManager(compiler.getStandardFileManager(collector, null, Charsets.UTF_8));
+        final boolean success;
+        try {
+            success = compiler.getTask(null, fileManager, collector, options, null, classNames.keySet()).call();
+        } finally {
+            try {
+                fileManager.close();
+            } catch (final IOException e) {
+                // ignore, nothing was written to disk
+            }
+        }
+
+        final List<Diagnostic<? extends JavaFileObject>> otherDiagnostics = Lists.newArrayList();
+        for (final Diagnostic<? extends JavaFileObject> diagnostic : collector.getDiagnostics()) {
+            final String className = diagnostic.getSource() != null ? classNames.get(diagnostic.getSource()) : null;
+            if (className != null) {
+                diagnostics.get(className).add(diagnostic);
+            } else {
+                otherDiagnostics.add(diagnostic);
+            }
+        }
+        return new CompilationResult(success, diagnostics, otherDiagnostics, fileManager.classFiles);
+    }
+
+    /**
+     * @return RELEASE_6 for "1.6", RELEASE_11 for "11", <code>null</code> if the running java version does not know it
+     */
+    private static SourceVersion sourceVersion(final String target) {
+        try {
+            return SourceVersion.valueOf("RELEASE_" + (target.startsWith("1.") ? target.substring(2) : target));
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The class path of the current process: the given entries, the directories and jar files of the given class loader and its parents (if they
+     * are {@link URLClassLoader}s, like the class realm of a maven plugin) and the system class path.
+     * @param entries additional directories and jar files, searched first
+     * @param classLoader class loader, may be <code>null</code>
+     * @return distinct existing directories and jar files
+     */
+    public static List<File> classPath(final Collection<File> entries, final ClassLoader classLoader) {
+        final Set<File> classPath = Sets.newLinkedHashSet(entries);
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            if (loader instanceof URLClassLoader) {
+                for (final URL url : ((URLClassLoader) loader).getURLs()) {
+                    if ("file".equals(url.getProtocol())) {
+                        try {
+                            classPath.add(new File(url.toURI()));
+                        } catch (final URISyntaxException e) {
+                            throw propagate(e);
+                        }
+                    }
+                }
+            }
+        }
+        for (final String entry : Splitter.on(File.pathSeparator).omitEmptyStrings().split(System.getProperty("java.class.path", ""))) {
+            classPath.add(new File(entry));
+        }
+        final List<File> existing = Lists.newArrayList();
+        for (final File entry : classPath) {
+            if (entry.exists()) {
+                existing.add(entry);
+            }
+        }
+        return existing;
+    }
+}
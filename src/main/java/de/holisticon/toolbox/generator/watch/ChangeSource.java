@@ -0,0 +1,37 @@
+package de.holisticon.toolbox.generator.watch;
+
+import java.io.Closeable;
+
+/**
+ * Reports the changed class files and jar files of the class path watched by a {@link GenerationWatcher}. The watcher polls with a timeout to
+ * collect a burst of changes, so an implementation should report a change as soon as it is noticed.
+ * @author Jan Galinski, Holisticon AG
+ */
+public interface ChangeSource extends Closeable {
+
+    /**
+     * Starts recording changes, called before the initial round. Files changed afterwards are reported.
+     */
+    void start();
+
+    /**
+     * Waits for changes.
+     * @return changed files, empty if the source was closed meanwhile
+     * @throws InterruptedException if interrupted while waiting
+     */
+    FileChanges take() throws InterruptedException;
+
+    /**
+     * Waits for changes, at most for the given time.
+     * @param timeoutMillis maximal time to wait
+     * @return changed files, empty if nothing changed within the time or the source was closed meanwhile
+     * @throws InterruptedException if interrupted while waiting
+     */
+    FileChanges poll(long timeoutMillis) throws InterruptedException;
+
+    /**
+     * Stops recording, a waiting {@link #take()} or {@link #poll(long)} returns.
+     */
+    @Override
+    void close();
+}
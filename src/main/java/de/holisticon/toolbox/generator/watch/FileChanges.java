@@ -0,0 +1,69 @@
+package de.holisticon.toolbox.generator.watch;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.File;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Files reported by a {@link ChangeSource} and when they changed. Immutable.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class FileChanges {
+
+    /**
+     * No changes.
+     */
+    public static final FileChanges NONE = new FileChanges(ImmutableSet.<File> of(), Long.MAX_VALUE);
+
+    private final Set<File> files;
+    private final long firstChangeNanos;
+
+    /**
+     * @param files added, removed or modified class files of directories and jar files. A directory of the class path means that an unknown
+     *            part of it changed.
+     * @param firstChangeNanos {@link System#nanoTime()} of the first change
+     */
+    public FileChanges(final Set<File> files, final long firstChangeNanos) {
+        checkArgument(files != null);
+        this.files = ImmutableSet.copyOf(files);
+        this.firstChangeNanos = firstChangeNanos;
+    }
+
+    /**
+     * @param other later changes
+     * @return the files of both, changed since the first change of both
+     */
+    public FileChanges merge(final FileChanges other) {
+        return new FileChanges(ImmutableSet.<File> builder().addAll(files).addAll(other.files).build(), Math.min(firstChangeNanos,
+                other.firstChangeNanos));
+    }
+
+    /**
+     * @return <code>true</code> if no file changed
+     */
+    public boolean isEmpty() {
+        return files.isEmpty();
+    }
+
+    /**
+     * @return the changed files
+     */
+    public Set<File> getFiles() {
+        return files;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} of the first change
+     */
+    public long getFirstChangeNanos() {
+        return firstChangeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return files.toString();
+    }
+}
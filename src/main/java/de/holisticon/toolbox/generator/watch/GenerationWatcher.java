@@ -0,0 +1,379 @@
+package de.holisticon.toolbox.generator.watch;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+import static org.apache.commons.lang3.StringUtils.removeEnd;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import de.holisticon.toolbox.generator.FluentApiGenerator;
+import de.holisticon.toolbox.generator.FluentApiGeneratorBuilder;
+import de.holisticon.toolbox.generator.classfile.ClassFileRepository;
+import de.holisticon.toolbox.generator.classfile.ClassFileScan;
+import de.holisticon.toolbox.generator.daemon.GenerationSettings;
+
+/**
+ * Regenerates the fluent classes while their source classes are recompiled, for development. A {@link ChangeSource} reports the changed class
+ * files of the directories and the changed jar files of the watched class path: the <code>WatchService</code> based source of the
+ * <code>fluent-api-generator-watch</code> module (Java 7) reports them as the file system notices them, the polling source of this module is
+ * the fallback. A burst of changes, like an incremental compile, is collected until no file changed for the quiet period, then one round
+ * regenerates.
+ * <p>
+ * The watched classes, their super types and the class files and declared methods read by earlier rounds are kept: a round only reads the
+ * changed class files of directories again and analyzes the changed watched classes and the watched classes extending a changed class, a
+ * changed jar file starts over. Each round runs incremental generation (see {@link FluentApiGeneratorBuilder#incremental(boolean)}), so only
+ * fluent classes whose source class api changed are written. Every round reports its latency from the first change, see {@link WatchRound}.
+ * </p>
+ * Configure the generator with a builder, the watcher uses a copy with its own class file repository and incremental generation. Not thread
+ * safe, except {@link #close()}.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class GenerationWatcher implements Runnable, Closeable {
+
+    /**
+     * Interval of checking the watched files with the polling source, if not configured. Each check lists the class files of the watched
+     * directories.
+     */
+    public static final long DEFAULT_POLL_MILLIS = 500;
+
+    /**
+     * Time without changes after which a round starts, if not configured.
+     */
+    public static final long DEFAULT_QUIET_MILLIS = 100;
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    /**
+     * Receives the completed rounds.
+     */
+    public interface Listener {
+
+        /**
+         * @param round the completed round
+         */
+        void roundCompleted(WatchRound round);
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final FluentApiGeneratorBuilder builder;
+    private final List<File> classPath;
+    private final ChangeSource changeSource;
+    private final long quietMillis;
+
+    private final Set<String> classNames = Sets.newLinkedHashSet();
+
+    /**
+     * Watched packages, <code>true</code> if their sub packages are included.
+     */
+    private final Map<String, Boolean> packageNames = Maps.newLinkedHashMap();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    /**
+     * The watched classes generated so far and the names of their super types.
+     */
+    private final Map<String, Set<String>> superTypeNames = Maps.newHashMap();
+
+    /**
+     * Watched classes of a failed round, analyzed again by the next one.
+     */
+    private final Set<String> pending = Sets.newLinkedHashSet();
+
+    /**
+     * Shared by the rounds, replaced if a jar file changed.
+     */
+    private ClassFileRepository repository;
+    private volatile boolean stopped;
+
+    /**
+     * Polls the class path every {@value #DEFAULT_POLL_MILLIS} ms.
+     * @param builder configured generator builder, without class path entries
+     * @param classPath existing directories and jar files, the source classes are read from them
+     */
+    public GenerationWatcher(final FluentApiGeneratorBuilder builder, final List<File> classPath) {
+        this(builder, classPath, DEFAULT_POLL_MILLIS, DEFAULT_QUIET_MILLIS);
+    }
+
+    /**
+     * Polls the class path.
+     * @param builder configured generator builder, without class path entries
+     * @param classPath existing directories and jar files, the source classes are read from them
+     * @param pollMillis interval of checking the watched files
+     * @param quietMillis time without changes after which a round starts
+     */
+    public GenerationWatcher(final FluentApiGeneratorBuilder builder, final List<File> classPath, final long pollMillis, final long quietMillis) {
+        this(builder, checkClassPath(classPath), new PollingChangeSource(classPath, pollMillis), quietMillis);
+    }
+
+    /**
+     * @param builder configured generator builder, without class path entries
+     * @param classPath existing directories and jar files, the source classes are read from them
+     * @param changeSource reports the changes of the class path, closed by the watcher
+     * @param quietMillis time without changes after which a round starts
+     */
+    public GenerationWatcher(final FluentApiGeneratorBuilder builder, final List<File> classPath, final ChangeSource changeSource,
+            final long quietMillis) {
+        checkArgument(builder != null);
+        checkArgument(changeSource != null);
+        checkArgument(quietMillis >= 0, "quiet period must not be negative");
+        this.builder = builder.copy();
+        this.classPath = ImmutableList.copyOf(checkClassPath(classPath));
+        this.changeSource = changeSource;
+        this.quietMillis = quietMillis;
+    }
+
+    private static List<File> checkClassPath(final List<File> classPath) {
+        checkArgument(classPath != null && !classPath.isEmpty(), "class path required");
+        for (final File entry : classPath) {
+            checkArgument(entry.exists(), format("class path entry '%s' does not exist", entry.getAbsolutePath()));
+        }
+        return classPath;
+    }
+
+    /**
+     * Watches source classes by name, see {@link FluentApiGenerator#addClassFiles(java.util.Collection)}.
+     * @param names binary names of the source classes
+     * @return this
+     */
+    public GenerationWatcher addClassFiles(final String... names) {
+        checkArgument(names != null);
+        classNames.addAll(Arrays.asList(names));
+        return this;
+    }
+
+    /**
+     * Watches the bean candidates of a package, see {@link FluentApiGenerator#addPackage(String, boolean)}. Classes added to the package later
+     * are generated too.
+     * @param packageName package name, "com.example.beans"
+     * @param recursive <code>true</code> to include sub packages
+     * @return this
+     */
+    public GenerationWatcher addPackage(final String packageName, final boolean recursive) {
+        checkArgument(packageName != null);
+        packageNames.put(packageName, recursive);
+        return this;
+    }
+
+    /**
+     * @param listeners notified after each round, on the watching thread
+     * @return this
+     */
+    public GenerationWatcher addListeners(final Listener... listeners) {
+        checkArgument(listeners != null);
+        this.listeners.addAll(Arrays.asList(listeners));
+        return this;
+    }
+
+    /**
+     * Generates all watched classes, then regenerates on every change until {@link #close()} is called or the thread is interrupted. A failed
+     * round is logged, the next change starts a new one.
+     */
+    @Override
+    public void run() {
+        checkState(!classNames.isEmpty() || !packageNames.isEmpty(), "no classes or packages to watch");
+        changeSource.start();
+        try {
+            tryRound(Collections.<File> emptySet(), System.nanoTime());
+            while (!stopped) {
+                FileChanges changes = changeSource.take();
+                FileChanges more = changes;
+                while (!more.isEmpty() && !stopped) {
+                    // returns as soon as another file changes, which restarts the quiet period
+                    more = changeSource.poll(quietMillis);
+                    changes = changes.merge(more);
+                }
+                if (!changes.isEmpty() && !stopped) {
+                    tryRound(changes.getFiles(), changes.getFirstChangeNanos());
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            changeSource.close();
+            if (repository != null) {
+                repository.close();
+            }
+        }
+    }
+
+    private void tryRound(final Set<File> changed, final long firstChangeNanos) {
+        try {
+            round(changed, firstChangeNanos);
+        } catch (final RuntimeException e) {
+            logger.warn("generation failed, waiting for the next change", e);
+        }
+    }
+
+    /**
+     * Stops watching, the current round is completed.
+     */
+    @Override
+    public void close() {
+        stopped = true;
+        changeSource.close();
+    }
+
+    /**
+     * Regenerates the watched classes affected by the changed files, reading them again.
+     * @param changed class files and jar files changed since the last round
+     * @param firstChangeNanos {@link System#nanoTime()} of the first change
+     * @return the completed round
+     */
+    WatchRound round(final Set<File> changed, final long firstChangeNanos) {
+        final long start = System.nanoTime();
+        final Set<String> changedClasses = Sets.newHashSet();
+        boolean reload = repository == null;
+        for (final File file : changed) {
+            final String className = className(file);
+            if (className != null) {
+                changedClasses.add(className);
+            } else {
+                reload = true;
+            }
+        }
+        final Set<String> affected;
+        if (reload) {
+            if (repository != null) {
+                repository.close();
+            }
+            repository = new ClassFileRepository(classPath, ClassFileRepository.JDK_CLASSES);
+            superTypeNames.clear();
+            pending.clear();
+            affected = watchedClasses();
+        } else {
+            repository.invalidate(changedClasses);
+            affected = affectedClasses(changedClasses);
+        }
+
+        pending.addAll(affected);
+        final FluentApiGenerator generator = builder.copy().classFileRepository(repository).incremental(true).build().addClassFiles(affected);
+        generator.generateCode();
+        for (final String className : affected) {
+            superTypeNames.put(className, repository.superTypeNames(className));
+        }
+        pending.clear();
+
+        final long end = System.nanoTime();
+        final WatchRound round = new WatchRound(changed.size(), generator.getReport(), end - firstChangeNanos, end - start);
+        logger.info("{}", round);
+        for (final Listener listener : listeners) {
+            listener.roundCompleted(round);
+        }
+        return round;
+    }
+
+    /**
+     * @return the classes added by name and the bean candidates of the watched packages
+     */
+    private Set<String> watchedClasses() {
+        final Set<String> names = Sets.newLinkedHashSet(classNames);
+        for (final Map.Entry<String, Boolean> packageName : packageNames.entrySet()) {
+            final ClassFileScan scan = repository.scanPackage(packageName.getKey(), packageName.getValue());
+            try {
+                while (scan.hasNext()) {
+                    names.add(scan.next().getName());
+                }
+            } finally {
+                scan.close();
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Removed classes and classes that are no bean candidates anymore are not watched further.
+     * @return the changed watched classes, the watched classes with a changed super type and the classes of a failed round
+     */
+    private Set<String> affectedClasses(final Set<String> changedClasses) {
+        final Set<String> affected = Sets.newLinkedHashSet();
+        for (final String className : changedClasses) {
+            if (repository.contains(className)
+                    && (classNames.contains(className) || isInWatchedPackage(className) && repository.isCandidate(className))) {
+                affected.add(className);
+            } else {
+                superTypeNames.remove(className);
+            }
+        }
+        for (final Map.Entry<String, Set<String>> entry : superTypeNames.entrySet()) {
+            if (!Collections.disjoint(entry.getValue(), changedClasses)) {
+                affected.add(entry.getKey());
+            }
+        }
+        for (final String className : pending) {
+            if (repository.contains(className)) {
+                affected.add(className);
+            }
+        }
+        return affected;
+    }
+
+    private boolean isInWatchedPackage(final String className) {
+        final String packageName = className.lastIndexOf('.') < 0 ? "" : className.substring(0, className.lastIndexOf('.'));
+        for (final Map.Entry<String, Boolean> entry : packageNames.entrySet()) {
+            if (packageName.equals(entry.getKey()) || entry.getValue()
+                    && (entry.getKey().length() == 0 || packageName.startsWith(entry.getKey() + "."))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return binary name of a class file of a directory, <code>null</code> for a jar file or a directory of the class path
+     */
+    private String className(final File file) {
+        for (final File entry : classPath) {
+            final String prefix = entry.getPath() + File.separator;
+            if (file.getPath().startsWith(prefix)) {
+                return removeEnd(file.getPath().substring(prefix.length()), CLASS_SUFFIX).replace(File.separatorChar, '.');
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Watches until the process is stopped, polling the class path. Takes the {@link GenerationSettings} of a daemon request as arguments,
+     * "targetDirectory", "classPath" and "classes" or "packages" are required:
+     * <code>targetDirectory=target/generated-sources/fluent-api classPath=target/classes packages=com.example.beans</code>
+     * @param args key=value pairs
+     */
+    public static void main(final String[] args) {
+        final GenerationSettings settings = GenerationSettings.parse(args, "usage: GenerationWatcher targetDirectory=<directory> "
+                + "classPath=<class path> [classes=<names>] [packages=<names>] [recursive=true] [rootPackage=<package>] [mode=<mode>] "
+                + "[target=<version>] [ignoredMethodNames=<names>]");
+        watch(settings, new PollingChangeSource(checkClassPath(settings.classPath()), DEFAULT_POLL_MILLIS));
+    }
+
+    /**
+     * Watches until the process is stopped.
+     * @param settings parsed arguments of {@link #main(String[])}
+     * @param changeSource reports the changes of the class path of the settings
+     */
+    public static void watch(final GenerationSettings settings, final ChangeSource changeSource) {
+        // unchanged files are not touched, so the IDE only compiles the regenerated ones
+        final GenerationWatcher watcher = new GenerationWatcher(settings.builder().reproducible(true), settings.classPath(), changeSource,
+                DEFAULT_QUIET_MILLIS);
+        watcher.addClassFiles(Iterables.toArray(settings.list(GenerationSettings.CLASSES), String.class));
+        final boolean recursive = settings.flag(GenerationSettings.RECURSIVE, false);
+        for (final String packageName : settings.list(GenerationSettings.PACKAGES)) {
+            watcher.addPackage(packageName, recursive);
+        }
+        watcher.run();
+    }
+}
@@ -0,0 +1,177 @@
+package de.holisticon.toolbox.generator.watch;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.MapDifference;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Polls the class files of the directories and the jar files of a class path for changed length or modification time. Works on any Java
+ * version and file system, but every check lists all watched directories, so it is only the fallback if the <code>WatchService</code> based
+ * source of the <code>fluent-api-generator-watch</code> module cannot be used.
+ * @author Jan Galinski, Holisticon AG
+ */
+final class PollingChangeSource implements ChangeSource {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    /**
+     * Length and modification time of a watched file.
+     */
+    private static final class FileState {
+
+        private final long length;
+        private final long lastModified;
+
+        FileState(final File file) {
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof FileState)) {
+                return false;
+            }
+            final FileState other = (FileState) obj;
+            return length == other.length && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (length ^ lastModified ^ (lastModified >>> 32));
+        }
+    }
+
+    private final List<File> classPath;
+    private final long pollMillis;
+
+    /**
+     * State of the watched files as of the last check.
+     */
+    private Map<File, FileState> snapshot;
+
+    /**
+     * {@link System#currentTimeMillis()} of the last check.
+     */
+    private long snapshotMillis;
+    private volatile boolean closed;
+
+    /**
+     * @param classPath directories and jar files
+     * @param pollMillis interval of checking the watched files
+     */
+    PollingChangeSource(final List<File> classPath, final long pollMillis) {
+        checkArgument(pollMillis > 0, "poll interval must be positive");
+        this.classPath = ImmutableList.copyOf(classPath);
+        this.pollMillis = pollMillis;
+    }
+
+    @Override
+    public void start() {
+        snapshotMillis = System.currentTimeMillis();
+        snapshot = scan();
+    }
+
+    @Override
+    public FileChanges take() throws InterruptedException {
+        while (!closed) {
+            Thread.sleep(pollMillis);
+            final FileChanges changes = check();
+            if (!changes.isEmpty()) {
+                return changes;
+            }
+        }
+        return FileChanges.NONE;
+    }
+
+    /**
+     * Checks every poll interval and once more when the time is up, so a shorter time than the poll interval is kept.
+     */
+    @Override
+    public FileChanges poll(final long timeoutMillis) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!closed) {
+            final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            Thread.sleep(Math.max(0, Math.min(pollMillis, remaining)));
+            final FileChanges changes = check();
+            if (!changes.isEmpty() || remaining <= pollMillis) {
+                return changes;
+            }
+        }
+        return FileChanges.NONE;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * A file changed after the previous check and not later than its modification time, unless that is coarse or in the future. The earliest
+     * possible time is reported, so the latency of a round is not underestimated.
+     * @return class files and jar files added, removed or modified since the last check
+     */
+    FileChanges check() {
+        checkState(snapshot != null, "not started");
+        final long previousMillis = snapshotMillis;
+        snapshotMillis = System.currentTimeMillis();
+        final Map<File, FileState> current = scan();
+        final MapDifference<File, FileState> difference = Maps.difference(snapshot, current);
+        snapshot = current;
+        if (difference.areEqual()) {
+            return FileChanges.NONE;
+        }
+
+        final Set<File> changed = Sets.newHashSet(difference.entriesDiffering().keySet());
+        changed.addAll(difference.entriesOnlyOnRight().keySet());
+        long firstChangeMillis = snapshotMillis;
+        for (final File file : changed) {
+            firstChangeMillis = Math.min(firstChangeMillis, Math.max(previousMillis, current.get(file).lastModified));
+        }
+        if (!difference.entriesOnlyOnLeft().isEmpty()) {
+            // removed files have no modification time
+            changed.addAll(difference.entriesOnlyOnLeft().keySet());
+            firstChangeMillis = previousMillis;
+        }
+        return new FileChanges(changed, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - firstChangeMillis));
+    }
+
+    /**
+     * @return the class files of the directories and the jar files of the class path
+     */
+    private Map<File, FileState> scan() {
+        final Map<File, FileState> files = Maps.newHashMap();
+        for (final File entry : classPath) {
+            if (entry.isDirectory()) {
+                scan(entry, files);
+            } else {
+                files.put(entry, new FileState(entry));
+            }
+        }
+        return files;
+    }
+
+    private static void scan(final File directory, final Map<File, FileState> files) {
+        final File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (final File child : children) {
+            if (child.isDirectory()) {
+                scan(child, files);
+            } else if (child.getName().endsWith(CLASS_SUFFIX)) {
+                files.put(child, new FileState(child));
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package de.holisticon.toolbox.generator.watch;
+
+import static java.lang.String.format;
+
+import java.util.concurrent.TimeUnit;
+
+import de.holisticon.toolbox.generator.metrics.GenerationReport;
+
+/**
+ * Outcome of one regeneration of a {@link GenerationWatcher}. Immutable.
+ * @author Jan Galinski, Holisticon AG
+ */
+public final class WatchRound {
+
+    private final int changedFiles;
+    private final GenerationReport report;
+    private final long latencyNanos;
+    private final long generationNanos;
+
+    WatchRound(final int changedFiles, final GenerationReport report, final long latencyNanos, final long generationNanos) {
+        this.changedFiles = changedFiles;
+        this.report = report;
+        this.latencyNanos = latencyNanos;
+        this.generationNanos = generationNanos;
+    }
+
+    /**
+     * @return number of changed class files and jar files, 0 for the initial round
+     */
+    public int getChangedFiles() {
+        return changedFiles;
+    }
+
+    /**
+     * @return report of the generator run, regenerated classes and classes skipped as up to date
+     */
+    public GenerationReport getReport() {
+        return report;
+    }
+
+    /**
+     * @return time from the first change until the sources were written, including the quiet period. The change time is the file system
+     *         event or, with the polling source, the modification time of the changed file. The initial round measures from its start.
+     */
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * @return time spent generating
+     */
+    public long getGenerationNanos() {
+        return generationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return format("%s changed files, %s classes generated, %s up to date in %s ms (%s ms after the first change)", changedFiles,
+                report.getClassCount(), report.getUpToDateCount(), TimeUnit.NANOSECONDS.toMillis(generationNanos),
+                TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+    }
+}
@@ -5,36 +5,69 @@ import static de.holisticon.toolbox.generator.FluentApiGenerator.DEFAULT_TARGET_
 import static de.holisticon.toolbox.generator.FluentApiGenerator.fluentApiGenerator;
 import static java.lang.String.format;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.tools.JavaCompiler;
 import javax.tools.ToolProvider;
 
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.io.Files;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JType;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Panel;
+import com.vaadin.ui.PasswordField;
+import com.vaadin.ui.TextArea;
 import com.vaadin.ui.TextField;
+import com.vaadin.ui.VerticalLayout;
 
+import de.holisticon.toolbox.generator.classfile.ClassFileRepository;
+import de.holisticon.toolbox.generator.fixture.AbstractBean;
+import de.holisticon.toolbox.generator.fixture.ContainerBean;
+import de.holisticon.toolbox.generator.fixture.Order;
+import de.holisticon.toolbox.generator.fixture.PropertyBean;
+import de.holisticon.toolbox.generator.incremental.Fingerprints;
+import de.holisticon.toolbox.generator.metrics.ClassMetrics;
+import de.holisticon.toolbox.generator.metrics.GenerationListener;
+import de.holisticon.toolbox.generator.metrics.GenerationPhase;
+import de.holisticon.toolbox.generator.metrics.GenerationReport;
+import de.holisticon.toolbox.generator.model.SourceMethodCache;
 import de.holisticon.toolbox.generator.predicate.MethodPredicates;
+import de.holisticon.toolbox.generator.verify.CompilationResult;
 
 public class FluentApiGeneratorTest {
 
     private static final String ROOT_PACKAGE = "foo.bar";
     private static final String PATH = DEFAULT_TARGET_DIRECTORY + "/foo/bar/FluentTextField.java";
 
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
     private final JavaCompiler systemJavaCompiler = ToolProvider.getSystemJavaCompiler();
     private final Logger logger = LoggerFactory.getLogger(FluentApiGeneratorTest.class);
 
@@ -49,6 +82,393 @@ public class FluentApiGeneratorTest {
         assertTrue(systemJavaCompiler.run(null, null, null, PATH) < 1);
     }
 
+    @Test
+    public void shouldGenerateSameCodeInParallel() throws IOException {
+        final List<Class<?>> sourceClasses = Lists.<Class<?>> newArrayList(TextField.class, TextArea.class, PasswordField.class, Button.class,
+                Label.class, Panel.class, VerticalLayout.class, HorizontalLayout.class);
+
+        final File sequential = folder.newFolder("sequential");
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(sequential.getPath()).build().addClasses(sourceClasses).generateCode();
+        final File parallel = folder.newFolder("parallel");
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(parallel.getPath()).parallelism(4).build().addClasses(sourceClasses)
+                .generateCode();
+
+        for (final Class<?> sourceClass : sourceClasses) {
+            final String path = "foo/bar/Fluent" + sourceClass.getSimpleName() + ".java";
+            assertThat(path, withoutGenerated(new File(parallel, path)), is(withoutGenerated(new File(sequential, path))));
+        }
+    }
+
+    @Test
+    public void shouldAnalyzeSuperClassMethodsOnce() {
+        final FluentApiGenerator generator = fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(folder.getRoot().getPath()).build()
+                .addClasses(Lists.<Class<?>> newArrayList(TextField.class, TextArea.class));
+        final long misses = generator.getSourceMethodCache().getMissCount();
+        final long hits = generator.getSourceMethodCache().getHitCount();
+        generator.addClass(PasswordField.class);
+
+        // at most the methods declared by PasswordField itself are new, AbstractTextField and above are reused
+        assertTrue(generator.getSourceMethodCache().getMissCount() <= misses + 1);
+        assertTrue(generator.getSourceMethodCache().getHitCount() > hits);
+        // each declaring class is counted once
+        assertThat(generator.getSourceMethodCache().getHitCount() + generator.getSourceMethodCache().getMissCount() - hits - misses,
+                is((long) superTypes(PasswordField.class, Sets.<Class<?>> newHashSet()).size()));
+    }
+
+    @Test
+    public void shouldCollectPublicMethodsLikeReflection() {
+        final SourceMethodCache cache = new SourceMethodCache();
+        for (final Class<?> type : Lists.<Class<?>> newArrayList(TextField.class, PasswordField.class, PropertyBean.class, Runnable.class)) {
+            assertThat(Fingerprints.ofType(cache.sourceType(type)), is(Fingerprints.ofClass(type)));
+        }
+    }
+
+    private static Set<Class<?>> superTypes(final Class<?> type, final Set<Class<?>> visited) {
+        if (type != null && visited.add(type)) {
+            superTypes(type.getSuperclass(), visited);
+            for (final Class<?> interfaceType : type.getInterfaces()) {
+                superTypes(interfaceType, visited);
+            }
+        }
+        return visited;
+    }
+
+    @Test
+    public void shouldGenerateSameCodeFromClassFile() throws IOException {
+        final File reflection = folder.newFolder("reflection");
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(reflection.getPath()).build().addClass(TextField.class).generateCode();
+        final File classFile = folder.newFolder("classFile");
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(classFile.getPath()).build().addClassFile(TextField.class.getName())
+                .generateCode();
+
+        final String path = "foo/bar/FluentTextField.java";
+        assertThat(withoutGenerated(new File(classFile, path)), is(withoutGenerated(new File(reflection, path))));
+    }
+
+    @Test
+    public void shouldCloseOnlyOwnClassFileRepository() throws IOException {
+        final AtomicInteger closed = new AtomicInteger();
+        final ClassFileRepository shared = new ClassFileRepository(Lists.<File> newArrayList(), getClass().getClassLoader()) {
+
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+                super.close();
+            }
+        };
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(folder.getRoot().getPath()).classFileRepository(shared).build()
+                .addClassFile(TextField.class.getName()).generateCode();
+        // kept open for the next generator
+        assertThat(closed.get(), is(0));
+    }
+
+    @Test
+    public void shouldGenerateFromClassFileWithoutInitialization() throws IOException {
+        final String className = "de.holisticon.toolbox.generator.fixture.UninitializableBean";
+        final FluentApiGenerator generator = fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(folder.getRoot().getPath()).build()
+                .addClassFile(className);
+        generator.generateCode();
+
+        final String source = Files.toString(new File(folder.getRoot(), "foo/bar/FluentUninitializableBean.java"), Charsets.UTF_8);
+        assertTrue(source, source.contains("public FluentUninitializableBean mode(final UninitializableBean.Mode mode)"));
+        assertTrue(source, source.contains("public FluentUninitializableBean entries(final java.util.Map.Entry[] entries)"));
+        assertTrue(source, source.contains("public FluentUninitializableBean addItems(UninitializableBean.Item... items)"));
+        assertTrue(source, source.contains("public static FluentUninitializableBean uninitializableBean(String arg0, int arg1)"));
+        assertTrue(source, !source.contains("legacy"));
+        assertThat(generator.getDefinedClass(className).name(), is("FluentUninitializableBean"));
+    }
+
+    @Test
+    public void shouldGenerateCandidatesOfPackage() throws IOException {
+        final FluentApiGenerator generator = fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(folder.getRoot().getPath())
+                .parallelism(2).build().addPackage("de.holisticon.toolbox.generator.fixture", false);
+        generator.generateCode();
+
+        assertTrue(new File(folder.getRoot(), "foo/bar/FluentUninitializableBean.java").isFile());
+        assertTrue(new File(folder.getRoot(), "foo/bar/FluentItem.java").isFile());
+        // abstract class and enum are no candidates
+        assertTrue(!new File(folder.getRoot(), "foo/bar/FluentAbstractBean.java").exists());
+        assertTrue(!new File(folder.getRoot(), "foo/bar/FluentMode.java").exists());
+        assertThat(generator.getDefinedClass("de.holisticon.toolbox.generator.fixture.UninitializableBean$Item").name(), is("FluentItem"));
+    }
+
+    @Test
+    public void shouldGenerateAdderOverloads() throws IOException {
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(folder.getRoot().getPath()).build().addClass(ContainerBean.class)
+                .generateCode();
+
+        final File file = new File(folder.getRoot(), "foo/bar/FluentContainerBean.java");
+        final String source = Files.toString(file, Charsets.UTF_8);
+        assertTrue(source, source.contains("public FluentContainerBean addValues(final int value1, final int value2)"));
+        assertTrue(source, source.contains("public FluentContainerBean addAllValues(final Iterable<? extends Integer> values)"));
+        // bulk methods
+        assertTrue(source, source.contains("containerBean.addComponents(components);"));
+        assertTrue(source, source.contains("containerBean.addAllTags(((Collection) Arrays.asList(tags)));"));
+        assertTrue(source, source.contains("if (tags instanceof Collection) {"));
+        // no iterable overload for overloaded adders and possibly iterable parameters
+        assertTrue(source, !source.contains("Iterable<? extends Runnable>"));
+        assertTrue(source, !source.contains("Iterable<? extends Object>"));
+
+        compile(file);
+    }
+
+    @Test
+    public void shouldAddLayoutsToLayouts() throws IOException {
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(folder.getRoot().getPath()).build().addClass(VerticalLayout.class)
+                .generateCode();
+        final File file = new File(folder.getRoot(), "foo/bar/FluentVerticalLayout.java");
+        final String source = Files.toString(file, Charsets.UTF_8);
+        assertTrue(source, source.contains("public FluentVerticalLayout addAllComponents(final Iterable<? extends Component> components)"));
+        // no iterable adder for adders taking an array
+        assertTrue(source, !source.contains("Iterable<? extends Component[]>"));
+
+        // a layout is a component and an Iterable of components
+        final File usage = new File(folder.getRoot(), "foo/bar/Usage.java");
+        Files.write("package foo.bar;\npublic class Usage {\n    public static Object nested() {\n"
+                + "        return FluentVerticalLayout.verticalLayout().addComponents(new com.vaadin.ui.HorizontalLayout())\n"
+                + "                .addComponents(new com.vaadin.ui.HorizontalLayout(), new com.vaadin.ui.VerticalLayout()).get();\n"
+                + "    }\n}\n", usage, Charsets.UTF_8);
+        compile(file, usage);
+    }
+
+    @Test
+    public void shouldApplyRecordedPropertiesOnBuildInDeferredMode() throws Exception {
+        final CompilationResult result = fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(folder.getRoot().getPath())
+                .mode(GenerationMode.DEFERRED).build().addClasses(Lists.<Class<?>> newArrayList(PropertyBean.class, ContainerBean.class,
+                        TextField.class, AbstractBean.class)).verify();
+        assertTrue(result.toString(), result.isSuccess());
+        assertThat(result.getClassNames().size(), is(3));
+        final ClassLoader classLoader = result.classLoader(getClass().getClassLoader());
+
+        final Class<?> fluentClass = classLoader.loadClass(ROOT_PACKAGE + ".FluentPropertyBean");
+        final int instances = PropertyBean.instances;
+        Object fluent = fluentClass.getMethod("propertyBean", String.class).invoke(null, "initial");
+        fluent = fluentClass.getMethod("age", int.class).invoke(fluent, 42);
+        fluent = fluentClass.getMethod("active").invoke(fluent);
+        fluent = fluentClass.getMethod("addTags", String.class, String.class).invoke(fluent, "a", "b");
+        assertThat("not created before build()", PropertyBean.instances, is(instances));
+
+        final PropertyBean bean = (PropertyBean) fluentClass.getMethod("build").invoke(fluent);
+        assertThat(bean.getName(), is("initial"));
+        assertThat(bean.getAge(), is(42));
+        assertTrue(bean.isActive());
+        assertThat(bean.getTags(), is((List<String>) Lists.newArrayList("a", "b")));
+        assertThat(PropertyBean.instances, is(instances + 1));
+        assertTrue("get() builds once", fluentClass.getMethod("get").invoke(fluent) == fluentClass.getMethod("get").invoke(fluent));
+        assertThat(PropertyBean.instances, is(instances + 2));
+
+        // applied in call order: the value can not be set once the field is read only
+        final Class<?> textFieldClass = classLoader.loadClass(ROOT_PACKAGE + ".FluentTextField");
+        Object textField = textFieldClass.getMethod("textField").invoke(null);
+        textField = textFieldClass.getMethod("value", String.class).invoke(textField, "x");
+        textField = textFieldClass.getMethod("readOnly", boolean.class).invoke(textField, true);
+        textField = textFieldClass.getMethod("caption", String.class).invoke(textField, "caption");
+        final TextField built = (TextField) textFieldClass.getMethod("build").invoke(textField);
+        assertThat(built.getValue(), is("x"));
+        assertTrue(built.isReadOnly());
+    }
+
+    @Test
+    public void shouldNotClashWithLocalsOfBuildInDeferredMode() throws Exception {
+        final CompilationResult result = fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(folder.getRoot().getPath())
+                .mode(GenerationMode.DEFERRED).build().addClass(Order.class).verify();
+        assertTrue(result.toString(), result.isSuccess());
+
+        final Class<?> fluentClass = result.classLoader(getClass().getClassLoader()).loadClass(ROOT_PACKAGE + ".FluentOrder");
+        Object fluent = fluentClass.getMethod("order").invoke(null);
+        fluent = fluentClass.getMethod("addItems", String[].class).invoke(fluent, (Object) new String[] { "a", "b" });
+        fluent = fluentClass.getMethod("customer", String.class).invoke(fluent, "customer");
+        final Order order = (Order) fluentClass.getMethod("build").invoke(fluent);
+        assertThat(order.getCustomer(), is("customer"));
+        assertThat(order.getItems(), is((List<String>) Lists.newArrayList("a", "b")));
+    }
+
+    @Test
+    public void shouldRetargetWrappersInReusableMode() throws Exception {
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(folder.getRoot().getPath()).mode(GenerationMode.REUSABLE).build()
+                .addClass(PropertyBean.class).generateCode();
+        final ClassLoader classLoader = compile(new File(folder.getRoot(), "foo/bar/FluentPropertyBean.java"));
+
+        final Class<?> fluentClass = classLoader.loadClass(ROOT_PACKAGE + ".FluentPropertyBean");
+        final PropertyBean first = new PropertyBean();
+        final PropertyBean second = new PropertyBean();
+        final Object wrapper = fluentClass.getMethod("wrap", PropertyBean.class).invoke(null, first);
+        fluentClass.getMethod("age", int.class).invoke(wrapper, 1);
+        assertThat(fluentClass.getMethod("reset", PropertyBean.class).invoke(wrapper, second), is(wrapper));
+        fluentClass.getMethod("age", int.class).invoke(wrapper, 2);
+        assertThat(first.getAge(), is(1));
+        assertThat(second.getAge(), is(2));
+
+        final Object local = fluentClass.getMethod("local", PropertyBean.class).invoke(null, first);
+        fluentClass.getMethod("name", String.class).invoke(local, "first");
+        assertThat("reused by the same thread", fluentClass.getMethod("local", PropertyBean.class).invoke(null, second), is(local));
+        fluentClass.getMethod("active").invoke(local);
+        assertThat(first.getName(), is("first"));
+        assertTrue(!first.isActive());
+        assertTrue(second.isActive());
+        assertThat(fluentClass.getMethod("get").invoke(local), is((Object) second));
+
+        fluentClass.getMethod("release").invoke(null);
+        assertThat("removed from the thread", fluentClass.getMethod("local", PropertyBean.class).invoke(null, first), not(is(local)));
+    }
+
+    @Test
+    public void shouldGenerateInterfaceImplementedByBean() throws Exception {
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(folder.getRoot().getPath()).mode(GenerationMode.INTERFACE).target("1.8")
+                .build().addClass(PropertyBean.class).generateCode();
+        final File file = new File(folder.getRoot(), "foo/bar/FluentPropertyBean.java");
+        final String source = Files.toString(file, Charsets.UTF_8);
+        assertTrue(source, source.contains("public interface FluentPropertyBean<T extends FluentPropertyBean<T> >"));
+        assertTrue(source, source.contains("public default T age(final int age)"));
+        assertTrue(source, source.contains("public void setAge(int arg0);"));
+
+        final File bean = new File(folder.getRoot(), "foo/bar/ConfigurableBean.java");
+        Files.write(Joiner.on('\n').join("package foo.bar;", "public class ConfigurableBean extends " + PropertyBean.class.getName()
+                + " implements FluentPropertyBean<ConfigurableBean> {", "}"), bean, Charsets.UTF_8);
+        final Class<?> beanClass = compile(file, bean).loadClass(ROOT_PACKAGE + ".ConfigurableBean");
+        final PropertyBean instance = (PropertyBean) beanClass.newInstance();
+        final int instances = PropertyBean.instances;
+        Object fluent = beanClass.getMethod("name", String.class).invoke(instance, "name");
+        assertThat("no wrapper", fluent, is((Object) instance));
+        fluent = beanClass.getMethod("age", int.class).invoke(fluent, 42);
+        fluent = beanClass.getMethod("addTags", String.class, String.class).invoke(fluent, "a", "b");
+        assertThat(fluent, is((Object) instance));
+        assertThat(instance.getName(), is("name"));
+        assertThat(instance.getAge(), is(42));
+        assertThat(instance.getTags(), is((List<String>) Lists.newArrayList("a", "b")));
+        assertThat(PropertyBean.instances, is(instances));
+    }
+
+    @Test
+    public void shouldShareBaseClassesInHierarchyMode() throws Exception {
+        final FluentApiGenerator generator = fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(folder.getRoot().getPath())
+                .mode(GenerationMode.HIERARCHY).build().addClasses(Lists.<Class<?>> newArrayList(TextField.class, PasswordField.class,
+                        TextArea.class));
+        final CompilationResult result = generator.verify();
+        assertTrue(result.toString(), result.isSuccess());
+        assertTrue(result.getClassNames().toString(), result.getClassNames().contains(ROOT_PACKAGE + ".FluentAbstractTextFieldBase"));
+        assertTrue(result.getClassNames().toString(), result.getClassNames().contains(ROOT_PACKAGE + ".FluentAbstractComponentBase"));
+
+        final JDefinedClass fluentTextField = generator.getDefinedClass(TextField.class);
+        assertThat(fluentTextField._extends().fullName(), is(ROOT_PACKAGE + ".FluentAbstractTextFieldBase<" + ROOT_PACKAGE
+                + ".FluentTextField," + TextField.class.getName() + ">"));
+        assertTrue("inherited from the base class", fluentTextField.getMethod("caption", new JType[] { fluentTextField.owner()
+                .ref(String.class) }) == null);
+        generator.generateCode();
+        assertTrue(generator.getReport().toString(), generator.getReport().getMethodsInherited() > 0);
+        assertTrue(generator.getReport().toString(), generator.getReport().getBaseClassCount() > 0);
+
+        final Class<?> fluentClass = result.classLoader(getClass().getClassLoader()).loadClass(ROOT_PACKAGE + ".FluentTextField");
+        Object fluent = fluentClass.getMethod("textField").invoke(null);
+        fluent = fluentClass.getMethod("caption", String.class).invoke(fluent, "caption");
+        assertThat("returns the fluent class", fluent.getClass().getName(), is(fluentClass.getName()));
+        fluent = fluentClass.getMethod("maxLength", int.class).invoke(fluent, 8);
+        final TextField textField = (TextField) fluentClass.getMethod("get").invoke(fluent);
+        assertThat(textField.getCaption(), is("caption"));
+        assertThat(textField.getMaxLength(), is(8));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRequireTargetForInterfaceMode() {
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(folder.getRoot().getPath()).mode(GenerationMode.INTERFACE).build();
+    }
+
+    @Test
+    public void shouldGenerateSameCodeStreaming() throws IOException {
+        final List<Class<?>> sourceClasses = Lists.<Class<?>> newArrayList(TextField.class, Button.class, ContainerBean.class);
+        final DefinedClassCallback callback = new DefinedClassCallback() {
+
+            @Override
+            public void defined(final String sourceClassName, final JDefinedClass definedClass) {
+                definedClass.method(FluentApiGenerator.PUBLIC_STATIC, String.class, "sourceClassName").body()
+                        ._return(JExpr.lit(sourceClassName));
+            }
+        };
+
+        final File buffered = folder.newFolder("buffered");
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(buffered.getPath()).addDefinedClassCallbacks(callback).build()
+                .addClasses(sourceClasses).generateCode();
+        final File streamed = folder.newFolder("streamed");
+        final FluentApiGenerator generator = fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(streamed.getPath()).streaming(true)
+                .addDefinedClassCallbacks(callback).build().addClasses(sourceClasses);
+
+        // written before generateCode()
+        final String path = "foo/bar/FluentButton.java";
+        assertTrue(new File(streamed, path).isFile());
+        assertTrue(Files.toString(new File(streamed, path), Charsets.UTF_8).contains("return \"com.vaadin.ui.Button\";"));
+        generator.generateCode();
+
+        for (final Class<?> sourceClass : sourceClasses) {
+            final String file = "foo/bar/Fluent" + sourceClass.getSimpleName() + ".java";
+            assertThat(file, withoutGenerated(new File(streamed, file)), is(withoutGenerated(new File(buffered, file))));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotKeepDefinedClassesStreaming() {
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(folder.getRoot().getPath()).streaming(true).build()
+                .addClass(ContainerBean.class).getDefinedClass(ContainerBean.class);
+    }
+
+    @Test
+    public void shouldReportMetrics() {
+        final List<ClassMetrics> completed = Lists.newArrayList();
+        final List<GenerationReport> reports = Lists.newArrayList();
+        final GenerationListener listener = new GenerationListener() {
+
+            @Override
+            public void classCompleted(final ClassMetrics metrics) {
+                completed.add(metrics);
+            }
+
+            @Override
+            public void generationCompleted(final GenerationReport report) {
+                reports.add(report);
+            }
+        };
+        final FluentApiGenerator generator = fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(folder.getRoot().getPath())
+                .addIgnoredMethodNames("setId").addGenerationListeners(listener).build()
+                .addClasses(Lists.<Class<?>> newArrayList(TextField.class, Button.class));
+        assertTrue("written in generateCode()", completed.isEmpty());
+        generator.generateCode();
+
+        assertThat(completed.size(), is(2));
+        final ClassMetrics textField = completed.get(completed.get(0).getSourceClassName().equals(TextField.class.getName()) ? 0 : 1);
+        assertThat(textField.getGeneratedClassName(), is(ROOT_PACKAGE + ".FluentTextField"));
+        assertThat(textField.getMethodsIgnored(), is(1));
+        assertTrue(textField.getMethodsClassified() > textField.getMethodsEmitted());
+        for (final GenerationPhase phase : GenerationPhase.values()) {
+            assertTrue(phase.name(), textField.getNanos(phase) > 0);
+        }
+
+        final GenerationReport report = generator.getReport();
+        assertThat(reports, is((List<GenerationReport>) Lists.newArrayList(report)));
+        assertThat(report.getClassCount(), is(2));
+        assertThat(report.getMethodsIgnored(), is(2L));
+        assertThat(report.getSlowestClasses().size(), is(2));
+        assertTrue(report.getSlowestClasses().get(0).getTotalNanos() >= report.getSlowestClasses().get(1).getTotalNanos());
+    }
+
+    private ClassLoader compile(final File... files) throws IOException {
+        final File classes = folder.newFolder();
+        final List<String> arguments = Lists.newArrayList("-classpath", System.getProperty("java.class.path"), "-d", classes.getPath());
+        for (final File file : files) {
+            arguments.add(file.getPath());
+        }
+        assertTrue(systemJavaCompiler.run(null, null, null, arguments.toArray(new String[arguments.size()])) == 0);
+        return new URLClassLoader(new URL[] { classes.toURI().toURL() }, getClass().getClassLoader());
+    }
+
+    private static List<String> withoutGenerated(final File file) throws IOException {
+        final List<String> lines = Lists.newArrayList();
+        for (final String line : Files.readLines(file, Charsets.UTF_8)) {
+            if (!line.startsWith("@Generated")) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
     @Test
     @Ignore
     public void shouldReturnMethodsOfInterest() throws Exception {
@@ -0,0 +1,109 @@
+package de.holisticon.toolbox.generator;
+
+import static de.holisticon.toolbox.generator.FluentApiGenerator.fluentApiGenerator;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.TextField;
+
+import de.holisticon.toolbox.generator.fixture.ContainerBean;
+import de.holisticon.toolbox.generator.fixture.PropertyBean;
+import de.holisticon.toolbox.generator.output.JarOutputSink;
+
+/**
+ * Generates in separate JVMs with different time zone, locale, line separator and encoding, the output must be byte-identical.
+ */
+public class ReproducibleOutputTest {
+
+    private static final List<Class<?>> SOURCE_CLASSES = Lists.<Class<?>> newArrayList(TextField.class, Button.class, ContainerBean.class,
+            PropertyBean.class);
+    private static final String JAR = "fluent-sources.jar";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Entry point of the forked JVMs.
+     * @param args target directory
+     */
+    public static void main(final String[] args) {
+        generate(new File(args[0]));
+    }
+
+    private static Map<String, String> generate(final File targetDirectory) {
+        for (final GenerationMode mode : GenerationMode.values()) {
+            fluentApiGenerator().rootPackage("foo." + mode.name().toLowerCase()).targetDirectory(targetDirectory.getPath()).mode(mode)
+                    .target("1.8").reproducible(true).build().addClasses(SOURCE_CLASSES).generateCode();
+        }
+        final FluentApiGenerator generator = fluentApiGenerator().rootPackage("foo.jar").outputSink(new JarOutputSink(new File(targetDirectory,
+                JAR))).reproducible(true).build().addClasses(SOURCE_CLASSES);
+        generator.generateCode();
+        return generator.getContentHashes();
+    }
+
+    @Test
+    public void shouldGenerateSameBytesInSeparateJvms() throws Exception {
+        final File first = fork("first", "-Duser.timezone=UTC", "-Duser.language=en", "-Dfile.encoding=UTF-8", "-Dline.separator=\n");
+        final File second = fork("second", "-Duser.timezone=Pacific/Chatham", "-Duser.language=de", "-Duser.country=DE",
+                "-Dfile.encoding=ISO-8859-1", "-Dline.separator=\r\n");
+
+        final List<String> files = Lists.newArrayList();
+        for (final GenerationMode mode : GenerationMode.values()) {
+            for (final Class<?> sourceClass : SOURCE_CLASSES) {
+                files.add("foo/" + mode.name().toLowerCase() + "/Fluent" + sourceClass.getSimpleName() + ".java");
+            }
+        }
+        files.add(JAR);
+        for (final String file : files) {
+            assertTrue(file, new File(first, file).isFile());
+            assertArrayEquals(file, Files.toByteArray(new File(first, file)), Files.toByteArray(new File(second, file)));
+        }
+        final String source = Files.toString(new File(second, "foo/wrapper/FluentButton.java"), Charsets.UTF_8);
+        assertTrue(source, !source.contains("\r") && !source.contains("date"));
+    }
+
+    @Test
+    public void shouldExposeContentHashes() throws IOException {
+        final Map<String, String> hashes = generate(folder.getRoot());
+
+        assertThat(hashes.size(), is(SOURCE_CLASSES.size()));
+        final File directory = folder.newFolder("directory");
+        final FluentApiGenerator generator = fluentApiGenerator().rootPackage("foo.jar").targetDirectory(directory.getPath()).reproducible(true)
+                .build().addClasses(SOURCE_CLASSES);
+        generator.generateCode();
+        assertThat(generator.getContentHashes(), is(hashes));
+        final File file = new File(directory, "foo/jar/FluentButton.java");
+        assertThat(hashes.get("foo.jar.FluentButton"), is(Files.hash(file, Hashing.sha256()).toString()));
+    }
+
+    private File fork(final String name, final String... properties) throws Exception {
+        final File targetDirectory = folder.newFolder(name);
+        final List<String> command = Lists.newArrayList(new File(System.getProperty("java.home"), "bin/java").getPath(), "-cp",
+                System.getProperty("java.class.path"));
+        command.addAll(Lists.newArrayList(properties));
+        command.add(getClass().getName());
+        command.add(targetDirectory.getPath());
+
+        final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        final String output = new String(ByteStreams.toByteArray(process.getInputStream()), Charsets.UTF_8);
+        assertThat(output, process.waitFor(), is(0));
+        return targetDirectory;
+    }
+}
@@ -0,0 +1,93 @@
+package de.holisticon.toolbox.generator;
+
+import static de.holisticon.toolbox.generator.FluentApiGenerator.fluentApiGenerator;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.vaadin.ui.TextField;
+
+import de.holisticon.toolbox.generator.fixture.PropertyBean;
+
+public class RuntimeFluentClassesTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldDefineFluentClassOncePerType() throws Exception {
+        final RuntimeFluentClasses runtime = FluentApiGenerator.runtime();
+        final Class<?> fluentClass = runtime.fluentFor(PropertyBean.class);
+        assertThat(fluentClass.getName(), is(PropertyBean.class.getPackage().getName() + ".FluentPropertyBean"));
+        assertTrue("cached", runtime.fluentFor(PropertyBean.class) == fluentClass);
+        assertThat(runtime.size(), is(1));
+
+        Object fluent = fluentClass.getMethod("propertyBean", String.class).invoke(null, "name");
+        fluent = fluentClass.getMethod("age", int.class).invoke(fluent, 42);
+        fluent = fluentClass.getMethod("addTags", String.class, String.class).invoke(fluent, "a", "b");
+        final PropertyBean bean = (PropertyBean) fluentClass.getMethod("get").invoke(fluent);
+        assertThat(bean.getName(), is("name"));
+        assertThat(bean.getAge(), is(42));
+        assertThat(bean.getTags(), is((List<String>) Lists.newArrayList("a", "b")));
+    }
+
+    @Test
+    public void shouldUseBuilderSettings() throws Exception {
+        final RuntimeFluentClasses runtime = fluentApiGenerator().rootPackage("foo.bar").mode(GenerationMode.HIERARCHY).buildRuntime();
+        final Class<?> fluentClass = runtime.fluentFor(TextField.class);
+        assertThat(fluentClass.getName(), is("foo.bar.FluentTextField"));
+        assertThat(fluentClass.getSuperclass().getName(), is("foo.bar.FluentAbstractTextFieldBase"));
+
+        final Object fluent = fluentClass.getMethod("caption", String.class).invoke(fluentClass.getMethod("textField").invoke(null), "caption");
+        assertThat(((TextField) fluentClass.getMethod("get").invoke(fluent)).getCaption(), is("caption"));
+    }
+
+    @Test
+    public void shouldRejectClassesOfNestedJars() throws Exception {
+        final File classes = folder.newFolder("classes");
+        final File source = new File(folder.getRoot(), "Nested.java");
+        Files.write("package nested; public class Nested { public void setName(String name) {} }", source, Charsets.UTF_8);
+        assertThat(ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classes.getPath(), source.getPath()), is(0));
+        // the layout of a Spring Boot fat jar
+        final File jar = folder.newFile("app.jar");
+        final JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+        try {
+            out.putNextEntry(new JarEntry("BOOT-INF/classes/nested/Nested.class"));
+            Files.copy(new File(classes, "nested/Nested.class"), out);
+        } finally {
+            out.close();
+        }
+        final URLClassLoader classLoader = new URLClassLoader(new URL[] { new URL("jar:" + jar.toURI() + "!/BOOT-INF/classes/") }, null);
+
+        try {
+            FluentApiGenerator.runtime().fluentFor(classLoader.loadClass("nested.Nested"));
+            fail("nested jar accepted");
+        } catch (final IllegalStateException e) {
+            assertThat(e.getMessage(), containsString("not of nested jars"));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectInterfaceMode() {
+        fluentApiGenerator().mode(GenerationMode.INTERFACE).target("1.8").buildRuntime();
+    }
+}
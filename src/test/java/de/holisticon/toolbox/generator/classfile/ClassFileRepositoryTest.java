@@ -0,0 +1,132 @@
+package de.holisticon.toolbox.generator.classfile;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+import com.vaadin.ui.TextField;
+
+import de.holisticon.toolbox.generator.model.SourceConstructor;
+import de.holisticon.toolbox.generator.model.SourceMethod;
+import de.holisticon.toolbox.generator.model.SourceType;
+
+public class ClassFileRepositoryTest {
+
+    private static final String UNINITIALIZABLE_BEAN = "de.holisticon.toolbox.generator.fixture.UninitializableBean";
+
+    private final ClassFileRepository repository = new ClassFileRepository(Collections.<File> emptyList(), getClass().getClassLoader());
+
+    @After
+    public void tearDown() {
+        repository.close();
+    }
+
+    @Test
+    public void shouldReadSameApiAsReflection() throws Exception {
+        assertSameApi(TextField.class);
+        // loads the class, but does not initialize it
+        assertSameApi(Class.forName(UNINITIALIZABLE_BEAN, false, getClass().getClassLoader()));
+    }
+
+    @Test
+    public void shouldResolveMemberTypes() {
+        final SourceType sourceType = repository.sourceType(UNINITIALIZABLE_BEAN + "$Item");
+
+        assertThat(sourceType.getSimpleName(), is("Item"));
+        assertThat(sourceType.getType().getOuter().getName(), is(UNINITIALIZABLE_BEAN));
+    }
+
+    @Test
+    public void shouldReadFromClassPathEntry() throws Exception {
+        final File jar = new File(TextField.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        final ClassFileRepository jarRepository = new ClassFileRepository(Collections.singletonList(jar), null);
+        try {
+            assertTrue(jarRepository.contains(TextField.class.getName()));
+            assertTrue(!jarRepository.contains(UNINITIALIZABLE_BEAN));
+        } finally {
+            jarRepository.close();
+        }
+    }
+
+    @Test
+    public void shouldScanPackageForCandidates() {
+        final Set<String> names = Sets.newTreeSet();
+        final ClassFileScan scan = repository.scanPackage("de.holisticon.toolbox.generator.fixture", false);
+        while (scan.hasNext()) {
+            names.add(scan.next().get().getName());
+        }
+
+        assertThat(names, is((Set<String>) Sets.newTreeSet(Arrays.asList(UNINITIALIZABLE_BEAN, UNINITIALIZABLE_BEAN + "$Item",
+                "de.holisticon.toolbox.generator.fixture.ContainerBean", "de.holisticon.toolbox.generator.fixture.Order",
+                "de.holisticon.toolbox.generator.fixture.PropertyBean"))));
+    }
+
+    @Test
+    public void shouldNotKeepScannedCandidates() {
+        final ClassFileScan scan = repository.scanPackage("de.holisticon.toolbox.generator.fixture", false);
+        while (scan.hasNext()) {
+            scan.next().get();
+        }
+        final long misses = repository.getSourceMethodCache().getMissCount();
+        final long hits = repository.getSourceMethodCache().getHitCount();
+
+        // the declared methods of the candidate are analyzed again, the ones of java.lang.Object are kept
+        repository.sourceType("de.holisticon.toolbox.generator.fixture.PropertyBean");
+        assertThat(repository.getSourceMethodCache().getMissCount(), is(misses + 1));
+        assertThat(repository.getSourceMethodCache().getHitCount(), is(hits + 1));
+    }
+
+    @Test
+    public void shouldScanPackageOfJar() throws Exception {
+        final Set<String> names = Sets.newHashSet();
+        final ClassFileScan scan = repository.scanPackage("com.vaadin.ui", false);
+        try {
+            while (scan.hasNext()) {
+                names.add(scan.next().get().getName());
+            }
+        } finally {
+            scan.close();
+        }
+
+        assertTrue(names.contains(TextField.class.getName()));
+        // abstract
+        assertTrue(!names.contains("com.vaadin.ui.AbstractField"));
+        // interface
+        assertTrue(!names.contains("com.vaadin.ui.Component"));
+    }
+
+    private void assertSameApi(final Class<?> type) {
+        final SourceType reflected = SourceType.of(type);
+        final SourceType read = repository.sourceType(type.getName());
+
+        assertThat(read.getName(), is(reflected.getName()));
+        assertThat(read.getModifiers(), is(reflected.getModifiers()));
+        assertThat(constructors(read), is(constructors(reflected)));
+        assertThat(methods(read), is(methods(reflected)));
+    }
+
+    private static Set<String> constructors(final SourceType sourceType) {
+        final Set<String> constructors = Sets.newTreeSet();
+        for (final SourceConstructor constructor : sourceType.getConstructors()) {
+            constructors.add(constructor.getModifiers() + " " + constructor + " " + constructor.isSynthetic());
+        }
+        return constructors;
+    }
+
+    private static Set<String> methods(final SourceType sourceType) {
+        final Set<String> methods = Sets.newTreeSet();
+        for (final SourceMethod method : sourceType.getMethods()) {
+            methods.add(method + " " + method.isDeprecated() + " " + method.isSynthetic() + " " + method.isBridge());
+        }
+        return methods;
+    }
+}
@@ -0,0 +1,120 @@
+package de.holisticon.toolbox.generator.daemon;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+import de.holisticon.toolbox.generator.fixture.PropertyBean;
+
+public class GenerationDaemonTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File stateFile;
+    private GenerationDaemon daemon;
+    private Thread serving;
+
+    @Before
+    public void startDaemon() throws Exception {
+        stateFile = new File(folder.getRoot(), "daemon");
+        daemon = GenerationDaemon.start(stateFile, TimeUnit.MINUTES.toMillis(1));
+        serving = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                daemon.serve();
+            }
+        });
+        serving.start();
+    }
+
+    @After
+    public void stopDaemon() throws InterruptedException {
+        daemon.close();
+        serving.join();
+    }
+
+    @Test
+    public void shouldGenerateAndReuseClassPath() throws Exception {
+        final File classes = new File(PropertyBean.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        final File target = folder.newFolder("target");
+        final Properties request = new Properties();
+        request.setProperty(GenerationSettings.TARGET_DIRECTORY, target.getPath());
+        request.setProperty(GenerationSettings.ROOT_PACKAGE, "foo.bar");
+        request.setProperty(GenerationSettings.CLASS_PATH, classes.getPath());
+        request.setProperty(GenerationSettings.CLASSES, PropertyBean.class.getName());
+
+        Properties response = GenerationClient.send(stateFile, request);
+        assertThat(response.toString(), response.getProperty(GenerationDaemon.STATUS), is(GenerationDaemon.OK));
+        assertThat(response.getProperty(GenerationDaemon.GENERATED), is("1"));
+        assertThat(response.getProperty(GenerationDaemon.CACHED), is("false"));
+        assertTrue(new File(target, "foo/bar/FluentPropertyBean.java").isFile());
+
+        response = GenerationClient.send(stateFile, request);
+        assertThat(response.getProperty(GenerationDaemon.UP_TO_DATE), is("1"));
+        assertThat(response.getProperty(GenerationDaemon.CACHED), is("true"));
+    }
+
+    @Test
+    public void shouldRejectInvalidToken() {
+        final Properties request = new Properties();
+        request.setProperty(GenerationDaemon.TOKEN, "guessed");
+        request.setProperty(GenerationDaemon.COMMAND, GenerationDaemon.STOP);
+
+        final Properties response = daemon.respond(request);
+        assertThat(response.getProperty(GenerationDaemon.STATUS), is(GenerationDaemon.ERROR));
+        assertThat(response.getProperty(GenerationDaemon.MESSAGE), is("invalid token"));
+        assertTrue(serving.isAlive());
+    }
+
+    @Test
+    public void shouldStopOnCommand() throws Exception {
+        final Properties request = new Properties();
+        request.setProperty(GenerationDaemon.COMMAND, GenerationDaemon.STOP);
+
+        assertThat(GenerationClient.send(stateFile, request).getProperty(GenerationDaemon.STATUS), is(GenerationDaemon.OK));
+        serving.join(TimeUnit.SECONDS.toMillis(10));
+        assertTrue(!serving.isAlive());
+        assertTrue(!stateFile.exists());
+    }
+
+    @Test
+    public void shouldNotStartSecondDaemonForStateFile() throws Exception {
+        final String state = Files.toString(stateFile, Charsets.ISO_8859_1);
+        // the lock of the running daemon must survive a collection
+        System.gc();
+        try {
+            GenerationDaemon.start(stateFile, TimeUnit.MINUTES.toMillis(1)).close();
+            fail("second daemon started");
+        } catch (final IOException e) {
+            assertThat(e.getMessage(), containsString("another daemon runs"));
+        }
+        assertThat(Files.toString(stateFile, Charsets.ISO_8859_1), is(state));
+    }
+
+    @Test
+    public void shouldKeepStateOfOtherDaemon() throws Exception {
+        Files.write("port=1\ntoken=other\n", stateFile, Charsets.ISO_8859_1);
+
+        daemon.close();
+        serving.join(TimeUnit.SECONDS.toMillis(10));
+        assertTrue(stateFile.isFile());
+    }
+}
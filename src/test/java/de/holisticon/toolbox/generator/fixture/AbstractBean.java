@@ -0,0 +1,12 @@
+package de.holisticon.toolbox.generator.fixture;
+
+public abstract class AbstractBean<T> {
+
+    public void setValue(final T value) {
+        // fixture
+    }
+
+    public void setId(final long id) {
+        // fixture
+    }
+}
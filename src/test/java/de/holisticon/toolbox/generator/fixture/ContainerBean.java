@@ -0,0 +1,41 @@
+package de.holisticon.toolbox.generator.fixture;
+
+import java.util.Collection;
+
+/**
+ * Adders with and without bulk methods.
+ */
+public class ContainerBean {
+
+    public void addComponent(final String component) {
+        // fixture
+    }
+
+    public void addComponents(final String[] components) {
+        // bulk method taking an array
+    }
+
+    public void addTag(final String tag) {
+        // fixture
+    }
+
+    public void addAllTags(final Collection<String> tags) {
+        // bulk method taking a collection
+    }
+
+    public void addValue(final int value) {
+        // primitive
+    }
+
+    public void addListener(final Runnable listener) {
+        // fixture
+    }
+
+    public void addListener(final Thread listener) {
+        // overloaded
+    }
+
+    public void addObject(final Object object) {
+        // fixture
+    }
+}
@@ -0,0 +1,30 @@
+package de.holisticon.toolbox.generator.fixture;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Named like a local variable of the generated "build()" in deferred mode.
+ */
+public class Order {
+
+    private String customer;
+    private final List<String> items = Lists.newArrayList();
+
+    public void setCustomer(final String customer) {
+        this.customer = customer;
+    }
+
+    public void addItem(final String item) {
+        items.add(item);
+    }
+
+    public String getCustomer() {
+        return customer;
+    }
+
+    public List<String> getItems() {
+        return items;
+    }
+}
@@ -0,0 +1,59 @@
+package de.holisticon.toolbox.generator.fixture;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Remembers its properties and counts created instances.
+ */
+public class PropertyBean {
+
+    public static int instances;
+
+    private String name;
+    private int age;
+    private boolean active;
+    private final List<String> tags = Lists.newArrayList();
+
+    public PropertyBean() {
+        instances++;
+    }
+
+    public PropertyBean(final String name) {
+        this();
+        this.name = name;
+    }
+
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    public void setAge(final int age) {
+        this.age = age;
+    }
+
+    public void setActive(final boolean active) {
+        this.active = active;
+    }
+
+    public void addTag(final String tag) {
+        tags.add(tag);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+}
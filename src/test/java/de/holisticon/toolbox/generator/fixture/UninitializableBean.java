@@ -0,0 +1,70 @@
+package de.holisticon.toolbox.generator.fixture;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fails on class initialization, must only be read from its class file.
+ */
+public class UninitializableBean extends AbstractBean<String> {
+
+    static {
+        if (Boolean.TRUE) {
+            throw new IllegalStateException("must not be initialized");
+        }
+    }
+
+    public enum Mode {
+        ON, OFF
+    }
+
+    public static class Item {
+        // fixture
+    }
+
+    public UninitializableBean() {
+        // fixture
+    }
+
+    public UninitializableBean(final String name, final int size) {
+        // fixture
+    }
+
+    @Override
+    public void setValue(final String value) {
+        // overrides generic method, creates a bridge method
+    }
+
+    public void setName(final String name) {
+        // fixture
+    }
+
+    public void setEnabled(final boolean enabled) {
+        // fixture
+    }
+
+    public void setMode(final Mode mode) {
+        // fixture
+    }
+
+    public void setEntries(final Map.Entry<String, String>[] entries) {
+        // fixture
+    }
+
+    public void setItems(final List<Item> items) {
+        // fixture
+    }
+
+    @Deprecated
+    public void setLegacy(final String legacy) {
+        // fixture
+    }
+
+    public void addItem(final Item item) {
+        // fixture
+    }
+
+    public void addMode(final Mode mode) {
+        // fixture
+    }
+}
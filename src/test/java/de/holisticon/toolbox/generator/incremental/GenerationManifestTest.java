@@ -0,0 +1,215 @@
+package de.holisticon.toolbox.generator.incremental;
+
+import static de.holisticon.toolbox.generator.FluentApiGenerator.fluentApiGenerator;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.vaadin.ui.PasswordField;
+import com.vaadin.ui.TextField;
+
+import de.holisticon.toolbox.generator.FluentApiGenerator;
+import de.holisticon.toolbox.generator.FluentApiGeneratorBuilder;
+import de.holisticon.toolbox.generator.GenerationMode;
+
+public class GenerationManifestTest {
+
+    private static final String ROOT_PACKAGE = "foo.bar";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private FluentApiGenerator generator(final String... ignoredMethodNames) {
+        return fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(folder.getRoot().getPath()).addIgnoredMethodNames(ignoredMethodNames)
+                .incremental(true).build();
+    }
+
+    private File generatedFile(final String simpleName) {
+        return new File(folder.getRoot(), "foo/bar/Fluent" + simpleName + ".java");
+    }
+
+    /**
+     * Compiles a class of package foo.bar into the given directory.
+     */
+    private void compile(final File classes, final String simpleName, final String body) throws IOException {
+        final File sources = new File(folder.getRoot(), "src");
+        assertTrue(sources.isDirectory() || sources.mkdirs());
+        final File source = new File(sources, simpleName + ".java");
+        Files.write("package foo.bar; " + body, source, Charsets.UTF_8);
+        assertThat(ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classes.getPath(), "-cp", classes.getPath(), source.getPath()),
+                is(0));
+    }
+
+    @Test
+    public void shouldWriteManifest() {
+        generator("setId").addClass(TextField.class).generateCode();
+
+        assertTrue(new File(folder.getRoot(), GenerationManifest.FILENAME).isFile());
+        assertTrue(generatedFile("TextField").isFile());
+    }
+
+    @Test
+    public void shouldSkipUnchangedClass() {
+        generator("setId").addClass(TextField.class).generateCode();
+
+        final FluentApiGenerator generator = generator("setId").addClass(TextField.class);
+        assertThat(generator.getReport().getUpToDateCount(), is(1));
+        assertThat(generator.getReport().getClassCount(), is(0));
+    }
+
+    @Test
+    public void shouldRegenerateWhenSettingsChanged() {
+        generator("setId").addClass(TextField.class).generateCode();
+
+        final FluentApiGenerator generator = generator("setId", "setParent").addClass(TextField.class);
+        assertThat(generator.getDefinedClass(TextField.class), not(is((Object) null)));
+    }
+
+    @Test
+    public void shouldRegenerateDeletedFile() {
+        generator("setId").addClass(TextField.class).generateCode();
+        assertTrue(generatedFile("TextField").delete());
+
+        generator("setId").addClass(TextField.class).generateCode();
+        assertTrue(generatedFile("TextField").isFile());
+    }
+
+    @Test
+    public void shouldDeleteFilesOfRemovedSourceClasses() throws IOException {
+        final File classes = folder.newFolder("classes");
+        compile(classes, "Removed", "public class Removed { public void setName(String name) {} }");
+        final File output = folder.newFolder("output");
+        final FluentApiGeneratorBuilder builder = fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(output.getPath())
+                .addClassPathEntries(classes).incremental(true);
+
+        builder.build().addClassFile("foo.bar.Removed").addClass(TextField.class).generateCode();
+        final File generated = new File(output, "foo/bar/FluentRemoved.java");
+        assertTrue(generated.isFile());
+
+        assertTrue(new File(classes, "foo/bar/Removed.class").delete());
+        builder.build().addClass(TextField.class).generateCode();
+        assertTrue(new File(output, "foo/bar/FluentTextField.java").isFile());
+        assertFalse(generated.isFile());
+    }
+
+    @Test
+    public void shouldKeepBaseClassesWhileExtended() throws IOException {
+        final File classes = folder.newFolder("classes");
+        compile(classes, "Parent", "public class Parent { public void setName(String name) {} }");
+        compile(classes, "Child", "public class Child extends Parent { public void setAge(int age) {} }");
+        final File output = folder.newFolder("output");
+        final FluentApiGeneratorBuilder builder = fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(output.getPath())
+                .addClassPathEntries(classes).mode(GenerationMode.HIERARCHY).incremental(true);
+        builder.build().addClassFile("foo.bar.Child").generateCode();
+        final File base = new File(output, "foo/bar/FluentParentBase.java");
+        assertTrue(base.isFile());
+
+        // a deleted base class is generated again with its sub class
+        assertTrue(base.delete());
+        assertFalse(GenerationManifest.isIntact(output));
+        builder.build().addClassFile("foo.bar.Child").generateCode();
+        assertTrue(base.isFile());
+        assertTrue(GenerationManifest.isIntact(output));
+
+        // and deleted with its last sub class
+        assertTrue(new File(classes, "foo/bar/Child.class").delete());
+        builder.build().addClass(TextField.class).generateCode();
+        assertFalse(new File(output, "foo/bar/FluentChild.java").isFile());
+        assertFalse(base.isFile());
+    }
+
+    @Test
+    public void shouldRegenerateWhenMethodMovesToSuperclass() throws IOException {
+        final File classes = folder.newFolder("classes");
+        compile(classes, "Parent", "public class Parent { public void setName(String name) {} }");
+        compile(classes, "Child", "public class Child extends Parent { public void setAge(int age) {} }");
+        final File output = folder.newFolder("output");
+        final FluentApiGeneratorBuilder builder = fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(output.getPath())
+                .addClassPathEntries(classes).mode(GenerationMode.HIERARCHY).incremental(true);
+        builder.build().addClassFile("foo.bar.Child").generateCode();
+        final File base = new File(output, "foo/bar/FluentParentBase.java");
+        assertFalse(Files.toString(base, Charsets.UTF_8).contains("age("));
+
+        // the api of Child stays the same
+        compile(classes, "Parent", "public class Parent { public void setName(String name) {} public void setAge(int age) {} }");
+        compile(classes, "Child", "public class Child extends Parent { }");
+        final FluentApiGenerator generator = builder.build().addClassFile("foo.bar.Child");
+        generator.generateCode();
+        assertThat(generator.getReport().getUpToDateCount(), is(0));
+        assertTrue(Files.toString(base, Charsets.UTF_8).contains("age("));
+    }
+
+    @Test
+    public void shouldKeepFilesOfOtherRuns() {
+        generator("setId").addClass(TextField.class).generateCode();
+        // another run with other classes and settings in the same target directory
+        generator("setId", "setParent").addClass(PasswordField.class).generateCode();
+        assertTrue(generatedFile("TextField").isFile());
+        assertTrue(generatedFile("PasswordField").isFile());
+        assertTrue(GenerationManifest.isIntact(folder.getRoot()));
+
+        final FluentApiGenerator generator = generator("setId").addClass(TextField.class);
+        assertThat(generator.getReport().getUpToDateCount(), is(1));
+    }
+
+    @Test
+    public void shouldKeepFilesOfClassesFromOtherClassLoaders() throws Exception {
+        final File classes = folder.newFolder("classes");
+        compile(classes, "Loaded", "public class Loaded { public void setName(String name) {} }");
+        final URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toURI().toURL() }, null);
+        generator("setId").addClass(classLoader.loadClass("foo.bar.Loaded")).generateCode();
+        assertTrue(generatedFile("Loaded").isFile());
+
+        // neither added nor visible to the context class loader, but still in the directory it was loaded from
+        generator("setId").addClass(TextField.class).generateCode();
+        assertTrue(generatedFile("Loaded").isFile());
+
+        assertTrue(new File(classes, "foo/bar/Loaded.class").delete());
+        generator("setId").addClass(TextField.class).generateCode();
+        assertFalse(generatedFile("Loaded").isFile());
+    }
+
+    @Test
+    public void shouldNotWriteManifestIfWritingFails() {
+        // the generated file can not replace a directory that is not empty
+        assertTrue(new File(generatedFile("TextField"), "blocking").mkdirs());
+        try {
+            generator("setId").addClass(TextField.class).generateCode();
+            fail("writing should fail");
+        } catch (final RuntimeException e) {
+            assertFalse(new File(folder.getRoot(), GenerationManifest.FILENAME).exists());
+        }
+    }
+
+    @Test
+    public void shouldDetectMissingOutputs() {
+        assertFalse(GenerationManifest.isIntact(folder.getRoot()));
+        generator("setId").addClass(TextField.class).generateCode();
+        assertTrue(GenerationManifest.isIntact(folder.getRoot()));
+
+        assertTrue(generatedFile("TextField").delete());
+        assertFalse(GenerationManifest.isIntact(folder.getRoot()));
+    }
+
+    @Test
+    public void shouldCalculateStableFingerprints() {
+        assertThat(Fingerprints.ofClass(TextField.class), is(Fingerprints.ofClass(TextField.class)));
+        assertThat(Fingerprints.ofClass(TextField.class), not(is(Fingerprints.ofClass(PasswordField.class))));
+    }
+}
@@ -0,0 +1,113 @@
+package de.holisticon.toolbox.generator.index;
+
+import static de.holisticon.toolbox.generator.FluentApiGenerator.fluentApiGenerator;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.TextField;
+
+import de.holisticon.toolbox.generator.FluentApiGenerator;
+import de.holisticon.toolbox.generator.FluentApiGeneratorBuilder;
+import de.holisticon.toolbox.generator.classfile.ClassFileRepository;
+import de.holisticon.toolbox.generator.fixture.PropertyBean;
+import de.holisticon.toolbox.generator.incremental.Fingerprints;
+import de.holisticon.toolbox.generator.model.SourceMethodCache;
+import de.holisticon.toolbox.generator.model.SourceType;
+
+public class SourceTypeIndexTest {
+
+    private static final String PATH = "foo/bar/FluentTextField.java";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private String generate(final String name, final File indexDirectory, final boolean classFile) throws IOException {
+        final File target = folder.newFolder(name);
+        final FluentApiGeneratorBuilder builder = fluentApiGenerator().rootPackage("foo.bar").targetDirectory(target.getPath()).reproducible(true);
+        if (indexDirectory != null) {
+            builder.indexDirectory(indexDirectory);
+        }
+        final FluentApiGenerator generator = builder.build();
+        if (classFile) {
+            generator.addClassFile(TextField.class.getName());
+        } else {
+            generator.addClass(TextField.class);
+        }
+        generator.generateCode();
+        return Files.toString(new File(target, PATH), Charsets.UTF_8);
+    }
+
+    @Test
+    public void shouldGenerateSameCodeFromIndex() throws IOException {
+        final File indexDirectory = folder.newFolder("index");
+        final String analyzed = generate("analyzed", null, false);
+
+        assertThat(generate("reflection", indexDirectory, false), is(analyzed));
+        assertThat(indexDirectory.list().length, is(1));
+        assertThat(generate("indexedReflection", indexDirectory, false), is(analyzed));
+        assertThat(generate("indexedClassFile", indexDirectory, true), is(analyzed));
+    }
+
+    @Test
+    public void shouldTakeUnchangedTypesFromIndex() {
+        final File indexDirectory = new File(folder.getRoot(), "index");
+        final SourceTypeIndex index = new SourceTypeIndex(indexDirectory);
+        final SourceType analyzed = index.sourceType(TextField.class, new SourceMethodCache());
+        assertThat(index.getMissCount(), is(1L));
+        index.write();
+
+        final SourceTypeIndex reopened = new SourceTypeIndex(indexDirectory);
+        final SourceType indexed = reopened.sourceType(TextField.class.getName(), new ClassFileRepository(ImmutableList.<File> of(),
+                getClass().getClassLoader()));
+        assertThat(reopened.getHitCount(), is(1L));
+        assertThat(indexed.getFingerprint(), is(Fingerprints.ofClass(TextField.class)));
+        assertThat(indexed.getMethods().toString(), is(analyzed.getMethods().toString()));
+        assertThat(indexed.getConstructors().toString(), is(analyzed.getConstructors().toString()));
+    }
+
+    @Test
+    public void shouldWriteNextVersionWhileIndexIsMapped() {
+        final File indexDirectory = new File(folder.getRoot(), "index");
+        final SourceTypeIndex first = new SourceTypeIndex(indexDirectory);
+        first.sourceType(TextField.class, new SourceMethodCache());
+        first.write();
+
+        final SourceTypeIndex second = new SourceTypeIndex(indexDirectory);
+        // maps the first version
+        second.sourceType(TextField.class, new SourceMethodCache());
+        second.sourceType(Button.class, new SourceMethodCache());
+        assertThat(second.getHitCount(), is(1L));
+        second.write();
+        assertThat(indexDirectory.list().length, is(1));
+        assertThat(indexDirectory.list()[0].endsWith(".1.idx"), is(true));
+        second.sourceType(TextField.class, new SourceMethodCache());
+        assertThat(second.getHitCount(), is(2L));
+
+        final SourceTypeIndex reopened = new SourceTypeIndex(indexDirectory);
+        reopened.sourceType(TextField.class, new SourceMethodCache());
+        reopened.sourceType(Button.class, new SourceMethodCache());
+        assertThat(reopened.getHitCount(), is(2L));
+    }
+
+    @Test
+    public void shouldNotIndexClassesOfDirectories() {
+        final File indexDirectory = new File(folder.getRoot(), "index");
+        final SourceTypeIndex index = new SourceTypeIndex(indexDirectory);
+
+        assertThat(index.sourceType(PropertyBean.class, new SourceMethodCache()).getFingerprint(), is(nullValue()));
+        index.write();
+        assertThat(indexDirectory.exists(), is(false));
+    }
+}
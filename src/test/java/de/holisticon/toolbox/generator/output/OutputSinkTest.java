@@ -0,0 +1,149 @@
+package de.holisticon.toolbox.generator.output;
+
+import static de.holisticon.toolbox.generator.FluentApiGenerator.fluentApiGenerator;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.sun.codemodel.CodeWriter;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JPackage;
+import com.vaadin.ui.Button;
+
+import de.holisticon.toolbox.generator.fixture.ContainerBean;
+
+public class OutputSinkTest {
+
+    private static final String ROOT_PACKAGE = "foo.bar";
+    private static final List<Class<?>> SOURCE_CLASSES = Lists.<Class<?>> newArrayList(Button.class, ContainerBean.class);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldWriteAllClassesIntoOneJar() throws IOException {
+        final File directory = folder.newFolder("directory");
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(directory.getPath()).build().addClasses(SOURCE_CLASSES).generateCode();
+        final File jar = new File(folder.getRoot(), "jar/fluent-sources.jar");
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).outputSink(new JarOutputSink(jar)).streaming(true).build().addClasses(SOURCE_CLASSES)
+                .generateCode();
+
+        final ZipFile zip = new ZipFile(jar);
+        try {
+            assertThat(zip.size(), is(SOURCE_CLASSES.size()));
+            for (final Class<?> sourceClass : SOURCE_CLASSES) {
+                final String path = "foo/bar/Fluent" + sourceClass.getSimpleName() + ".java";
+                final ZipEntry entry = zip.getEntry(path);
+                assertTrue(path, entry != null);
+                assertThat(path, withoutGenerated(new String(ByteStreams.toByteArray(zip.getInputStream(entry)), Charsets.UTF_8)),
+                        is(withoutGenerated(Files.toString(new File(directory, path), Charsets.UTF_8))));
+            }
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Test
+    public void shouldCompileFromMemory() throws IOException {
+        final InMemoryOutputSink sink = new InMemoryOutputSink();
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).outputSink(sink).build().addClasses(SOURCE_CLASSES).generateCode();
+        assertThat(sink.getSources().keySet().toString(), is("[foo.bar.FluentButton, foo.bar.FluentContainerBean]"));
+
+        final File classes = folder.newFolder("classes");
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertTrue(compiler.getTask(null, null, null,
+                Arrays.asList("-classpath", System.getProperty("java.class.path"), "-d", classes.getPath()), null, sink.getJavaFileObjects())
+                .call());
+        assertTrue(new File(classes, "foo/bar/FluentContainerBean.class").isFile());
+    }
+
+    @Test
+    public void shouldNotTouchUnchangedFiles() throws IOException {
+        final File directory = folder.newFolder("directory");
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).targetDirectory(directory.getPath()).reproducible(true).build().addClasses(SOURCE_CLASSES)
+                .generateCode();
+        final File button = new File(directory, "foo/bar/FluentButton.java");
+        final File containerBean = new File(directory, "foo/bar/FluentContainerBean.java");
+        assertTrue(button.setLastModified(1000L));
+        Files.append("// changed", containerBean, Charsets.UTF_8);
+
+        final DirectoryOutputSink sink = new DirectoryOutputSink(directory, 2);
+        fluentApiGenerator().rootPackage(ROOT_PACKAGE).outputSink(sink).reproducible(true).build().addClasses(SOURCE_CLASSES).generateCode();
+        assertThat(sink.getUnchangedCount(), is(1));
+        assertThat(sink.getWrittenCount(), is(1));
+        assertThat(button.lastModified(), is(1000L));
+        assertTrue(!Files.toString(containerBean, Charsets.UTF_8).contains("// changed"));
+        assertThat(new File(directory, "foo/bar").list().length, is(2));
+    }
+
+    @Test
+    public void shouldCountPerUseWithBoundedQueue() throws IOException {
+        final DirectoryOutputSink sink = new DirectoryOutputSink(folder.newFolder("directory"), 1);
+        // more files than fit into the queue of a single writer
+        final int files = DirectoryOutputSink.QUEUED_PER_THREAD * 3;
+        writeFiles(sink, files);
+        sink.close();
+        assertThat(sink.getWrittenCount(), is(files));
+
+        writeFiles(sink, files);
+        sink.close();
+        assertThat(sink.getWrittenCount(), is(0));
+        assertThat(sink.getUnchangedCount(), is(files));
+    }
+
+    @Test
+    public void shouldWriteSubmittedFilesOnFlush() throws IOException {
+        final File directory = folder.newFolder("directory");
+        final DirectoryOutputSink sink = new DirectoryOutputSink(directory, 2);
+        final int files = DirectoryOutputSink.QUEUED_PER_THREAD * 2;
+        writeFiles(sink, files);
+        sink.flush();
+        for (int i = 0; i < files; i++) {
+            assertTrue(new File(directory, "foo/bar/File" + i + ".java").isFile());
+        }
+
+        // the writers keep running
+        writeFiles(sink, files);
+        sink.close();
+        assertThat(sink.getUnchangedCount(), is(files));
+    }
+
+    private static void writeFiles(final DirectoryOutputSink sink, final int files) throws IOException {
+        final CodeWriter codeWriter = sink.codeWriter();
+        final JPackage pkg = new JCodeModel()._package(ROOT_PACKAGE);
+        for (int i = 0; i < files; i++) {
+            final OutputStream out = codeWriter.openBinary(pkg, "File" + i + ".java");
+            out.write(("// " + i).getBytes(Charsets.UTF_8));
+            out.close();
+        }
+        codeWriter.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRequireDefaultSinkForIncrementalGeneration() {
+        fluentApiGenerator().incremental(true).outputSink(new InMemoryOutputSink()).build();
+    }
+
+    private static String withoutGenerated(final String source) {
+        return source.replaceAll("@Generated.*\\n", "");
+    }
+}
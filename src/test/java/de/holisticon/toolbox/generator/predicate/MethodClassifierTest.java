@@ -0,0 +1,121 @@
+package de.holisticon.toolbox.generator.predicate;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.vaadin.ui.TextField;
+
+import de.holisticon.toolbox.generator.model.SourceConstructor;
+import de.holisticon.toolbox.generator.model.SourceMethod;
+
+public class MethodClassifierTest {
+
+    public static class GenericBean<T> {
+
+        public void setItem(final T item) {
+        }
+    }
+
+    /**
+     * One method per skip reason, the bridge method of {@link #setItem(String)} is synthetic.
+     */
+    public static class RuleBean extends GenericBean<String> {
+
+        @Override
+        public void setItem(final String item) {
+        }
+
+        public RuleBean setChained(final int value) {
+            return this;
+        }
+
+        @Deprecated
+        public void setOld(final int value) {
+        }
+
+        public void setRange(final int from, final int to) {
+        }
+
+        public int getSize() {
+            return 0;
+        }
+
+        void setHidden(final int value) {
+        }
+    }
+
+    private final MethodClassifier classifier = MethodClassifier.compile(ImmutableSet.of("setId"));
+
+    @Test
+    public void shouldClassifyWithReasonCode() throws Exception {
+        assertClassification(TextField.class.getMethod("setMaxLength", int.class), MethodClassification.SETTER);
+        assertClassification(TextField.class.getMethod("addTextChangeListener", com.vaadin.event.FieldEvents.TextChangeListener.class),
+                MethodClassification.ADDER);
+        assertClassification(TextField.class.getMethod("setId", String.class), MethodClassification.IGNORED);
+        assertClassification(TextField.class.getMethod("getValue"), MethodClassification.NO_PREFIX);
+        assertClassification(TextField.class.getMethod("setWidth", float.class, com.vaadin.server.Sizeable.Unit.class),
+                MethodClassification.NOT_ONE_PARAM);
+        assertClassification(Object.class.getDeclaredMethod("registerNatives"), MethodClassification.NOT_PUBLIC);
+    }
+
+    @Test
+    public void shouldMatchFluentCandidateRule() {
+        for (final Method method : TextField.class.getMethods()) {
+            assertThat(method.toString(), MethodClassifier.DEFAULT.classify(method).isFluent(),
+                    is(MethodPredicates.IS_PUBLIC.apply(method) && (MethodPredicates.PREFIX_IS_ADD.apply(method)
+                            || MethodPredicates.PREFIX_IS_SET.apply(method)) && MethodPredicates.IS_VOID.apply(method)
+                            && MethodPredicates.HAS_ONE_PARAM.apply(method) && MethodPredicates.NOT_DEPRECATED.apply(method)
+                            && !MethodPredicates.IS_SYNTHETIC.apply(method)));
+        }
+    }
+
+    @Test
+    public void shouldNameRuleNotMatchedBySkippedMethod() {
+        final Set<MethodClassification> reasons = EnumSet.noneOf(MethodClassification.class);
+        for (final Method method : RuleBean.class.getDeclaredMethods()) {
+            final MethodClassification classification = classifier.classify(method);
+            if (classification.getRule() != null) {
+                reasons.add(classification);
+                assertThat(classification + " " + method, classification.getRule().apply(method), is(false));
+                assertThat(classification + " " + method, classification.getRule().matches(SourceMethod.of(method)), is(false));
+            }
+        }
+        for (final MethodClassification classification : MethodClassification.values()) {
+            assertThat(classification.toString(), reasons.contains(classification), is(classification.getRule() != null));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotApplyAccessibleRuleOnClassFiles() throws Exception {
+        ConstructorPredicates.IS_ACCESSIBLE.matches(SourceConstructor.of(TextField.class.getConstructor()));
+    }
+
+    @Test
+    public void shouldApplyRulesLikeOnSourceMethods() {
+        for (final Method method : TextField.class.getMethods()) {
+            for (final MethodPredicates rule : MethodPredicates.values()) {
+                assertThat(rule + " " + method, rule.apply(method), is(rule.matches(SourceMethod.of(method))));
+            }
+        }
+        for (final Constructor<?> constructor : TextField.class.getDeclaredConstructors()) {
+            for (final ConstructorPredicates rule : ConstructorPredicates.values()) {
+                if (rule != ConstructorPredicates.IS_ACCESSIBLE) {
+                    assertThat(rule + " " + constructor, rule.apply(constructor), is(rule.matches(SourceConstructor.of(constructor))));
+                }
+            }
+        }
+    }
+
+    private void assertClassification(final Method method, final MethodClassification expected) {
+        assertThat(classifier.classify(method), is(expected));
+        assertThat(classifier.classify(SourceMethod.of(method)), is(expected));
+    }
+}
@@ -0,0 +1,54 @@
+package de.holisticon.toolbox.generator.verify;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class SourceCompilerTest {
+
+    @Test
+    public void shouldReportDiagnosticsPerClass() throws Exception {
+        final Map<String, String> sources = ImmutableMap.of( //
+                "foo.bar.Valid", "package foo.bar; public class Valid { public String value() { return \"valid\"; } }", //
+                "foo.bar.Broken", "package foo.bar;\npublic class Broken {\n  Unknown unknown;\n}");
+
+        final CompilationResult result = SourceCompiler.compile(sources, SourceCompiler.classPath(ImmutableList.<File> of(), null));
+        assertTrue(!result.isSuccess());
+        assertThat(result.getClassNames().toString(), is("[foo.bar.Broken, foo.bar.Valid]"));
+        assertThat(result.getFailedClassNames().toString(), is("[foo.bar.Broken]"));
+        assertThat(result.getDiagnostics("foo.bar.Valid").isEmpty(), is(true));
+        final Diagnostic<?> error = result.getDiagnostics("foo.bar.Broken").get(0);
+        assertThat(error.getKind(), is(Diagnostic.Kind.ERROR));
+        assertThat(error.getLineNumber(), is(3L));
+    }
+
+    @Test
+    public void shouldLoadCompiledClasses() throws Exception {
+        final CompilationResult result = SourceCompiler.compile(
+                ImmutableMap.of("foo.bar.Valid", "package foo.bar; public class Valid { public String value() { return \"valid\"; } }"),
+                ImmutableList.<File> of());
+        assertTrue(result.toString(), result.isSuccess());
+
+        final Class<?> valid = result.classLoader(getClass().getClassLoader()).loadClass("foo.bar.Valid");
+        assertThat(valid.getMethod("value").invoke(valid.newInstance()), is((Object) "valid"));
+    }
+
+    @Test
+    public void shouldCompileForTarget() throws Exception {
+        final Map<String, String> sources = ImmutableMap.of("foo.bar.Lambda",
+                "package foo.bar; public class Lambda { Runnable runnable = () -> { }; }");
+
+        assertTrue(!SourceCompiler.compile(sources, ImmutableList.<File> of(), "1.6").isSuccess());
+        assertTrue(SourceCompiler.compile(sources, ImmutableList.<File> of(), "1.8").isSuccess());
+    }
+}
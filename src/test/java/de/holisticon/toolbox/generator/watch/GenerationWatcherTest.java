@@ -0,0 +1,131 @@
+package de.holisticon.toolbox.generator.watch;
+
+import static de.holisticon.toolbox.generator.FluentApiGenerator.fluentApiGenerator;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+public class GenerationWatcherTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File sources;
+    private File classes;
+    private File target;
+
+    @Before
+    public void compileSources() throws Exception {
+        sources = folder.newFolder("src");
+        classes = folder.newFolder("classes");
+        target = folder.newFolder("target");
+        compile("Base", "public class Base { public void setName(String name) {} }");
+        compile("Sub", "public class Sub extends Base { public void setAge(int age) {} }");
+        compile("Other", "public class Other { public void setTitle(String title) {} }");
+    }
+
+    private void compile(final String name, final String body) throws Exception {
+        final File source = new File(sources, name + ".java");
+        Files.write("package watched; " + body, source, Charsets.UTF_8);
+        final int status = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classes.getPath(), "-cp", classes.getPath(),
+                source.getPath());
+        assertThat(status, is(0));
+    }
+
+    @Test
+    public void shouldRegenerateClassesOfChangedSuperclass() throws Exception {
+        final GenerationWatcher watcher = new GenerationWatcher(fluentApiGenerator().targetDirectory(target.getPath()).reproducible(true),
+                ImmutableList.of(classes)).addClassFiles("watched.Sub", "watched.Other");
+        final PollingChangeSource changeSource = new PollingChangeSource(ImmutableList.of(classes), 10);
+        changeSource.start();
+        final WatchRound initial = watcher.round(Collections.<File> emptySet(), System.nanoTime());
+        assertThat(initial.getReport().getClassCount(), is(2));
+
+        final File baseClass = new File(classes, "watched/Base.class");
+        final long lastModified = baseClass.lastModified();
+        compile("Base", "public class Base { public void setName(String name) {} public void setColor(String color) {} }");
+        // file systems with a coarse modification time would not notice
+        assertTrue(baseClass.setLastModified(lastModified + 2000));
+
+        final FileChanges changes = changeSource.check();
+        assertThat(changes.toString(), changes.getFiles().contains(baseClass), is(true));
+        final WatchRound round = watcher.round(changes.getFiles(), changes.getFirstChangeNanos());
+        // Other is not analyzed again
+        assertThat(round.toString(), round.getReport().getClassCount(), is(1));
+        assertThat(round.getReport().getUpToDateCount(), is(0));
+        assertThat(Files.toString(new File(target, "watched/FluentSub.java"), Charsets.UTF_8).contains("color(final String color)"),
+                is(true));
+    }
+
+    @Test
+    public void shouldWatchClassesAddedToPackage() throws Exception {
+        final GenerationWatcher watcher = new GenerationWatcher(fluentApiGenerator().targetDirectory(target.getPath()).reproducible(true),
+                ImmutableList.of(classes)).addPackage("watched", false);
+        final WatchRound initial = watcher.round(Collections.<File> emptySet(), System.nanoTime());
+        assertThat(initial.getReport().getClassCount(), is(3));
+
+        compile("Added", "public class Added { public void setSize(int size) {} }");
+        final File addedClass = new File(classes, "watched/Added.class");
+        final File otherClass = new File(classes, "watched/Other.class");
+        assertTrue(otherClass.delete());
+
+        final WatchRound round = watcher.round(ImmutableSet.of(addedClass, otherClass), System.nanoTime());
+        assertThat(round.toString(), round.getReport().getClassCount(), is(1));
+        assertTrue(new File(target, "watched/FluentAdded.java").exists());
+        assertFalse(new File(target, "watched/FluentOther.java").exists());
+    }
+
+    @Test
+    public void shouldCollectBurstOfChangesIntoOneRound() throws Exception {
+        final BlockingQueue<WatchRound> rounds = new LinkedBlockingQueue<WatchRound>();
+        final GenerationWatcher watcher = new GenerationWatcher(fluentApiGenerator().targetDirectory(target.getPath()).reproducible(true),
+                ImmutableList.of(classes), 10, 500).addClassFiles("watched.Sub", "watched.Other").addListeners(new GenerationWatcher.Listener() {
+
+                    @Override
+                    public void roundCompleted(final WatchRound round) {
+                        rounds.add(round);
+                    }
+                });
+        final Thread thread = new Thread(watcher);
+        thread.start();
+        try {
+            final WatchRound initial = rounds.poll(10, TimeUnit.SECONDS);
+            assertThat(initial.getChangedFiles(), is(0));
+
+            // two changes within the quiet period
+            final File baseClass = new File(classes, "watched/Base.class");
+            assertTrue(baseClass.setLastModified(baseClass.lastModified() + 2000));
+            Thread.sleep(100);
+            final File otherClass = new File(classes, "watched/Other.class");
+            assertTrue(otherClass.setLastModified(otherClass.lastModified() + 2000));
+
+            final WatchRound round = rounds.poll(10, TimeUnit.SECONDS);
+            assertThat(round.toString(), round.getChangedFiles(), is(2));
+            assertTrue(round.toString(), round.getLatencyNanos() >= TimeUnit.MILLISECONDS.toNanos(500));
+            assertThat(rounds.poll(700, TimeUnit.MILLISECONDS), is((WatchRound) null));
+        } finally {
+            watcher.close();
+            thread.join(10000);
+        }
+        assertFalse(thread.isAlive());
+    }
+}